@@ -0,0 +1,35 @@
+import { useState, useCallback } from 'react';
+
+/**
+ * Danh sách phân trang keyset cho màn hình: tải trang đầu, "Tải thêm" nối trang kế tiếp.
+ * @param {(cursor: string|null) => Promise<{items: Array, nextCursor: string|null}>} loadPage
+ */
+const useKeysetList = (loadPage) => {
+  const [items, setItems] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
+
+  // Tải lại từ trang đầu, bỏ các trang đã nối
+  const reload = useCallback(async () => {
+    const page = await loadPage(null);
+    setItems(page.items);
+    setNextCursor(page.nextCursor);
+    return page.items;
+  }, [loadPage]);
+
+  const loadMore = useCallback(async () => {
+    if (!nextCursor || loadingMore) return;
+    setLoadingMore(true);
+    try {
+      const page = await loadPage(nextCursor);
+      setItems(prev => [...prev, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } finally {
+      setLoadingMore(false);
+    }
+  }, [loadPage, nextCursor, loadingMore]);
+
+  return { items, setItems, hasMore: Boolean(nextCursor), loadingMore, reload, loadMore };
+};
+
+export default useKeysetList;
@@ -1,10 +1,20 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useCallback } from 'react';
 import { FaPlus, FaEdit, FaTrash, FaSearch } from 'react-icons/fa';
 import { toast } from 'react-toastify';
 import api from '../../../../utils/api';
+import { fetchKeysetPage, PAGE_LIMIT } from '../../../../utils/pagination';
+import useKeysetList from '../../../../hooks/useKeysetList';
+import LoadMoreButton from '../../common/LoadMoreButton';
 
 const ItemsManagement = () => {
-  const [items, setItems] = useState([]);
+  const loadPage = useCallback(async (cursor) => {
+    const result = await fetchKeysetPage(async (cursor) => {
+      const response = await api.get('/products', { params: { limit: PAGE_LIMIT, ...(cursor && { cursor }) } });
+      return response.data;
+    }, cursor);
+    return { items: result.data, nextCursor: result.nextCursor };
+  }, []);
+  const { items, hasMore, loadingMore, reload, loadMore } = useKeysetList(loadPage);
   const [units, setUnits] = useState([]);
   const [searchTerm, setSearchTerm] = useState('');
   const [showAddForm, setShowAddForm] = useState(false);
@@ -16,19 +26,25 @@ const ItemsManagement = () => {
     export_price: ''
   });
 
-  // Fetch items from API
+  // Fetch trang đầu items from API
   const fetchItems = async () => {
     try {
-      const response = await api.get('/products');
-      if (response.data.code === 200) {
-        setItems(response.data.data);
-      }
+      await reload();
     } catch (error) {
       console.error('Lỗi khi tải danh sách mặt hàng:', error);
       toast.error('Lỗi khi tải danh sách mặt hàng!');
     }
   };
 
+  const handleLoadMore = async () => {
+    try {
+      await loadMore();
+    } catch (error) {
+      console.error('Lỗi khi tải thêm mặt hàng:', error);
+      toast.error('Lỗi khi tải thêm mặt hàng!');
+    }
+  };
+
   // Fetch units from API
   const fetchUnits = async () => {
     try {
@@ -281,6 +297,7 @@ const ItemsManagement = () => {
             ))}
           </tbody>
         </table>
+        <LoadMoreButton hasMore={hasMore} loading={loadingMore} onClick={handleLoadMore} />
       </div>
     </div>
   );
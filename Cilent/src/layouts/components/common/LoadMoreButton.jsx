@@ -0,0 +1,20 @@
+import React from 'react';
+
+// Nút "Tải thêm" dưới các danh sách phân trang keyset
+const LoadMoreButton = ({ hasMore, loading, onClick }) => {
+  if (!hasMore) return null;
+
+  return (
+    <div className="flex justify-center mt-4">
+      <button
+        onClick={onClick}
+        disabled={loading}
+        className="bg-gray-700 text-white px-4 py-2 rounded-md hover:bg-gray-600 transition disabled:opacity-50"
+      >
+        {loading ? 'Đang tải...' : 'Tải thêm'}
+      </button>
+    </div>
+  );
+};
+
+export default LoadMoreButton;
@@ -2,15 +2,19 @@ import React, { useState, useEffect } from 'react';
 import { FaPlus, FaEdit, FaTrash, FaSearch, FaBoxes, FaRuler, FaUsers, FaMapMarkedAlt, FaSave, FaTimes, FaDollarSign, FaWarehouse } from 'react-icons/fa';
 import { toast } from 'react-toastify';
 import ErrorNotification from '../common/ErrorNotification';
+import LoadMoreButton from '../common/LoadMoreButton';
 import { addProduct, getExportPriceRatio, calculateExportPrice } from '../../../utils/productService';
 import { getAllUnits } from '../../../utils/unitService';
 import parametersService from '../../../utils/parametersService';
 import { useAuth } from '../../../contexts/AuthContext';
+import { fetchKeysetPage, pageUrl } from '../../../utils/pagination';
 
 const CategoryManagement = () => {
   const { token, isAuthenticated } = useAuth();
   const [activeTab, setActiveTab] = useState('items');
   const [items, setItems] = useState([]);
+  const [itemsCursor, setItemsCursor] = useState(null);
+  const [loadingMoreItems, setLoadingMoreItems] = useState(false);
   const [units, setUnits] = useState([]);
   const [agentTypes, setAgentTypes] = useState([]);
   const [districts, setDistricts] = useState([]);
@@ -122,20 +126,25 @@ const CategoryManagement = () => {
   ];
 
   // Fetch data functions
+  const fetchItemsPage = (cursor) => fetchKeysetPage(async (cursor) => {
+    const response = await fetch(pageUrl('http://localhost:8080/api/products', cursor), {
+      method: 'GET',
+      headers: getAuthHeaders(),
+    });
+
+    if (!response.ok) {
+      throw new Error(`HTTP error! status: ${response.status}`);
+    }
+
+    return response.json();
+  }, cursor);
+
   const fetchItems = async () => {
     try {
-      const response = await fetch('http://localhost:8080/api/products', {
-        method: 'GET',
-        headers: getAuthHeaders(),
-      });
-      
-      if (!response.ok) {
-        throw new Error(`HTTP error! status: ${response.status}`);
-      }
-      
-      const data = await response.json();
+      const data = await fetchItemsPage(null);
       if (data.code === 200) {
-        setItems(data.data || []);
+        setItems(data.data);
+        setItemsCursor(data.nextCursor);
       } else {
         throw new Error('Failed to fetch items');
       }
@@ -143,6 +152,23 @@ const CategoryManagement = () => {
       console.error('Lỗi khi tải danh sách mặt hàng:', error);
       toast.error('Lỗi khi tải danh sách mặt hàng!');
       setItems([]); // Set empty array on error
+      setItemsCursor(null);
+    }
+  };
+
+  // Nối trang mặt hàng kế tiếp
+  const loadMoreItems = async () => {
+    if (!itemsCursor || loadingMoreItems) return;
+    setLoadingMoreItems(true);
+    try {
+      const data = await fetchItemsPage(itemsCursor);
+      setItems(prev => [...prev, ...data.data]);
+      setItemsCursor(data.nextCursor);
+    } catch (error) {
+      console.error('Lỗi khi tải thêm mặt hàng:', error);
+      toast.error('Lỗi khi tải thêm mặt hàng!');
+    } finally {
+      setLoadingMoreItems(false);
     }
   };
 
@@ -1978,6 +2004,9 @@ const CategoryManagement = () => {
             </button>
           </div>
         )}
+        {activeTab === 'items' && (
+          <LoadMoreButton hasMore={Boolean(itemsCursor)} loading={loadingMoreItems} onClick={loadMoreItems} />
+        )}
       </div>
       
       {/* Error Notification Modal */}
@@ -35,8 +35,8 @@ const ExportReceiptList = () => {
     try {
       setLoading(true);
       setError('');
-      const data = await exportReceiptService.getAllExportReceipts();
-      setExportReceipts(data);
+      const page = await exportReceiptService.getAllExportReceipts();
+      setExportReceipts(page.items);
     } catch (err) {
       setError(err.message);
     } finally {
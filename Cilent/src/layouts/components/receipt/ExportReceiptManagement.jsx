@@ -68,8 +68,8 @@ const ExportReceiptManagement = () => {
 		setLoading(true);
 		setError('');
 		try {
-			const data = await exportReceiptService.getAllExportReceipts();
-			setExportReceipts(data || []);
+			const page = await exportReceiptService.getAllExportReceipts();
+			setExportReceipts(page.items);
 		} catch (err) {
 			console.error('Error loading export receipts:', err);
 			setError('Không thể tải danh sách phiếu xuất hàng');
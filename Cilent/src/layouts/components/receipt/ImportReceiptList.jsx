@@ -7,6 +7,7 @@ import {
 import { getImportDetailsByImportReceiptId } from '../../../utils/importDetailService.js';
 import DeleteImportReceiptModal from './DeleteImportReceiptModal.jsx';
 import EditImportReceiptModal from './EditImportReceiptModal.jsx';
+import LoadMoreButton from '../common/LoadMoreButton.jsx';
 
 /**
  * Component danh sách phiếu nhập hàng
@@ -22,7 +23,9 @@ import EditImportReceiptModal from './EditImportReceiptModal.jsx';
  */
 const ImportReceiptList = () => {
   const [importReceipts, setImportReceipts] = useState([]);
-  const [allReceipts, setAllReceipts] = useState([]); // Lưu trữ tất cả phiếu nhập
+  const [allReceipts, setAllReceipts] = useState([]); // Lưu trữ các phiếu nhập đã tải
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState(null);
   const [searchId, setSearchId] = useState('');
@@ -36,7 +39,7 @@ const ImportReceiptList = () => {
   const [showEditModal, setShowEditModal] = useState(false);
   const [receiptToEdit, setReceiptToEdit] = useState(null);
 
-  // Load tất cả phiếu nhập hàng
+  // Load trang đầu phiếu nhập hàng
   const loadAllImportReceipts = async () => {
     setLoading(true);
     setError(null);
@@ -47,6 +50,7 @@ const ImportReceiptList = () => {
       if (result.success) {
         setAllReceipts(result.data);
         setImportReceipts(result.data);
+        setNextCursor(result.nextCursor);
         setCurrentPage(1); // Reset về trang đầu
       } else {
         setError(result.message);
@@ -63,6 +67,25 @@ const ImportReceiptList = () => {
     }
   };
 
+  // Nối trang phiếu nhập kế tiếp từ server
+  const loadMoreImportReceipts = async () => {
+    if (!nextCursor || loadingMore) return;
+    setLoadingMore(true);
+    try {
+      const result = await getAllImportReceipts(nextCursor);
+      if (result.success) {
+        const loaded = [...allReceipts, ...result.data];
+        setAllReceipts(loaded);
+        setImportReceipts(loaded);
+        setNextCursor(result.nextCursor);
+      } else {
+        setError(result.message);
+      }
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   // Tìm kiếm phiếu nhập theo ID
   const searchReceiptById = async (id) => {
     if (!id || id.trim() === '') {
@@ -414,6 +437,7 @@ const ImportReceiptList = () => {
               </div>
             </div>
           )}
+          <LoadMoreButton hasMore={Boolean(nextCursor)} loading={loadingMore} onClick={loadMoreImportReceipts} />
         </div>
       )}
 
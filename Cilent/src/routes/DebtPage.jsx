@@ -2,10 +2,13 @@ import React, { useEffect, useState } from 'react';
 import { FaSearch, FaEye, FaSyncAlt, FaList, FaUsers, FaSpinner, FaExclamationTriangle, FaPlug } from 'react-icons/fa';
 import { toast } from 'react-toastify';
 import { debtReportApi } from '../utils/debtReportService';
+import LoadMoreButton from '../layouts/components/common/LoadMoreButton';
 
 const DebtPage = () => {
 	const [debts, setDebts] = useState([]);
 	const [allDebts, setAllDebts] = useState([]);
+	const [nextCursor, setNextCursor] = useState(null);
+	const [loadingMore, setLoadingMore] = useState(false);
 	const [specificDebt, setSpecificDebt] = useState(null);
 	const [month, setMonth] = useState('');
 	const [year, setYear] = useState('');
@@ -36,10 +39,10 @@ const DebtPage = () => {
 		}
 	};
 
-	// Fetch all debt reports
-	const fetchAllDebts = async () => {
+	// Fetch debt reports: trang đầu, hoặc nối trang kế tiếp khi có cursor
+	const fetchAllDebts = async (cursor = null) => {
 		console.log('🔄 Starting fetchAllDebts...');
-		setLoading(true);
+		if (cursor) setLoadingMore(true); else setLoading(true);
 		try {
 			// Check if token exists first
 			const token = localStorage.getItem('authToken') || localStorage.getItem('token');
@@ -47,15 +50,10 @@ const DebtPage = () => {
 				throw new Error('Không tìm thấy token xác thực. Vui lòng đăng nhập lại.');
 			}
 
-			const data = await debtReportApi.getAllDebtReports();
+			const page = await debtReportApi.getAllDebtReports(cursor);
+			const data = page.items;
 			console.log('📋 Raw debt reports data:', data);
-			
-			if (!Array.isArray(data)) {
-				console.warn('⚠️ Data is not an array:', data);
-				setAllDebts([]);
-				toast.info('Không có dữ liệu báo cáo công nợ');
-				return;
-			}
+			setNextCursor(page.nextCursor);
 
 			// Transform data to match display format
 			const transformedData = data.map(item => {
@@ -81,11 +79,18 @@ const DebtPage = () => {
 			});
 			
 			console.log('✅ Transformed debt reports:', transformedData);
+			if (cursor) {
+				setAllDebts(prev => [...prev, ...transformedData]);
+				return;
+			}
 			setAllDebts(transformedData);
 			toast.success(`✅ Tải thành công ${transformedData.length} báo cáo công nợ`);
 		} catch (err) {
 			console.error('❌ Error in fetchAllDebts:', err);
-			setAllDebts([]);
+			if (!cursor) {
+				setAllDebts([]);
+				setNextCursor(null);
+			}
 			
 			if (err.message.includes('token') || err.message.includes('Token expired')) {
 				toast.error('🔐 ' + err.message);
@@ -96,7 +101,7 @@ const DebtPage = () => {
 				toast.error('❌ Lỗi tải báo cáo: ' + err.message);
 			}
 		} finally {
-			setLoading(false);
+			if (cursor) setLoadingMore(false); else setLoading(false);
 		}
 	};
 
@@ -558,6 +563,9 @@ const DebtPage = () => {
 					</tbody>
 				</table>
 			</div>
+			{viewMode === 'all' && (
+				<LoadMoreButton hasMore={Boolean(nextCursor)} loading={loadingMore} onClick={() => fetchAllDebts(nextCursor)} />
+			)}
 
 			{/* Detail Popup */}
 			{showDetailPopup && selectedDebt && (
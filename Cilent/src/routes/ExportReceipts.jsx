@@ -1,4 +1,4 @@
-import React, { useState, useEffect, useContext } from 'react';
+import React, { useState, useEffect, useContext, useCallback } from 'react';
 import { useNavigate } from 'react-router-dom';
 import ExportReceiptForm from '../layouts/components/receipt/ExportReceiptForm';
 import ExportList from '../layouts/components/receipt/ExportList';
@@ -7,11 +7,14 @@ import AddExportReceiptPopup from '../layouts/components/receipt/AddExportReceip
 import EditExportReceiptModal from '../layouts/components/receipt/EditExportReceiptModal';
 import ViewExportPopup from '../layouts/components/receipt/ViewExportPopup';
 import { ReceiptContext } from '../App';
+import LoadMoreButton from '../layouts/components/common/LoadMoreButton';
 import exportReceiptService from '../utils/exportReceiptService';
+import useKeysetList from '../hooks/useKeysetList';
 import { toast } from 'react-toastify';
 
 const ExportReceipts = () => {
-  const [receipts, setReceipts] = useState([]);
+  const loadPage = useCallback((cursor) => exportReceiptService.getAllExportReceipts(cursor), []);
+  const { items: receipts, setItems: setReceipts, hasMore, loadingMore, reload, loadMore } = useKeysetList(loadPage);
   const [showForm, setShowForm] = useState(false);
   const [showAddPopup, setShowAddPopup] = useState(false);
   const [showEditModal, setShowEditModal] = useState(false);
@@ -23,44 +26,38 @@ const ExportReceipts = () => {
   const { updateReceipts } = useContext(ReceiptContext);
 
   useEffect(() => {
-    const fetchReceipts = async () => {
-      try {
-        const receipts = await exportReceiptService.getAllExportReceipts();
-        setReceipts(receipts);
-        updateReceipts({ export: receipts });
-      } catch (err) {
-        toast.error('Lỗi khi tải danh sách phiếu xuất: ' + err.message);
-        console.error('Error loading receipts:', err);
-      }
-    };
+    updateReceipts({ export: receipts });
+  }, [receipts, updateReceipts]);
+
+  // Tải lại từ trang đầu sau khi thêm/sửa phiếu
+  const fetchReceipts = useCallback(async () => {
+    try {
+      await reload();
+    } catch (err) {
+      toast.error('Lỗi khi tải danh sách phiếu xuất: ' + err.message);
+      console.error('Error loading receipts:', err);
+    }
+  }, [reload]);
+
+  useEffect(() => {
     fetchReceipts();
-  }, [updateReceipts]);
+  }, [fetchReceipts]);
+
+  const handleLoadMore = async () => {
+    try {
+      await loadMore();
+    } catch (err) {
+      toast.error('Lỗi khi tải thêm phiếu xuất: ' + err.message);
+    }
+  };
 
   const handleAddReceipt = () => {
     setShowForm(false);
-    const fetchReceipts = async () => {
-      try {
-        const receipts = await exportReceiptService.getAllExportReceipts();
-        setReceipts(receipts);
-        updateReceipts({ export: receipts });
-      } catch (err) {
-        toast.error('Lỗi khi tải danh sách phiếu xuất: ' + err.message);
-      }
-    };
     fetchReceipts();
   };
 
   const handleAddDetail = () => {
     setShowDetailForm(false);
-    const fetchReceipts = async () => {
-      try {
-        const receipts = await exportReceiptService.getAllExportReceipts();
-        setReceipts(receipts);
-        updateReceipts({ export: receipts });
-      } catch (err) {
-        toast.error('Lỗi khi tải danh sách phiếu xuất: ' + err.message);
-      }
-    };
     fetchReceipts();
   };
 
@@ -85,9 +82,7 @@ const ExportReceipts = () => {
     setSelectedReceipt(null);
     // Reload receipts
     try {
-      const receipts = await exportReceiptService.getAllExportReceipts();
-      setReceipts(receipts);
-      updateReceipts({ export: receipts });
+      await reload();
       toast.success('Cập nhật phiếu xuất thành công!');
     } catch (err) {
       toast.error('Lỗi khi tải lại danh sách phiếu xuất: ' + err.message);
@@ -98,9 +93,7 @@ const ExportReceipts = () => {
     if (window.confirm('Bạn có chắc chắn muốn xóa phiếu xuất này?')) {
       try {
         await exportReceiptService.deleteExportReceipt(receiptId);
-        const updatedReceipts = receipts.filter(r => r.exportReceiptID !== receiptId);
-        setReceipts(updatedReceipts);
-        updateReceipts({ export: updatedReceipts });
+        setReceipts(prev => prev.filter(r => r.exportReceiptID !== receiptId));
         toast.success('Xóa phiếu xuất thành công!');
       } catch (err) {
         toast.error('Lỗi khi xóa phiếu xuất: ' + err.message);
@@ -172,6 +165,7 @@ const ExportReceipts = () => {
         onShowDetailAdd={handleShowDetailForm}
         onShowDetailView={handleShowReceiptDetails}
       />
+      <LoadMoreButton hasMore={hasMore} loading={loadingMore} onClick={handleLoadMore} />
       
       {/* View Export Popup */}
       {showViewPopup && selectedReceipt && (
@@ -74,19 +74,11 @@ const HomePage = () => {
 		return roleItems[role] || baseItems;
 	};
 
-	// Function để lấy số lượng phiếu xuất theo ngày từ tất cả phiếu xuất
+	// Function để lấy số lượng phiếu xuất trong ngày từ server
 	const getExportReceiptsByDate = async (targetDate) => {
 		try {
-			// Lấy tất cả phiếu xuất
-			const allExportReceipts = await exportReceiptService.getAllExportReceipts();
-			
-			// Lọc phiếu xuất theo ngày
 			const targetDateStr = targetDate.toISOString().split('T')[0];
-			const receiptsToday = allExportReceipts.filter(receipt => {
-				if (!receipt.createDate) return false;
-				const receiptDate = new Date(receipt.createDate).toISOString().split('T')[0];
-				return receiptDate === targetDateStr;
-			});
+			const receiptsToday = await exportReceiptService.getExportReceiptsByDate(targetDateStr);
 			
 			console.log(`📊 Export receipts for ${targetDateStr}:`, receiptsToday.length);
 			
@@ -106,35 +98,7 @@ const HomePage = () => {
 		}
 	};
 
-	// Function để tính tổng doanh thu từ export receipts
-	const calculateTotalRevenue = async () => {
-		try {
-			console.log('💰 Calculating total revenue from export receipts...');
-			
-			// Lấy tất cả phiếu xuất
-			const allExportReceipts = await exportReceiptService.getAllExportReceipts();
-			
-			if (!Array.isArray(allExportReceipts)) {
-				console.warn('⚠️ Export receipts data is not an array:', allExportReceipts);
-				return 0;
-			}
-			
-			// Tính tổng doanh thu từ totalAmount của các phiếu xuất
-			const totalRevenue = allExportReceipts.reduce((total, receipt) => {
-				const amount = receipt.totalAmount || 0;
-				return total + amount;
-			}, 0);
-			
-			console.log(`💰 Total revenue calculated: ${totalRevenue.toLocaleString('vi-VN')} VNĐ from ${allExportReceipts.length} export receipts`);
-			
-			return totalRevenue;
-		} catch (error) {
-			console.error('❌ Error calculating total revenue:', error);
-			return 0;
-		}
-	};
-
-	// Function để tính doanh thu theo khoảng thời gian (tháng hiện tại)
+	// Function để lấy doanh thu tháng hiện tại từ thống kê server
 	const calculateMonthlyRevenue = async () => {
 		try {
 			const currentDate = new Date();
@@ -143,32 +107,10 @@ const HomePage = () => {
 			
 			console.log(`📅 Calculating monthly revenue for ${currentMonth}/${currentYear}...`);
 			
-			// Lấy tất cả phiếu xuất
-			const allExportReceipts = await exportReceiptService.getAllExportReceipts(); 
-			
-			if (!Array.isArray(allExportReceipts)) {
-				console.warn('⚠️ Export receipts data is not an array:', allExportReceipts);
-				return 0;
-			}
+			const statistics = await exportReceiptService.getStatistics(currentMonth, currentYear);
+			const monthlyRevenue = statistics?.totalMoney || 0;
 			
-			// Lọc phiếu xuất theo tháng hiện tại
-			const currentMonthReceipts = allExportReceipts.filter(receipt => {
-				if (!receipt.createDate) return false;
-				
-				const receiptDate = new Date(receipt.createDate);
-				const receiptMonth = receiptDate.getMonth() + 1;
-				const receiptYear = receiptDate.getFullYear();
-				
-				return receiptMonth === currentMonth && receiptYear === currentYear;
-			});
-			
-			// Tính tổng doanh thu tháng hiện tại
-			const monthlyRevenue = currentMonthReceipts.reduce((total, receipt) => {
-				const amount = receipt.totalAmount || 0;
-				return total + amount;
-			}, 0);
-			
-			console.log(`📊 Monthly revenue for ${currentMonth}/${currentYear}: ${monthlyRevenue.toLocaleString('vi-VN')} VNĐ from ${currentMonthReceipts.length} receipts`);
+			console.log(`📊 Monthly revenue for ${currentMonth}/${currentYear}: ${monthlyRevenue.toLocaleString('vi-VN')} VNĐ from ${statistics?.totalReceipts || 0} receipts`);
 			
 			return monthlyRevenue;
 		} catch (error) {
@@ -208,16 +150,10 @@ const HomePage = () => {
 					console.log('💰 Fetching total revenue from export receipts...');
 					totalRevenue = await calculateMonthlyRevenue(); // Use monthly revenue for current month
 					
-					if (totalRevenue === 0) {
-						// Fallback to total revenue if no monthly data
-						console.log('📊 No monthly revenue, calculating total revenue...');
-						totalRevenue = await calculateTotalRevenue();
-						
-						// If still 0, use a reasonable calculation based on debt
-						if (totalRevenue === 0 && totalDebt > 0) {
-							totalRevenue = totalDebt * 0.3; // Estimate revenue as 30% of total debt
-							console.log('📈 Using estimated revenue based on debt:', totalRevenue);
-						}
+					// If no monthly data, use a reasonable calculation based on debt
+					if (totalRevenue === 0 && totalDebt > 0) {
+						totalRevenue = totalDebt * 0.3; // Estimate revenue as 30% of total debt
+						console.log('📈 Using estimated revenue based on debt:', totalRevenue);
 					}
 				} catch (error) {
 					console.error('❌ Error calculating revenue, using fallback:', error);
@@ -363,13 +299,7 @@ const HomePage = () => {
 			setIsLoading(true);
 			console.log('🔄 Refreshing revenue data...');
 			
-			// Calculate monthly revenue first
-			let totalRevenue = await calculateMonthlyRevenue();
-			
-			if (totalRevenue === 0) {
-				// Fallback to total revenue
-				totalRevenue = await calculateTotalRevenue();
-			}
+			const totalRevenue = await calculateMonthlyRevenue();
 			
 			// Update stats
 			setStats(prevStats => ({
@@ -1,4 +1,4 @@
-import React, { useState, useContext, useEffect } from "react";
+import React, { useState, useContext, useEffect, useCallback } from "react";
 import { useNavigate } from "react-router-dom";
 import ImportReceiptForm from "../layouts/components/receipt/ImportReceiptForm";
 import ImportList from "../layouts/components/receipt/ImportList";
@@ -6,8 +6,10 @@ import AddImportReceiptPopup from "../layouts/components/receipt/AddImportReceip
 import ViewImportPopup from "../layouts/components/receipt/ViewImportPopup";
 import EditImportReceiptModal from "../layouts/components/receipt/EditImportReceiptModal";
 import ErrorBoundary from "../layouts/components/ErrorBoundary";
+import LoadMoreButton from "../layouts/components/common/LoadMoreButton";
 import { ReceiptContext } from "../App";
 import { getAllImportReceipts, getImportReceiptById } from "../utils/importReceiptService.js";
+import useKeysetList from "../hooks/useKeysetList";
 import { toast } from "react-toastify";
 
 const ImportReceipts = () => {
@@ -21,23 +23,32 @@ const ImportReceipts = () => {
   const { receipts, updateReceipts } = useContext(ReceiptContext);
   const navigate = useNavigate();
 
+  const loadPage = useCallback(async (cursor) => {
+    const result = await getAllImportReceipts(cursor);
+    if (!result.success) throw new Error(result.message);
+    return { items: result.data, nextCursor: result.nextCursor };
+  }, []);
+  const { items, hasMore, loadingMore, reload, loadMore } = useKeysetList(loadPage);
+
   useEffect(() => {
-    const fetchReceipts = async () => {
-      try {
-        const result = await getAllImportReceipts();
-        if (result.success) {
-          updateReceipts({ import: result.data });
-        } else {
-          console.error("Lỗi lấy phiếu nhập:", result.message);
-          toast.error("Lỗi khi tải danh sách phiếu nhập!");
-        }
-      } catch (err) {
-        console.error("Exception lấy phiếu nhập:", err);
-        toast.error("Lỗi khi tải danh sách phiếu nhập!");
-      }
-    };
-    fetchReceipts();
-  }, [updateReceipts]);
+    updateReceipts({ import: items });
+  }, [items, updateReceipts]);
+
+  useEffect(() => {
+    reload().catch((err) => {
+      console.error("Exception lấy phiếu nhập:", err);
+      toast.error("Lỗi khi tải danh sách phiếu nhập!");
+    });
+  }, [reload]);
+
+  const handleLoadMore = async () => {
+    try {
+      await loadMore();
+    } catch (err) {
+      console.error("Exception tải thêm phiếu nhập:", err);
+      toast.error("Lỗi khi tải thêm phiếu nhập!");
+    }
+  };
 
   const handleAddReceipt = async (newReceipt) => {
     setShowForm(false);
@@ -45,13 +56,8 @@ const ImportReceipts = () => {
     
     // Refresh lại danh sách phiếu nhập
     try {
-      const result = await getAllImportReceipts();
-      if (result.success) {
-        updateReceipts({ import: result.data });
-        toast.success("Thêm phiếu nhập thành công!");
-      } else {
-        console.error("Lỗi refresh danh sách:", result.message);
-      }
+      await reload();
+      toast.success("Thêm phiếu nhập thành công!");
     } catch (err) {
       console.error("Exception refresh danh sách:", err);
     }
@@ -86,13 +92,8 @@ const ImportReceipts = () => {
 
   const handleRefresh = async () => {
     try {
-      const result = await getAllImportReceipts();
-      if (result.success) {
-        updateReceipts({ import: result.data });
-        toast.success("Làm mới danh sách thành công!");
-      } else {
-        toast.error("Lỗi khi làm mới danh sách!");
-      }
+      await reload();
+      toast.success("Làm mới danh sách thành công!");
     } catch (err) {
       toast.error("Lỗi khi làm mới danh sách!");
     }
@@ -114,13 +115,8 @@ const ImportReceipts = () => {
     
     // Refresh lại danh sách phiếu nhập
     try {
-      const result = await getAllImportReceipts();
-      if (result.success) {
-        updateReceipts({ import: result.data });
-        toast.success("Cập nhật phiếu nhập thành công!");
-      } else {
-        console.error("Lỗi refresh danh sách:", result.message);
-      }
+      await reload();
+      toast.success("Cập nhật phiếu nhập thành công!");
     } catch (err) {
       console.error("Exception refresh danh sách:", err);
     }
@@ -140,7 +136,7 @@ const ImportReceipts = () => {
             Quản lý toàn bộ phiếu nhập hàng trong hệ thống
           </p>
           <p className="text-xs text-gray-500 mt-1">
-            Tổng số phiếu nhập: {receipts.import?.length || 0}
+            Số phiếu nhập đã tải: {receipts.import?.length || 0}
           </p>
         </div>
         <div className="flex space-x-2">
@@ -205,6 +201,7 @@ const ImportReceipts = () => {
         onDelete={handleDeleteReceipt}
         onEdit={handleEditReceipt}
       />
+      <LoadMoreButton hasMore={hasMore} loading={loadingMore} onClick={handleLoadMore} />
     </div>
   );
 };
@@ -4,6 +4,7 @@ import { toast } from 'react-toastify';
 import { useAuth } from '../contexts/AuthContext';
 import AddReceiptPopup from '../layouts/components/payment/AddReceiptPopup';
 import ViewReceiptPopup from '../layouts/components/payment/ViewReceiptPopup';
+import LoadMoreButton from '../layouts/components/common/LoadMoreButton';
 import paymentReceiptService from '../utils/paymentReceiptService';
 
 const PaymentReceipt = () => {
@@ -11,6 +12,8 @@ const PaymentReceipt = () => {
 	const [receipts, setReceipts] = useState([]);
 	const [originalReceipts, setOriginalReceipts] = useState([]);
 	const [loading, setLoading] = useState(false);
+	const [nextCursor, setNextCursor] = useState(null);
+	const [loadingMore, setLoadingMore] = useState(false);
 	const [searchTerm, setSearchTerm] = useState('');
 	const [showAddPopup, setShowAddPopup] = useState(false);
 	const [selectedReceipt, setSelectedReceipt] = useState(null);
@@ -32,7 +35,7 @@ const PaymentReceipt = () => {
 	});
 
 	/**
-	 * Fetch danh sách phiếu thu tiền
+	 * Fetch trang đầu danh sách phiếu thu tiền
 	 */
 	const fetchReceipts = async () => {
 		if (!paymentReceiptService.canViewPaymentReceipts(user?.role)) {
@@ -47,6 +50,7 @@ const PaymentReceipt = () => {
 			if (result.success) {
 				setOriginalReceipts(result.data);
 				setReceipts(result.data);
+				setNextCursor(result.nextCursor);
 				calculateStatistics(result.data, result.data);
 				toast.success(result.message);
 			} else {
@@ -64,6 +68,25 @@ const PaymentReceipt = () => {
 		}
 	};
 
+	/**
+	 * Nối trang kế tiếp vào danh sách, bộ lọc được áp lại qua effect
+	 */
+	const loadMoreReceipts = async () => {
+		if (!nextCursor || loadingMore) return;
+		setLoadingMore(true);
+		try {
+			const result = await paymentReceiptService.getAllPaymentReceipts(nextCursor);
+			if (result.success) {
+				setOriginalReceipts(prev => [...prev, ...result.data]);
+				setNextCursor(result.nextCursor);
+			} else {
+				toast.error(result.error);
+			}
+		} finally {
+			setLoadingMore(false);
+		}
+	};
+
 	/**
 	 * Tính toán thống kê
 	 */
@@ -156,7 +179,7 @@ const PaymentReceipt = () => {
 				<div className="bg-gray-800 p-4 rounded-lg">
 					<div className="flex items-center justify-between">
 						<div>
-							<p className="text-gray-400 text-sm">Tổng phiếu thu</p>
+							<p className="text-gray-400 text-sm">Phiếu thu đã tải</p>
 							<p className="text-white text-xl font-bold">{statistics.totalReceipts}</p>
 						</div>
 						<FaMoneyBillWave className="text-yellow-400 text-2xl" />
@@ -166,7 +189,7 @@ const PaymentReceipt = () => {
 				<div className="bg-gray-800 p-4 rounded-lg">
 					<div className="flex items-center justify-between">
 						<div>
-							<p className="text-gray-400 text-sm">Tổng tiền thu</p>
+							<p className="text-gray-400 text-sm">Tiền thu đã tải</p>
 							<p className="text-white text-xl font-bold">
 								{paymentReceiptService.formatCurrency(statistics.totalRevenue)}
 							</p>
@@ -351,6 +374,7 @@ const PaymentReceipt = () => {
 								)}
 							</tbody>
 						</table>
+						<LoadMoreButton hasMore={Boolean(nextCursor)} loading={loadingMore} onClick={loadMoreReceipts} />
 					</div>
 				</div>
 			)}
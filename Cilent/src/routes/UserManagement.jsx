@@ -5,6 +5,7 @@ import AddUserPopup from '../layouts/components/user/AddUserPopup';
 import EditUserPopup from '../layouts/components/user/EditUserPopup';
 import DeleteUserPopup from '../layouts/components/user/DeleteUserPopup';
 import ViewUserPopup from '../layouts/components/user/ViewUserPopup';
+import LoadMoreButton from '../layouts/components/common/LoadMoreButton';
 import userService from '../utils/userService';
 
 const UserManagement = () => {
@@ -19,10 +20,25 @@ const UserManagement = () => {
   const [selectedUser, setSelectedUser] = useState(null);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState(null);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
 
   const { user: currentUser } = useAuth();
 
-  // Fetch users từ API
+  // Transform dữ liệu từ API để phù hợp với component
+  const toUser = (person) => ({
+    id: person.personId,
+    username: person.personName,
+    fullName: person.fullName || person.personName,
+    email: person.personEmail,
+    roles: person.roles || [],
+    role: person.roles && person.roles.length > 0 ? person.roles[0] : 'VIEWER', // Lấy role đầu tiên
+    createdAt: person.createdAt ? new Date(person.createdAt).toLocaleDateString() : '',
+    status: person.isActive ? 'active' : 'inactive',
+    isActive: person.isActive
+  });
+
+  // Fetch trang đầu users từ API
   const fetchUsers = async () => {
     try {
       setLoading(true);
@@ -30,21 +46,11 @@ const UserManagement = () => {
       const result = await userService.getPersons();
       
       if (result.success) {
-        // Transform dữ liệu từ API để phù hợp với component
-        const transformedUsers = result.data.map(person => ({
-          id: person.personId,
-          username: person.personName,
-          fullName: person.fullName || person.personName,
-          email: person.personEmail,
-          roles: person.roles || [],
-          role: person.roles && person.roles.length > 0 ? person.roles[0] : 'VIEWER', // Lấy role đầu tiên
-          createdAt: person.createdAt ? new Date(person.createdAt).toLocaleDateString() : '',
-          status: person.isActive ? 'active' : 'inactive',
-          isActive: person.isActive
-        }));
+        const transformedUsers = result.data.map(toUser);
         
         setUsers(transformedUsers);
         setFilteredUsers(transformedUsers);
+        setNextCursor(result.nextCursor);
       } else {
         setError(result.error || 'Không thể tải danh sách người dùng');
       }
@@ -56,6 +62,23 @@ const UserManagement = () => {
     }
   };
 
+  // Nối trang kế tiếp, bộ lọc được áp lại qua effect theo users
+  const loadMoreUsers = async () => {
+    if (!nextCursor || loadingMore) return;
+    setLoadingMore(true);
+    try {
+      const result = await userService.getPersons(nextCursor);
+      if (result.success) {
+        setUsers(prev => [...prev, ...result.data.map(toUser)]);
+        setNextCursor(result.nextCursor);
+      } else {
+        setError(result.error || 'Không thể tải thêm người dùng');
+      }
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   useEffect(() => {
     fetchUsers();
   }, []);
@@ -335,6 +358,7 @@ const UserManagement = () => {
             </tbody>
           </table>
         </div>
+        <LoadMoreButton hasMore={Boolean(nextCursor)} loading={loadingMore} onClick={loadMoreUsers} />
 
         {filteredUsers.length === 0 && (
           <div className="text-center py-12">
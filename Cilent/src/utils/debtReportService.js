@@ -1,3 +1,5 @@
+import { fetchKeysetPage, pageUrl } from "./pagination";
+
 const BASE_URL = "http://localhost:8080";
 
 class DebtReportApiService {
@@ -69,21 +71,23 @@ class DebtReportApiService {
     }
   }
 
-  async getAllDebtReports() {
-    console.log('🔍 Getting all debt reports');
+  // Lấy một trang báo cáo công nợ, trả về { items, nextCursor }
+  async getAllDebtReports(cursor = null) {
+    console.log('🔍 Getting debt reports page');
     try {
       const headers = this.getAuthHeaders();
       const url = `${BASE_URL}/api/debt-reports/all`;
       console.log('📞 API Call:', url);
-      
-      const response = await fetch(url, {
-        method: 'GET',
-        headers,
-        credentials: 'include'
-      });
-      
-      const result = await this.handleResponse(response);
-      return result.data;
+
+      const result = await fetchKeysetPage(async (cursor) => {
+        const response = await fetch(pageUrl(url, cursor), {
+          method: 'GET',
+          headers,
+          credentials: 'include'
+        });
+        return this.handleResponse(response);
+      }, cursor);
+      return { items: result.data, nextCursor: result.nextCursor };
     } catch (error) {
       console.error('❌ Error getting all debt reports:', error);
       throw error;
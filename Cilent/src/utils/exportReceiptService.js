@@ -1,4 +1,5 @@
 import { API_CONFIG } from '../constants/api';
+import { fetchKeysetPage, pageUrl } from './pagination';
 
 const API_BASE_URL = API_CONFIG.BASE_URL;
 
@@ -40,16 +41,17 @@ class ExportReceiptService {
     return await response.json();
   }
 
-  // GET /api/export-receipts - Lấy tất cả phiếu xuất
-  async getAllExportReceipts() {
+  // GET /api/export-receipts - Lấy một trang phiếu xuất, trả về { items, nextCursor }
+  async getAllExportReceipts(cursor = null) {
     try {
-      const response = await fetch(`${API_BASE_URL}/export-receipts`, {
-        method: 'GET',
-        headers: this.getAuthHeaders(),
-      });
-      
-      const result = await this.handleResponse(response);
-      return result.data || [];
+      const result = await fetchKeysetPage(async (cursor) => {
+        const response = await fetch(pageUrl(`${API_BASE_URL}/export-receipts`, cursor), {
+          method: 'GET',
+          headers: this.getAuthHeaders(),
+        });
+        return this.handleResponse(response);
+      }, cursor);
+      return { items: result.data, nextCursor: result.nextCursor };
     } catch (error) {
       console.error('Error getting all export receipts:', error);
       throw error;
@@ -203,6 +205,38 @@ class ExportReceiptService {
     }
   }
 
+  // GET /api/export-receipts/by-date/{date} - Lấy phiếu xuất trong một ngày
+  async getExportReceiptsByDate(date) {
+    try {
+      const response = await fetch(`${API_BASE_URL}/export-receipts/by-date/${date}`, {
+        method: 'GET',
+        headers: this.getAuthHeaders(),
+      });
+
+      const result = await this.handleResponse(response);
+      return result.data || [];
+    } catch (error) {
+      console.error('Error getting export receipts by date:', error);
+      throw error;
+    }
+  }
+
+  // GET /api/export-receipts/statistics - Thống kê xuất hàng theo tháng do server tổng hợp
+  async getStatistics(month, year) {
+    try {
+      const response = await fetch(`${API_BASE_URL}/export-receipts/statistics?month=${month}&year=${year}`, {
+        method: 'GET',
+        headers: this.getAuthHeaders(),
+      });
+
+      const result = await this.handleResponse(response);
+      return result.data;
+    } catch (error) {
+      console.error('Error getting export statistics:', error);
+      throw error;
+    }
+  }
+
   // GET /api/export-receipts/{id}/total-amount - Tính tổng tiền phiếu xuất
   async calculateTotalAmount(id) {
     try {
@@ -1,5 +1,6 @@
 import api from './api.js';
 import { API_CONFIG } from '../constants/api.js';
+import { fetchKeysetPage, PAGE_LIMIT } from './pagination.js';
 
 /**
  * Import Receipt Service
@@ -18,17 +19,24 @@ import { API_CONFIG } from '../constants/api.js';
  */
 
 /**
- * Lấy tất cả phiếu nhập hàng
- * @returns {Promise<Object>} - ApiResponse chứa danh sách tất cả phiếu nhập
+ * Lấy một trang phiếu nhập hàng
+ * @param {string|null} cursor - Cursor trang trước, null cho trang đầu
+ * @returns {Promise<Object>} - ApiResponse chứa danh sách phiếu nhập của trang và nextCursor
  */
-export const getAllImportReceipts = async () => {
+export const getAllImportReceipts = async (cursor = null) => {
   try {
-    const response = await api.get(API_CONFIG.ENDPOINTS.IMPORT_RECEIPTS.BASE);
+    const result = await fetchKeysetPage(async (cursor) => {
+      const response = await api.get(API_CONFIG.ENDPOINTS.IMPORT_RECEIPTS.BASE, {
+        params: { limit: PAGE_LIMIT, ...(cursor && { cursor }) }
+      });
+      return response.data;
+    }, cursor);
     return {
       success: true,
-      data: response.data.data || [],
-      message: response.data.message,
-      code: response.data.code
+      data: result.data,
+      nextCursor: result.nextCursor,
+      message: result.message,
+      code: result.code
     };
   } catch (error) {
     console.error('Lỗi getAllImportReceipts:', error);
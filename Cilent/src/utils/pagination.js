@@ -0,0 +1,21 @@
+// Kích thước trang lớn nhất server chấp nhận (pagination.max-limit)
+export const PAGE_LIMIT = 500;
+
+// Thêm cursor/limit vào URL danh sách
+export const pageUrl = (url, cursor, limit = PAGE_LIMIT) => {
+  const params = new URLSearchParams({ limit: String(limit) });
+  if (cursor) params.set('cursor', cursor);
+  return `${url}${url.includes('?') ? '&' : '?'}${params.toString()}`;
+};
+
+/**
+ * Lấy một trang keyset của endpoint danh sách.
+ * @param {(cursor: string|null) => Promise<Object>} fetchPage Trả về ApiResponse có data là KeysetPage
+ * @param {string|null} cursor Cursor trang trước, null cho trang đầu
+ * @returns {Promise<Object>} ApiResponse với data là items của trang và nextCursor (null khi đã hết)
+ */
+export const fetchKeysetPage = async (fetchPage, cursor = null) => {
+  const result = await fetchPage(cursor);
+  const page = result?.data || {};
+  return { ...result, data: page.items || [], nextCursor: page.hasMore ? page.nextCursor : null };
+};
@@ -1,5 +1,6 @@
 import api from './api.js';
 import { API_CONFIG } from '../constants/api.js';
+import { fetchKeysetPage, PAGE_LIMIT } from './pagination.js';
 
 /**
  * Service xử lý các API liên quan đến phiếu thu tiền
@@ -7,16 +8,23 @@ import { API_CONFIG } from '../constants/api.js';
 class PaymentReceiptService {
   
   /**
-   * Lấy danh sách tất cả phiếu thu tiền
-   * @returns {Promise<Object>} ApiResponse với danh sách phiếu thu
+   * Lấy một trang danh sách phiếu thu tiền
+   * @param {string|null} cursor - Cursor trang trước, null cho trang đầu
+   * @returns {Promise<Object>} ApiResponse với danh sách phiếu thu và nextCursor
    */
-  async getAllPaymentReceipts() {
+  async getAllPaymentReceipts(cursor = null) {
     try {
-      const response = await api.get(API_CONFIG.ENDPOINTS.PAYMENT_RECEIPTS.LIST);
+      const result = await fetchKeysetPage(async (cursor) => {
+        const response = await api.get(API_CONFIG.ENDPOINTS.PAYMENT_RECEIPTS.LIST, {
+          params: { limit: PAGE_LIMIT, ...(cursor && { cursor }) }
+        });
+        return response.data;
+      }, cursor);
       return {
         success: true,
-        data: response.data?.data || [],
-        message: response.data?.message || 'Lấy danh sách phiếu thu tiền thành công'
+        data: result.data,
+        nextCursor: result.nextCursor,
+        message: result.message || 'Lấy danh sách phiếu thu tiền thành công'
       };
     } catch (error) {
       console.error('Error getAllPaymentReceipts:', error);
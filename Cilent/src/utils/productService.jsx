@@ -1,3 +1,5 @@
+import { fetchKeysetPage, pageUrl } from './pagination';
+
 const BASE_URL = 'http://localhost:8080';
 
 // Helper function to get authorization headers
@@ -11,15 +13,18 @@ const getAuthHeaders = () => {
 
 // ============ PRODUCT MANAGEMENT FUNCTIONS ============
 
-export const getAllProducts = async () => {
+// Lấy một trang sản phẩm; trang kế tiếp dùng nextCursor của kết quả
+export const getAllProducts = async (cursor = null) => {
   try {
-    const response = await fetch(`${BASE_URL}/api/products`, {
-      method: 'GET',
-      headers: getAuthHeaders(),
-    });
-    if (!response.ok) throw new Error(`Không thể lấy danh sách sản phẩm: ${response.status}`);
-    const result = await response.json();
-    return { status: result.status, data: result.data || [], message: result.message };
+    const result = await fetchKeysetPage(async (cursor) => {
+      const response = await fetch(pageUrl(`${BASE_URL}/api/products`, cursor), {
+        method: 'GET',
+        headers: getAuthHeaders(),
+      });
+      if (!response.ok) throw new Error(`Không thể lấy danh sách sản phẩm: ${response.status}`);
+      return response.json();
+    }, cursor);
+    return { status: result.status, data: result.data, nextCursor: result.nextCursor, message: result.message };
   } catch (err) {
     console.error('Lỗi getAllProducts:', err.message);
     throw err;
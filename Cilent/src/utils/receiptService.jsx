@@ -1,3 +1,5 @@
+import { fetchKeysetPage, pageUrl } from './pagination';
+
 const BASE_URL = 'http://localhost:8080';
 
 /**
@@ -157,15 +159,17 @@ export const getExportDetailByReceiptAndProduct = async (exportReceiptId, produc
 };
 
 // Import Receipt APIs - Sử dụng đúng endpoint từ ImportReceiptController
-export const getAllImportReceipts = async () => {
+export const getAllImportReceipts = async (cursor = null) => {
   try {
-    const response = await fetch(`${BASE_URL}/api/import-receipts`, {
-      method: 'GET',
-      headers: getAuthHeaders(),
-    });
-    if (!response.ok) throw new Error(`Không thể lấy danh sách phiếu nhập: ${response.status}`);
-    const result = await response.json();
-    return { status: result.status, data: result.data || [], message: result.message };
+    const result = await fetchKeysetPage(async (cursor) => {
+      const response = await fetch(pageUrl(`${BASE_URL}/api/import-receipts`, cursor), {
+        method: 'GET',
+        headers: getAuthHeaders(),
+      });
+      if (!response.ok) throw new Error(`Không thể lấy danh sách phiếu nhập: ${response.status}`);
+      return response.json();
+    }, cursor);
+    return { status: result.status, data: result.data, nextCursor: result.nextCursor, message: result.message };
   } catch (err) {
     console.error('Lỗi getAllImportReceipts:', err.message);
     throw err;
@@ -319,15 +323,17 @@ export const getImportDetailByReceiptId = async (importReceiptId) => {
 };
 
 // Product APIs
-export const getAllProducts = async () => {
+export const getAllProducts = async (cursor = null) => {
   try {
-    const response = await fetch(`${BASE_URL}/api/products`, {
-      method: 'GET',
-      headers: getAuthHeaders(),
-    });
-    if (!response.ok) throw new Error(`Không thể lấy danh sách sản phẩm: ${response.status}`);
-    const result = await response.json();
-    return { status: result.status, data: result.data || [], message: result.message };
+    const result = await fetchKeysetPage(async (cursor) => {
+      const response = await fetch(pageUrl(`${BASE_URL}/api/products`, cursor), {
+        method: 'GET',
+        headers: getAuthHeaders(),
+      });
+      if (!response.ok) throw new Error(`Không thể lấy danh sách sản phẩm: ${response.status}`);
+      return response.json();
+    }, cursor);
+    return { status: result.status, data: result.data, nextCursor: result.nextCursor, message: result.message };
   } catch (err) {
     console.error('Lỗi getAllProducts:', err.message);
     throw err;
@@ -1,5 +1,6 @@
 import api from '../utils/api.js';
 import { API_CONFIG } from '../constants/api.js';
+import { fetchKeysetPage, pageUrl } from './pagination.js';
 
 const BASE_URL = 'http://localhost:8080';
 
@@ -39,23 +40,25 @@ class UserService {
     return normalized;
   }
 
-  // Get all persons with their roles
-  async getPersons() {
+  // Lấy một trang người dùng kèm vai trò; trang kế tiếp dùng nextCursor
+  async getPersons(cursor = null) {
     try {
       const token = localStorage.getItem('authToken');
-      const response = await fetch(`${BASE_URL}/api/persons`, {
-        method: 'GET',
-        headers: {
-          'Content-Type': 'application/json',
-          'Authorization': `Bearer ${token}`
-        },
-      });
-      
-      if (!response.ok) {
-        throw new Error(`HTTP error! status: ${response.status}`);
-      }
-      
-      const result = await response.json();
+      const result = await fetchKeysetPage(async (cursor) => {
+        const response = await fetch(pageUrl(`${BASE_URL}/api/persons`, cursor), {
+          method: 'GET',
+          headers: {
+            'Content-Type': 'application/json',
+            'Authorization': `Bearer ${token}`
+          },
+        });
+
+        if (!response.ok) {
+          throw new Error(`HTTP error! status: ${response.status}`);
+        }
+
+        return response.json();
+      }, cursor);
       
       // Lấy vai trò cho từng person
       const personsWithRoles = await Promise.all(
@@ -71,6 +74,7 @@ class UserService {
       return {
         success: true,
         data: personsWithRoles,
+        nextCursor: result.nextCursor,
         message: result.message
       };
     } catch (error) {
@@ -114,8 +118,8 @@ class UserService {
   }
 
   // Get all users (backward compatibility)
-  async getUsers() {
-    return this.getPersons();
+  async getUsers(cursor = null) {
+    return this.getPersons(cursor);
   }
 
   // Create new person
@@ -55,8 +55,10 @@ CREATE TABLE Agent (
     district INT NOT NULL,
     reception_date DATE NOT NULL,
     debt_money INT NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
     FOREIGN KEY (agent_type_id) REFERENCES Agent_Type(agent_type_id),
-    FOREIGN KEY (district) REFERENCES District(district_id)
+    FOREIGN KEY (district) REFERENCES District(district_id),
+    INDEX idx_agent_district_agent_type (district, agent_type_id)
 );
 
 -- TÀI KHOẢN NGƯỜI DÙNG (Person)
@@ -68,6 +70,7 @@ CREATE TABLE Person (
     full_name VARCHAR(100),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     is_active BOOLEAN DEFAULT TRUE,
+    role_version INT NOT NULL DEFAULT 0,
     agent_id INT,
     FOREIGN KEY (agent_id) REFERENCES Agent(agent_id)
 );
@@ -95,6 +98,7 @@ CREATE TABLE Product (
     import_price INT NOT NULL,
     export_price INT NOT NULL,
     inventory_quantity INT NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
     FOREIGN KEY (unit) REFERENCES Unit(unit_id)
 );
 
@@ -102,7 +106,8 @@ CREATE TABLE Product (
 CREATE TABLE Import_Receipt (
     import_receipt_id INT AUTO_INCREMENT PRIMARY KEY,
     create_date DATE NOT NULL,
-    total_amount INT NOT NULL
+    total_amount INT NOT NULL,
+    INDEX idx_import_receipt_create_date (create_date)
 );
 
 -- CHI TIẾT PHIẾU NHẬP (ImportDetail)
@@ -125,7 +130,9 @@ CREATE TABLE Export_Receipt (
     total_amount INT NOT NULL,
     paid_amount INT NOT NULL,
     remaining_amount INT NOT NULL,
-    FOREIGN KEY (agent) REFERENCES Agent(agent_id)
+    FOREIGN KEY (agent) REFERENCES Agent(agent_id),
+    INDEX idx_export_receipt_agent_date_amounts (agent, create_date, total_amount, remaining_amount),
+    INDEX idx_export_receipt_date_amounts (create_date, total_amount, remaining_amount, agent)
 );
 
 -- CHI TIẾT PHIẾU XUẤT (ExportDetail)
@@ -146,7 +153,8 @@ CREATE TABLE Payment_Receipt (
     agent INT NOT NULL,
     payment_date DATE NOT NULL,
     revenue INT NOT NULL CHECK (revenue >= 0),
-    FOREIGN KEY (agent) REFERENCES Agent(agent_id)
+    FOREIGN KEY (agent) REFERENCES Agent(agent_id),
+    INDEX idx_payment_receipt_agent_payment_date (agent, payment_date)
 );
 
 -- BÁO CÁO DOANH SỐ (SalesReport)
@@ -183,6 +191,34 @@ CREATE TABLE Debt_Report (
     FOREIGN KEY (agent) REFERENCES Agent(agent_id)
 );
 
+-- TỔNG HỢP THEO ĐẠI LÝ VÀ THÁNG (AgentMonthlyAggregate)
+CREATE TABLE Agent_Monthly_Aggregate (
+    aggregate_id INT AUTO_INCREMENT PRIMARY KEY,
+    agent INT NOT NULL,
+    month INT NOT NULL,
+    year INT NOT NULL,
+    export_count INT NOT NULL DEFAULT 0,
+    total_amount INT NOT NULL DEFAULT 0,
+    paid_amount INT NOT NULL DEFAULT 0,
+    remaining_amount INT NOT NULL DEFAULT 0,
+    payment_revenue INT NOT NULL DEFAULT 0,
+    FOREIGN KEY (agent) REFERENCES Agent(agent_id),
+    UNIQUE KEY uk_agent_monthly_aggregate (agent, year, month),
+    INDEX idx_agent_monthly_aggregate_year_month (year, month)
+);
+
+-- PHIÊN BẢN CACHE GIỮA CÁC NODE (CacheVersion)
+CREATE TABLE Cache_Version (
+    region VARCHAR(50) PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+INSERT INTO Cache_Version(region, version) VALUES
+('parameter', 0),
+('reference_data', 0),
+('user', 0),
+('product', 0);
+
 -- THÊM VAI TRÒ MẶC ĐỊNH
 INSERT INTO Role(role_name) VALUES 
 ('ADMIN'),
@@ -0,0 +1,278 @@
+package org.example.AgentManagementBE.Config;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Một file segment của kho nhật ký truy cập, được ánh xạ vào bộ nhớ (memory-mapped).
+ * Bản ghi chỉ được nối thêm vào cuối với thời gian không giảm; cứ INDEX_INTERVAL bản ghi
+ * thì lưu một mục (thời gian, vị trí) vào chỉ mục thời gian để tìm kiếm nhị phân.
+ *
+ * Định dạng bản ghi: int độ dài | long thời gian (ms) | byte loại | byte thành công |
+ * 5 chuỗi UTF-8 (short độ dài + dữ liệu): người dùng, method, URI, user agent, IP.
+ * Độ dài được ghi sau cùng, bản ghi ghi dở khi tắt đột ngột có độ dài 0 và bị bỏ qua khi mở lại.
+ */
+public class AccessAuditSegment {
+
+    public static final String FILE_PREFIX = "audit-";
+    public static final String FILE_SUFFIX = ".seg";
+
+    private static final int MAGIC = 0x41554431;
+    private static final int HEADER_BYTES = 8;
+    private static final int INDEX_INTERVAL = 64;
+
+    /**
+     * Một bản ghi đã giải mã
+     */
+    public record Record(long timestampMillis, byte type, boolean success, String username,
+                         String method, String uri, String userAgent, String ipAddress) {
+    }
+
+    // Mảng chỉ mục chỉ được nối thêm; luồng đọc chỉ đọc tới size của bản đã công bố
+    private record TimeIndex(long[] timestamps, int[] offsets, int size) {
+    }
+
+    private final Path file;
+    private final long firstTimestamp;
+    private final MappedByteBuffer buffer;
+
+    // Vị trí kết thúc bản ghi cuối cùng đã ghi xong, luồng đọc không đọc quá vị trí này
+    private volatile int limit;
+    private volatile long lastTimestamp;
+    private volatile TimeIndex index = new TimeIndex(new long[16], new int[16], 0);
+    private int recordCount;
+
+    private AccessAuditSegment(Path file, long firstTimestamp, MappedByteBuffer buffer) {
+        this.file = file;
+        this.firstTimestamp = firstTimestamp;
+        this.buffer = buffer;
+        this.limit = HEADER_BYTES;
+        this.lastTimestamp = firstTimestamp;
+    }
+
+    /**
+     * Tạo segment mới với dung lượng cố định
+     */
+    public static AccessAuditSegment create(Path directory, long firstTimestamp, int capacityBytes) throws IOException {
+        Path file = directory.resolve(FILE_PREFIX + firstTimestamp + FILE_SUFFIX);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, 1);
+            return new AccessAuditSegment(file, firstTimestamp, buffer);
+        }
+    }
+
+    /**
+     * Mở segment có sẵn, quét các bản ghi để dựng lại chỉ mục thời gian
+     * @return null nếu file không phải segment hợp lệ
+     */
+    public static AccessAuditSegment open(Path file) throws IOException {
+        long firstTimestamp = parseFirstTimestamp(file);
+        if (firstTimestamp < 0) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC) {
+                return null;
+            }
+            AccessAuditSegment segment = new AccessAuditSegment(file, firstTimestamp, buffer);
+            segment.recover();
+            return segment;
+        }
+    }
+
+    /**
+     * Nối một bản ghi vào cuối segment, chỉ được gọi từ một luồng ghi
+     * @return false nếu segment không còn đủ chỗ
+     */
+    public boolean append(long timestampMillis, byte type, boolean success, byte[][] fields) {
+        int length = 8 + 1 + 1;
+        for (byte[] field : fields) {
+            length += 2 + field.length;
+        }
+        int position = limit;
+        if ((long) position + 4 + length > buffer.capacity()) {
+            return false;
+        }
+        int offset = position + 4;
+        buffer.putLong(offset, timestampMillis);
+        offset += 8;
+        buffer.put(offset++, type);
+        buffer.put(offset++, (byte) (success ? 1 : 0));
+        for (byte[] field : fields) {
+            buffer.putShort(offset, (short) field.length);
+            offset += 2;
+            buffer.put(offset, field);
+            offset += field.length;
+        }
+        buffer.putInt(position, length);
+        indexRecord(timestampMillis, position);
+        lastTimestamp = timestampMillis;
+        limit = offset;
+        return true;
+    }
+
+    /**
+     * Duyệt các bản ghi có thời gian trong [from, to] theo thứ tự ghi.
+     * Điều kiện người dùng và tiền tố URI được so trực tiếp trên byte, chỉ bản ghi khớp mới được giải mã.
+     * @param username Tên người dùng dạng UTF-8, null nếu không lọc
+     * @param uriPrefix Tiền tố URI dạng UTF-8, null nếu không lọc
+     * @param type Loại sự kiện, -1 nếu không lọc
+     */
+    public void scan(long from, long to, byte[] username, byte[] uriPrefix, int type, Consumer<Record> consumer) {
+        int end = limit;
+        int position = startOffset(from);
+        while (position < end) {
+            int length = buffer.getInt(position);
+            int recordStart = position + 4;
+            position = recordStart + length;
+            long timestamp = buffer.getLong(recordStart);
+            if (timestamp < from) {
+                continue;
+            }
+            if (timestamp > to) {
+                return;
+            }
+            byte recordType = buffer.get(recordStart + 8);
+            if (type >= 0 && recordType != type) {
+                continue;
+            }
+            int usernameOffset = recordStart + 10;
+            if (username != null && !fieldEquals(usernameOffset, username, false)) {
+                continue;
+            }
+            int methodOffset = skipField(usernameOffset);
+            int uriOffset = skipField(methodOffset);
+            if (uriPrefix != null && !fieldEquals(uriOffset, uriPrefix, true)) {
+                continue;
+            }
+            int userAgentOffset = skipField(uriOffset);
+            int ipOffset = skipField(userAgentOffset);
+            consumer.accept(new Record(timestamp, recordType, buffer.get(recordStart + 9) != 0,
+                readField(usernameOffset), readField(methodOffset), readField(uriOffset),
+                readField(userAgentOffset), readField(ipOffset)));
+        }
+    }
+
+    /**
+     * Đẩy dữ liệu đã ghi xuống đĩa
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    private void recover() {
+        int position = HEADER_BYTES;
+        int capacity = buffer.capacity();
+        while (position + 4 <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || (long) position + 4 + length > capacity) {
+                break;
+            }
+            long timestamp = buffer.getLong(position + 4);
+            indexRecord(timestamp, position);
+            lastTimestamp = timestamp;
+            position += 4 + length;
+        }
+        limit = position;
+    }
+
+    private void indexRecord(long timestamp, int position) {
+        if (recordCount++ % INDEX_INTERVAL != 0) {
+            return;
+        }
+        TimeIndex current = index;
+        long[] timestamps = current.timestamps();
+        int[] offsets = current.offsets();
+        if (current.size() == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, timestamps.length * 2);
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        timestamps[current.size()] = timestamp;
+        offsets[current.size()] = position;
+        index = new TimeIndex(timestamps, offsets, current.size() + 1);
+    }
+
+    /**
+     * Tìm nhị phân mục chỉ mục cuối cùng có thời gian nhỏ hơn from; bản ghi đầu tiên >= from nằm sau vị trí đó
+     */
+    private int startOffset(long from) {
+        TimeIndex current = index;
+        int low = 0;
+        int high = current.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (current.timestamps()[middle] < from) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found < 0 ? HEADER_BYTES : current.offsets()[found];
+    }
+
+    private int skipField(int offset) {
+        return offset + 2 + (buffer.getShort(offset) & 0xFFFF);
+    }
+
+    private boolean fieldEquals(int offset, byte[] expected, boolean prefix) {
+        int length = buffer.getShort(offset) & 0xFFFF;
+        if (prefix ? length < expected.length : length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(offset + 2 + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readField(int offset) {
+        int length = buffer.getShort(offset) & 0xFFFF;
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long parseFirstTimestamp(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
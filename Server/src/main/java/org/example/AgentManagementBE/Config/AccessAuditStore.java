@@ -0,0 +1,284 @@
+package org.example.AgentManagementBE.Config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.AgentManagementBE.DTO.response.AccessAuditEntry;
+import org.example.AgentManagementBE.exception.AppException;
+import org.example.AgentManagementBE.exception.ErrorCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Kho nhật ký truy cập dạng nhị phân, chỉ nối thêm, chia thành các segment memory-mapped theo thời gian.
+ * Luồng ghi nền của AccessLogService nối sự kiện vào segment đang mở; API quản trị tìm theo người dùng,
+ * tiền tố URI và khoảng thời gian bằng cách tìm nhị phân trên danh sách segment và chỉ mục thời gian
+ * của từng segment. Segment cũ hơn số ngày lưu giữ bị xóa định kỳ.
+ */
+@Component
+public class AccessAuditStore {
+    private static final Logger logger = LoggerFactory.getLogger(AccessAuditStore.class);
+
+    private static final int MAX_FIELD_CHARS = 1024;
+    private static final int MAX_SEARCH_LIMIT = 1000;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final Duration retention;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // Sắp xếp theo thời gian bắt đầu tăng dần, phần tử cuối là segment đang ghi
+    private final List<AccessAuditSegment> segments = new CopyOnWriteArrayList<>();
+    private AccessAuditSegment active;
+    private long lastTimestamp;
+
+    private final Counter appendedCounter;
+    private final Counter rejectedCounter;
+    private final Counter deletedCounter;
+    private final Timer searchTimer;
+
+    @Autowired
+    public AccessAuditStore(MeterRegistry meterRegistry,
+                            @Value("${audit.directory:audit}") String directory,
+                            @Value("${audit.segment-size-kb:65536}") int segmentSizeKb,
+                            @Value("${audit.retention-days:90}") int retentionDays) {
+        this.directory = Path.of(directory);
+        this.segmentBytes = (int) Math.min(Integer.MAX_VALUE, Math.max(4L, segmentSizeKb) * 1024);
+        this.retention = Duration.ofDays(Math.max(1, retentionDays));
+        this.appendedCounter = Counter.builder("audit.events.appended")
+            .description("Số sự kiện truy cập đã ghi vào kho nhật ký")
+            .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("audit.events.rejected")
+            .description("Số sự kiện truy cập không ghi được vào kho nhật ký")
+            .register(meterRegistry);
+        this.deletedCounter = Counter.builder("audit.segments.deleted")
+            .description("Số segment bị xóa do quá hạn lưu giữ")
+            .register(meterRegistry);
+        this.searchTimer = Timer.builder("audit.search")
+            .description("Thời gian tìm kiếm trong kho nhật ký truy cập")
+            .register(meterRegistry);
+        Gauge.builder("audit.segments", segments, List::size)
+            .description("Số segment đang có trong kho nhật ký truy cập")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Mở các segment có sẵn trong thư mục, segment mới nhất tiếp tục được ghi
+     */
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        List<AccessAuditSegment> opened = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                AccessAuditSegment segment = AccessAuditSegment.open(file);
+                if (segment != null) {
+                    opened.add(segment);
+                }
+            }
+        }
+        opened.sort(Comparator.comparingLong(AccessAuditSegment::getFirstTimestamp));
+        segments.clear();
+        segments.addAll(opened);
+        active = opened.isEmpty() ? null : opened.get(opened.size() - 1);
+        lastTimestamp = active == null ? 0 : active.getLastTimestamp();
+    }
+
+    /**
+     * Ghi một sự kiện vào segment đang mở, mở segment mới khi segment hiện tại đầy.
+     * Thời gian được giữ không giảm để chỉ mục thời gian luôn tìm nhị phân được
+     * (các request đồng thời có thể lệch nhau vài mili giây).
+     */
+    public synchronized void append(AccessLogRingBuffer.EventType type, long timestampMillis, boolean success,
+                                    String username, String method, String uri, String userAgent, String ipAddress) {
+        long timestamp = Math.max(timestampMillis, lastTimestamp);
+        byte[][] fields = {encode(username), encode(method), encode(uri), encode(userAgent), encode(ipAddress)};
+        byte typeCode = (byte) type.ordinal();
+        try {
+            if (active == null || !active.append(timestamp, typeCode, success, fields)) {
+                roll(timestamp);
+                if (!active.append(timestamp, typeCode, success, fields)) {
+                    rejectedCounter.increment();
+                    return;
+                }
+            }
+            lastTimestamp = timestamp;
+            appendedCounter.increment();
+        } catch (IOException e) {
+            rejectedCounter.increment();
+            logger.error("Không ghi được sự kiện vào kho nhật ký truy cập: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Tìm sự kiện trong khoảng thời gian, mới nhất trước
+     * @param username Tên người dùng (khớp chính xác), null nếu không lọc
+     * @param uriPrefix Tiền tố URI, null nếu không lọc
+     * @param type Loại sự kiện (ACCESS, LOGIN, LOGOUT, TOKEN_REFRESH), null nếu không lọc
+     * @param from Thời điểm bắt đầu, mặc định 7 ngày trước to
+     * @param to Thời điểm kết thúc, mặc định hiện tại
+     * @param limit Số sự kiện tối đa (1-1000), mặc định 100
+     * @return Danh sách sự kiện
+     */
+    public List<AccessAuditEntry> search(String username, String uriPrefix, String type,
+                                         LocalDateTime from, LocalDateTime to, Integer limit) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(7);
+        if (start.isAfter(end)) {
+            throw new AppException(ErrorCode.INVALID_DATE_RANGE, "Thời điểm bắt đầu phải trước thời điểm kết thúc");
+        }
+        int maxResults = limit != null ? limit : 100;
+        if (maxResults < 1 || maxResults > MAX_SEARCH_LIMIT) {
+            throw new AppException(ErrorCode.BAD_REQUEST, "Số kết quả tối đa phải từ 1 đến " + MAX_SEARCH_LIMIT);
+        }
+        int typeCode = -1;
+        if (type != null && !type.isBlank()) {
+            try {
+                typeCode = AccessLogRingBuffer.EventType.valueOf(type.trim().toUpperCase(Locale.ROOT)).ordinal();
+            } catch (IllegalArgumentException e) {
+                throw new AppException(ErrorCode.BAD_REQUEST, "Loại sự kiện không hợp lệ: " + type);
+            }
+        }
+        long fromMillis = start.atZone(zone).toInstant().toEpochMilli();
+        long toMillis = end.atZone(zone).toInstant().toEpochMilli();
+        byte[] usernameBytes = hasText(username) ? encode(username.trim()) : null;
+        byte[] uriPrefixBytes = hasText(uriPrefix) ? encode(uriPrefix.trim()) : null;
+        int filterType = typeCode;
+
+        return searchTimer.record(() -> {
+            List<AccessAuditSegment> snapshot = List.copyOf(segments);
+            List<AccessAuditEntry> results = new ArrayList<>();
+            // Duyệt từ segment mới nhất bắt đầu trước toMillis về các segment cũ hơn
+            for (int i = lastSegmentStartingBefore(snapshot, toMillis); i >= 0 && results.size() < maxResults; i--) {
+                AccessAuditSegment segment = snapshot.get(i);
+                if (segment.getLastTimestamp() < fromMillis) {
+                    break;
+                }
+                // Chỉ giữ các bản ghi mới nhất của segment trong số còn thiếu
+                int remaining = maxResults - results.size();
+                ArrayDeque<AccessAuditSegment.Record> newest = new ArrayDeque<>(Math.min(remaining, 256));
+                segment.scan(fromMillis, toMillis, usernameBytes, uriPrefixBytes, filterType, record -> {
+                    if (newest.size() == remaining) {
+                        newest.pollFirst();
+                    }
+                    newest.addLast(record);
+                });
+                for (Iterator<AccessAuditSegment.Record> it = newest.descendingIterator(); it.hasNext(); ) {
+                    results.add(toEntry(it.next()));
+                }
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Xóa các segment đã đóng có sự kiện cuối cùng cũ hơn số ngày lưu giữ
+     * @return Số segment đã xóa
+     */
+    @Scheduled(fixedDelayString = "${audit.retention-check-ms:3600000}")
+    public synchronized int applyRetention() {
+        long cutoff = System.currentTimeMillis() - retention.toMillis();
+        int deleted = 0;
+        for (AccessAuditSegment segment : segments) {
+            if (segment == active || segment.getLastTimestamp() >= cutoff) {
+                continue;
+            }
+            segments.remove(segment);
+            deleted++;
+            deletedCounter.increment();
+            try {
+                Files.deleteIfExists(segment.getFile());
+            } catch (IOException e) {
+                logger.warn("Không xóa được segment nhật ký truy cập {}: {}", segment.getFile(), e.getMessage());
+            }
+        }
+        return deleted;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (active != null) {
+            active.force();
+        }
+    }
+
+    private void roll(long timestamp) throws IOException {
+        if (active != null) {
+            active.force();
+        }
+        // Tên file là thời gian bắt đầu, phải khác segment trước khi hai lần mở cùng một mili giây
+        long firstTimestamp = active == null ? timestamp : Math.max(timestamp, active.getFirstTimestamp() + 1);
+        Files.createDirectories(directory);
+        active = AccessAuditSegment.create(directory, firstTimestamp, segmentBytes);
+        segments.add(active);
+    }
+
+    private static int lastSegmentStartingBefore(List<AccessAuditSegment> snapshot, long toMillis) {
+        int low = 0;
+        int high = snapshot.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (snapshot.get(middle).getFirstTimestamp() <= toMillis) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    private AccessAuditEntry toEntry(AccessAuditSegment.Record record) {
+        return new AccessAuditEntry(
+            LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestampMillis()), zone),
+            AccessLogRingBuffer.EventType.values()[record.type()].name(),
+            record.success(),
+            record.username(),
+            record.method(),
+            record.uri(),
+            record.userAgent(),
+            record.ipAddress());
+    }
+
+    private static byte[] encode(String value) {
+        if (value == null || value.isEmpty()) {
+            return EMPTY;
+        }
+        String bounded = value.length() > MAX_FIELD_CHARS ? value.substring(0, MAX_FIELD_CHARS) : value;
+        return bounded.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.AgentManagementBE.Config;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Ghi nhật ký truy cập ra file theo ngày (access-yyyy-MM-dd.log), chuyển sang file đánh số
+ * (access-yyyy-MM-dd.1.log, ...) khi vượt dung lượng. Chỉ dùng từ luồng ghi nền của AccessLogService.
+ */
+public class AccessLogFileWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final String prefix;
+    private final long maxFileBytes;
+
+    private BufferedWriter out;
+    private String currentDate;
+    private int index;
+    private long writtenBytes;
+
+    public AccessLogFileWriter(Path directory, String prefix, long maxFileBytes) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.maxFileBytes = Math.max(1, maxFileBytes);
+    }
+
+    /**
+     * Ghi một dòng vào file của ngày tương ứng, mở file mới khi sang ngày hoặc file hiện tại đã đầy
+     * @param date Ngày của sự kiện (yyyy-MM-dd)
+     * @param line Nội dung dòng, không gồm ký tự xuống dòng
+     */
+    public void writeLine(String date, CharSequence line) throws IOException {
+        if (out == null || !date.equals(currentDate) || writtenBytes >= maxFileBytes) {
+            roll(date);
+        }
+        out.append(line).append('\n');
+        // Nội dung chủ yếu là ASCII, đếm theo ký tự là đủ chính xác cho việc chia file
+        writtenBytes += line.length() + 1;
+    }
+
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    public Path currentFile() {
+        return currentDate == null ? null : fileFor(currentDate, index);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    private void roll(String date) throws IOException {
+        close();
+        if (!date.equals(currentDate)) {
+            currentDate = date;
+            index = 0;
+        } else {
+            index++;
+        }
+        Files.createDirectories(directory);
+        // Sau khi khởi động lại: ghi tiếp vào file chưa đầy đầu tiên của ngày
+        Path file = fileFor(date, index);
+        while (Files.exists(file) && Files.size(file) >= maxFileBytes) {
+            file = fileFor(date, ++index);
+        }
+        writtenBytes = Files.exists(file) ? Files.size(file) : 0;
+        out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private Path fileFor(String date, int fileIndex) {
+        String name = fileIndex == 0
+            ? prefix + "-" + date + ".log"
+            : prefix + "-" + date + "." + fileIndex + ".log";
+        return directory.resolve(name);
+    }
+}
@@ -0,0 +1,164 @@
+package org.example.AgentManagementBE.Config;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Vòng đệm có giới hạn, không khóa, cho nhiều luồng ghi và một luồng đọc.
+ * Các ô sự kiện được tạo sẵn khi khởi động và dùng lại, luồng request chỉ chép tham chiếu và số vào ô;
+ * mỗi ô có số thứ tự riêng để luồng ghi và luồng đọc biết ô đã sẵn sàng hay chưa.
+ */
+public class AccessLogRingBuffer {
+
+    public enum EventType {
+        ACCESS, LOGIN, LOGOUT, TOKEN_REFRESH
+    }
+
+    /**
+     * Một ô trong vòng đệm, chỉ được đọc bên trong drain và không được giữ lại sau đó
+     */
+    public static final class Event {
+        // Bằng vị trí ô khi trống, bằng vị trí + 1 khi đã có dữ liệu
+        private volatile long sequence;
+
+        private long timestampMillis;
+        private EventType type;
+        private boolean success;
+        private String username;
+        private String method;
+        private String uri;
+        private String userAgent;
+        private String ipAddress;
+
+        private Event(long sequence) {
+            this.sequence = sequence;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        public EventType getType() {
+            return type;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public String getUserAgent() {
+            return userAgent;
+        }
+
+        public String getIpAddress() {
+            return ipAddress;
+        }
+
+        private void clear() {
+            username = null;
+            method = null;
+            uri = null;
+            userAgent = null;
+            ipAddress = null;
+        }
+    }
+
+    private final Event[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Chỉ luồng đọc thay đổi; volatile để gauge đọc được kích thước hiện tại
+    private volatile long head;
+
+    /**
+     * @param capacity Số ô tối thiểu, được làm tròn lên lũy thừa của 2
+     */
+    public AccessLogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new Event[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Event(i);
+        }
+    }
+
+    /**
+     * Ghi một sự kiện vào vòng đệm
+     * @return false nếu vòng đệm đã đầy
+     */
+    public boolean offer(EventType type, long timestampMillis, boolean success, String username,
+                         String method, String uri, String userAgent, String ipAddress) {
+        long position = tail.get();
+        while (true) {
+            Event slot = slots[(int) (position & mask)];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slot.type = type;
+                    slot.timestampMillis = timestampMillis;
+                    slot.success = success;
+                    slot.username = username;
+                    slot.method = method;
+                    slot.uri = uri;
+                    slot.userAgent = userAgent;
+                    slot.ipAddress = ipAddress;
+                    slot.sequence = position + 1;
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // Ô chưa được luồng đọc giải phóng từ vòng trước
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Lấy tối đa maxEvents sự kiện theo thứ tự ghi, chỉ được gọi từ một luồng đọc duy nhất
+     * @return Số sự kiện đã xử lý
+     */
+    public int drain(Consumer<Event> handler, int maxEvents) {
+        long position = head;
+        int drained = 0;
+        while (drained < maxEvents) {
+            Event slot = slots[(int) (position & mask)];
+            if (slot.sequence != position + 1) {
+                break;
+            }
+            try {
+                handler.accept(slot);
+            } finally {
+                slot.clear();
+                slot.sequence = position + slots.length;
+                position++;
+                head = position;
+            }
+            drained++;
+        }
+        return drained;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Số sự kiện đang chờ ghi (gần đúng khi có luồng đang ghi đồng thời)
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(slots.length, tail.get() - head));
+    }
+}
@@ -1,45 +1,254 @@
 package org.example.AgentManagementBE.Config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Ghi nhật ký truy cập bất đồng bộ. Luồng request chỉ chép dữ liệu vào một ô của AccessLogRingBuffer;
+ * một luồng nền duy nhất định dạng thời gian, ghép dòng theo lô và ghi ra file theo ngày,
+ * đồng thời ghi sự kiện vào kho nhật ký nhị phân AccessAuditStore để tra cứu.
+ * Khi vòng đệm đầy, sự kiện bị bỏ (drop) hoặc luồng request chờ đến khi có chỗ (block) tùy cấu hình.
+ */
 @Service
 public class AccessLogService {
-    
-    private static final Logger accessLogger = LoggerFactory.getLogger("ACCESS_LOG");
+    private static final Logger logger = LoggerFactory.getLogger(AccessLogService.class);
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    
+
+    public static final String POLICY_DROP = "drop";
+    public static final String POLICY_BLOCK = "block";
+
+    // Khi dừng, thời gian tối đa chờ các ô đã được giành nhưng luồng request chưa ghi xong
+    private static final long SHUTDOWN_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long SHUTDOWN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final AccessLogRingBuffer buffer;
+    private final AccessLogFileWriter fileWriter;
+    private final AccessAuditStore accessAuditStore;
+    private final boolean blockWhenFull;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter blockedCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    // Chỉ luồng ghi nền dùng: dòng đang ghép và thời gian đã định dạng của giây gần nhất
+    private final StringBuilder line = new StringBuilder(256);
+    private long formattedSecond = Long.MIN_VALUE;
+    private String formattedTimestamp;
+
+    @Autowired
+    public AccessLogService(MeterRegistry meterRegistry,
+                            AccessAuditStore accessAuditStore,
+                            @Value("${access-log.directory:logs}") String directory,
+                            @Value("${access-log.buffer-size:8192}") int bufferSize,
+                            @Value("${access-log.overflow-policy:drop}") String overflowPolicy,
+                            @Value("${access-log.batch-size:512}") int batchSize,
+                            @Value("${access-log.flush-interval-ms:200}") long flushIntervalMs,
+                            @Value("${access-log.max-file-size-mb:50}") long maxFileSizeMb) {
+        this.accessAuditStore = accessAuditStore;
+        this.buffer = new AccessLogRingBuffer(bufferSize);
+        this.fileWriter = new AccessLogFileWriter(Path.of(directory), "access", maxFileSizeMb * 1024 * 1024);
+        this.blockWhenFull = POLICY_BLOCK.equalsIgnoreCase(overflowPolicy);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMs));
+        this.writtenCounter = Counter.builder("access_log.events.written")
+            .description("Số sự kiện truy cập đã ghi ra file")
+            .register(meterRegistry);
+        this.droppedCounter = Counter.builder("access_log.events.dropped")
+            .description("Số sự kiện truy cập bị bỏ do vòng đệm đầy")
+            .register(meterRegistry);
+        this.blockedCounter = Counter.builder("access_log.events.blocked")
+            .description("Số lần luồng request phải chờ vì vòng đệm đầy")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("access_log.events.failed")
+            .description("Số sự kiện truy cập không ghi được ra file")
+            .register(meterRegistry);
+        Gauge.builder("access_log.buffer.pending", buffer, AccessLogRingBuffer::size)
+            .description("Số sự kiện truy cập đang chờ ghi")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::runWriter, "access-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Dừng luồng ghi nền sau khi đã ghi hết các sự kiện còn trong vòng đệm
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public void logAccess(String username, String method, String uri, String userAgent, String ipAddress) {
-        String timestamp = LocalDateTime.now().format(formatter);
-        String logMessage = String.format("[%s] USER=%s METHOD=%s URI=%s USER_AGENT=%s IP=%s", 
-            timestamp, username, method, uri, userAgent, ipAddress);
-        accessLogger.info(logMessage);
+        publish(AccessLogRingBuffer.EventType.ACCESS, true, username, method, uri, userAgent, ipAddress);
     }
-    
+
     public void logLogin(String username, String ipAddress, boolean success) {
-        String timestamp = LocalDateTime.now().format(formatter);
-        String status = success ? "SUCCESS" : "FAILED";
-        String logMessage = String.format("[%s] LOGIN %s USER=%s IP=%s", 
-            timestamp, status, username, ipAddress);
-        accessLogger.info(logMessage);
+        publish(AccessLogRingBuffer.EventType.LOGIN, success, username, null, null, null, ipAddress);
     }
-    
+
     public void logLogout(String username, String ipAddress) {
-        String timestamp = LocalDateTime.now().format(formatter);
-        String logMessage = String.format("[%s] LOGOUT USER=%s IP=%s", 
-            timestamp, username, ipAddress);
-        accessLogger.info(logMessage);
+        publish(AccessLogRingBuffer.EventType.LOGOUT, true, username, null, null, null, ipAddress);
     }
-    
+
     public void logTokenRefresh(String username, String ipAddress, boolean success) {
-        String timestamp = LocalDateTime.now().format(formatter);
-        String status = success ? "SUCCESS" : "FAILED";
-        String logMessage = String.format("[%s] TOKEN_REFRESH %s USER=%s IP=%s", 
-            timestamp, status, username, ipAddress);
-        accessLogger.info(logMessage);
+        publish(AccessLogRingBuffer.EventType.TOKEN_REFRESH, success, username, null, null, null, ipAddress);
+    }
+
+    /**
+     * Số sự kiện đang chờ ghi ra file
+     */
+    public int pendingEvents() {
+        return buffer.size();
+    }
+
+    /**
+     * File nhật ký đang được ghi, null nếu chưa ghi sự kiện nào
+     */
+    public Path currentFile() {
+        return fileWriter.currentFile();
+    }
+
+    private void publish(AccessLogRingBuffer.EventType type, boolean success, String username,
+                         String method, String uri, String userAgent, String ipAddress) {
+        long timestamp = System.currentTimeMillis();
+        if (buffer.offer(type, timestamp, success, username, method, uri, userAgent, ipAddress)) {
+            return;
+        }
+        if (!blockWhenFull || !running) {
+            droppedCounter.increment();
+            return;
+        }
+        blockedCounter.increment();
+        while (!buffer.offer(type, timestamp, success, username, method, uri, userAgent, ipAddress)) {
+            if (!running) {
+                droppedCounter.increment();
+                return;
+            }
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+    }
+
+    private void runWriter() {
+        boolean stopping = false;
+        long stopDeadline = 0;
+        while (running || buffer.size() > 0) {
+            int drained = buffer.drain(this::write, batchSize);
+            // Lô chưa đầy nghĩa là đã đuổi kịp luồng request: đẩy dữ liệu xuống đĩa rồi nghỉ
+            if (drained < batchSize) {
+                flush();
+                if (drained == 0 && running) {
+                    LockSupport.parkNanos(flushIntervalNanos);
+                } else if (drained == 0) {
+                    // Đang dừng mà vòng đệm còn ô chưa ghi xong: chờ từng quãng ngắn thay vì quay vòng, có giới hạn
+                    if (!stopping) {
+                        stopping = true;
+                        stopDeadline = System.nanoTime() + SHUTDOWN_WAIT_NANOS;
+                    } else if (System.nanoTime() - stopDeadline > 0) {
+                        int abandoned = buffer.size();
+                        droppedCounter.increment(abandoned);
+                        logger.warn("Bỏ {} sự kiện truy cập chưa ghi xong khi dừng", abandoned);
+                        break;
+                    }
+                    LockSupport.parkNanos(SHUTDOWN_PARK_NANOS);
+                }
+            }
+        }
+        flush();
+        try {
+            fileWriter.close();
+        } catch (IOException e) {
+            logger.error("Không đóng được file nhật ký truy cập", e);
+        }
+    }
+
+    private void write(AccessLogRingBuffer.Event event) {
+        accessAuditStore.append(event.getType(), event.getTimestampMillis(), event.isSuccess(), event.getUsername(),
+            event.getMethod(), event.getUri(), event.getUserAgent(), event.getIpAddress());
+        String timestamp = formatTimestamp(event.getTimestampMillis());
+        line.setLength(0);
+        line.append('[').append(timestamp).append("] ");
+        switch (event.getType()) {
+            case ACCESS -> line.append("USER=").append(event.getUsername())
+                .append(" METHOD=").append(event.getMethod())
+                .append(" URI=").append(event.getUri())
+                .append(" USER_AGENT=").append(event.getUserAgent())
+                .append(" IP=").append(event.getIpAddress());
+            case LOGIN -> appendStatusLine("LOGIN", event);
+            case TOKEN_REFRESH -> appendStatusLine("TOKEN_REFRESH", event);
+            case LOGOUT -> line.append("LOGOUT USER=").append(event.getUsername())
+                .append(" IP=").append(event.getIpAddress());
+        }
+        try {
+            fileWriter.writeLine(timestamp.substring(0, 10), line);
+            writtenCounter.increment();
+        } catch (IOException e) {
+            failedCounter.increment();
+            logger.error("Không ghi được nhật ký truy cập: {}", e.getMessage());
+        }
+    }
+
+    private void appendStatusLine(String action, AccessLogRingBuffer.Event event) {
+        line.append(action).append(event.isSuccess() ? " SUCCESS" : " FAILED")
+            .append(" USER=").append(event.getUsername())
+            .append(" IP=").append(event.getIpAddress());
+    }
+
+    private String formatTimestamp(long timestampMillis) {
+        long second = timestampMillis / 1000;
+        if (second != formattedSecond) {
+            formattedTimestamp = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), zone).format(formatter);
+            formattedSecond = second;
+        }
+        return formattedTimestamp;
+    }
+
+    private void flush() {
+        try {
+            fileWriter.flush();
+        } catch (IOException e) {
+            logger.error("Không ghi được nhật ký truy cập: {}", e.getMessage());
+        }
     }
-} 
\ No newline at end of file
+}
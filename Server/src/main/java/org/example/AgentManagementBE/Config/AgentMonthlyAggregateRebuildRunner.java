@@ -0,0 +1,32 @@
+package org.example.AgentManagementBE.Config;
+
+import org.example.AgentManagementBE.Service.AgentMonthlyAggregateService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tính lại bảng tổng hợp theo đại lý và tháng khi khởi động: tự động khi bảng còn trống (lần triển khai đầu tiên),
+ * hoặc luôn tính lại với tham số --rebuild-aggregates khi dữ liệu phiếu được sửa trực tiếp trong cơ sở dữ liệu
+ */
+@Component
+public class AgentMonthlyAggregateRebuildRunner implements ApplicationRunner {
+    public static final String REBUILD_OPTION = "rebuild-aggregates";
+
+    private final AgentMonthlyAggregateService agentMonthlyAggregateService;
+
+    @Autowired
+    public AgentMonthlyAggregateRebuildRunner(AgentMonthlyAggregateService agentMonthlyAggregateService) {
+        this.agentMonthlyAggregateService = agentMonthlyAggregateService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (args.containsOption(REBUILD_OPTION)) {
+            agentMonthlyAggregateService.rebuildAll();
+        } else {
+            agentMonthlyAggregateService.rebuildIfEmpty();
+        }
+    }
+}
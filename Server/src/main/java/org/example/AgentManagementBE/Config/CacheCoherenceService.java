@@ -0,0 +1,174 @@
+package org.example.AgentManagementBE.Config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.AgentManagementBE.Model.CacheVersion;
+import org.example.AgentManagementBE.Repository.CacheVersionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Giữ các cache trong bộ nhớ nhất quán giữa nhiều node mà không cần message broker.
+ * Mỗi vùng cache có một dòng trong bảng CacheVersion: node ghi dữ liệu tăng version trong cùng giao dịch,
+ * mỗi node đọc cả bảng định kỳ bằng một câu truy vấn và nạp lại những vùng có version khác lần đọc trước.
+ * Node ghi cũng nhận lại thay đổi của chính mình ở lần đọc sau, khi đó vùng cache được nạp lại thêm một lần.
+ */
+@Component
+public class CacheCoherenceService {
+    private static final Logger logger = LoggerFactory.getLogger(CacheCoherenceService.class);
+
+    public static final String REGION_PARAMETER = "parameter";
+    public static final String REGION_REFERENCE_DATA = "reference_data";
+    public static final String REGION_USER = "user";
+    public static final String REGION_PRODUCT = "product";
+
+    private final CacheVersionRepository cacheVersionRepository;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+
+    private final Map<String, List<Runnable>> invalidators = new ConcurrentHashMap<>();
+    private final Map<String, Long> knownVersions = new ConcurrentHashMap<>();
+    private final Counter pollFailureCounter;
+
+    @Autowired
+    public CacheCoherenceService(CacheVersionRepository cacheVersionRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${cache.coherence.enabled:true}") boolean enabled) {
+        this.cacheVersionRepository = cacheVersionRepository;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.pollFailureCounter = Counter.builder("cache.coherence.poll.failures")
+            .description("Số lần không đọc được bảng phiên bản cache")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Đăng ký hàm xóa/nạp lại cache cục bộ của một vùng, được gọi khi node khác thay đổi vùng đó.
+     * Hàm này chỉ được làm mới bộ nhớ, không được gọi lại bumpVersion.
+     * @param region Tên vùng cache
+     * @param invalidator Hàm nạp lại cache cục bộ
+     */
+    public void register(String region, Runnable invalidator) {
+        invalidators.computeIfAbsent(region, key -> new CopyOnWriteArrayList<>()).add(invalidator);
+        if (!enabled) {
+            return;
+        }
+        try {
+            knownVersions.putIfAbsent(region, currentVersion(region));
+        } catch (Exception e) {
+            // Chưa biết version: lần đọc định kỳ đầu tiên sẽ nạp lại vùng này một lần
+            logger.warn("Không đọc được phiên bản cache của vùng {}: {}", region, e.getMessage());
+        }
+    }
+
+    /**
+     * Tăng version của vùng cache để các node khác nạp lại. Nếu đang trong giao dịch, version được tăng
+     * trong chính giao dịch đó (node khác chỉ thấy sau khi dữ liệu đã commit) và chỉ tăng một lần cho mỗi vùng.
+     * @param region Tên vùng cache vừa thay đổi
+     */
+    @SuppressWarnings("unchecked")
+    public void bumpVersion(String region) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Set<String> bumped = (Set<String>) TransactionSynchronizationManager.getResource(this);
+            if (bumped == null) {
+                bumped = new HashSet<>();
+                TransactionSynchronizationManager.bindResource(this, bumped);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResourceIfPossible(CacheCoherenceService.this);
+                    }
+                });
+            }
+            if (!bumped.add(region)) {
+                return;
+            }
+        }
+        if (cacheVersionRepository.incrementVersion(region) == 0) {
+            logger.warn("Vùng cache {} chưa có dòng trong bảng CacheVersion, node khác sẽ không nhận được thay đổi", region);
+            return;
+        }
+        counter("cache.coherence.bumps", "Số lần tăng phiên bản vùng cache sau khi dữ liệu thay đổi", region).increment();
+    }
+
+    /**
+     * Đọc bảng phiên bản và nạp lại các vùng cache đã bị node khác thay đổi
+     * @return Số vùng cache đã được nạp lại
+     */
+    @Scheduled(fixedDelayString = "${cache.coherence.poll-ms:2000}")
+    public int poll() {
+        if (!enabled) {
+            return 0;
+        }
+        List<CacheVersion> rows;
+        try {
+            rows = cacheVersionRepository.findAll();
+        } catch (Exception e) {
+            // Giữ cache hiện tại, lần đọc sau sẽ thử lại
+            pollFailureCounter.increment();
+            logger.error("Không đọc được bảng phiên bản cache", e);
+            return 0;
+        }
+        int invalidated = 0;
+        for (CacheVersion row : rows) {
+            Long previous = knownVersions.put(row.getRegion(), row.getVersion());
+            List<Runnable> regionInvalidators = invalidators.get(row.getRegion());
+            if (regionInvalidators == null || Objects.equals(previous, row.getVersion())) {
+                continue;
+            }
+            logger.debug("Vùng cache {} đổi từ phiên bản {} sang {}, nạp lại", row.getRegion(), previous, row.getVersion());
+            for (Runnable invalidator : regionInvalidators) {
+                try {
+                    invalidator.run();
+                } catch (RuntimeException e) {
+                    logger.error("Không nạp lại được vùng cache {}", row.getRegion(), e);
+                }
+            }
+            counter("cache.coherence.invalidations", "Số lần nạp lại vùng cache do thay đổi từ node khác",
+                row.getRegion()).increment();
+            invalidated++;
+        }
+        return invalidated;
+    }
+
+    private long currentVersion(String region) {
+        return cacheVersionRepository.findById(region)
+            .map(CacheVersion::getVersion)
+            .orElseGet(() -> createRegion(region));
+    }
+
+    private long createRegion(String region) {
+        try {
+            cacheVersionRepository.saveAndFlush(new CacheVersion(region, 0L));
+            return 0L;
+        } catch (DataIntegrityViolationException e) {
+            // Node khác vừa tạo dòng này
+            return cacheVersionRepository.findById(region).map(CacheVersion::getVersion).orElse(0L);
+        }
+    }
+
+    private Counter counter(String name, String description, String region) {
+        return Counter.builder(name)
+            .description(description)
+            .tag("region", region)
+            .register(meterRegistry);
+    }
+}
@@ -18,8 +18,27 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private PersonService personService;
     
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+    
+    /**
+     * Dùng cho đăng nhập: luôn đọc từ cơ sở dữ liệu, không qua cache.
+     * ProviderManager xóa mật khẩu của UserDetails sau khi xác thực nên không được trả về bản đang cache.
+     */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return loadFromDatabase(username).userDetails();
+    }
+    
+    /**
+     * Dùng cho JwtAuthenticationFilter: lấy UserDetails qua UserDetailsCache
+     */
+    public UserDetails loadCachedUserByUsername(String username) throws UsernameNotFoundException {
+        return userDetailsCache.get(username, this::loadFromDatabase);
+    }
+    
+    // Nạp người dùng và vai trò từ cơ sở dữ liệu khi không có trong cache
+    private UserDetailsCache.LoadedUser loadFromDatabase(String username) {
         // Try to find by email first, then by username
         var person = personService.findByEmail(username);
         if (person == null) {
@@ -36,11 +55,12 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
                 .collect(Collectors.toList());
         
-        return User.builder()
+        UserDetails userDetails = User.builder()
                 .username(person.getPersonEmail()) // Use email as username for Spring Security
                 .password(person.getPasswordHash())
                 .authorities(authorities)
                 .disabled(!person.getIsActive())
                 .build();
+        return new UserDetailsCache.LoadedUser(person.getPersonId(), userDetails);
     }
 } 
\ No newline at end of file
@@ -1,5 +1,6 @@
 package org.example.AgentManagementBE.Config;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,52 +8,71 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
     
+    public static final String MODE_DATABASE = "database";
+    public static final String MODE_STATELESS = "stateless";
+    
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
     
     @Autowired
-    private UserDetailsService userDetailsService;
+    private CustomUserDetailsService userDetailsService;
     
     @Autowired
     private AccessLogService accessLogService;
     
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
+    
+    // "database": nạp quyền từ cơ sở dữ liệu (qua UserDetailsCache), "stateless": tin claim "roles" đã ký trong token
+    @Value("${jwt.authorization-mode:database}")
+    private String authorizationMode;
+    
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                   FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = getJwtFromRequest(request);
             
-            if (StringUtils.hasText(jwt) && jwtTokenProvider.validateToken(jwt)) {
-                String username = jwtTokenProvider.getUsernameFromToken(jwt);
-                
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication = 
-                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+            // Xác minh chữ ký và hạn đúng một lần, subject/roles đọc từ cùng đối tượng claims
+            Claims claims = StringUtils.hasText(jwt) ? jwtTokenProvider.getValidClaims(jwt) : null;
+            
+            if (claims != null) {
+                UserDetails userDetails = MODE_STATELESS.equalsIgnoreCase(authorizationMode)
+                    ? loadUserFromClaims(claims)
+                    : userDetailsService.loadCachedUserByUsername(claims.getSubject());
                 
-                // Log access for audit trail
-                String userAgent = request.getHeader("User-Agent");
-                String ipAddress = getClientIpAddress(request);
-                accessLogService.logAccess(username, request.getMethod(), request.getRequestURI(), 
-                    userAgent, ipAddress);
+                if (userDetails != null) {
+                    UsernamePasswordAuthenticationToken authentication = 
+                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                    
+                    // Log access for audit trail
+                    String userAgent = request.getHeader("User-Agent");
+                    String ipAddress = getClientIpAddress(request);
+                    accessLogService.logAccess(userDetails.getUsername(), request.getMethod(), request.getRequestURI(), 
+                        userAgent, ipAddress);
+                }
             }
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
@@ -61,6 +81,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
     
+    /**
+     * Dựng UserDetails từ claim đã xác minh chữ ký, không truy vấn cơ sở dữ liệu.
+     * Trả về null với refresh token và token đã bị thu hồi.
+     */
+    private UserDetails loadUserFromClaims(Claims claims) {
+        if ("refresh".equals(claims.get("type"))) {
+            return null;
+        }
+        String username = claims.getSubject();
+        if (tokenRevocationRegistry.isRevoked(username, jwtTokenProvider.getRoleVersionFromClaims(claims))) {
+            logger.debug("Rejected revoked JWT for {}", username);
+            return null;
+        }
+        List<GrantedAuthority> authorities = jwtTokenProvider.getAuthoritiesFromClaims(claims);
+        return User.withUsername(username)
+                .password("")
+                .authorities(authorities)
+                .build();
+    }
+    
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
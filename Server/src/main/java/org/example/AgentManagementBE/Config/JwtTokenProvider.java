@@ -1,15 +1,19 @@
 package org.example.AgentManagementBE.Config;
 
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -21,8 +25,8 @@ public class JwtTokenProvider {
     
     private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
     
-    @Value("${jwt.secret:defaultSecretKeyForDevelopmentOnly}")
-    private String jwtSecret;
+    public static final String ROLES_CLAIM = "roles";
+    public static final String ROLE_VERSION_CLAIM = "rv";
     
     @Value("${jwt.expiration:86400000}") // 24 hours in milliseconds
     private long jwtExpirationMs;
@@ -30,8 +34,14 @@ public class JwtTokenProvider {
     @Value("${jwt.refresh-expiration:604800000}") // 7 days in milliseconds
     private long refreshExpirationMs;
     
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
+    
+    @Autowired
+    private JwtTokenVerifier jwtTokenVerifier;
+    
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        return jwtTokenVerifier.getSigningKey();
     }
     
     public String generateToken(Authentication authentication) {
@@ -41,13 +51,15 @@ public class JwtTokenProvider {
     
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("roles", userDetails.getAuthorities());
+        claims.put(ROLES_CLAIM, userDetails.getAuthorities());
+        claims.put(ROLE_VERSION_CLAIM, tokenRevocationRegistry.currentRoleVersion(userDetails.getUsername()));
         return createToken(claims, userDetails.getUsername(), jwtExpirationMs);
     }
     
     public String generateToken(String username, List<String> roles) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("roles", roles);
+        claims.put(ROLES_CLAIM, roles);
+        claims.put(ROLE_VERSION_CLAIM, tokenRevocationRegistry.currentRoleVersion(username));
         return createToken(claims, username, jwtExpirationMs);
     }
     
@@ -80,32 +92,60 @@ public class JwtTokenProvider {
         return claimsResolver.apply(claims);
     }
     
-    private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    /**
+     * Đọc và xác minh chữ ký của token, ném JwtException nếu token không hợp lệ hoặc đã hết hạn
+     */
+    public Claims getAllClaimsFromToken(String token) {
+        return jwtTokenVerifier.verify(token);
     }
     
-    private Boolean isTokenExpired(String token) {
-        final Date expiration = getExpirationDateFromToken(token);
-        return expiration.before(new Date());
+    /**
+     * Xác minh token một lần và trả về claims, dùng cho filter để không phải parse lại khi đọc subject/roles
+     * @param token JWT
+     * @return Claims nếu token hợp lệ và chưa hết hạn, null nếu không
+     */
+    public Claims getValidClaims(String token) {
+        try {
+            return jwtTokenVerifier.verify(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.error("Invalid JWT token: {}", e.getMessage());
+            return null;
+        }
     }
     
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = getUsernameFromToken(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        Claims claims = getValidClaims(token);
+        return claims != null && claims.getSubject().equals(userDetails.getUsername());
     }
     
     public Boolean validateToken(String token) {
-        try {
-            Jwts.parser().verifyWith(getSigningKey()).build().parseSignedClaims(token);
-            return !isTokenExpired(token);
-        } catch (JwtException | IllegalArgumentException e) {
-            logger.error("Invalid JWT token: {}", e.getMessage());
-            return false;
+        // Parser đã từ chối token hết hạn, không cần kiểm tra hạn lần thứ hai
+        return getValidClaims(token) != null;
+    }
+    
+    /**
+     * Lấy danh sách quyền từ claim "roles". Token cấp khi đăng nhập lưu dạng {"authority": "ROLE_X"},
+     * token cấp khi làm mới lưu tên vai trò "X"; cả hai đều được chuẩn hóa thành ROLE_X.
+     */
+    public List<GrantedAuthority> getAuthoritiesFromClaims(Claims claims) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        if (!(claims.get(ROLES_CLAIM) instanceof Collection<?> roles)) {
+            return authorities;
         }
+        for (Object role : roles) {
+            Object name = role instanceof Map<?, ?> map ? map.get("authority") : role;
+            if (name == null) {
+                continue;
+            }
+            String authority = name.toString();
+            authorities.add(new SimpleGrantedAuthority(authority.startsWith("ROLE_") ? authority : "ROLE_" + authority));
+        }
+        return authorities;
+    }
+    
+    public int getRoleVersionFromClaims(Claims claims) {
+        Object version = claims.get(ROLE_VERSION_CLAIM);
+        return version instanceof Number number ? number.intValue() : 0;
     }
     
     public Boolean isRefreshToken(String token) {
@@ -0,0 +1,103 @@
+package org.example.AgentManagementBE.Config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Xác minh JWT: giữ một SecretKey và JwtParser dựng sẵn, mỗi token chỉ được parse và kiểm tra chữ ký một lần.
+ * Các token vừa xác minh được giữ trong LRU nhỏ kèm claims và thời điểm hết hạn,
+ * request lặp lại với cùng token (cùng tab trình duyệt) không phải tính HMAC và parse JSON lại.
+ */
+@Component
+public class JwtTokenVerifier {
+
+    private record VerifiedToken(Claims claims, long expiresAtMillis) {
+    }
+
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final Map<String, VerifiedToken> recentTokens;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    @Autowired
+    public JwtTokenVerifier(@Value("${jwt.secret:defaultSecretKeyForDevelopmentOnly}") String jwtSecret,
+                            @Value("${jwt.verification.cache-size:1024}") int cacheSize,
+                            MeterRegistry meterRegistry) {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        int maxEntries = Math.max(0, cacheSize);
+        // LinkedHashMap theo thứ tự truy cập: phần tử lâu nhất không dùng bị bỏ khi vượt giới hạn
+        this.recentTokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hitCounter = Counter.builder("jwt.verification.cache.hits")
+            .description("Số token lấy claims từ LRU, không cần kiểm tra chữ ký lại")
+            .register(meterRegistry);
+        this.missCounter = Counter.builder("jwt.verification.cache.misses")
+            .description("Số token phải parse và kiểm tra chữ ký")
+            .register(meterRegistry);
+    }
+
+    public SecretKey getSigningKey() {
+        return signingKey;
+    }
+
+    /**
+     * Xác minh chữ ký và hạn của token, trả về claims
+     * @param token JWT
+     * @return Claims của token
+     * @throws io.jsonwebtoken.JwtException nếu token sai chữ ký, sai định dạng hoặc đã hết hạn
+     */
+    public Claims verify(String token) {
+        long now = System.currentTimeMillis();
+        VerifiedToken cached;
+        synchronized (recentTokens) {
+            cached = recentTokens.get(token);
+            if (cached != null && cached.expiresAtMillis() <= now) {
+                recentTokens.remove(token);
+            }
+        }
+        if (cached != null) {
+            if (cached.expiresAtMillis() <= now) {
+                throw new ExpiredJwtException(null, cached.claims(), "JWT expired at " + new Date(cached.expiresAtMillis()));
+            }
+            hitCounter.increment();
+            return cached.claims();
+        }
+
+        missCounter.increment();
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        Date expiration = claims.getExpiration();
+        // Chỉ cache token có hạn; khóa là toàn bộ chuỗi token nên không thể mượn chữ ký của token khác
+        if (expiration != null) {
+            synchronized (recentTokens) {
+                recentTokens.put(token, new VerifiedToken(claims, expiration.getTime()));
+            }
+        }
+        return claims;
+    }
+
+    public int cachedTokenCount() {
+        synchronized (recentTokens) {
+            return recentTokens.size();
+        }
+    }
+}
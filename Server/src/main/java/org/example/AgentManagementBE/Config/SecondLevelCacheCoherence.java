@@ -0,0 +1,32 @@
+package org.example.AgentManagementBE.Config;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Model.Product;
+import org.example.AgentManagementBE.Model.Unit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Xóa các vùng danh mục trong cache cấp hai khi node khác thay đổi dữ liệu danh mục, cùng lúc với ReferenceDataCache,
+ * và xóa vùng Product khi node khác đổi giá xuất.
+ * Nợ và tồn kho thay đổi ở mọi giao dịch nên không đi qua CacheCoherenceService: các cột này chỉ được ghi bằng
+ * câu UPDATE có điều kiện trên dữ liệu thật, còn Agent/Product dùng @DynamicUpdate nên khi lưu từ bản cũ trong cache
+ * không ghi lại các cột đó, và @Version từ chối bản cũ khi các cột khác đã bị node khác sửa.
+ */
+@Component
+public class SecondLevelCacheCoherence {
+
+    @Autowired
+    public SecondLevelCacheCoherence(EntityManagerFactory entityManagerFactory, CacheCoherenceService cacheCoherenceService) {
+        Cache cache = entityManagerFactory.getCache();
+        cacheCoherenceService.register(CacheCoherenceService.REGION_REFERENCE_DATA, () -> {
+            cache.evict(AgentType.class);
+            cache.evict(District.class);
+            cache.evict(Unit.class);
+        });
+        cacheCoherenceService.register(CacheCoherenceService.REGION_PRODUCT, () -> cache.evict(Product.class));
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.AgentManagementBE.Config;
+
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Model.Product;
+import org.example.AgentManagementBE.Model.Unit;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Cache cấp hai của Hibernate (JCache với Ehcache) cho Product, Agent và các entity danh mục.
+ * Mỗi entity có một vùng cache riêng với số phần tử tối đa và thời gian sống cấu hình qua hibernate-cache.*;
+ * vùng chưa được cấu hình làm Hibernate báo lỗi khi khởi động. Thống kê bật để actuator xuất số hit/miss theo vùng
+ * (hibernate.second.level.cache.requests).
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${hibernate-cache.product.max-entries:10000}") long productMaxEntries,
+            @Value("${hibernate-cache.product.ttl-seconds:120}") long productTtlSeconds,
+            @Value("${hibernate-cache.agent.max-entries:10000}") long agentMaxEntries,
+            @Value("${hibernate-cache.agent.ttl-seconds:120}") long agentTtlSeconds,
+            @Value("${hibernate-cache.reference.max-entries:1000}") long referenceMaxEntries,
+            @Value("${hibernate-cache.reference.ttl-seconds:3600}") long referenceTtlSeconds) {
+        CacheConfiguration<Object, Object> reference = region(referenceMaxEntries, referenceTtlSeconds);
+        ConfigurationBuilder configuration = ConfigurationBuilder.newConfigurationBuilder()
+            .withCache(Product.class.getName(), region(productMaxEntries, productTtlSeconds))
+            .withCache(Agent.class.getName(), region(agentMaxEntries, agentTtlSeconds))
+            .withCache(AgentType.class.getName(), reference)
+            .withCache(District.class.getName(), reference)
+            .withCache(Unit.class.getName(), reference);
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(
+            EhcacheCachingProvider.class.getName());
+        // URI riêng cho mỗi context để nhiều context trong cùng JVM (khi test) không dùng chung CacheManager
+        return provider.getCacheManager(URI.create("hibernate-second-level-cache-" + UUID.randomUUID()),
+            configuration.build());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+
+    /**
+     * Cấu hình một vùng cache; tên vùng là tên mặc định của Hibernate (tên đầy đủ của lớp entity)
+     */
+    private static CacheConfiguration<Object, Object> region(long maxEntries, long ttlSeconds) {
+        return CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                ResourcePoolsBuilder.heap(maxEntries))
+            .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ttlSeconds)))
+            .build();
+    }
+}
@@ -0,0 +1,156 @@
+package org.example.AgentManagementBE.Config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.AgentManagementBE.DTO.response.PersonTokenVersion;
+import org.example.AgentManagementBE.Repository.PersonRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Danh sách thu hồi JWT cho chế độ xác thực không trạng thái.
+ * Giữ trong bộ nhớ bảng email → phiên bản vai trò của các người dùng còn hoạt động, được làm mới định kỳ
+ * bằng một câu truy vấn. Token của người dùng bị khóa/xóa hoặc mang phiên bản vai trò cũ bị coi là đã thu hồi.
+ * Ở chế độ "database" bảng này không được dùng nên không nạp và không làm mới.
+ */
+@Component
+public class TokenRevocationRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationRegistry.class);
+
+    private final PersonRepository personRepository;
+    private final CacheCoherenceService cacheCoherenceService;
+    private final Counter revokedCounter;
+    private final boolean stateless;
+
+    // Thay cả bảng khi làm mới để các luồng đọc không cần khóa
+    private volatile Map<String, Integer> activeRoleVersions;
+
+    @Autowired
+    public TokenRevocationRegistry(PersonRepository personRepository, MeterRegistry meterRegistry,
+                                   CacheCoherenceService cacheCoherenceService,
+                                   @Value("${jwt.authorization-mode:database}") String authorizationMode) {
+        this.personRepository = personRepository;
+        this.cacheCoherenceService = cacheCoherenceService;
+        this.stateless = JwtAuthenticationFilter.MODE_STATELESS.equalsIgnoreCase(authorizationMode);
+        this.revokedCounter = Counter.builder("jwt.revocation.rejected")
+            .description("Số JWT bị từ chối do người dùng bị khóa hoặc vai trò đã thay đổi")
+            .register(meterRegistry);
+        Gauge.builder("jwt.revocation.active.subjects", this, registry -> registry.versions().size())
+            .description("Số người dùng còn hoạt động trong danh sách kiểm tra JWT")
+            .register(meterRegistry);
+        if (stateless) {
+            cacheCoherenceService.register(CacheCoherenceService.REGION_USER, this::refresh);
+        }
+    }
+
+    /**
+     * Kiểm tra token đã bị thu hồi chưa
+     * @param subject Subject của JWT (email người dùng)
+     * @param tokenRoleVersion Phiên bản vai trò ghi trong token
+     * @return true nếu người dùng không còn hoạt động hoặc vai trò đã thay đổi sau khi cấp token
+     */
+    public boolean isRevoked(String subject, int tokenRoleVersion) {
+        Integer current = versions().get(subject);
+        boolean revoked = current == null || tokenRoleVersion < current;
+        if (revoked) {
+            revokedCounter.increment();
+        }
+        return revoked;
+    }
+
+    /**
+     * Phiên bản vai trò hiện tại của người dùng, ghi vào JWT khi cấp token.
+     * Đọc thẳng từ cơ sở dữ liệu vì bảng trong bộ nhớ có thể chưa nhận thay đổi từ node khác
+     * @param subject Email người dùng
+     * @return Phiên bản vai trò, 0 nếu chưa biết
+     */
+    public int currentRoleVersion(String subject) {
+        return personRepository.findActiveRoleVersion(subject).orElse(0);
+    }
+
+    /**
+     * Thu hồi các JWT đã cấp cho người dùng bằng cách tăng phiên bản vai trò
+     * @param personId ID người dùng
+     */
+    public void revokePerson(Integer personId) {
+        personRepository.incrementRoleVersion(personId);
+        refreshAfterCommit();
+    }
+
+    /**
+     * Thu hồi các JWT đã cấp cho mọi người dùng đang giữ vai trò
+     * @param roleId ID vai trò bị đổi tên hoặc xóa
+     */
+    public void revokeRole(Integer roleId) {
+        personRepository.incrementRoleVersionByRoleId(roleId);
+        refreshAfterCommit();
+    }
+
+    /**
+     * Làm mới ngay sau khi giao dịch hiện tại commit (hoặc ngay lập tức nếu không có giao dịch),
+     * dùng khi người dùng được tạo, khóa, xóa hoặc đổi vai trò trên node này
+     */
+    public void refreshAfterCommit() {
+        // Node khác dùng phiên bản này để xóa cache người dùng ở cả hai chế độ
+        cacheCoherenceService.bumpVersion(CacheCoherenceService.REGION_USER);
+        if (!stateless) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh();
+                }
+            });
+        } else {
+            refresh();
+        }
+    }
+
+    /**
+     * Nạp lại bảng email → phiên bản vai trò, chạy định kỳ để nhận thay đổi từ node khác.
+     * Không làm gì ở chế độ "database"
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-ms:5000}")
+    public void refresh() {
+        if (!stateless) {
+            return;
+        }
+        try {
+            List<PersonTokenVersion> rows = personRepository.findActiveTokenVersions();
+            Map<String, Integer> versions = new HashMap<>(rows.size() * 2);
+            for (PersonTokenVersion row : rows) {
+                versions.put(row.getPersonEmail(), row.getRoleVersion());
+            }
+            activeRoleVersions = versions;
+        } catch (Exception e) {
+            // Giữ bảng cũ nếu không đọc được, lần làm mới sau sẽ thử lại
+            logger.error("Không làm mới được danh sách thu hồi JWT", e);
+        }
+    }
+
+    private Map<String, Integer> versions() {
+        Map<String, Integer> versions = activeRoleVersions;
+        if (versions == null) {
+            synchronized (this) {
+                if (activeRoleVersions == null) {
+                    refresh();
+                }
+                versions = activeRoleVersions != null ? activeRoleVersions : Map.of();
+            }
+        }
+        return versions;
+    }
+}
@@ -0,0 +1,203 @@
+package org.example.AgentManagementBE.Config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache UserDetails theo subject của JWT (email hoặc tên đăng nhập), có thời hạn sống và giới hạn số phần tử.
+ * Giúp JwtAuthenticationFilter không phải truy vấn Person và PersonRole ở mọi request;
+ * PersonService/PersonRoleService gọi evictPerson khi thông tin hoặc vai trò người dùng thay đổi;
+ * các node khác xóa toàn bộ cache khi nhận thay đổi vùng người dùng qua CacheCoherenceService.
+ */
+@Component
+public class UserDetailsCache {
+
+    /**
+     * Kết quả nạp UserDetails từ cơ sở dữ liệu kèm ID người dùng để có thể xóa theo personId
+     */
+    public record LoadedUser(Integer personId, UserDetails userDetails) {
+    }
+
+    private record Entry(Integer personId, UserDetails userDetails, long expiresAt) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Tăng mỗi lần xóa, kết quả nạp bắt đầu trước lần xóa gần nhất sẽ không được đưa vào cache
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+    private final long ttlNanos;
+    private final int maxSize;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter evictionCounter;
+    private final Timer loadTimer;
+    private final CacheCoherenceService cacheCoherenceService;
+
+    @Autowired
+    public UserDetailsCache(MeterRegistry meterRegistry,
+                            CacheCoherenceService cacheCoherenceService,
+                            @Value("${security.user-details-cache.ttl-seconds:60}") long ttlSeconds,
+                            @Value("${security.user-details-cache.max-size:10000}") int maxSize) {
+        this.cacheCoherenceService = cacheCoherenceService;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxSize = Math.max(1, maxSize);
+        this.hitCounter = Counter.builder("user_details.cache.hits")
+            .description("Số lần lấy UserDetails có sẵn trong cache")
+            .register(meterRegistry);
+        this.missCounter = Counter.builder("user_details.cache.misses")
+            .description("Số lần phải nạp UserDetails từ cơ sở dữ liệu")
+            .register(meterRegistry);
+        this.evictionCounter = Counter.builder("user_details.cache.evictions")
+            .description("Số phần tử bị xóa do hết hạn, vượt giới hạn hoặc người dùng thay đổi")
+            .register(meterRegistry);
+        this.loadTimer = Timer.builder("user_details.cache.load")
+            .description("Thời gian nạp UserDetails từ cơ sở dữ liệu khi không có trong cache")
+            .register(meterRegistry);
+        Gauge.builder("user_details.cache.size", entries, Map::size)
+            .description("Số UserDetails đang được cache")
+            .register(meterRegistry);
+        Gauge.builder("user_details.cache.hit.ratio", this, UserDetailsCache::hitRatio)
+            .description("Tỷ lệ lấy được UserDetails từ cache")
+            .register(meterRegistry);
+        cacheCoherenceService.register(CacheCoherenceService.REGION_USER, this::clear);
+    }
+
+    /**
+     * Lấy UserDetails của subject từ cache, nạp bằng loader nếu chưa có hoặc đã hết hạn
+     * @param subject Subject của JWT
+     * @param loader Hàm nạp UserDetails từ cơ sở dữ liệu
+     * @return UserDetails của người dùng
+     */
+    public UserDetails get(String subject, Function<String, LoadedUser> loader) {
+        Entry entry = entries.get(subject);
+        if (entry != null) {
+            if (entry.expiresAt() - System.nanoTime() > 0) {
+                hitCounter.increment();
+                return entry.userDetails();
+            }
+            if (entries.remove(subject, entry)) {
+                evictionCounter.increment();
+            }
+        }
+
+        missCounter.increment();
+        long epoch = invalidationEpoch.get();
+        LoadedUser loaded = loadTimer.record(() -> loader.apply(subject));
+        if (epoch == invalidationEpoch.get()) {
+            ensureCapacity();
+            entries.put(subject, new Entry(loaded.personId(), loaded.userDetails(), System.nanoTime() + ttlNanos));
+        }
+        return loaded.userDetails();
+    }
+
+    /**
+     * Xóa mọi UserDetails của người dùng khỏi cache. Nếu đang trong giao dịch,
+     * xóa thêm một lần sau khi commit để request đọc dữ liệu cũ trước lúc commit không giữ lại bản cũ.
+     * @param personId ID người dùng vừa thay đổi thông tin hoặc vai trò
+     */
+    public void evictPerson(Integer personId) {
+        if (personId == null) {
+            return;
+        }
+        removePerson(personId);
+        cacheCoherenceService.bumpVersion(CacheCoherenceService.REGION_USER);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removePerson(personId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Xóa toàn bộ cache, dùng khi vai trò bị đổi tên hoặc xóa
+     */
+    public void evictAll() {
+        clear();
+        cacheCoherenceService.bumpVersion(CacheCoherenceService.REGION_USER);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidationEpoch.incrementAndGet();
+                    entries.clear();
+                }
+            });
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void clear() {
+        invalidationEpoch.incrementAndGet();
+        evictionCounter.increment(entries.size());
+        entries.clear();
+    }
+
+    private void removePerson(Integer personId) {
+        invalidationEpoch.incrementAndGet();
+        entries.values().removeIf(entry -> {
+            if (personId.equals(entry.personId())) {
+                evictionCounter.increment();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Giữ số phần tử dưới giới hạn: xóa các phần tử hết hạn trước, sau đó xóa phần tử sắp hết hạn nhất
+     */
+    private void ensureCapacity() {
+        if (entries.size() < maxSize) {
+            return;
+        }
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> {
+            if (entry.expiresAt() - now <= 0) {
+                evictionCounter.increment();
+                return true;
+            }
+            return false;
+        });
+
+        while (entries.size() >= maxSize) {
+            Map.Entry<String, Entry> oldest = null;
+            for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+                if (oldest == null || candidate.getValue().expiresAt() - oldest.getValue().expiresAt() < 0) {
+                    oldest = candidate;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                evictionCounter.increment();
+            }
+        }
+    }
+
+    private double hitRatio() {
+        double hits = hitCounter.count();
+        double total = hits + missCounter.count();
+        return total == 0 ? 0.0 : hits / total;
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.AgentManagementBE.Controller;
+
+import org.example.AgentManagementBE.Config.AccessAuditStore;
+import org.example.AgentManagementBE.DTO.request.ApiResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Controller tra cứu nhật ký truy cập và đăng nhập
+ */
+@RestController
+@RequestMapping("/api/access-audit")
+@CrossOrigin(origins = "http://localhost:5173", allowCredentials = "true")
+public class AccessAuditController {
+    private final AccessAuditStore accessAuditStore;
+
+    @Autowired
+    public AccessAuditController(AccessAuditStore accessAuditStore) {
+        this.accessAuditStore = accessAuditStore;
+    }
+
+    /**
+     * Tìm sự kiện truy cập, mới nhất trước
+     * @param user Tên người dùng (email), khớp chính xác
+     * @param uriPrefix Tiền tố URI, ví dụ /api/agents/42
+     * @param type Loại sự kiện: ACCESS, LOGIN, LOGOUT, TOKEN_REFRESH
+     * @param from Thời điểm bắt đầu (ISO, mặc định 7 ngày trước to)
+     * @param to Thời điểm kết thúc (ISO, mặc định hiện tại)
+     * @param limit Số sự kiện tối đa (1-1000, mặc định 100)
+     * @return ApiResponse chứa danh sách sự kiện
+     */
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<?> search(
+            @RequestParam(required = false) String user,
+            @RequestParam(required = false) String uriPrefix,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit) {
+        return ApiResponse.success("Tìm nhật ký truy cập thành công",
+            accessAuditStore.search(user, uriPrefix, type, from, to, limit));
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.AgentManagementBE.Controller;
+
+import org.example.AgentManagementBE.DTO.request.ApiResponse;
+import org.example.AgentManagementBE.Service.AgentMonthlyAggregateService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+
+/**
+ * Controller xử lý các request liên quan đến bảng tổng hợp theo đại lý và tháng
+ */
+@RestController
+@RequestMapping("/api/agent-monthly-aggregates")
+@CrossOrigin(origins = "http://localhost:5173", allowCredentials = "true")
+public class AgentMonthlyAggregateController {
+    private final AgentMonthlyAggregateService agentMonthlyAggregateService;
+
+    @Autowired
+    public AgentMonthlyAggregateController(AgentMonthlyAggregateService agentMonthlyAggregateService) {
+        this.agentMonthlyAggregateService = agentMonthlyAggregateService;
+    }
+
+    /**
+     * Lấy số liệu tổng hợp của đại lý trong tháng
+     * @param agentId ID đại lý
+     * @param month Tháng (1-12)
+     * @param year Năm
+     * @return ApiResponse chứa dòng tổng hợp
+     */
+    @GetMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'DEBT_ACCOUNTANT', 'VIEWER')")
+    public ApiResponse<?> getAggregate(
+            @RequestParam int agentId,
+            @RequestParam int month,
+            @RequestParam int year) {
+        return ApiResponse.success("Lấy số liệu tổng hợp thành công",
+            agentMonthlyAggregateService.getAggregate(agentId, YearMonth.of(year, month)));
+    }
+
+    /**
+     * Tính lại toàn bộ bảng tổng hợp từ phiếu xuất và phiếu thu
+     * @return ApiResponse chứa kết quả tính lại
+     */
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<?> rebuild() {
+        return ApiResponse.success("Tính lại bảng tổng hợp thành công", agentMonthlyAggregateService.rebuildAll());
+    }
+}
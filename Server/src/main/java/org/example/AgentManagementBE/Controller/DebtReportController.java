@@ -1,6 +1,7 @@
 package org.example.AgentManagementBE.Controller;
 
 import org.example.AgentManagementBE.Model.DebtReport;
+import org.example.AgentManagementBE.Service.DebtReportRecalculationQueue;
 import org.example.AgentManagementBE.Service.DebtReportService;
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,10 +19,13 @@ import java.util.List;
 @CrossOrigin(origins = "http://localhost:5173", allowCredentials = "true")
 public class DebtReportController {
     private final DebtReportService debtReportService;
+    private final DebtReportRecalculationQueue debtReportRecalculationQueue;
 
     @Autowired
-    public DebtReportController(DebtReportService debtReportService) {
+    public DebtReportController(DebtReportService debtReportService,
+                                DebtReportRecalculationQueue debtReportRecalculationQueue) {
         this.debtReportService = debtReportService;
+        this.debtReportRecalculationQueue = debtReportRecalculationQueue;
     }
 
     /**
@@ -37,17 +41,29 @@ public class DebtReportController {
             @RequestParam int month,
             @RequestParam int year,
             @RequestParam int agentId) {
+        // Chỉ tính lại báo cáo được yêu cầu nếu đang chờ trong hàng đợi để trả về số liệu mới nhất
+        debtReportRecalculationQueue.flush(agentId, YearMonth.of(year, month));
         return debtReportService.getDebtReport(month, year, agentId);
     }
 
     /**
-     * Lấy tất cả báo cáo công nợ
-     * @return ApiResponse chứa danh sách tất cả báo cáo công nợ
+     * Lấy danh sách báo cáo công nợ theo trang
+     * @param cursor Con trỏ nextCursor của trang trước, bỏ trống cho trang đầu
+     * @param limit Số báo cáo mỗi trang
+     * @param all true để lấy toàn bộ báo cáo (có giới hạn số dòng)
+     * @return ApiResponse chứa trang báo cáo công nợ, hoặc danh sách tất cả báo cáo công nợ khi all=true
      */
     @GetMapping("/all")
     @PreAuthorize("hasAnyRole('ADMIN', 'DEBT_ACCOUNTANT', 'VIEWER')")
-    public ApiResponse<?> getAllDebtReports() {
-        return debtReportService.getAllDebtReports();
+    public ApiResponse<?> getAllDebtReports(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean all) {
+        // Danh sách trải qua mọi tháng nên không xả hàng đợi; các cặp đang chờ do worker nền tính lại
+        if (all) {
+            return debtReportService.getAllDebtReports();
+        }
+        return debtReportService.getDebtReportPage(cursor, limit);
     }
 
     /**
@@ -119,4 +135,22 @@ public class DebtReportController {
         debtReportService.updateDebtReportForAgent(agentId, monthYear);
         return ApiResponse.success("Cập nhật báo cáo công nợ cho đại lý thành công", null);
     }
-}
\ No newline at end of file
+
+    /**
+     * Đối soát báo cáo công nợ của tháng với số liệu tính lại từ phiếu xuất và phiếu thu
+     * @param month Tháng cần đối soát (1-12)
+     * @param year Năm cần đối soát
+     * @param repair true để ghi đè các báo cáo bị lệch
+     * @return ApiResponse chứa danh sách báo cáo bị lệch
+     */
+    @PostMapping("/verify")
+    @PreAuthorize("hasAnyRole('ADMIN', 'DEBT_ACCOUNTANT')")
+    public ApiResponse<?> verifyDebtReports(
+            @RequestParam int month,
+            @RequestParam int year,
+            @RequestParam(defaultValue = "false") boolean repair) {
+        debtReportRecalculationQueue.flush(YearMonth.of(year, month));
+        return ApiResponse.success("Đối soát báo cáo công nợ thành công",
+            debtReportService.verifyDebtReports(month, year, repair));
+    }
+}
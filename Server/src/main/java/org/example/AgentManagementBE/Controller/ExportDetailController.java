@@ -8,7 +8,10 @@ import org.example.AgentManagementBE.Service.ProductService;
 import org.example.AgentManagementBE.Service.ExportReceiptService;
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -53,6 +56,18 @@ public class ExportDetailController {
         return exportDetailService.getExportDetailsByProductId(productId);
     }
 
+    /**
+     * Bản streaming của /by-product/{productId}: các chi tiết được ghi dần ra phản hồi
+     * @param productId ID sản phẩm
+     * @return Phản hồi JSON cùng khuôn dạng ApiResponse
+     */
+    @GetMapping("/by-product/{productId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamExportDetailsByProductId(@PathVariable int productId) {
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(exportDetailService.streamExportDetailsByProductId(productId));
+    }
+
     /**
      * Lấy chi tiết xuất hàng theo ID phiếu xuất và ID sản phẩm
      * @param exportReceiptId ID phiếu xuất
@@ -4,6 +4,7 @@ import org.example.AgentManagementBE.Model.ExportReceipt;
 import org.example.AgentManagementBE.Model.ExportDetail;
 import org.example.AgentManagementBE.Model.Agent;
 import org.example.AgentManagementBE.Model.Product;
+import org.example.AgentManagementBE.Service.ExportReceiptBulkImportService;
 import org.example.AgentManagementBE.Service.ExportReceiptService;
 import org.example.AgentManagementBE.Service.ExportDetailService;
 import org.example.AgentManagementBE.Service.ProductService;
@@ -11,11 +12,19 @@ import org.example.AgentManagementBE.Repository.AgentRepository;
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
 import org.example.AgentManagementBE.DTO.request.CreateExportReceiptRequest;
 import org.example.AgentManagementBE.DTO.request.CreateExportReceiptWithMultipleProductsRequest;
+import org.example.AgentManagementBE.DTO.request.ExportReceiptSearchCriteria;
+import org.example.AgentManagementBE.DTO.response.BulkImportReport;
+import org.example.AgentManagementBE.DTO.response.KeysetPage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.io.IOException;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
@@ -34,22 +43,64 @@ public class ExportReceiptController {
     private final ExportDetailService exportDetailService;
     private final ProductService productService;
     private final AgentRepository agentRepository;
+    private final ExportReceiptBulkImportService exportReceiptBulkImportService;
 
     @Autowired
     public ExportReceiptController(ExportReceiptService exportReceiptService, 
                                  ExportDetailService exportDetailService,
                                  ProductService productService,
-                                 AgentRepository agentRepository) {
+                                 AgentRepository agentRepository,
+                                 ExportReceiptBulkImportService exportReceiptBulkImportService) {
         this.exportReceiptService = exportReceiptService;
         this.exportDetailService = exportDetailService;
         this.productService = productService;
         this.agentRepository = agentRepository;
+        this.exportReceiptBulkImportService = exportReceiptBulkImportService;
     }
 
+    /**
+     * Lấy danh sách phiếu xuất hàng theo trang (cursor, limit), hoặc toàn bộ với all=true
+     */
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'WAREHOUSE_ACCOUNTANT', 'VIEWER')")
-    public ResponseEntity<ApiResponse<List<ExportReceipt>>> getAll() {
-        return ResponseEntity.ok(exportReceiptService.getAllExportReceipts());
+    public ResponseEntity<ApiResponse<?>> getAll(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean all) {
+        if (all) {
+            return ResponseEntity.ok(exportReceiptService.getAllExportReceipts());
+        }
+        return ResponseEntity.ok(exportReceiptService.getExportReceiptPage(cursor, limit));
+    }
+
+    /**
+     * Tìm phiếu xuất theo nhiều điều kiện (đều không bắt buộc), phân trang theo con trỏ
+     * @param agentIds Danh sách ID đại lý
+     * @param districtId ID quận của đại lý
+     * @param agentTypeId ID loại đại lý
+     * @param fromDate Ngày lập từ (ISO, tính cả ngày này)
+     * @param toDate Ngày lập đến (ISO, tính cả ngày này)
+     * @param minAmount Tổng tiền tối thiểu
+     * @param maxAmount Tổng tiền tối đa
+     * @param hasRemaining true: còn nợ, false: đã trả đủ
+     * @return ApiResponse chứa một trang phiếu xuất, mới nhất trước
+     */
+    @GetMapping("/search")
+    @PreAuthorize("hasAnyRole('ADMIN', 'WAREHOUSE_ACCOUNTANT', 'DEBT_ACCOUNTANT', 'VIEWER')")
+    public ResponseEntity<ApiResponse<KeysetPage<ExportReceipt>>> search(
+            @RequestParam(required = false) List<Integer> agentIds,
+            @RequestParam(required = false) Integer districtId,
+            @RequestParam(required = false) Integer agentTypeId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @RequestParam(required = false) Integer minAmount,
+            @RequestParam(required = false) Integer maxAmount,
+            @RequestParam(required = false) Boolean hasRemaining,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        ExportReceiptSearchCriteria criteria = new ExportReceiptSearchCriteria(agentIds, districtId, agentTypeId,
+            fromDate, toDate, minAmount, maxAmount, hasRemaining);
+        return ResponseEntity.ok(exportReceiptService.searchExportReceipts(criteria, cursor, limit));
     }
 
     @GetMapping("/{id}")
@@ -72,6 +123,20 @@ public class ExportReceiptController {
         return ResponseEntity.ok(exportReceiptService.getExportReceiptsByMonthAndYear(month, year));
     }
 
+    /**
+     * Bản streaming của /by-month-year cho tháng có nhiều phiếu: cùng khuôn dạng ApiResponse,
+     * phản hồi được ghi dần thay vì dựng toàn bộ danh sách trong bộ nhớ
+     */
+    @GetMapping("/by-month-year/stream")
+    @PreAuthorize("hasAnyRole('ADMIN', 'WAREHOUSE_ACCOUNTANT', 'VIEWER')")
+    public ResponseEntity<StreamingResponseBody> streamByMonthAndYear(
+            @RequestParam Integer month,
+            @RequestParam Integer year) {
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(exportReceiptService.streamExportReceiptsByMonthAndYear(month, year));
+    }
+
     @GetMapping("/by-agent/{agentId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'WAREHOUSE_ACCOUNTANT', 'DEBT_ACCOUNTANT', 'VIEWER')")
     public ResponseEntity<ApiResponse<List<ExportReceipt>>> getByAgentId(@PathVariable Integer agentId) {
@@ -100,6 +165,33 @@ public class ExportReceiptController {
         return ResponseEntity.status(201).body(exportReceiptService.createExportReceiptWithMultipleProducts(request));
     }
 
+    /**
+     * Nhập hàng loạt phiếu xuất nhiều mặt hàng từ thân request NDJSON (application/x-ndjson) hoặc CSV (text/csv),
+     * mỗi dòng một phiếu. Dòng lỗi chỉ bị bỏ qua, trừ khi strict=true thì không lưu phiếu nào
+     * @param format ndjson hoặc csv, mặc định suy ra từ Content-Type
+     * @param strict true: lưu cả tệp hoặc không lưu gì
+     * @return ApiResponse chứa kết quả từng dòng; 400 nếu chế độ strict đã hủy cả tệp
+     */
+    @PostMapping(value = "/bulk", consumes = {"application/x-ndjson", "text/csv"})
+    @PreAuthorize("hasAnyRole('ADMIN', 'WAREHOUSE_ACCOUNTANT')")
+    public ResponseEntity<ApiResponse<BulkImportReport>> bulkImport(
+            HttpServletRequest request,
+            @RequestParam(required = false) String format,
+            @RequestParam(defaultValue = "false") boolean strict) throws IOException {
+        if (format == null) {
+            format = MediaType.parseMediaType(request.getContentType()).getSubtype().contains("csv")
+                ? ExportReceiptBulkImportService.FORMAT_CSV
+                : ExportReceiptBulkImportService.FORMAT_NDJSON;
+        }
+        BulkImportReport report = exportReceiptBulkImportService.ingest(request.getInputStream(), format.toLowerCase(), strict);
+        if (!Boolean.TRUE.equals(report.getCommitted())) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(400, "error",
+                "Có " + report.getRejectedCount() + " dòng lỗi, không phiếu xuất nào được lưu", report));
+        }
+        return ResponseEntity.ok(ApiResponse.success("Đã tạo " + report.getCreatedCount() + " phiếu xuất, "
+            + report.getRejectedCount() + " dòng lỗi", report));
+    }
+
     /**
      * Validate ràng buộc trước khi tạo phiếu xuất hàng
      * @param request DTO request chứa thông tin cần kiểm tra
@@ -28,13 +28,22 @@ public class ImportReceiptController {
     }
 
     /**
-     * Lấy tất cả phiếu nhập hàng
-     * @return ApiResponse chứa danh sách tất cả phiếu nhập hàng
+     * Lấy danh sách phiếu nhập hàng theo trang
+     * @param cursor Con trỏ nextCursor của trang trước, bỏ trống cho trang đầu
+     * @param limit Số phiếu mỗi trang
+     * @param all true để lấy toàn bộ phiếu nhập (có giới hạn số dòng)
+     * @return ApiResponse chứa trang phiếu nhập hàng, hoặc danh sách tất cả phiếu nhập hàng khi all=true
      */
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'WAREHOUSE_ACCOUNTANT', 'VIEWER')")
-    public ApiResponse<?> getAll() {
-        return importReceiptService.getAllImportReceipts();
+    public ApiResponse<?> getAll(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean all) {
+        if (all) {
+            return importReceiptService.getAllImportReceipts();
+        }
+        return importReceiptService.getImportReceiptPage(cursor, limit);
     }
 
     /**
@@ -3,6 +3,7 @@ package org.example.AgentManagementBE.Controller;
 import org.example.AgentManagementBE.Model.Parameter;
 import org.example.AgentManagementBE.Service.ParameterService;
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
+import org.example.AgentManagementBE.DTO.response.ExportPriceRefreshJob;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -45,7 +46,7 @@ public class ParameterController {
 
     @PostMapping("/apply-export-price-ratio")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<String>> applyExportPriceRatioToAllProducts() {
-        return ResponseEntity.ok(parameterService.applyExportPriceRatioToAllProducts());
+    public ResponseEntity<ApiResponse<ExportPriceRefreshJob>> applyExportPriceRatioToAllProducts() {
+        return ResponseEntity.accepted().body(parameterService.applyExportPriceRatioToAllProducts());
     }
 }
@@ -1,12 +1,16 @@
 package org.example.AgentManagementBE.Controller;
 
 import org.example.AgentManagementBE.Model.PaymentReceipt;
+import org.example.AgentManagementBE.Service.PaymentReceiptBulkImportService;
 import org.example.AgentManagementBE.Service.PaymentReceiptService;
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
+import org.example.AgentManagementBE.DTO.response.BulkImportReport;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -17,19 +21,31 @@ import java.util.List;
 @CrossOrigin(origins = "http://localhost:5173", allowCredentials = "true")
 public class PaymentReceiptController {
     private final PaymentReceiptService paymentReceiptService;
+    private final PaymentReceiptBulkImportService paymentReceiptBulkImportService;
 
-    public PaymentReceiptController(PaymentReceiptService paymentReceiptService) {
+    public PaymentReceiptController(PaymentReceiptService paymentReceiptService,
+                                    PaymentReceiptBulkImportService paymentReceiptBulkImportService) {
         this.paymentReceiptService = paymentReceiptService;
+        this.paymentReceiptBulkImportService = paymentReceiptBulkImportService;
     }
 
     /**
-     * Lấy danh sách tất cả phiếu thu tiền
-     * @return ApiResponse chứa danh sách phiếu thu tiền
+     * Lấy danh sách phiếu thu tiền theo trang
+     * @param cursor Con trỏ nextCursor của trang trước, bỏ trống cho trang đầu
+     * @param limit Số phiếu mỗi trang
+     * @param all true để lấy toàn bộ phiếu thu (có giới hạn số dòng)
+     * @return ApiResponse chứa trang phiếu thu tiền, hoặc danh sách phiếu thu tiền khi all=true
      */
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'DEBT_ACCOUNTANT', 'VIEWER')")
-    public ResponseEntity<ApiResponse<List<PaymentReceipt>>> getAll() {
-        return ResponseEntity.ok(paymentReceiptService.getAllPaymentReceipts());
+    public ResponseEntity<ApiResponse<?>> getAll(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean all) {
+        if (all) {
+            return ResponseEntity.ok(paymentReceiptService.getAllPaymentReceipts());
+        }
+        return ResponseEntity.ok(paymentReceiptService.getPaymentReceiptPage(cursor, limit));
     }
 
     /**
@@ -65,6 +81,26 @@ public class PaymentReceiptController {
         return ResponseEntity.status(201).body(paymentReceiptService.insertPaymentReceipt(paymentReceipt));
     }
 
+    /**
+     * Nhập hàng loạt phiếu thu từ sao kê ngân hàng CSV (text/csv), dòng tiêu đề paymentDate,amount,agentId,reference.
+     * Dòng lỗi chỉ bị bỏ qua, trừ khi strict=true thì không lưu phiếu nào
+     * @param strict true: lưu cả tệp hoặc không lưu gì
+     * @return ApiResponse chứa kết quả từng dòng; 400 nếu chế độ strict đã hủy cả tệp
+     */
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    @PreAuthorize("hasAnyRole('ADMIN', 'DEBT_ACCOUNTANT')")
+    public ResponseEntity<ApiResponse<BulkImportReport>> bulkImport(
+            HttpServletRequest request,
+            @RequestParam(defaultValue = "false") boolean strict) throws IOException {
+        BulkImportReport report = paymentReceiptBulkImportService.ingest(request.getInputStream(), strict);
+        if (!Boolean.TRUE.equals(report.getCommitted())) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>(400, "error",
+                "Có " + report.getRejectedCount() + " dòng lỗi, không phiếu thu nào được lưu", report));
+        }
+        return ResponseEntity.ok(ApiResponse.success("Đã tạo " + report.getCreatedCount() + " phiếu thu, "
+            + report.getRejectedCount() + " dòng lỗi", report));
+    }
+
     /**
      * Cập nhật phiếu thu tiền
      * @param paymentReceipt Thông tin phiếu thu tiền cần cập nhật
@@ -49,8 +49,14 @@ public class PersonController {
 
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'WAREHOUSE_ACCOUNTANT', 'DEBT_ACCOUNTANT')")
-    public ResponseEntity<?> getAllPersons() {
-        return personService.getAllPersons();
+    public ResponseEntity<?> getAllPersons(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean all) {
+        if (all) {
+            return personService.getAllPersons();
+        }
+        return personService.getPersonPage(cursor, limit);
     }
 
     @GetMapping("/{personId}")
@@ -4,6 +4,7 @@ import org.example.AgentManagementBE.DTO.request.ApiResponse;
 import org.example.AgentManagementBE.DTO.request.CreateProductRequest;
 import org.example.AgentManagementBE.DTO.request.UpdateImportPriceRequest;
 import org.example.AgentManagementBE.DTO.request.UpdateInventoryQuantityRequest;
+import org.example.AgentManagementBE.DTO.response.ExportPriceRefreshJob;
 import org.example.AgentManagementBE.Model.Product;
 import org.example.AgentManagementBE.Service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,8 +35,14 @@ public class ProductController {
 
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'WAREHOUSE_ACCOUNTANT', 'DEBT_ACCOUNTANT', 'VIEWER')")
-    public ResponseEntity<ApiResponse<List<Product>>> getAllProduct() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<ApiResponse<?>> getAllProduct(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean all) {
+        if (all) {
+            return ResponseEntity.ok(productService.getAllProducts());
+        }
+        return ResponseEntity.ok(productService.getProductPage(cursor, limit));
     }
 
     @GetMapping("/{productId}")
@@ -106,8 +113,20 @@ public class ProductController {
 
     @PostMapping("/refresh-export-prices")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<String>> refreshAllProductExportPrices() {
-        return ResponseEntity.ok(productService.refreshAllProductExportPrices());
+    public ResponseEntity<ApiResponse<ExportPriceRefreshJob>> refreshAllProductExportPrices() {
+        return ResponseEntity.accepted().body(productService.refreshAllProductExportPrices());
+    }
+
+    @GetMapping("/refresh-export-prices/jobs")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<ExportPriceRefreshJob>>> getExportPriceRefreshJobs() {
+        return ResponseEntity.ok(productService.getExportPriceRefreshJobs());
+    }
+
+    @GetMapping("/refresh-export-prices/jobs/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<ExportPriceRefreshJob>> getExportPriceRefreshJob(@PathVariable long jobId) {
+        return ResponseEntity.ok(productService.getExportPriceRefreshJob(jobId));
     }
 
     @GetMapping("/export-price-ratio")
@@ -26,8 +26,14 @@ public class SalesReportDetailController {
     }
 
     @GetMapping
-    public ResponseEntity<ApiResponse<List<SalesReportDetail>>> getAll() {
-        return ResponseEntity.ok(salesReportDetailService.getAllSalesReportDetails());
+    public ResponseEntity<ApiResponse<?>> getAll(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean all) {
+        if (all) {
+            return ResponseEntity.ok(salesReportDetailService.getAllSalesReportDetails());
+        }
+        return ResponseEntity.ok(salesReportDetailService.getSalesReportDetailPage(cursor, limit));
     }
 
     @GetMapping("/{id}")
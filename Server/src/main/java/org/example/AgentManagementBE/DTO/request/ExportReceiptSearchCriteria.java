@@ -0,0 +1,101 @@
+package org.example.AgentManagementBE.DTO.request;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Điều kiện tìm phiếu xuất; mọi trường đều không bắt buộc, trường null không lọc
+ */
+public class ExportReceiptSearchCriteria {
+    private List<Integer> agentIds;
+    private Integer districtId;
+    private Integer agentTypeId;
+    // Khoảng ngày lập phiếu, tính cả hai đầu
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    // Khoảng tổng tiền phiếu, tính cả hai đầu
+    private Integer minAmount;
+    private Integer maxAmount;
+    // true: chỉ phiếu còn nợ, false: chỉ phiếu đã trả đủ
+    private Boolean hasRemaining;
+
+    public ExportReceiptSearchCriteria() {
+    }
+
+    public ExportReceiptSearchCriteria(List<Integer> agentIds, Integer districtId, Integer agentTypeId,
+                                       LocalDate fromDate, LocalDate toDate,
+                                       Integer minAmount, Integer maxAmount, Boolean hasRemaining) {
+        this.agentIds = agentIds;
+        this.districtId = districtId;
+        this.agentTypeId = agentTypeId;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+        this.hasRemaining = hasRemaining;
+    }
+
+    public List<Integer> getAgentIds() {
+        return agentIds;
+    }
+
+    public void setAgentIds(List<Integer> agentIds) {
+        this.agentIds = agentIds;
+    }
+
+    public Integer getDistrictId() {
+        return districtId;
+    }
+
+    public void setDistrictId(Integer districtId) {
+        this.districtId = districtId;
+    }
+
+    public Integer getAgentTypeId() {
+        return agentTypeId;
+    }
+
+    public void setAgentTypeId(Integer agentTypeId) {
+        this.agentTypeId = agentTypeId;
+    }
+
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public void setFromDate(LocalDate fromDate) {
+        this.fromDate = fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    public void setToDate(LocalDate toDate) {
+        this.toDate = toDate;
+    }
+
+    public Integer getMinAmount() {
+        return minAmount;
+    }
+
+    public void setMinAmount(Integer minAmount) {
+        this.minAmount = minAmount;
+    }
+
+    public Integer getMaxAmount() {
+        return maxAmount;
+    }
+
+    public void setMaxAmount(Integer maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+
+    public Boolean getHasRemaining() {
+        return hasRemaining;
+    }
+
+    public void setHasRemaining(Boolean hasRemaining) {
+        this.hasRemaining = hasRemaining;
+    }
+}
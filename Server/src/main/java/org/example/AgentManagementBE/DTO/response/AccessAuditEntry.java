@@ -0,0 +1,61 @@
+package org.example.AgentManagementBE.DTO.response;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một sự kiện truy cập/đăng nhập đọc từ kho nhật ký truy cập
+ */
+public class AccessAuditEntry {
+    private LocalDateTime timestamp;
+    private String type;
+    private Boolean success;
+    private String username;
+    private String method;
+    private String uri;
+    private String userAgent;
+    private String ipAddress;
+
+    public AccessAuditEntry(LocalDateTime timestamp, String type, Boolean success, String username,
+                            String method, String uri, String userAgent, String ipAddress) {
+        this.timestamp = timestamp;
+        this.type = type;
+        this.success = success;
+        this.username = username;
+        this.method = method;
+        this.uri = uri;
+        this.userAgent = userAgent;
+        this.ipAddress = ipAddress;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Boolean getSuccess() {
+        return success;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    public String getIpAddress() {
+        return ipAddress;
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.AgentManagementBE.DTO.response;
+
+/**
+ * Tổng số tiền của một đại lý trong một kỳ, được tính bằng câu truy vấn GROUP BY
+ */
+public class AgentAmount {
+    private Integer agentId;
+    private Long amount;
+
+    public AgentAmount(Integer agentId, Long amount) {
+        this.agentId = agentId;
+        this.amount = amount;
+    }
+
+    public Integer getAgentId() {
+        return agentId;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.AgentManagementBE.DTO.response;
+
+/**
+ * Tổng số phiếu xuất và tổng trị giá của một đại lý trong một tháng, đọc từ bảng tổng hợp theo tháng
+ */
+public class AgentSalesTotal {
+    private Integer agentId;
+    private String agentName;
+    private Long receiptCount;
+    private Long totalAmount;
+
+    public AgentSalesTotal(Integer agentId, String agentName, Long receiptCount, Long totalAmount) {
+        this.agentId = agentId;
+        this.agentName = agentName;
+        this.receiptCount = receiptCount;
+        this.totalAmount = totalAmount;
+    }
+
+    // Dùng khi đọc từ bảng tổng hợp AgentMonthlyAggregate, nơi các cột là INT
+    public AgentSalesTotal(Integer agentId, String agentName, Integer receiptCount, Integer totalAmount) {
+        this(agentId, agentName, receiptCount.longValue(), totalAmount.longValue());
+    }
+
+    public Integer getAgentId() {
+        return agentId;
+    }
+
+    public String getAgentName() {
+        return agentName;
+    }
+
+    public Long getReceiptCount() {
+        return receiptCount;
+    }
+
+    public Long getTotalAmount() {
+        return totalAmount;
+    }
+}
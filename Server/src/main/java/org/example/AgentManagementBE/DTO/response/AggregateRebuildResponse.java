@@ -0,0 +1,34 @@
+package org.example.AgentManagementBE.DTO.response;
+
+/**
+ * Kết quả tính lại bảng tổng hợp theo đại lý và tháng từ phiếu xuất/phiếu thu
+ */
+public class AggregateRebuildResponse {
+    private Integer agentCount;
+    private Integer chunkCount;
+    private Integer rowCount;
+    private Long elapsedMillis;
+
+    public AggregateRebuildResponse(Integer agentCount, Integer chunkCount, Integer rowCount, Long elapsedMillis) {
+        this.agentCount = agentCount;
+        this.chunkCount = chunkCount;
+        this.rowCount = rowCount;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public Integer getAgentCount() {
+        return agentCount;
+    }
+
+    public Integer getChunkCount() {
+        return chunkCount;
+    }
+
+    public Integer getRowCount() {
+        return rowCount;
+    }
+
+    public Long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
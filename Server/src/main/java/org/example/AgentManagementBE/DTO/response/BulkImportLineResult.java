@@ -0,0 +1,50 @@
+package org.example.AgentManagementBE.DTO.response;
+
+/**
+ * Kết quả của một dòng trong tệp nhập hàng loạt
+ */
+public class BulkImportLineResult {
+    public static final String STATUS_CREATED = "CREATED";
+    public static final String STATUS_REJECTED = "REJECTED";
+    // Dòng hợp lệ nhưng không được lưu vì chế độ strict hủy cả tệp
+    public static final String STATUS_ROLLED_BACK = "ROLLED_BACK";
+
+    private Integer lineNumber;
+    private String status;
+    private Integer recordId;
+    private String message;
+
+    public BulkImportLineResult(Integer lineNumber, String status, Integer recordId, String message) {
+        this.lineNumber = lineNumber;
+        this.status = status;
+        this.recordId = recordId;
+        this.message = message;
+    }
+
+    public static BulkImportLineResult created(int lineNumber, int recordId) {
+        return new BulkImportLineResult(lineNumber, STATUS_CREATED, recordId, null);
+    }
+
+    public static BulkImportLineResult rejected(int lineNumber, String message) {
+        return new BulkImportLineResult(lineNumber, STATUS_REJECTED, null, message);
+    }
+
+    public Integer getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * ID bản ghi đã tạo, null nếu dòng không được lưu
+     */
+    public Integer getRecordId() {
+        return recordId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.AgentManagementBE.DTO.response;
+
+import java.util.List;
+
+/**
+ * Kết quả nhập hàng loạt một tệp NDJSON/CSV, kèm kết quả của từng dòng theo thứ tự trong tệp
+ */
+public class BulkImportReport {
+    private String format;
+    private Boolean strict;
+    // false khi chế độ strict đã hủy toàn bộ tệp
+    private Boolean committed;
+    private Integer lineCount;
+    private Integer createdCount;
+    private Integer rejectedCount;
+    private Integer chunkCount;
+    private Long elapsedMillis;
+    private List<BulkImportLineResult> lines;
+
+    public BulkImportReport(String format, Boolean strict, Boolean committed, Integer lineCount,
+                            Integer createdCount, Integer rejectedCount, Integer chunkCount, Long elapsedMillis,
+                            List<BulkImportLineResult> lines) {
+        this.format = format;
+        this.strict = strict;
+        this.committed = committed;
+        this.lineCount = lineCount;
+        this.createdCount = createdCount;
+        this.rejectedCount = rejectedCount;
+        this.chunkCount = chunkCount;
+        this.elapsedMillis = elapsedMillis;
+        this.lines = lines;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public Boolean getStrict() {
+        return strict;
+    }
+
+    public Boolean getCommitted() {
+        return committed;
+    }
+
+    public Integer getLineCount() {
+        return lineCount;
+    }
+
+    public Integer getCreatedCount() {
+        return createdCount;
+    }
+
+    public Integer getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public Integer getChunkCount() {
+        return chunkCount;
+    }
+
+    public Long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public List<BulkImportLineResult> getLines() {
+        return lines;
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.AgentManagementBE.DTO.response;
+
+import org.example.AgentManagementBE.exception.AppException;
+import org.example.AgentManagementBE.exception.ErrorCode;
+
+/**
+ * Kết quả vi phạm khi cộng/trừ nợ đại lý bị câu UPDATE có điều kiện từ chối
+ */
+public class DebtLimitViolation {
+    public static final String AGENT_DEBT_LIMIT_EXCEEDED = "AGENT_DEBT_LIMIT_EXCEEDED";
+    public static final String AGENT_DEBT_BELOW_ZERO = "AGENT_DEBT_BELOW_ZERO";
+
+    private String violationType;
+    private Integer agentId;
+    private String agentName;
+    private Integer currentDebt;
+    private Integer additionalDebt;
+    private Integer newTotalDebt;
+    private Integer maxAllowedDebt;
+    private String agentTypeName;
+    private String suggestion;
+
+    public DebtLimitViolation() {
+    }
+
+    public DebtLimitViolation(String violationType, Integer agentId, String agentName, Integer currentDebt,
+                              Integer additionalDebt, Integer maxAllowedDebt, String agentTypeName) {
+        this.violationType = violationType;
+        this.agentId = agentId;
+        this.agentName = agentName;
+        this.currentDebt = currentDebt;
+        this.additionalDebt = additionalDebt;
+        this.newTotalDebt = currentDebt + additionalDebt;
+        this.maxAllowedDebt = maxAllowedDebt;
+        this.agentTypeName = agentTypeName;
+    }
+
+    /**
+     * Chuyển vi phạm thành AppException mang theo chính đối tượng này làm dữ liệu phản hồi
+     */
+    public AppException toAppException() {
+        if (AGENT_DEBT_BELOW_ZERO.equals(violationType)) {
+            return new AppException(ErrorCode.BAD_REQUEST, "Số tiền thu vượt quá số tiền nợ hiện tại", this);
+        }
+        return new AppException(ErrorCode.AGENT_DEBT_LIMIT_EXCEEDED,
+            String.format("Số tiền nợ của đại lý '%s' sẽ vượt quá giới hạn. Nợ hiện tại: %d, Thêm: %d, Tổng: %d, Giới hạn: %d",
+                agentName, currentDebt, additionalDebt, newTotalDebt, maxAllowedDebt), this);
+    }
+
+    public String getViolationType() {
+        return violationType;
+    }
+
+    public void setViolationType(String violationType) {
+        this.violationType = violationType;
+    }
+
+    public Integer getAgentId() {
+        return agentId;
+    }
+
+    public void setAgentId(Integer agentId) {
+        this.agentId = agentId;
+    }
+
+    public String getAgentName() {
+        return agentName;
+    }
+
+    public void setAgentName(String agentName) {
+        this.agentName = agentName;
+    }
+
+    public Integer getCurrentDebt() {
+        return currentDebt;
+    }
+
+    public void setCurrentDebt(Integer currentDebt) {
+        this.currentDebt = currentDebt;
+    }
+
+    public Integer getAdditionalDebt() {
+        return additionalDebt;
+    }
+
+    public void setAdditionalDebt(Integer additionalDebt) {
+        this.additionalDebt = additionalDebt;
+    }
+
+    public Integer getNewTotalDebt() {
+        return newTotalDebt;
+    }
+
+    public void setNewTotalDebt(Integer newTotalDebt) {
+        this.newTotalDebt = newTotalDebt;
+    }
+
+    public Integer getMaxAllowedDebt() {
+        return maxAllowedDebt;
+    }
+
+    public void setMaxAllowedDebt(Integer maxAllowedDebt) {
+        this.maxAllowedDebt = maxAllowedDebt;
+    }
+
+    public String getAgentTypeName() {
+        return agentTypeName;
+    }
+
+    public void setAgentTypeName(String agentTypeName) {
+        this.agentTypeName = agentTypeName;
+    }
+
+    public String getSuggestion() {
+        return suggestion;
+    }
+
+    public void setSuggestion(String suggestion) {
+        this.suggestion = suggestion;
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.AgentManagementBE.DTO.response;
+
+/**
+ * Các số dư của một dòng báo cáo công nợ, dùng khi chốt công nợ hàng loạt
+ * mà không cần nạp cả entity DebtReport và Agent
+ */
+public class DebtReportBalance {
+    private Integer agentId;
+    private Integer debtReportId;
+    private Integer firstDebt;
+    private Integer arisenDebt;
+    private Integer lastDebt;
+    private Integer month;
+    private Integer year;
+
+    public DebtReportBalance(Integer agentId, Integer debtReportId, Integer firstDebt,
+                             Integer arisenDebt, Integer lastDebt) {
+        this.agentId = agentId;
+        this.debtReportId = debtReportId;
+        this.firstDebt = firstDebt;
+        this.arisenDebt = arisenDebt;
+        this.lastDebt = lastDebt;
+    }
+
+    public DebtReportBalance(Integer agentId, Integer debtReportId, Integer firstDebt,
+                             Integer arisenDebt, Integer lastDebt, Integer month, Integer year) {
+        this(agentId, debtReportId, firstDebt, arisenDebt, lastDebt);
+        this.month = month;
+        this.year = year;
+    }
+
+    public Integer getAgentId() {
+        return agentId;
+    }
+
+    public Integer getDebtReportId() {
+        return debtReportId;
+    }
+
+    public Integer getFirstDebt() {
+        return firstDebt;
+    }
+
+    public Integer getArisenDebt() {
+        return arisenDebt;
+    }
+
+    public Integer getLastDebt() {
+        return lastDebt;
+    }
+
+    public Integer getMonth() {
+        return month;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.AgentManagementBE.DTO.response;
+
+import java.util.List;
+
+/**
+ * Kết quả đối soát báo cáo công nợ của một tháng với số liệu tính lại từ phiếu xuất và phiếu thu
+ */
+public class DebtReportVerificationResponse {
+    private Integer month;
+    private Integer year;
+    private Integer checkedCount; // Số đại lý đã đối soát
+    private Boolean repaired; // Đã ghi đè số liệu đúng hay chưa
+    private List<DebtReportDrift> drifts; // Các báo cáo lệch
+
+    public DebtReportVerificationResponse() {
+    }
+
+    public DebtReportVerificationResponse(Integer month, Integer year, Integer checkedCount,
+                                          Boolean repaired, List<DebtReportDrift> drifts) {
+        this.month = month;
+        this.year = year;
+        this.checkedCount = checkedCount;
+        this.repaired = repaired;
+        this.drifts = drifts;
+    }
+
+    public Integer getMonth() {
+        return month;
+    }
+
+    public void setMonth(Integer month) {
+        this.month = month;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public void setYear(Integer year) {
+        this.year = year;
+    }
+
+    public Integer getCheckedCount() {
+        return checkedCount;
+    }
+
+    public void setCheckedCount(Integer checkedCount) {
+        this.checkedCount = checkedCount;
+    }
+
+    public Boolean getRepaired() {
+        return repaired;
+    }
+
+    public void setRepaired(Boolean repaired) {
+        this.repaired = repaired;
+    }
+
+    public List<DebtReportDrift> getDrifts() {
+        return drifts;
+    }
+
+    public void setDrifts(List<DebtReportDrift> drifts) {
+        this.drifts = drifts;
+    }
+
+    public static class DebtReportDrift {
+        private Integer agentId; // ID đại lý
+        private Integer debtReportId; // ID báo cáo, null nếu chưa có báo cáo
+        private Integer actualArisenDebt; // Phát sinh đang lưu
+        private Integer expectedArisenDebt; // Phát sinh tính lại
+        private Integer actualLastDebt; // Nợ cuối đang lưu
+        private Integer expectedLastDebt; // Nợ cuối tính lại
+
+        public DebtReportDrift() {
+        }
+
+        public DebtReportDrift(Integer agentId, Integer debtReportId, Integer actualArisenDebt,
+                               Integer expectedArisenDebt, Integer actualLastDebt, Integer expectedLastDebt) {
+            this.agentId = agentId;
+            this.debtReportId = debtReportId;
+            this.actualArisenDebt = actualArisenDebt;
+            this.expectedArisenDebt = expectedArisenDebt;
+            this.actualLastDebt = actualLastDebt;
+            this.expectedLastDebt = expectedLastDebt;
+        }
+
+        public Integer getAgentId() {
+            return agentId;
+        }
+
+        public void setAgentId(Integer agentId) {
+            this.agentId = agentId;
+        }
+
+        public Integer getDebtReportId() {
+            return debtReportId;
+        }
+
+        public void setDebtReportId(Integer debtReportId) {
+            this.debtReportId = debtReportId;
+        }
+
+        public Integer getActualArisenDebt() {
+            return actualArisenDebt;
+        }
+
+        public void setActualArisenDebt(Integer actualArisenDebt) {
+            this.actualArisenDebt = actualArisenDebt;
+        }
+
+        public Integer getExpectedArisenDebt() {
+            return expectedArisenDebt;
+        }
+
+        public void setExpectedArisenDebt(Integer expectedArisenDebt) {
+            this.expectedArisenDebt = expectedArisenDebt;
+        }
+
+        public Integer getActualLastDebt() {
+            return actualLastDebt;
+        }
+
+        public void setActualLastDebt(Integer actualLastDebt) {
+            this.actualLastDebt = actualLastDebt;
+        }
+
+        public Integer getExpectedLastDebt() {
+            return expectedLastDebt;
+        }
+
+        public void setExpectedLastDebt(Integer expectedLastDebt) {
+            this.expectedLastDebt = expectedLastDebt;
+        }
+    }
+}
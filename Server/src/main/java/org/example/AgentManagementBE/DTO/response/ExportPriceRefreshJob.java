@@ -0,0 +1,89 @@
+package org.example.AgentManagementBE.DTO.response;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Trạng thái của một tác vụ cập nhật giá xuất cho toàn bộ sản phẩm
+ */
+public class ExportPriceRefreshJob {
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    // Bị thay bởi tác vụ với tỷ lệ mới hơn trước khi chạy xong
+    public static final String STATUS_SUPERSEDED = "SUPERSEDED";
+
+    private Long jobId;
+    private BigDecimal ratio;
+    private String trigger;
+    private String status;
+    private Integer totalChunks;
+    private Integer completedChunks;
+    private Integer updatedRows;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String errorMessage;
+
+    public ExportPriceRefreshJob(Long jobId, BigDecimal ratio, String trigger, String status,
+                                 Integer totalChunks, Integer completedChunks, Integer updatedRows,
+                                 LocalDateTime submittedAt, LocalDateTime startedAt, LocalDateTime finishedAt,
+                                 String errorMessage) {
+        this.jobId = jobId;
+        this.ratio = ratio;
+        this.trigger = trigger;
+        this.status = status;
+        this.totalChunks = totalChunks;
+        this.completedChunks = completedChunks;
+        this.updatedRows = updatedRows;
+        this.submittedAt = submittedAt;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.errorMessage = errorMessage;
+    }
+
+    public Long getJobId() {
+        return jobId;
+    }
+
+    public BigDecimal getRatio() {
+        return ratio;
+    }
+
+    public String getTrigger() {
+        return trigger;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Integer getTotalChunks() {
+        return totalChunks;
+    }
+
+    public Integer getCompletedChunks() {
+        return completedChunks;
+    }
+
+    public Integer getUpdatedRows() {
+        return updatedRows;
+    }
+
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.AgentManagementBE.DTO.response;
+
+import java.util.List;
+
+/**
+ * Một trang kết quả phân trang theo khóa (keyset). nextCursor là chuỗi mờ truyền lại qua tham số cursor
+ * để lấy trang tiếp theo, bằng null khi đã hết dữ liệu.
+ */
+public class KeysetPage<T> {
+    private List<T> items;
+    private String nextCursor;
+    private Boolean hasMore;
+    private Integer limit;
+
+    public KeysetPage(List<T> items, String nextCursor, Boolean hasMore, Integer limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+        this.limit = limit;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public Boolean getHasMore() {
+        return hasMore;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.AgentManagementBE.DTO.response;
+
+/**
+ * Email (subject của JWT) và phiên bản vai trò hiện tại của một người dùng còn hoạt động
+ */
+public class PersonTokenVersion {
+    private String personEmail;
+    private Integer roleVersion;
+
+    public PersonTokenVersion(String personEmail, Integer roleVersion) {
+        this.personEmail = personEmail;
+        this.roleVersion = roleVersion;
+    }
+
+    public String getPersonEmail() {
+        return personEmail;
+    }
+
+    public Integer getRoleVersion() {
+        return roleVersion;
+    }
+}
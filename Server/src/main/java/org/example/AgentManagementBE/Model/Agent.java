@@ -7,6 +7,9 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.PositiveOrZero;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -14,7 +17,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "Agent")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
+@Table(name = "Agent", indexes = {
+    @Index(name = "idx_agent_district_agent_type", columnList = "district, agent_type_id")
+})
 public class Agent {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -51,6 +59,11 @@ public class Agent {
     @Column(name = "debt_money", nullable = false)
     private Integer debtMoney;
 
+    // Tăng khi lưu qua JPA: bản cũ trong cache cấp hai bị từ chối thay vì ghi đè thay đổi của node khác
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     @OneToMany(mappedBy = "agent", cascade = CascadeType.ALL)
     @JsonIgnore
     private List<Person> persons = new ArrayList<>();
@@ -156,6 +169,11 @@ public class Agent {
         this.debtMoney = debtMoney;
     }
 
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
     public List<Person> getPersons() {
         return persons;
     }
@@ -0,0 +1,125 @@
+package org.example.AgentManagementBE.Model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+
+/**
+ * Số liệu tổng hợp của một đại lý trong một tháng, được cập nhật cùng giao dịch
+ * với mọi thay đổi phiếu xuất/phiếu thu để các báo cáo chỉ cần đọc một dòng
+ */
+@Entity
+@Table(name = "AgentMonthlyAggregate",
+       uniqueConstraints = @UniqueConstraint(name = "uk_agent_monthly_aggregate", columnNames = {"agent", "year", "month"}),
+       indexes = @Index(name = "idx_agent_monthly_aggregate_year_month", columnList = "year, month"))
+public class AgentMonthlyAggregate {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "aggregate_id")
+    private Integer aggregateId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "agent", nullable = false)
+    @JsonIgnore
+    private Agent agent;
+
+    @Column(name = "month", nullable = false)
+    private Integer month;
+
+    @Column(name = "year", nullable = false)
+    private Integer year;
+
+    @Column(name = "export_count", nullable = false)
+    private Integer exportCount = 0;
+
+    @Column(name = "total_amount", nullable = false)
+    private Integer totalAmount = 0;
+
+    @Column(name = "paid_amount", nullable = false)
+    private Integer paidAmount = 0;
+
+    @Column(name = "remaining_amount", nullable = false)
+    private Integer remainingAmount = 0;
+
+    @Column(name = "payment_revenue", nullable = false)
+    private Integer paymentRevenue = 0;
+
+    public AgentMonthlyAggregate() {
+    }
+
+    public AgentMonthlyAggregate(Integer month, Integer year) {
+        this.month = month;
+        this.year = year;
+    }
+
+    public Integer getAggregateId() {
+        return aggregateId;
+    }
+
+    public void setAggregateId(Integer aggregateId) {
+        this.aggregateId = aggregateId;
+    }
+
+    public Agent getAgent() {
+        return agent;
+    }
+
+    public void setAgent(Agent agent) {
+        this.agent = agent;
+    }
+
+    public Integer getMonth() {
+        return month;
+    }
+
+    public void setMonth(Integer month) {
+        this.month = month;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public void setYear(Integer year) {
+        this.year = year;
+    }
+
+    public Integer getExportCount() {
+        return exportCount;
+    }
+
+    public void setExportCount(Integer exportCount) {
+        this.exportCount = exportCount;
+    }
+
+    public Integer getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(Integer totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public Integer getPaidAmount() {
+        return paidAmount;
+    }
+
+    public void setPaidAmount(Integer paidAmount) {
+        this.paidAmount = paidAmount;
+    }
+
+    public Integer getRemainingAmount() {
+        return remainingAmount;
+    }
+
+    public void setRemainingAmount(Integer remainingAmount) {
+        this.remainingAmount = remainingAmount;
+    }
+
+    public Integer getPaymentRevenue() {
+        return paymentRevenue;
+    }
+
+    public void setPaymentRevenue(Integer paymentRevenue) {
+        this.paymentRevenue = paymentRevenue;
+    }
+}
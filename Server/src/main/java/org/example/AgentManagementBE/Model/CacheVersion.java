@@ -0,0 +1,42 @@
+package org.example.AgentManagementBE.Model;
+
+import jakarta.persistence.*;
+
+/**
+ * Phiên bản của một vùng cache trong bộ nhớ (tham số, danh mục, người dùng).
+ * Node ghi dữ liệu tăng version trong cùng giao dịch, các node khác đọc định kỳ để biết vùng nào cần nạp lại.
+ */
+@Entity
+@Table(name = "CacheVersion")
+public class CacheVersion {
+    @Id
+    @Column(name = "region", length = 50)
+    private String region;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    public CacheVersion() {
+    }
+
+    public CacheVersion(String region, Long version) {
+        this.region = region;
+        this.version = version;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
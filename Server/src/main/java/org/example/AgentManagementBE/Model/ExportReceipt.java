@@ -7,7 +7,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "ExportReceipt")
+// Hai chỉ mục phục vụ cả báo cáo theo tháng lẫn API tìm kiếm: duyệt theo thứ tự ngày lập (ID nằm sẵn trong chỉ mục)
+// và lọc tổng tiền, còn nợ, đại lý ngay trên chỉ mục, chỉ đọc bảng cho các phiếu được trả về
+@Table(name = "ExportReceipt", indexes = {
+    @Index(name = "idx_export_receipt_agent_date_amounts", columnList = "agent, create_date, total_amount, remaining_amount"),
+    @Index(name = "idx_export_receipt_date_amounts", columnList = "create_date, total_amount, remaining_amount, agent")
+})
 public class ExportReceipt {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -7,7 +7,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "ImportReceipt")
+@Table(name = "ImportReceipt", indexes = {
+    @Index(name = "idx_import_receipt_create_date", columnList = "create_date")
+})
 public class ImportReceipt {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
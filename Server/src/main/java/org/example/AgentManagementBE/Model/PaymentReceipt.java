@@ -5,7 +5,9 @@ import jakarta.validation.constraints.DecimalMin;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "PaymentReceipt")
+@Table(name = "PaymentReceipt", indexes = {
+    @Index(name = "idx_payment_receipt_agent_payment_date", columnList = "agent, payment_date")
+})
 public class PaymentReceipt {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -3,6 +3,8 @@ package org.example.AgentManagementBE.Model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
@@ -37,6 +39,12 @@ public class Person {
     @Column(name = "is_active", nullable = false)
     private Boolean isActive = true;
 
+    // Tăng mỗi khi vai trò hoặc mật khẩu thay đổi, JWT mang phiên bản cũ hơn bị coi là đã thu hồi
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "role_version", nullable = false)
+    private Integer roleVersion = 0;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "agent_id")
     private Agent agent;
@@ -107,6 +115,14 @@ public class Person {
         this.isActive = isActive;
     }
 
+    public Integer getRoleVersion() {
+        return roleVersion;
+    }
+
+    public void setRoleVersion(Integer roleVersion) {
+        this.roleVersion = roleVersion;
+    }
+
     public Agent getAgent() {
         return agent;
     }
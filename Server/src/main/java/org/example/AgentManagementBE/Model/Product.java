@@ -6,12 +6,18 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
 @Table(name = "Product", 
        uniqueConstraints = @UniqueConstraint(columnNames = {"product_name", "unit"}))
 public class Product {
@@ -41,6 +47,11 @@ public class Product {
     @Column(name = "inventory_quantity", nullable = false)
     private Integer inventoryQuantity = 0;
 
+    // Tăng khi lưu qua JPA: bản cũ trong cache cấp hai bị từ chối thay vì ghi đè thay đổi của node khác
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL)
     @JsonIgnore
     private List<ImportDetail> importDetails = new ArrayList<>();
@@ -107,6 +118,11 @@ public class Product {
         this.inventoryQuantity = inventoryQuantity;
     }
 
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
     
     public List<ImportDetail> getImportDetails() {
         return importDetails;
@@ -0,0 +1,31 @@
+package org.example.AgentManagementBE.Repository;
+
+import org.example.AgentManagementBE.DTO.response.AgentSalesTotal;
+import org.example.AgentManagementBE.Model.AgentMonthlyAggregate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AgentMonthlyAggregateRepository extends JpaRepository<AgentMonthlyAggregate, Integer>, AgentMonthlyAggregateRepositoryCustom {
+    // Lấy dòng tổng hợp của một đại lý trong tháng (không nạp đại lý)
+    @Query("SELECT a FROM AgentMonthlyAggregate a WHERE a.agent.agentId = :agentId AND a.month = :month AND a.year = :year")
+    Optional<AgentMonthlyAggregate> findByAgentAndMonthAndYear(@Param("agentId") int agentId, @Param("month") int month,
+                                                               @Param("year") int year);
+
+    // Lấy số phiếu và tổng trị giá của các đại lý có phiếu xuất trong tháng, sắp theo tổng trị giá giảm dần
+    @Query("SELECT new org.example.AgentManagementBE.DTO.response.AgentSalesTotal(" +
+           "ag.agentId, ag.agentName, a.exportCount, a.totalAmount) " +
+           "FROM AgentMonthlyAggregate a JOIN a.agent ag " +
+           "WHERE a.month = :month AND a.year = :year AND a.exportCount > 0 " +
+           "ORDER BY a.totalAmount DESC, ag.agentId")
+    List<AgentSalesTotal> getAgentSalesTotalsByMonthAndYear(@Param("month") int month, @Param("year") int year);
+
+    // Tổng trị giá phiếu xuất của tất cả đại lý trong tháng
+    @Query("SELECT COALESCE(SUM(a.totalAmount), 0) FROM AgentMonthlyAggregate a WHERE a.month = :month AND a.year = :year")
+    Long getTotalAmountByMonthAndYear(@Param("month") int month, @Param("year") int year);
+}
@@ -0,0 +1,31 @@
+package org.example.AgentManagementBE.Repository;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Các thao tác ghi cho AgentMonthlyAggregate bằng JDBC
+ */
+public interface AgentMonthlyAggregateRepositoryCustom {
+    /**
+     * Cộng các chênh lệch có dấu vào dòng tổng hợp của đại lý trong tháng, tạo dòng mới nếu chưa có.
+     * Khóa dòng đại lý đến hết giao dịch
+     * @param agentId ID của đại lý
+     * @param monthYear Tháng/năm của phiếu
+     * @param exportCount Chênh lệch số phiếu xuất
+     * @param totalAmount Chênh lệch tổng trị giá phiếu xuất
+     * @param paidAmount Chênh lệch số tiền đã trả
+     * @param remainingAmount Chênh lệch số tiền còn lại
+     * @param paymentRevenue Chênh lệch số tiền thu
+     */
+    void applyDelta(int agentId, YearMonth monthYear, int exportCount, int totalAmount, int paidAmount,
+                    int remainingAmount, int paymentRevenue);
+
+    /**
+     * Xóa và tính lại toàn bộ dòng tổng hợp của các đại lý từ phiếu xuất và phiếu thu.
+     * Khóa các dòng đại lý trước nên không chạy xen với applyDelta của cùng đại lý
+     * @param agentIds Danh sách ID đại lý cần tính lại
+     * @return Số dòng tổng hợp đã ghi
+     */
+    int rebuildForAgents(List<Integer> agentIds);
+}
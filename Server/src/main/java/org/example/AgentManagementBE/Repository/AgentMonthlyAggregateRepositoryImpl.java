@@ -0,0 +1,111 @@
+package org.example.AgentManagementBE.Repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cài đặt AgentMonthlyAggregateRepositoryCustom bằng JdbcTemplate
+ */
+public class AgentMonthlyAggregateRepositoryImpl implements AgentMonthlyAggregateRepositoryCustom {
+    private static final int BATCH_SIZE = 500;
+
+    // Khóa dòng đại lý trước khi đụng tới bảng tổng hợp: applyDelta và rebuildForAgents cùng thứ tự khóa
+    // nên một lần tính lại không xen giữa lúc một giao dịch phiếu đang cộng chênh lệch
+    private static final String LOCK_AGENT_SQL =
+        "SELECT agent_id FROM agent WHERE agent_id = ? FOR UPDATE";
+
+    private static final String LOCK_AGENTS_SQL =
+        "SELECT agent_id FROM agent WHERE agent_id IN (:agentIds) ORDER BY agent_id FOR UPDATE";
+
+    private static final String APPLY_DELTA_SQL =
+        "UPDATE agent_monthly_aggregate SET export_count = export_count + ?, total_amount = total_amount + ?, " +
+        "paid_amount = paid_amount + ?, remaining_amount = remaining_amount + ?, payment_revenue = payment_revenue + ? " +
+        "WHERE agent = ? AND year = ? AND month = ?";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO agent_monthly_aggregate (agent, month, year, export_count, total_amount, paid_amount, " +
+        "remaining_amount, payment_revenue) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE_BY_AGENTS_SQL =
+        "DELETE FROM agent_monthly_aggregate WHERE agent IN (:agentIds)";
+
+    private static final String EXPORT_TOTALS_SQL =
+        "SELECT agent, EXTRACT(YEAR FROM create_date) AS y, EXTRACT(MONTH FROM create_date) AS m, COUNT(*) AS export_count, " +
+        "SUM(total_amount) AS total_amount, SUM(paid_amount) AS paid_amount, SUM(remaining_amount) AS remaining_amount " +
+        "FROM export_receipt WHERE agent IN (:agentIds) " +
+        "GROUP BY agent, EXTRACT(YEAR FROM create_date), EXTRACT(MONTH FROM create_date)";
+
+    private static final String PAYMENT_TOTALS_SQL =
+        "SELECT agent, EXTRACT(YEAR FROM payment_date) AS y, EXTRACT(MONTH FROM payment_date) AS m, SUM(revenue) AS revenue " +
+        "FROM payment_receipt WHERE agent IN (:agentIds) " +
+        "GROUP BY agent, EXTRACT(YEAR FROM payment_date), EXTRACT(MONTH FROM payment_date)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public AgentMonthlyAggregateRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Override
+    public void applyDelta(int agentId, YearMonth monthYear, int exportCount, int totalAmount, int paidAmount,
+                           int remainingAmount, int paymentRevenue) {
+        Object[] deltaArgs = {exportCount, totalAmount, paidAmount, remainingAmount, paymentRevenue,
+            agentId, monthYear.getYear(), monthYear.getMonthValue()};
+        jdbcTemplate.queryForList(LOCK_AGENT_SQL, Integer.class, agentId);
+        if (jdbcTemplate.update(APPLY_DELTA_SQL, deltaArgs) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT_SQL, agentId, monthYear.getMonthValue(), monthYear.getYear(),
+                exportCount, totalAmount, paidAmount, remainingAmount, paymentRevenue);
+        } catch (DuplicateKeyException e) {
+            // Giao dịch khác vừa tạo dòng của cùng đại lý/tháng, cộng dồn vào dòng đó
+            jdbcTemplate.update(APPLY_DELTA_SQL, deltaArgs);
+        }
+    }
+
+    @Override
+    public int rebuildForAgents(List<Integer> agentIds) {
+        if (agentIds.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("agentIds", agentIds);
+        // Chờ các giao dịch phiếu đang ghi cho các đại lý này commit; phiếu ghi sau đó sẽ chờ lần tính lại này
+        namedParameterJdbcTemplate.queryForList(LOCK_AGENTS_SQL, params, Integer.class);
+        namedParameterJdbcTemplate.update(DELETE_BY_AGENTS_SQL, params);
+
+        // Gộp số liệu phiếu xuất và phiếu thu theo (đại lý, tháng): [số phiếu, tổng tiền, đã trả, còn lại, tiền thu]
+        Map<Integer, Map<YearMonth, int[]>> totals = new LinkedHashMap<>();
+        namedParameterJdbcTemplate.query(EXPORT_TOTALS_SQL, params, rs -> {
+            int[] row = totals.computeIfAbsent(rs.getInt("agent"), id -> new LinkedHashMap<>())
+                .computeIfAbsent(YearMonth.of(rs.getInt("y"), rs.getInt("m")), ym -> new int[5]);
+            row[0] = rs.getInt("export_count");
+            row[1] = rs.getInt("total_amount");
+            row[2] = rs.getInt("paid_amount");
+            row[3] = rs.getInt("remaining_amount");
+        });
+        namedParameterJdbcTemplate.query(PAYMENT_TOTALS_SQL, params, rs -> {
+            int[] row = totals.computeIfAbsent(rs.getInt("agent"), id -> new LinkedHashMap<>())
+                .computeIfAbsent(YearMonth.of(rs.getInt("y"), rs.getInt("m")), ym -> new int[5]);
+            row[4] = rs.getInt("revenue");
+        });
+
+        List<Object[]> rows = new ArrayList<>();
+        totals.forEach((agentId, byMonth) -> byMonth.forEach((monthYear, row) -> rows.add(new Object[] {
+            agentId, monthYear.getMonthValue(), monthYear.getYear(), row[0], row[1], row[2], row[3], row[4]})));
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+        }
+        return rows.size();
+    }
+}
@@ -10,7 +10,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface AgentRepository extends JpaRepository<Agent, Integer> {
+public interface AgentRepository extends JpaRepository<Agent, Integer>, AgentRepositoryCustom {
     // Find agent by ID with optional return
     Optional<Agent> findById(Integer agentId);
     
@@ -28,6 +28,10 @@ public interface AgentRepository extends JpaRepository<Agent, Integer> {
     @Query("SELECT DISTINCT a FROM Agent a LEFT JOIN FETCH a.agentType LEFT JOIN FETCH a.district")
     List<Agent> findAllWithDetails();
     
+    // Get all agent IDs without loading the entities
+    @Query("SELECT a.agentId FROM Agent a ORDER BY a.agentId")
+    List<Integer> findAllAgentIds();
+    
     // Count agents by district
     @Query("SELECT COUNT(a) FROM Agent a WHERE a.district.districtId = :districtId")
     int countByDistrictId(@Param("districtId") int districtId);
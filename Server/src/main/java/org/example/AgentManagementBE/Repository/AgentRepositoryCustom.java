@@ -0,0 +1,30 @@
+package org.example.AgentManagementBE.Repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Cập nhật nợ đại lý bằng câu UPDATE có điều kiện
+ */
+public interface AgentRepositoryCustom {
+    /**
+     * Cộng một lượng nợ (có dấu) vào nợ của đại lý trong một câu UPDATE. Dòng chỉ được cập nhật khi nợ mới không âm
+     * và, nếu enforceLimit được bật và nợ tăng, không vượt quá nợ tối đa của loại đại lý.
+     * @return Số dòng được cập nhật (0 nếu điều kiện không thỏa hoặc đại lý không tồn tại)
+     */
+    int applyDebtDelta(int agentId, int delta, boolean enforceLimit);
+
+    /**
+     * Đặt nợ của đại lý thành debtMoney chỉ khi nợ hiện tại vẫn bằng expectedDebt (compare-and-set) và debtMoney
+     * không âm, không vượt quá nợ tối đa của loại đại lý.
+     * @return Số dòng được cập nhật (0 nếu nợ đã bị thay đổi, vượt giới hạn hoặc đại lý không tồn tại)
+     */
+    int setDebtMoneyIfUnchanged(int agentId, int expectedDebt, int debtMoney);
+
+    /**
+     * Khóa các dòng đại lý (SELECT ... FOR UPDATE theo thứ tự ID) đến hết giao dịch và đọc nợ hiện tại,
+     * để các câu applyDebtDelta sau đó trong cùng giao dịch thấy đúng số nợ đã kiểm tra
+     * @return Map agentId → nợ hiện tại; đại lý không tồn tại không có trong map
+     */
+    Map<Integer, Integer> lockDebts(Collection<Integer> agentIds);
+}
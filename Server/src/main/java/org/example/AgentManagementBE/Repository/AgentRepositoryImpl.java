@@ -0,0 +1,78 @@
+package org.example.AgentManagementBE.Repository;
+
+import jakarta.persistence.EntityManager;
+import org.example.AgentManagementBE.Model.Agent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cài đặt AgentRepositoryCustom bằng JdbcTemplate, chỉ xóa đại lý bị sửa khỏi cache cấp hai
+ */
+public class AgentRepositoryImpl implements AgentRepositoryCustom {
+    private static final String APPLY_DEBT_DELTA_SQL =
+        "UPDATE agent SET debt_money = debt_money + ? WHERE agent_id = ? AND debt_money + ? >= 0";
+
+    private static final String DEBT_LIMIT_CONDITION =
+        " AND debt_money + ? <= (SELECT t.max_debt FROM agent_type t WHERE t.agent_type_id = agent.agent_type_id)";
+
+    private static final String SET_DEBT_IF_UNCHANGED_SQL =
+        "UPDATE agent SET debt_money = ? WHERE agent_id = ? AND debt_money = ? AND ? >= 0" +
+        " AND ? <= (SELECT t.max_debt FROM agent_type t WHERE t.agent_type_id = agent.agent_type_id)";
+
+    private static final String LOCK_DEBTS_SQL =
+        "SELECT agent_id, debt_money FROM agent WHERE agent_id IN (:agentIds) ORDER BY agent_id FOR UPDATE";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final EntityManager entityManager;
+
+    public AgentRepositoryImpl(JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public int applyDebtDelta(int agentId, int delta, boolean enforceLimit) {
+        JdbcEntityUpdates.flushPendingChanges(entityManager);
+        int updated = enforceLimit && delta > 0
+            ? jdbcTemplate.update(APPLY_DEBT_DELTA_SQL + DEBT_LIMIT_CONDITION, delta, agentId, delta, delta)
+            : jdbcTemplate.update(APPLY_DEBT_DELTA_SQL, delta, agentId, delta);
+        afterDebtUpdate(agentId, updated);
+        return updated;
+    }
+
+    @Override
+    public int setDebtMoneyIfUnchanged(int agentId, int expectedDebt, int debtMoney) {
+        JdbcEntityUpdates.flushPendingChanges(entityManager);
+        int updated = jdbcTemplate.update(SET_DEBT_IF_UNCHANGED_SQL, debtMoney, agentId, expectedDebt, debtMoney, debtMoney);
+        afterDebtUpdate(agentId, updated);
+        return updated;
+    }
+
+    @Override
+    public Map<Integer, Integer> lockDebts(Collection<Integer> agentIds) {
+        Map<Integer, Integer> debts = new HashMap<>();
+        if (agentIds.isEmpty()) {
+            return debts;
+        }
+        JdbcEntityUpdates.flushPendingChanges(entityManager);
+        namedParameterJdbcTemplate.query(LOCK_DEBTS_SQL, Map.of("agentIds", agentIds),
+            rs -> {
+                debts.put(rs.getInt("agent_id"), rs.getInt("debt_money"));
+            });
+        return debts;
+    }
+
+    private void afterDebtUpdate(int agentId, int updated) {
+        if (updated > 0) {
+            JdbcEntityUpdates.evict(entityManager, Agent.class, agentId);
+        }
+        // Chỉ nạp lại đại lý bị sửa nếu người gọi đang giữ nó; nạp cả khi không cập nhật được để đọc lại nguyên nhân
+        JdbcEntityUpdates.refreshIfManaged(entityManager, Agent.class, agentId);
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.AgentManagementBE.Repository;
+
+import org.example.AgentManagementBE.Model.CacheVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface CacheVersionRepository extends JpaRepository<CacheVersion, String> {
+    // Tăng phiên bản của vùng cache, tham gia giao dịch hiện tại nếu có
+    @Transactional
+    @Modifying
+    @Query("UPDATE CacheVersion c SET c.version = c.version + 1 WHERE c.region = :region")
+    int incrementVersion(@Param("region") String region);
+}
@@ -1,6 +1,8 @@
 package org.example.AgentManagementBE.Repository;
 
+import org.example.AgentManagementBE.DTO.response.DebtReportBalance;
 import org.example.AgentManagementBE.Model.DebtReport;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -10,11 +12,33 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface DebtReportRepository extends JpaRepository<DebtReport, Long> {
+public interface DebtReportRepository extends JpaRepository<DebtReport, Long>, DebtReportRepositoryCustom {
     // Lấy báo cáo công nợ theo tháng và năm
     @Query("SELECT dr FROM DebtReport dr WHERE dr.month = :month AND dr.year = :year")
     List<DebtReport> findByMonthAndYear(@Param("month") int month, @Param("year") int year);
 
+    // Lấy báo cáo công nợ theo tháng và năm kèm thông tin đại lý trong một câu truy vấn
+    @Query("SELECT dr FROM DebtReport dr JOIN FETCH dr.agent a LEFT JOIN FETCH a.agentType LEFT JOIN FETCH a.district " +
+           "WHERE dr.month = :month AND dr.year = :year")
+    List<DebtReport> findByMonthAndYearWithAgent(@Param("month") int month, @Param("year") int year);
+
+    // Lấy số dư của tất cả báo cáo công nợ trong tháng mà không nạp entity
+    @Query("SELECT new org.example.AgentManagementBE.DTO.response.DebtReportBalance(" +
+           "dr.agent.agentId, dr.debtReportId, dr.firstDebt, dr.arisenDebt, dr.lastDebt) " +
+           "FROM DebtReport dr WHERE dr.month = :month AND dr.year = :year")
+    List<DebtReportBalance> findBalancesByMonthAndYear(@Param("month") int month, @Param("year") int year);
+
+    // Lấy số dư các báo cáo của đại lý từ báo cáo gần nhất trước tháng chỉ định trở về sau, theo thứ tự thời gian;
+    // pageable giới hạn số báo cáo đọc
+    @Query("SELECT new org.example.AgentManagementBE.DTO.response.DebtReportBalance(" +
+           "dr.agent.agentId, dr.debtReportId, dr.firstDebt, dr.arisenDebt, dr.lastDebt, dr.month, dr.year) " +
+           "FROM DebtReport dr WHERE dr.agent.agentId = :agentId " +
+           "AND (dr.year * 12 + dr.month) >= COALESCE((SELECT MAX(p.year * 12 + p.month) FROM DebtReport p " +
+           "WHERE p.agent.agentId = :agentId AND (p.year * 12 + p.month) < :year * 12 + :month), :year * 12 + :month) " +
+           "ORDER BY dr.year, dr.month")
+    List<DebtReportBalance> findChainFromMonth(@Param("agentId") int agentId, @Param("month") int month,
+                                               @Param("year") int year, Pageable pageable);
+
     // Lấy báo cáo công nợ theo tháng, năm và đại lý
     @Query("SELECT dr FROM DebtReport dr WHERE dr.month = :month AND dr.year = :year AND dr.agent.agentId = :agentId")
     Optional<DebtReport> findByMonthYearAndAgent(@Param("month") int month, @Param("year") int year, @Param("agentId") int agentId);
@@ -36,4 +60,11 @@ public interface DebtReportRepository extends JpaRepository<DebtReport, Long> {
                                                @Param("previousMonth") int previousMonth, 
                                                @Param("year") int year, 
                                                @Param("previousYear") int previousYear);
-}
\ No newline at end of file
+
+    /**
+     * Một trang báo cáo công nợ kèm đại lý, loại đại lý và quận trong cùng câu truy vấn, theo ID tăng dần sau afterId;
+     * pageable chỉ dùng làm giới hạn số dòng
+     */
+    @Query("SELECT dr FROM DebtReport dr LEFT JOIN FETCH dr.agent a LEFT JOIN FETCH a.agentType LEFT JOIN FETCH a.district WHERE dr.debtReportId > :afterId ORDER BY dr.debtReportId")
+    List<DebtReport> findPageAfter(@Param("afterId") int afterId, Pageable pageable);
+}
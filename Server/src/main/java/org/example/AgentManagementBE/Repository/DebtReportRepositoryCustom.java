@@ -0,0 +1,74 @@
+package org.example.AgentManagementBE.Repository;
+
+import org.example.AgentManagementBE.DTO.response.DebtReportBalance;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Các thao tác ghi bằng JdbcTemplate cho DebtReport
+ */
+public interface DebtReportRepositoryCustom {
+    /**
+     * Một lần dời nợ đầu kỳ/nợ cuối kỳ của mọi báo cáo từ tháng fromMonth trở về sau của đại lý
+     */
+    record DebtShift(int agentId, YearMonth fromMonth, int delta) {
+    }
+
+    /**
+     * Cộng một lượng chênh lệch có dấu vào phát sinh và nợ cuối kỳ của báo cáo
+     * @param agentId ID đại lý
+     * @param month Tháng
+     * @param year Năm
+     * @param delta Chênh lệch có dấu
+     * @return Số dòng bị ảnh hưởng
+     */
+    int applyArisenDebtDelta(int agentId, int month, int year, int delta);
+
+    /**
+     * Cộng chênh lệch vào nợ đầu kỳ và nợ cuối kỳ của mọi báo cáo từ tháng chỉ định trở về sau của đại lý
+     * @param agentId ID đại lý
+     * @param month Tháng bắt đầu
+     * @param year Năm bắt đầu
+     * @param delta Chênh lệch có dấu
+     * @return Số dòng bị ảnh hưởng
+     */
+    int shiftDebtFromMonth(int agentId, int month, int year, int delta);
+
+    /**
+     * Ghi báo cáo công nợ của nhiều đại lý cho một tháng bằng JDBC batch.
+     * Dòng đã có debtReportId được UPDATE, dòng chưa có được INSERT.
+     * @param month Tháng
+     * @param year Năm
+     * @param balances Số dư cần ghi cho từng đại lý
+     */
+    void batchUpsert(int month, int year, List<DebtReportBalance> balances);
+
+    /**
+     * Chèn các tháng còn thiếu của nhiều đại lý trong một JDBC batch.
+     * Tháng chèn thêm không có phát sinh nên nợ đầu kỳ bằng nợ cuối kỳ.
+     * @param carriedDebtByAgent ID đại lý → (tháng cần chèn → nợ chuyển sang từ tháng trước)
+     */
+    void batchInsertCarriedMonths(Map<Integer, Map<YearMonth, Integer>> carriedDebtByAgent);
+
+    /**
+     * Dời nợ đầu kỳ/nợ cuối kỳ theo khoảng tháng cho nhiều đại lý trong một JDBC batch
+     * @param shifts Các lần dời, mỗi lần là một câu UPDATE theo khoảng của một đại lý
+     */
+    void batchShiftDebtFromMonth(List<DebtShift> shifts);
+
+    /**
+     * Lấy báo cáo gần nhất trước tháng chỉ định của từng đại lý bằng một câu truy vấn gộp
+     * @param monthYear Tháng/năm
+     * @return Số dư kèm tháng/năm, tối đa một dòng cho mỗi đại lý
+     */
+    List<DebtReportBalance> findNearestBalancesBefore(YearMonth monthYear);
+
+    /**
+     * Lấy báo cáo gần nhất sau tháng chỉ định của từng đại lý bằng một câu truy vấn gộp
+     * @param monthYear Tháng/năm
+     * @return Số dư kèm tháng/năm, tối đa một dòng cho mỗi đại lý
+     */
+    List<DebtReportBalance> findNearestBalancesAfter(YearMonth monthYear);
+}
@@ -0,0 +1,177 @@
+package org.example.AgentManagementBE.Repository;
+
+import jakarta.persistence.EntityManager;
+import org.example.AgentManagementBE.DTO.response.DebtReportBalance;
+import org.example.AgentManagementBE.Model.DebtReport;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Cài đặt DebtReportRepositoryCustom bằng JdbcTemplate
+ */
+public class DebtReportRepositoryImpl implements DebtReportRepositoryCustom {
+    private static final int BATCH_SIZE = 500;
+
+    private static final String UPDATE_SQL =
+        "UPDATE debt_report SET first_debt = ?, arisen_debt = ?, last_debt = ? WHERE debt_report_id = ?";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO debt_report (month, year, agent, first_debt, arisen_debt, last_debt) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String ARISEN_DELTA_SQL =
+        "UPDATE debt_report SET arisen_debt = arisen_debt + ?, last_debt = last_debt + ? " +
+        "WHERE agent = ? AND month = ? AND year = ?";
+
+    private static final String SHIFT_SQL =
+        "UPDATE debt_report SET first_debt = first_debt + ?, last_debt = last_debt + ? " +
+        "WHERE agent = ? AND (year > ? OR (year = ? AND month >= ?))";
+
+    // Báo cáo có tháng là MAX/MIN của từng đại lý về một phía của tháng chỉ định
+    private static final String NEAREST_SQL =
+        "SELECT d.agent, d.debt_report_id, d.first_debt, d.arisen_debt, d.last_debt, d.month, d.year " +
+        "FROM debt_report d JOIN (SELECT agent, %s(year * 12 + month) AS period FROM debt_report " +
+        "WHERE year * 12 + month %s ? GROUP BY agent) n ON n.agent = d.agent AND d.year * 12 + d.month = n.period";
+
+    private static final RowMapper<DebtReportBalance> BALANCE_ROW_MAPPER = (rs, rowNum) -> new DebtReportBalance(
+        rs.getInt("agent"), rs.getInt("debt_report_id"), rs.getInt("first_debt"), rs.getInt("arisen_debt"),
+        rs.getInt("last_debt"), rs.getInt("month"), rs.getInt("year"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    public DebtReportRepositoryImpl(JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public int applyArisenDebtDelta(int agentId, int month, int year, int delta) {
+        JdbcEntityUpdates.flushPendingChanges(entityManager);
+        int updated = jdbcTemplate.update(ARISEN_DELTA_SQL, delta, delta, agentId, month, year);
+        if (updated > 0) {
+            JdbcEntityUpdates.refreshManaged(entityManager, DebtReport.class,
+                report -> agentIdOf(report) == agentId && report.getMonth() == month && report.getYear() == year);
+        }
+        return updated;
+    }
+
+    @Override
+    public int shiftDebtFromMonth(int agentId, int month, int year, int delta) {
+        JdbcEntityUpdates.flushPendingChanges(entityManager);
+        int updated = jdbcTemplate.update(SHIFT_SQL, delta, delta, agentId, year, year, month);
+        if (updated > 0) {
+            int fromPeriod = year * 12 + month;
+            JdbcEntityUpdates.refreshManaged(entityManager, DebtReport.class,
+                report -> agentIdOf(report) == agentId && period(report) >= fromPeriod);
+        }
+        return updated;
+    }
+
+    @Override
+    public void batchUpsert(int month, int year, List<DebtReportBalance> balances) {
+        JdbcEntityUpdates.flushPendingChanges(entityManager);
+        List<DebtReportBalance> updates = new ArrayList<>();
+        List<DebtReportBalance> inserts = new ArrayList<>();
+        for (DebtReportBalance balance : balances) {
+            if (balance.getDebtReportId() != null) {
+                updates.add(balance);
+            } else {
+                inserts.add(balance);
+            }
+        }
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates, BATCH_SIZE, (ps, balance) -> {
+                ps.setInt(1, balance.getFirstDebt());
+                ps.setInt(2, balance.getArisenDebt());
+                ps.setInt(3, balance.getLastDebt());
+                ps.setInt(4, balance.getDebtReportId());
+            });
+            Set<Integer> updatedIds = updates.stream().map(DebtReportBalance::getDebtReportId).collect(Collectors.toSet());
+            JdbcEntityUpdates.refreshManaged(entityManager, DebtReport.class,
+                report -> updatedIds.contains(report.getDebtReportId()));
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts, BATCH_SIZE, (ps, balance) -> {
+                ps.setInt(1, month);
+                ps.setInt(2, year);
+                ps.setInt(3, balance.getAgentId());
+                ps.setInt(4, balance.getFirstDebt());
+                ps.setInt(5, balance.getArisenDebt());
+                ps.setInt(6, balance.getLastDebt());
+            });
+        }
+    }
+
+    @Override
+    public void batchInsertCarriedMonths(Map<Integer, Map<YearMonth, Integer>> carriedDebtByAgent) {
+        List<DebtReportBalance> inserts = new ArrayList<>();
+        carriedDebtByAgent.forEach((agentId, carriedDebtByMonth) -> carriedDebtByMonth.forEach((month, carriedDebt) ->
+            inserts.add(new DebtReportBalance(agentId, null, carriedDebt, 0, carriedDebt,
+                month.getMonthValue(), month.getYear()))));
+        if (inserts.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, inserts, BATCH_SIZE, (ps, balance) -> {
+            ps.setInt(1, balance.getMonth());
+            ps.setInt(2, balance.getYear());
+            ps.setInt(3, balance.getAgentId());
+            ps.setInt(4, balance.getFirstDebt());
+            ps.setInt(5, balance.getArisenDebt());
+            ps.setInt(6, balance.getLastDebt());
+        });
+    }
+
+    @Override
+    public void batchShiftDebtFromMonth(List<DebtShift> shifts) {
+        if (shifts.isEmpty()) {
+            return;
+        }
+        JdbcEntityUpdates.flushPendingChanges(entityManager);
+        jdbcTemplate.batchUpdate(SHIFT_SQL, shifts, BATCH_SIZE, (ps, shift) -> {
+            ps.setInt(1, shift.delta());
+            ps.setInt(2, shift.delta());
+            ps.setInt(3, shift.agentId());
+            ps.setInt(4, shift.fromMonth().getYear());
+            ps.setInt(5, shift.fromMonth().getYear());
+            ps.setInt(6, shift.fromMonth().getMonthValue());
+        });
+        // Báo cáo của đại lý từ tháng dời sớm nhất trở về sau đều có thể đã bị sửa
+        Map<Integer, Integer> fromPeriodByAgent = new HashMap<>();
+        shifts.forEach(shift -> fromPeriodByAgent.merge(shift.agentId(), period(shift.fromMonth()), Math::min));
+        JdbcEntityUpdates.refreshManaged(entityManager, DebtReport.class, report -> {
+            Integer fromPeriod = fromPeriodByAgent.get(agentIdOf(report));
+            return fromPeriod != null && period(report) >= fromPeriod;
+        });
+    }
+
+    @Override
+    public List<DebtReportBalance> findNearestBalancesBefore(YearMonth monthYear) {
+        return jdbcTemplate.query(String.format(NEAREST_SQL, "MAX", "<"), BALANCE_ROW_MAPPER, period(monthYear));
+    }
+
+    @Override
+    public List<DebtReportBalance> findNearestBalancesAfter(YearMonth monthYear) {
+        return jdbcTemplate.query(String.format(NEAREST_SQL, "MIN", ">"), BALANCE_ROW_MAPPER, period(monthYear));
+    }
+
+    private static int period(YearMonth monthYear) {
+        return monthYear.getYear() * 12 + monthYear.getMonthValue();
+    }
+
+    private static int period(DebtReport report) {
+        return report.getYear() * 12 + report.getMonth();
+    }
+
+    private static int agentIdOf(DebtReport report) {
+        return report.getAgent().getAgentId();
+    }
+}
@@ -1,23 +1,44 @@
 package org.example.AgentManagementBE.Repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.AgentManagementBE.Model.ExportDetail;
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ExportDetailRepository extends JpaRepository<ExportDetail, Integer> {
+public interface ExportDetailRepository extends JpaRepository<ExportDetail, Integer>, ExportDetailRepositoryCustom {
     // Lấy chi tiết xuất hàng theo mã phiếu xuất
     List<ExportDetail> findByExportReceipt_ExportReceiptId(Integer exportReceiptId);
 
     // Lấy chi tiết xuất hàng theo mã sản phẩm
     List<ExportDetail> findByProduct_ProductId(Integer productId);
 
+    // Kiểm tra sản phẩm đã có chi tiết xuất hàng
+    boolean existsByProduct_ProductId(Integer productId);
+
+    /**
+     * Chi tiết xuất hàng của sản phẩm kèm phiếu xuất, đại lý và sản phẩm, đọc dần theo từng lô fetch size;
+     * phải dùng trong giao dịch và đóng Stream sau khi duyệt
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT ed FROM ExportDetail ed JOIN FETCH ed.exportReceipt er JOIN FETCH er.agent a " +
+           "JOIN FETCH a.agentType JOIN FETCH a.district JOIN FETCH ed.product p JOIN FETCH p.unit " +
+           "WHERE p.productId = :productId ORDER BY ed.exportDetailId")
+    Stream<ExportDetail> streamByProductId(@Param("productId") Integer productId);
+
     // Lấy chi tiết xuất hàng theo mã phiếu xuất và sản phẩm
     Optional<ExportDetail> findByExportReceipt_ExportReceiptIdAndProduct_ProductId(Integer exportReceiptId, Integer productId);
 
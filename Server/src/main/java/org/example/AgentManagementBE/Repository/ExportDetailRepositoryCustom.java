@@ -0,0 +1,16 @@
+package org.example.AgentManagementBE.Repository;
+
+import org.example.AgentManagementBE.Model.ExportDetail;
+
+import java.util.List;
+
+/**
+ * Các thao tác ghi hàng loạt cho ExportDetail không đi qua persistence context
+ */
+public interface ExportDetailRepositoryCustom {
+    /**
+     * Ghi nhiều chi tiết xuất hàng trong một JDBC batch
+     * @param exportDetails Danh sách chi tiết xuất (phiếu xuất phải đã có ID)
+     */
+    void batchInsert(List<ExportDetail> exportDetails);
+}
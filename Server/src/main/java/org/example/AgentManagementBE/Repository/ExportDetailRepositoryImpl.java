@@ -0,0 +1,36 @@
+package org.example.AgentManagementBE.Repository;
+
+import org.example.AgentManagementBE.Model.ExportDetail;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Cài đặt ExportDetailRepositoryCustom bằng JdbcTemplate.
+ * ExportDetail dùng khóa IDENTITY nên Hibernate không batch được lệnh INSERT.
+ */
+public class ExportDetailRepositoryImpl implements ExportDetailRepositoryCustom {
+    private static final String INSERT_SQL =
+        "INSERT INTO export_detail (export_receipt_id, product, quantity_export, export_price, into_money) " +
+        "VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ExportDetailRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void batchInsert(List<ExportDetail> exportDetails) {
+        if (exportDetails.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, exportDetails, exportDetails.size(), (ps, detail) -> {
+            ps.setInt(1, detail.getExportReceipt().getExportReceiptId());
+            ps.setInt(2, detail.getProduct().getProductId());
+            ps.setInt(3, detail.getQuantityExport());
+            ps.setInt(4, detail.getExportPrice());
+            ps.setInt(5, detail.getIntoMoney());
+        });
+    }
+}
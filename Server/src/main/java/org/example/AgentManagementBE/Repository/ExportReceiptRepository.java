@@ -1,56 +1,125 @@
 package org.example.AgentManagementBE.Repository;
 
+import org.example.AgentManagementBE.DTO.response.AgentAmount;
 import org.example.AgentManagementBE.Model.ExportReceipt;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.sql.Date;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ExportReceiptRepository extends JpaRepository<ExportReceipt, Integer> {
+public interface ExportReceiptRepository extends JpaRepository<ExportReceipt, Integer>, ExportReceiptRepositoryCustom {
 
     Optional<ExportReceipt> findById(Integer exportReceiptId);
 
     @Query("SELECT er FROM ExportReceipt er WHERE er.createDate = :createDate")
     List<ExportReceipt> findByCreateDate(@Param("createDate") LocalDate createDate);
 
-    @Query(value = "SELECT * FROM EXPORT_RECEIPT er WHERE MONTH(CREATE_DATE) = :month AND YEAR(CREATE_DATE) = :year", nativeQuery = true)
-    List<ExportReceipt> findByMonthAndYear(@Param("month") int month, @Param("year") int year);
+    @Query("SELECT er FROM ExportReceipt er WHERE er.createDate >= :start AND er.createDate < :end")
+    List<ExportReceipt> findByCreateDateRange(@Param("start") LocalDate start, @Param("end") LocalDate end);
 
-    @Query("SELECT COUNT(er) FROM ExportReceipt er WHERE MONTH(er.createDate) = :month AND YEAR(er.createDate) = :year")
-    long countByMonthAndYear(@Param("month") int month, @Param("year") int year);
+    default List<ExportReceipt> findByMonthAndYear(int month, int year) {
+        return findByCreateDateRange(MonthRange.start(month, year), MonthRange.end(month, year));
+    }
 
-    @Query("SELECT COUNT(er) FROM ExportReceipt er WHERE er.agent.agentId = :agentId AND MONTH(er.createDate) = :month AND YEAR(er.createDate) = :year")
-    long countByAgentAndMonthAndYear(@Param("agentId") int agentId, @Param("month") int month, @Param("year") int year);
+    /**
+     * Phiếu xuất trong [start, end) kèm đại lý, loại đại lý và quận, đọc dần từ cơ sở dữ liệu theo từng lô fetch size;
+     * phải dùng trong giao dịch và đóng Stream sau khi duyệt
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT er FROM ExportReceipt er JOIN FETCH er.agent a JOIN FETCH a.agentType JOIN FETCH a.district " +
+           "WHERE er.createDate >= :start AND er.createDate < :end ORDER BY er.exportReceiptId")
+    Stream<ExportReceipt> streamByCreateDateRange(@Param("start") LocalDate start, @Param("end") LocalDate end);
 
-    @Query("SELECT COALESCE(SUM(er.totalAmount), 0) FROM ExportReceipt er WHERE er.agent.agentId = :agentId AND MONTH(er.createDate) = :month AND YEAR(er.createDate) = :year")
-    Integer getTotalMoneyByAgentAndMonthAndYear(@Param("agentId") int agentId, @Param("month") int month, @Param("year") int year);
+    default Stream<ExportReceipt> streamByMonthAndYear(int month, int year) {
+        return streamByCreateDateRange(MonthRange.start(month, year), MonthRange.end(month, year));
+    }
 
-    @Query("SELECT COALESCE(SUM(er.totalAmount), 0) FROM ExportReceipt er WHERE MONTH(er.createDate) = :month AND YEAR(er.createDate) = :year")
-    Integer getTotalMoneyByMonthAndYear(@Param("month") int month, @Param("year") int year);
+    @Query("SELECT COUNT(er) FROM ExportReceipt er WHERE er.createDate >= :start AND er.createDate < :end")
+    long countByCreateDateRange(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    default long countByMonthAndYear(int month, int year) {
+        return countByCreateDateRange(MonthRange.start(month, year), MonthRange.end(month, year));
+    }
+
+    @Query("SELECT COUNT(er) FROM ExportReceipt er WHERE er.agent.agentId = :agentId AND er.createDate >= :start AND er.createDate < :end")
+    long countByAgentAndCreateDateRange(@Param("agentId") int agentId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    default long countByAgentAndMonthAndYear(int agentId, int month, int year) {
+        return countByAgentAndCreateDateRange(agentId, MonthRange.start(month, year), MonthRange.end(month, year));
+    }
+
+    @Query("SELECT COALESCE(SUM(er.totalAmount), 0) FROM ExportReceipt er WHERE er.agent.agentId = :agentId AND er.createDate >= :start AND er.createDate < :end")
+    Integer getTotalMoneyByAgentAndCreateDateRange(@Param("agentId") int agentId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    default Integer getTotalMoneyByAgentAndMonthAndYear(int agentId, int month, int year) {
+        return getTotalMoneyByAgentAndCreateDateRange(agentId, MonthRange.start(month, year), MonthRange.end(month, year));
+    }
+
+    @Query("SELECT COALESCE(SUM(er.totalAmount), 0) FROM ExportReceipt er WHERE er.createDate >= :start AND er.createDate < :end")
+    Integer getTotalMoneyByCreateDateRange(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    default Integer getTotalMoneyByMonthAndYear(int month, int year) {
+        return getTotalMoneyByCreateDateRange(MonthRange.start(month, year), MonthRange.end(month, year));
+    }
+
+    // Tổng trị giá phiếu xuất theo từng đại lý trong [start, end)
+    @Query("SELECT new org.example.AgentManagementBE.DTO.response.AgentAmount(er.agent.agentId, SUM(er.totalAmount)) " +
+           "FROM ExportReceipt er WHERE er.createDate >= :start AND er.createDate < :end " +
+           "GROUP BY er.agent.agentId")
+    List<AgentAmount> getTotalMoneyGroupedByAgentAndCreateDateRange(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    default List<AgentAmount> getTotalMoneyGroupedByAgentAndMonthAndYear(int month, int year) {
+        return getTotalMoneyGroupedByAgentAndCreateDateRange(MonthRange.start(month, year), MonthRange.end(month, year));
+    }
 
     @Query("SELECT er FROM ExportReceipt er WHERE er.agent.agentId = :agentId")
     List<ExportReceipt> findByAgentId(@Param("agentId") int agentId);
 
-    @Query("SELECT COALESCE(SUM(er.remainingAmount), 0) FROM ExportReceipt er WHERE er.agent.agentId = :agentId AND MONTH(er.createDate) = :month AND YEAR(er.createDate) = :year")
-    Integer getTotalRemainAmountByAgentAndMonthAndYear(@Param("agentId") int agentId, @Param("month") int month, @Param("year") int year);
+    @Query("SELECT COALESCE(SUM(er.remainingAmount), 0) FROM ExportReceipt er WHERE er.agent.agentId = :agentId AND er.createDate >= :start AND er.createDate < :end")
+    Integer getTotalRemainAmountByAgentAndCreateDateRange(@Param("agentId") int agentId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    default Integer getTotalRemainAmountByAgentAndMonthAndYear(int agentId, int month, int year) {
+        return getTotalRemainAmountByAgentAndCreateDateRange(agentId, MonthRange.start(month, year), MonthRange.end(month, year));
+    }
 
     @Query("SELECT COALESCE(SUM(ed.quantityExport * ed.exportPrice), 0) FROM ExportDetail ed WHERE ed.exportReceipt.exportReceiptId = :exportReceiptId")
     Double calculateTotalMoney(@Param("exportReceiptId") Integer exportReceiptId);
 
     @Query("SELECT COALESCE(SUM(ed.quantityExport), 0) FROM ExportDetail ed " +
            "JOIN ed.exportReceipt er " +
-           "WHERE MONTH(er.createDate) = :month AND YEAR(er.createDate) = :year")
-    Integer getQuantityExportByMonthAndYear(@Param("month") int month, @Param("year") int year);
-
-    @Query("SELECT COALESCE(SUM(er.paidAmount), 0) FROM ExportReceipt er WHERE er.agent.agentId = :agentId AND MONTH(er.createDate) = :month AND YEAR(er.createDate) = :year")
-    Integer getTotalPaidAmountByAgentAndMonthAndYear(@Param("agentId") int agentId, @Param("month") int month, @Param("year") int year);
-
+           "WHERE er.createDate >= :start AND er.createDate < :end")
+    Integer getQuantityExportByCreateDateRange(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    default Integer getQuantityExportByMonthAndYear(int month, int year) {
+        return getQuantityExportByCreateDateRange(MonthRange.start(month, year), MonthRange.end(month, year));
+    }
+
+    @Query("SELECT COALESCE(SUM(er.paidAmount), 0) FROM ExportReceipt er WHERE er.agent.agentId = :agentId AND er.createDate >= :start AND er.createDate < :end")
+    Integer getTotalPaidAmountByAgentAndCreateDateRange(@Param("agentId") int agentId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    default Integer getTotalPaidAmountByAgentAndMonthAndYear(int agentId, int month, int year) {
+        return getTotalPaidAmountByAgentAndCreateDateRange(agentId, MonthRange.start(month, year), MonthRange.end(month, year));
+    }
+
+    /**
+     * Một trang phiếu xuất kèm đại lý, loại đại lý và quận trong cùng câu truy vấn, theo ID tăng dần sau afterId;
+     * pageable chỉ dùng làm giới hạn số dòng
+     */
+    @Query("SELECT er FROM ExportReceipt er LEFT JOIN FETCH er.agent a LEFT JOIN FETCH a.agentType LEFT JOIN FETCH a.district WHERE er.exportReceiptId > :afterId ORDER BY er.exportReceiptId")
+    List<ExportReceipt> findPageAfter(@Param("afterId") int afterId, Pageable pageable);
 }
-
@@ -0,0 +1,24 @@
+package org.example.AgentManagementBE.Repository;
+
+import org.example.AgentManagementBE.Model.ExportReceipt;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Tìm phiếu xuất theo điều kiện động và ghi hàng loạt không đi qua persistence context
+ */
+public interface ExportReceiptRepositoryCustom {
+    /**
+     * Các phiếu thỏa spec kèm đại lý, loại đại lý và quận trong một câu truy vấn,
+     * sắp theo ngày lập giảm dần rồi ID giảm dần; pageable chỉ dùng làm giới hạn số dòng
+     */
+    List<ExportReceipt> search(Specification<ExportReceipt> spec, Pageable pageable);
+
+    /**
+     * Ghi nhiều phiếu xuất trong một JDBC batch và gán ID sinh ra vào từng phiếu theo đúng thứ tự
+     * @param exportReceipts Danh sách phiếu xuất (đại lý phải đã có ID)
+     */
+    void batchInsert(List<ExportReceipt> exportReceipts);
+}
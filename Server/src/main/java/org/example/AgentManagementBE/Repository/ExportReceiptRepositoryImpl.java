@@ -0,0 +1,92 @@
+package org.example.AgentManagementBE.Repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Fetch;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.ExportReceipt;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cài đặt ExportReceiptRepositoryCustom: tìm kiếm bằng Criteria API, JOIN FETCH được tạo trước khi áp spec
+ * để điều kiện theo quận, loại đại lý dùng lại phép nối đó; ghi hàng loạt bằng JdbcTemplate
+ * vì ExportReceipt dùng khóa IDENTITY nên Hibernate không batch được lệnh INSERT
+ */
+public class ExportReceiptRepositoryImpl implements ExportReceiptRepositoryCustom {
+    private static final String INSERT_SQL =
+        "INSERT INTO export_receipt (agent, create_date, total_amount, paid_amount, remaining_amount) " +
+        "VALUES (?, ?, ?, ?, ?)";
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    public ExportReceiptRepositoryImpl(EntityManager entityManager, JdbcTemplate jdbcTemplate) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<ExportReceipt> search(Specification<ExportReceipt> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ExportReceipt> query = cb.createQuery(ExportReceipt.class);
+        Root<ExportReceipt> root = query.from(ExportReceipt.class);
+        Fetch<ExportReceipt, Agent> agent = root.fetch("agent", JoinType.INNER);
+        agent.fetch("agentType", JoinType.INNER);
+        agent.fetch("district", JoinType.INNER);
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(root).orderBy(cb.desc(root.get("createDate")), cb.desc(root.get("exportReceiptId")));
+        return entityManager.createQuery(query)
+            .setMaxResults(pageable.getPageSize())
+            .getResultList();
+    }
+
+    @Override
+    public void batchInsert(List<ExportReceipt> exportReceipts) {
+        if (exportReceipts.isEmpty()) {
+            return;
+        }
+        JdbcEntityUpdates.flushPendingChanges(entityManager);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_SQL, new String[] {"export_receipt_id"}),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ExportReceipt receipt = exportReceipts.get(i);
+                    ps.setInt(1, receipt.getAgent().getAgentId());
+                    ps.setDate(2, Date.valueOf(receipt.getCreateDate()));
+                    ps.setInt(3, receipt.getTotalAmount());
+                    ps.setInt(4, receipt.getPaidAmount());
+                    ps.setInt(5, receipt.getRemainingAmount());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return exportReceipts.size();
+                }
+            }, keyHolder);
+        // Tên cột khóa trả về khác nhau giữa các driver (GENERATED_KEY, EXPORT_RECEIPT_ID...): lấy giá trị duy nhất của mỗi dòng
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < exportReceipts.size(); i++) {
+            exportReceipts.get(i).setExportReceiptId(((Number) keys.get(i).values().iterator().next()).intValue());
+        }
+    }
+}
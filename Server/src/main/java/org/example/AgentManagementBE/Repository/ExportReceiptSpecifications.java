@@ -0,0 +1,99 @@
+package org.example.AgentManagementBE.Repository;
+
+import jakarta.persistence.criteria.Fetch;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import org.example.AgentManagementBE.DTO.request.ExportReceiptSearchCriteria;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.ExportReceipt;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Các điều kiện lọc phiếu xuất, ghép thành một câu truy vấn duy nhất cho API tìm kiếm.
+ * Thứ tự kết quả là ngày lập giảm dần rồi ID giảm dần, khớp các chỉ mục bắt đầu bằng create_date hoặc (agent, create_date).
+ */
+public final class ExportReceiptSpecifications {
+
+    private ExportReceiptSpecifications() {
+    }
+
+    /**
+     * Ghép các điều kiện khác null của criteria bằng AND
+     */
+    public static Specification<ExportReceipt> matching(ExportReceiptSearchCriteria criteria) {
+        List<Specification<ExportReceipt>> specs = new ArrayList<>();
+        if (criteria.getAgentIds() != null && !criteria.getAgentIds().isEmpty()) {
+            specs.add(agentIn(criteria.getAgentIds()));
+        }
+        if (criteria.getDistrictId() != null) {
+            specs.add(inDistrict(criteria.getDistrictId()));
+        }
+        if (criteria.getAgentTypeId() != null) {
+            specs.add(ofAgentType(criteria.getAgentTypeId()));
+        }
+        if (criteria.getFromDate() != null) {
+            specs.add((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("createDate"), criteria.getFromDate()));
+        }
+        if (criteria.getToDate() != null) {
+            specs.add((root, query, cb) -> cb.lessThanOrEqualTo(root.get("createDate"), criteria.getToDate()));
+        }
+        if (criteria.getMinAmount() != null) {
+            specs.add((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("totalAmount"), criteria.getMinAmount()));
+        }
+        if (criteria.getMaxAmount() != null) {
+            specs.add((root, query, cb) -> cb.lessThanOrEqualTo(root.get("totalAmount"), criteria.getMaxAmount()));
+        }
+        if (criteria.getHasRemaining() != null) {
+            specs.add(criteria.getHasRemaining()
+                ? (root, query, cb) -> cb.greaterThan(root.get("remainingAmount"), 0)
+                : (root, query, cb) -> cb.equal(root.get("remainingAmount"), 0));
+        }
+        return Specification.allOf(specs);
+    }
+
+    public static Specification<ExportReceipt> agentIn(List<Integer> agentIds) {
+        // Cột khóa ngoại agent của phiếu, không cần nối bảng Agent
+        return (root, query, cb) -> root.get("agent").get("agentId").in(agentIds);
+    }
+
+    public static Specification<ExportReceipt> inDistrict(int districtId) {
+        return (root, query, cb) -> cb.equal(agent(root).get("district").get("districtId"), districtId);
+    }
+
+    public static Specification<ExportReceipt> ofAgentType(int agentTypeId) {
+        return (root, query, cb) -> cb.equal(agent(root).get("agentType").get("agentTypeId"), agentTypeId);
+    }
+
+    /**
+     * Các phiếu đứng sau (createDate, exportReceiptId) theo thứ tự ngày giảm dần rồi ID giảm dần
+     */
+    public static Specification<ExportReceipt> after(LocalDate createDate, int exportReceiptId) {
+        return (root, query, cb) -> cb.or(
+            cb.lessThan(root.get("createDate"), createDate),
+            cb.and(cb.equal(root.get("createDate"), createDate),
+                cb.lessThan(root.get("exportReceiptId"), exportReceiptId)));
+    }
+
+    /**
+     * Phép nối Agent đã có trên root (kể cả JOIN FETCH) để lọc quận và loại đại lý không sinh thêm phép nối
+     */
+    @SuppressWarnings("unchecked")
+    private static Join<ExportReceipt, Agent> agent(Root<ExportReceipt> root) {
+        for (Fetch<ExportReceipt, ?> fetch : root.getFetches()) {
+            if (fetch.getAttribute().getName().equals("agent") && fetch instanceof Join<?, ?> join) {
+                return (Join<ExportReceipt, Agent>) join;
+            }
+        }
+        for (Join<ExportReceipt, ?> join : root.getJoins()) {
+            if (join.getAttribute().getName().equals("agent")) {
+                return (Join<ExportReceipt, Agent>) join;
+            }
+        }
+        return root.join("agent", JoinType.INNER);
+    }
+}
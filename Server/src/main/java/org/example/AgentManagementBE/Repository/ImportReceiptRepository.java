@@ -1,6 +1,7 @@
 package org.example.AgentManagementBE.Repository;
 
 import org.example.AgentManagementBE.Model.ImportReceipt;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -20,13 +21,23 @@ public interface ImportReceiptRepository extends JpaRepository<ImportReceipt, In
     @Query("SELECT ir FROM ImportReceipt ir WHERE ir.createDate = :createDate")
     List<ImportReceipt> findByCreateDate(@Param("createDate") LocalDate createDate);
     
+    // Find import receipts in [start, end)
+    @Query("SELECT ir FROM ImportReceipt ir WHERE ir.createDate >= :start AND ir.createDate < :end")
+    List<ImportReceipt> findByCreateDateRange(@Param("start") LocalDate start, @Param("end") LocalDate end);
+    
     // Find import receipts by month and year
-    @Query("SELECT ir FROM ImportReceipt ir WHERE MONTH(ir.createDate) = :month AND YEAR(ir.createDate) = :year")
-    List<ImportReceipt> findByMonthAndYear(@Param("month") int month, @Param("year") int year);
+    default List<ImportReceipt> findByMonthAndYear(int month, int year) {
+        return findByCreateDateRange(MonthRange.start(month, year), MonthRange.end(month, year));
+    }
+    
+    // Get total import amount in [start, end)
+    @Query("SELECT COALESCE(SUM(ir.totalAmount), 0) FROM ImportReceipt ir WHERE ir.createDate >= :start AND ir.createDate < :end")
+    Integer getTotalMoneyByCreateDateRange(@Param("start") LocalDate start, @Param("end") LocalDate end);
     
     // Get total import amount by month and year
-    @Query("SELECT COALESCE(SUM(ir.totalAmount), 0) FROM ImportReceipt ir WHERE MONTH(ir.createDate) = :month AND YEAR(ir.createDate) = :year")
-    Integer getTotalMoneyByMonthAndYear(@Param("month") int month, @Param("year") int year);
+    default Integer getTotalMoneyByMonthAndYear(int month, int year) {
+        return getTotalMoneyByCreateDateRange(MonthRange.start(month, year), MonthRange.end(month, year));
+    }
     
     // Calculate total money of an import receipt
     @Query("SELECT COALESCE(SUM(id.quantityImport * id.importPrice), 0) FROM ImportDetail id WHERE id.importReceipt.importReceiptId = :importReceiptId")
@@ -36,5 +47,11 @@ public interface ImportReceiptRepository extends JpaRepository<ImportReceipt, In
     @Modifying(clearAutomatically = true, flushAutomatically = true)
     @Query("UPDATE ImportReceipt ir SET ir.totalAmount = :totalAmount WHERE ir.importReceiptId = :importReceiptId")
     void updateTotalAmount(@Param("importReceiptId") Integer importReceiptId, @Param("totalAmount") Integer totalAmount);
-}
 
+    /**
+     * Một trang phiếu nhập, theo ID tăng dần sau afterId;
+     * pageable chỉ dùng làm giới hạn số dòng
+     */
+    @Query("SELECT ir FROM ImportReceipt ir WHERE ir.importReceiptId > :afterId ORDER BY ir.importReceiptId")
+    List<ImportReceipt> findPageAfter(@Param("afterId") int afterId, Pageable pageable);
+}
@@ -0,0 +1,114 @@
+package org.example.AgentManagementBE.Repository;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Hỗ trợ các câu UPDATE JdbcTemplate ghi thẳng vào bảng của entity có cache cấp hai.
+ * Hibernate không biết các câu này nên phải tự ghi xuống các thay đổi đang chờ trước khi chạy
+ * và tự xóa các dòng bị sửa khỏi cache; chỉ xóa đúng các ID bị sửa thay vì cả vùng cache như câu UPDATE JPQL.
+ */
+final class JdbcEntityUpdates {
+
+    private JdbcEntityUpdates() {
+    }
+
+    /**
+     * Ghi các thay đổi đang chờ trong persistence context xuống cơ sở dữ liệu, tương đương flushAutomatically của @Modifying
+     */
+    static void flushPendingChanges(EntityManager entityManager) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            entityManager.flush();
+        }
+    }
+
+    /**
+     * Nạp lại từ cơ sở dữ liệu entity đang được quản lý trong persistence context (nếu có) sau câu UPDATE JdbcTemplate;
+     * các entity khác của người gọi giữ nguyên, khác với xóa cả persistence context như clearAutomatically
+     */
+    static void refreshIfManaged(EntityManager entityManager, Class<?> entityClass, Object id) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(entityClass);
+        Object managed = session.getPersistenceContextInternal().getEntity(session.generateEntityKey(id, persister));
+        if (managed != null) {
+            entityManager.refresh(managed);
+        }
+    }
+
+    /**
+     * Nạp lại các entity cùng loại đang được quản lý trong persistence context mà câu UPDATE JdbcTemplate
+     * theo điều kiện (không theo ID) có thể đã sửa; predicate chọn các entity thuộc phạm vi câu UPDATE
+     */
+    static <T> void refreshManaged(EntityManager entityManager, Class<T> entityClass, Predicate<? super T> affected) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        List<T> stale = new ArrayList<>();
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            if (entityClass.isInstance(entry.getKey()) && entry.getValue().getStatus() == Status.MANAGED) {
+                T entity = entityClass.cast(entry.getKey());
+                if (affected.test(entity)) {
+                    stale.add(entity);
+                }
+            }
+        }
+        stale.forEach(entityManager::refresh);
+    }
+
+    static void evict(EntityManager entityManager, Class<?> entityClass, Object id) {
+        evict(entityManager, entityClass, List.of(id));
+    }
+
+    /**
+     * Xóa các entity khỏi cache cấp hai ngay và thêm một lần khi giao dịch kết thúc: trước khi commit,
+     * giao dịch khác có thể nạp lại giá trị cũ, còn chính giao dịch này có thể nạp giá trị chưa commit rồi rollback
+     */
+    static void evict(EntityManager entityManager, Class<?> entityClass, Collection<?> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        List<?> evicted = List.copyOf(ids);
+        evicted.forEach(id -> cache.evict(entityClass, id));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evicted.forEach(id -> cache.evict(entityClass, id));
+                }
+            });
+        }
+    }
+
+    /**
+     * Xóa toàn bộ vùng cache cấp hai của entity, ngay và thêm một lần khi giao dịch kết thúc
+     */
+    static void evictAll(EntityManager entityManager, Class<?> entityClass) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        cache.evict(entityClass);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(entityClass);
+                }
+            });
+        }
+    }
+}
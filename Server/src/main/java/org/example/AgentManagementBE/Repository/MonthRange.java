@@ -0,0 +1,24 @@
+package org.example.AgentManagementBE.Repository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Khoảng ngày nửa mở [start, end) của một tháng, dùng cho các truy vấn theo tháng/năm
+ * để so sánh trực tiếp cột ngày thay vì MONTH()/YEAR() và dùng được chỉ mục
+ */
+final class MonthRange {
+
+    private MonthRange() {
+    }
+
+    /** Ngày đầu tháng, tính cả ngày này */
+    static LocalDate start(int month, int year) {
+        return YearMonth.of(year, month).atDay(1);
+    }
+
+    /** Ngày đầu tháng sau, không tính ngày này */
+    static LocalDate end(int month, int year) {
+        return YearMonth.of(year, month).plusMonths(1).atDay(1);
+    }
+}
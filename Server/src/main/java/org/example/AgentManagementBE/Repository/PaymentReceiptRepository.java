@@ -1,16 +1,19 @@
 package org.example.AgentManagementBE.Repository;
 
+import org.example.AgentManagementBE.DTO.response.AgentAmount;
 import org.example.AgentManagementBE.Model.PaymentReceipt;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PaymentReceiptRepository extends JpaRepository<PaymentReceipt, Integer> {
+public interface PaymentReceiptRepository extends JpaRepository<PaymentReceipt, Integer>, PaymentReceiptRepositoryCustom {
     // Lấy phiếu thu theo ID
     Optional<PaymentReceipt> findById(Integer paymentReceiptId);
 
@@ -19,6 +22,27 @@ public interface PaymentReceiptRepository extends JpaRepository<PaymentReceipt,
     List<PaymentReceipt> findByAgentId(@Param("agentId") int agentId);
     
     // Thêm method để tính tổng revenue theo tháng/năm/đại lý để tính arisen_debt
-    @Query("SELECT COALESCE(SUM(pr.revenue), 0) FROM PaymentReceipt pr WHERE pr.agent.agentId = :agentId AND MONTH(pr.paymentDate) = :month AND YEAR(pr.paymentDate) = :year")
-    Integer getTotalRevenueByAgentAndMonthAndYear(@Param("agentId") int agentId, @Param("month") int month, @Param("year") int year);
-}
\ No newline at end of file
+    @Query("SELECT COALESCE(SUM(pr.revenue), 0) FROM PaymentReceipt pr WHERE pr.agent.agentId = :agentId AND pr.paymentDate >= :start AND pr.paymentDate < :end")
+    Integer getTotalRevenueByAgentAndPaymentDateRange(@Param("agentId") int agentId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    default Integer getTotalRevenueByAgentAndMonthAndYear(int agentId, int month, int year) {
+        return getTotalRevenueByAgentAndPaymentDateRange(agentId, MonthRange.start(month, year), MonthRange.end(month, year));
+    }
+
+    // Tổng tiền thu theo từng đại lý trong [start, end)
+    @Query("SELECT new org.example.AgentManagementBE.DTO.response.AgentAmount(pr.agent.agentId, SUM(pr.revenue)) " +
+           "FROM PaymentReceipt pr WHERE pr.paymentDate >= :start AND pr.paymentDate < :end " +
+           "GROUP BY pr.agent.agentId")
+    List<AgentAmount> getTotalRevenueGroupedByAgentAndPaymentDateRange(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    default List<AgentAmount> getTotalRevenueGroupedByAgentAndMonthAndYear(int month, int year) {
+        return getTotalRevenueGroupedByAgentAndPaymentDateRange(MonthRange.start(month, year), MonthRange.end(month, year));
+    }
+
+    /**
+     * Một trang phiếu thu kèm đại lý, loại đại lý và quận trong cùng câu truy vấn, theo ID tăng dần sau afterId;
+     * pageable chỉ dùng làm giới hạn số dòng
+     */
+    @Query("SELECT pr FROM PaymentReceipt pr LEFT JOIN FETCH pr.agent a LEFT JOIN FETCH a.agentType LEFT JOIN FETCH a.district WHERE pr.paymentId > :afterId ORDER BY pr.paymentId")
+    List<PaymentReceipt> findPageAfter(@Param("afterId") int afterId, Pageable pageable);
+}
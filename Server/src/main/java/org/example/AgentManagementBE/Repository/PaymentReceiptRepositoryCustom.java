@@ -0,0 +1,16 @@
+package org.example.AgentManagementBE.Repository;
+
+import org.example.AgentManagementBE.Model.PaymentReceipt;
+
+import java.util.List;
+
+/**
+ * Ghi hàng loạt phiếu thu không đi qua persistence context
+ */
+public interface PaymentReceiptRepositoryCustom {
+    /**
+     * Ghi nhiều phiếu thu trong một JDBC batch và gán ID sinh ra vào từng phiếu theo đúng thứ tự
+     * @param paymentReceipts Danh sách phiếu thu (đại lý phải đã có ID)
+     */
+    void batchInsert(List<PaymentReceipt> paymentReceipts);
+}
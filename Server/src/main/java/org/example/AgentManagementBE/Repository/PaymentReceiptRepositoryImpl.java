@@ -0,0 +1,58 @@
+package org.example.AgentManagementBE.Repository;
+
+import jakarta.persistence.EntityManager;
+import org.example.AgentManagementBE.Model.PaymentReceipt;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cài đặt PaymentReceiptRepositoryCustom bằng JdbcTemplate vì PaymentReceipt dùng khóa IDENTITY
+ * nên Hibernate không batch được lệnh INSERT
+ */
+public class PaymentReceiptRepositoryImpl implements PaymentReceiptRepositoryCustom {
+    private static final String INSERT_SQL = "INSERT INTO payment_receipt (agent, payment_date, revenue) VALUES (?, ?, ?)";
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    public PaymentReceiptRepositoryImpl(EntityManager entityManager, JdbcTemplate jdbcTemplate) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void batchInsert(List<PaymentReceipt> paymentReceipts) {
+        if (paymentReceipts.isEmpty()) {
+            return;
+        }
+        JdbcEntityUpdates.flushPendingChanges(entityManager);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_SQL, new String[] {"payment_id"}),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    PaymentReceipt receipt = paymentReceipts.get(i);
+                    ps.setInt(1, receipt.getAgent().getAgentId());
+                    ps.setDate(2, Date.valueOf(receipt.getPaymentDate()));
+                    ps.setInt(3, receipt.getRevenue());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return paymentReceipts.size();
+                }
+            }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < paymentReceipts.size(); i++) {
+            paymentReceipts.get(i).setPaymentId(((Number) keys.get(i).values().iterator().next()).intValue());
+        }
+    }
+}
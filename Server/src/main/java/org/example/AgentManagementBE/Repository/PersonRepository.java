@@ -1,7 +1,10 @@
 package org.example.AgentManagementBE.Repository;
 
+import org.example.AgentManagementBE.DTO.response.PersonTokenVersion;
 import org.example.AgentManagementBE.Model.Person;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -38,4 +41,31 @@ public interface PersonRepository extends JpaRepository<Person, Integer> {
     // Find active users only
     @Query("SELECT p FROM Person p WHERE p.isActive = true")
     List<Person> findAllActive();
+
+    // Lấy email và phiên bản vai trò của người dùng còn hoạt động, dùng để kiểm tra JWT không cần truy vấn mỗi request
+    @Query("SELECT new org.example.AgentManagementBE.DTO.response.PersonTokenVersion(p.personEmail, p.roleVersion) " +
+           "FROM Person p WHERE p.isActive = true AND p.personEmail IS NOT NULL")
+    List<PersonTokenVersion> findActiveTokenVersions();
+
+    // Phiên bản vai trò hiện tại của người dùng còn hoạt động, đọc khi cấp JWT
+    @Query("SELECT p.roleVersion FROM Person p WHERE p.personEmail = :personEmail AND p.isActive = true")
+    Optional<Integer> findActiveRoleVersion(@Param("personEmail") String personEmail);
+
+    // Tăng phiên bản vai trò của người dùng để thu hồi các JWT đã cấp
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Person p SET p.roleVersion = p.roleVersion + 1 WHERE p.personId = :personId")
+    int incrementRoleVersion(@Param("personId") Integer personId);
+
+    // Tăng phiên bản vai trò của mọi người dùng đang giữ vai trò
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Person p SET p.roleVersion = p.roleVersion + 1 " +
+           "WHERE p.personId IN (SELECT pr.personId FROM PersonRole pr WHERE pr.roleId = :roleId)")
+    int incrementRoleVersionByRoleId(@Param("roleId") Integer roleId);
+
+    /**
+     * Một trang người dùng kèm đại lý (nếu có) trong cùng câu truy vấn, theo ID tăng dần sau afterId;
+     * pageable chỉ dùng làm giới hạn số dòng
+     */
+    @Query("SELECT p FROM Person p LEFT JOIN FETCH p.agent a LEFT JOIN FETCH a.agentType LEFT JOIN FETCH a.district WHERE p.personId > :afterId ORDER BY p.personId")
+    List<Person> findPageAfter(@Param("afterId") int afterId, Pageable pageable);
 }
@@ -2,6 +2,7 @@ package org.example.AgentManagementBE.Repository;
 
 import org.example.AgentManagementBE.Model.Product;
 import org.example.AgentManagementBE.Model.Unit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -11,7 +12,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Integer> {
+public interface ProductRepository extends JpaRepository<Product, Integer>, ProductRepositoryCustom {
     // Find product by ID with optional return
     Optional<Product> findById(Integer productId);
     
@@ -39,6 +40,10 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     @Query("SELECT p.inventoryQuantity FROM Product p WHERE p.productName = :productName AND p.unit.unitName = :unitName")
     Optional<Integer> findInventoryQuantityByNameAndUnit(@Param("productName") String productName, @Param("unitName") String unitName);
     
+    // Get inventory quantity by product ID
+    @Query("SELECT p.inventoryQuantity FROM Product p WHERE p.productId = :productId")
+    Optional<Integer> findInventoryQuantityById(@Param("productId") int productId);
+
     // Get inventory quantity by product name (first found - for backward compatibility)
     @Query("SELECT p.inventoryQuantity FROM Product p WHERE p.productName = :productName")
     Optional<Integer> findInventoryQuantityByName(@Param("productName") String productName);
@@ -53,6 +58,13 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     @Query("SELECT COUNT(p) > 0 FROM Product p WHERE p.productName = :productName AND p.unit.unitName = :unitName")
     boolean existsByProductNameAndUnitName(@Param("productName") String productName, @Param("unitName") String unitName);
     
+    // Smallest and largest product ID, bounds of the chunked export price refresh
+    @Query("SELECT MIN(p.productId) FROM Product p")
+    Optional<Integer> findMinProductId();
+
+    @Query("SELECT MAX(p.productId) FROM Product p")
+    Optional<Integer> findMaxProductId();
+
     // Check if product has any import details (used in transactions)
     @Query("SELECT COUNT(id) > 0 FROM ImportDetail id WHERE id.product.productId = :productId")
     boolean hasImportDetails(@Param("productId") Integer productId);
@@ -60,4 +72,11 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     // Check if product has any export details (used in transactions)  
     @Query("SELECT COUNT(ed) > 0 FROM ExportDetail ed WHERE ed.product.productId = :productId")
     boolean hasExportDetails(@Param("productId") Integer productId);
+
+    /**
+     * Một trang sản phẩm kèm đơn vị trong cùng câu truy vấn, theo ID tăng dần sau afterId;
+     * pageable chỉ dùng làm giới hạn số dòng
+     */
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.unit WHERE p.productId > :afterId ORDER BY p.productId")
+    List<Product> findPageAfter(@Param("afterId") int afterId, Pageable pageable);
 }
@@ -0,0 +1,38 @@
+package org.example.AgentManagementBE.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Các thao tác giảm tồn kho có điều kiện và cập nhật giá xuất theo lô cho Product
+ */
+public interface ProductRepositoryCustom {
+    /**
+     * Giảm tồn kho của một sản phẩm chỉ khi tồn kho hiện tại còn đủ số lượng yêu cầu
+     * @return Số dòng được cập nhật (0 nếu không đủ tồn kho hoặc sản phẩm không tồn tại)
+     */
+    int decrementInventory(Integer productId, Integer quantity);
+
+    /**
+     * Cộng tồn kho của một sản phẩm ngay trong câu UPDATE, không đọc rồi ghi lại
+     * @return Số dòng được cập nhật (0 nếu sản phẩm không tồn tại)
+     */
+    int incrementInventory(Integer productId, Integer quantity);
+
+    /**
+     * Giảm tồn kho có điều kiện của nhiều sản phẩm, mỗi sản phẩm một câu UPDATE theo thứ tự productId.
+     * Mỗi dòng chỉ bị trừ khi tồn kho hiện tại còn đủ số lượng yêu cầu.
+     * @param quantitiesByProductId Map productId → số lượng cần trừ
+     * @return Danh sách productId không đủ tồn kho (rỗng nếu tất cả đều được trừ)
+     */
+    List<Integer> batchDecrementInventory(Map<Integer, Integer> quantitiesByProductId);
+
+    /**
+     * Tính lại giá xuất = ROUND(giá nhập × tỷ lệ) cho các sản phẩm có productId trong [fromProductId, toProductId)
+     * bằng một câu UPDATE, bỏ qua các dòng đã đúng giá
+     * @param ratio Tỷ lệ đơn giá xuất
+     * @return Số dòng được cập nhật
+     */
+    int updateExportPrices(BigDecimal ratio, int fromProductId, int toProductId);
+}
@@ -0,0 +1,87 @@
+package org.example.AgentManagementBE.Repository;
+
+import jakarta.persistence.EntityManager;
+import org.example.AgentManagementBE.Model.Product;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Cài đặt ProductRepositoryCustom bằng JdbcTemplate, chỉ xóa sản phẩm bị sửa khỏi cache cấp hai
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+    private static final String DECREMENT_SQL =
+        "UPDATE product SET inventory_quantity = inventory_quantity - ? " +
+        "WHERE product_id = ? AND inventory_quantity >= ?";
+    private static final String INCREMENT_SQL =
+        "UPDATE product SET inventory_quantity = inventory_quantity + ? WHERE product_id = ?";
+    private static final String UPDATE_EXPORT_PRICE_SQL =
+        "UPDATE product SET export_price = ROUND(import_price * CAST(? AS DECIMAL(10,4))) " +
+        "WHERE product_id >= ? AND product_id < ? AND import_price IS NOT NULL " +
+        "AND (export_price IS NULL OR export_price <> ROUND(import_price * CAST(? AS DECIMAL(10,4))))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    public ProductRepositoryImpl(JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public int decrementInventory(Integer productId, Integer quantity) {
+        JdbcEntityUpdates.flushPendingChanges(entityManager);
+        int updated = jdbcTemplate.update(DECREMENT_SQL, quantity, productId, quantity);
+        if (updated > 0) {
+            JdbcEntityUpdates.evict(entityManager, Product.class, productId);
+        }
+        return updated;
+    }
+
+    @Override
+    public int incrementInventory(Integer productId, Integer quantity) {
+        JdbcEntityUpdates.flushPendingChanges(entityManager);
+        int updated = jdbcTemplate.update(INCREMENT_SQL, quantity, productId);
+        if (updated > 0) {
+            JdbcEntityUpdates.evict(entityManager, Product.class, productId);
+        }
+        return updated;
+    }
+
+    @Override
+    public List<Integer> batchDecrementInventory(Map<Integer, Integer> quantitiesByProductId) {
+        List<Integer> insufficientProductIds = new ArrayList<>();
+        if (quantitiesByProductId.isEmpty()) {
+            return insufficientProductIds;
+        }
+        JdbcEntityUpdates.flushPendingChanges(entityManager);
+        // Mỗi sản phẩm một câu UPDATE có điều kiện: số dòng của executeUpdate luôn xác định, còn JDBC batch có thể
+        // trả SUCCESS_NO_INFO/EXECUTE_FAILED. Khóa dòng theo thứ tự ID để hai phiếu xuất đồng thời không deadlock
+        List<Integer> decrementedProductIds = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : new TreeMap<>(quantitiesByProductId).entrySet()) {
+            int updated = jdbcTemplate.update(DECREMENT_SQL, entry.getValue(), entry.getKey(), entry.getValue());
+            if (updated == 1) {
+                decrementedProductIds.add(entry.getKey());
+            } else {
+                insufficientProductIds.add(entry.getKey());
+            }
+        }
+        JdbcEntityUpdates.evict(entityManager, Product.class, decrementedProductIds);
+        return insufficientProductIds;
+    }
+
+    @Override
+    public int updateExportPrices(BigDecimal ratio, int fromProductId, int toProductId) {
+        JdbcEntityUpdates.flushPendingChanges(entityManager);
+        int updated = jdbcTemplate.update(UPDATE_EXPORT_PRICE_SQL, ratio, fromProductId, toProductId, ratio);
+        if (updated > 0) {
+            // Không biết dòng nào bị sửa nên xóa cả vùng cache Product
+            JdbcEntityUpdates.evictAll(entityManager, Product.class);
+        }
+        return updated;
+    }
+}
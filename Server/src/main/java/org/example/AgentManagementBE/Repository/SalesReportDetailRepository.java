@@ -2,11 +2,14 @@ package org.example.AgentManagementBE.Repository;
 
 import org.example.AgentManagementBE.Model.SalesReportDetail;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,19 +33,34 @@ public interface SalesReportDetailRepository extends JpaRepository<SalesReportDe
            "AND srd.salesReport.year = :year")
     List<SalesReportDetail> findByMonthAndYear(@Param("month") int month, @Param("year") int year);
 
-    // Tạo chi tiết báo cáo cho tất cả đại lý theo tháng và năm
-    @Query(value = "INSERT INTO sales_report_detail (agent_id, sales_report_id, quantity_export, total_amount, ratio) " +
+    // Thêm chi tiết báo cáo cho tất cả đại lý trong khoảng ngày [start, end) của tháng báo cáo, trả về số dòng đã thêm
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO sales_report_detail (agent, sales_report_id, export_count, total_amount, paid_amount, ratio) " +
            "SELECT a.agent_id, sr.sales_report_id, " +
-           "COALESCE(COUNT(er.export_receipt_id), 0), " +
+           "COUNT(er.export_receipt_id), " +
            "COALESCE(SUM(er.total_amount), 0), " +
+           "COALESCE(SUM(er.paid_amount), 0), " +
            "COALESCE(SUM(er.total_amount) * 100.0 / NULLIF((SELECT SUM(total_amount) FROM export_receipt " +
-           "WHERE MONTH(create_date) = :month AND YEAR(create_date) = :year), 0), 0) " +
+           "WHERE create_date >= :start AND create_date < :end), 0), 0) " +
            "FROM agent a " +
            "CROSS JOIN sales_report sr " +
-           "LEFT JOIN export_receipt er ON a.agent_id = er.agent_id " +
-           "AND MONTH(er.create_date) = :month AND YEAR(er.create_date) = :year " +
+           "LEFT JOIN export_receipt er ON a.agent_id = er.agent " +
+           "AND er.create_date >= :start AND er.create_date < :end " +
            "WHERE sr.month = :month AND sr.year = :year " +
-           "GROUP BY a.agent_id, sr.sales_report_id " +
-           "RETURNING *", nativeQuery = true)
-    List<SalesReportDetail> createSalesReportDetails(@Param("month") int month, @Param("year") int year);
+           "GROUP BY a.agent_id, sr.sales_report_id", nativeQuery = true)
+    int insertSalesReportDetails(@Param("month") int month, @Param("year") int year,
+                                 @Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    // Tạo chi tiết báo cáo cho tất cả đại lý rồi đọc lại các dòng vừa thêm
+    default List<SalesReportDetail> createSalesReportDetails(int month, int year) {
+        insertSalesReportDetails(month, year, MonthRange.start(month, year), MonthRange.end(month, year));
+        return findByMonthAndYear(month, year);
+    }
+
+    /**
+     * Một trang chi tiết báo cáo doanh số kèm báo cáo và đại lý trong cùng câu truy vấn, theo ID tăng dần sau afterId;
+     * pageable chỉ dùng làm giới hạn số dòng
+     */
+    @Query("SELECT srd FROM SalesReportDetail srd LEFT JOIN FETCH srd.salesReport LEFT JOIN FETCH srd.agent a LEFT JOIN FETCH a.agentType LEFT JOIN FETCH a.district WHERE srd.salesReportDetailId > :afterId ORDER BY srd.salesReportDetailId")
+    List<SalesReportDetail> findPageAfter(@Param("afterId") int afterId, Pageable pageable);
 }
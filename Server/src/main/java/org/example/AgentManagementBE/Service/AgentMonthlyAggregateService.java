@@ -0,0 +1,149 @@
+package org.example.AgentManagementBE.Service;
+
+import org.example.AgentManagementBE.DTO.response.AggregateRebuildResponse;
+import org.example.AgentManagementBE.Model.AgentMonthlyAggregate;
+import org.example.AgentManagementBE.Repository.AgentMonthlyAggregateRepository;
+import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.exception.AppException;
+import org.example.AgentManagementBE.exception.ErrorCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Duy trì bảng tổng hợp theo đại lý và tháng (AgentMonthlyAggregate).
+ * Các service phiếu xuất/phiếu thu gọi recordExport/recordPayment trong cùng giao dịch với thay đổi phiếu,
+ * các báo cáo đọc một dòng qua getAggregate thay vì cộng lại từ phiếu.
+ */
+@Service
+public class AgentMonthlyAggregateService {
+    private static final Logger logger = LoggerFactory.getLogger(AgentMonthlyAggregateService.class);
+
+    private final AgentMonthlyAggregateRepository agentMonthlyAggregateRepository;
+    private final AgentRepository agentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int parallelism;
+
+    @Autowired
+    public AgentMonthlyAggregateService(AgentMonthlyAggregateRepository agentMonthlyAggregateRepository,
+                                        AgentRepository agentRepository,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${aggregate.rebuild.chunk-size:200}") int chunkSize,
+                                        @Value("${aggregate.rebuild.parallelism:3}") int parallelism) {
+        this.agentMonthlyAggregateRepository = agentMonthlyAggregateRepository;
+        this.agentRepository = agentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Ghi nhận chênh lệch của phiếu xuất vào dòng tổng hợp của đại lý trong tháng
+     * @param agentId ID của đại lý
+     * @param monthYear Tháng/năm của phiếu
+     * @param exportCount Chênh lệch số phiếu (1 khi tạo, -1 khi xóa, 0 khi sửa)
+     * @param totalAmount Chênh lệch tổng trị giá
+     * @param paidAmount Chênh lệch số tiền đã trả
+     * @param remainingAmount Chênh lệch số tiền còn lại
+     */
+    public void recordExport(int agentId, YearMonth monthYear, int exportCount, int totalAmount,
+                             int paidAmount, int remainingAmount) {
+        if (exportCount == 0 && totalAmount == 0 && paidAmount == 0 && remainingAmount == 0) {
+            return;
+        }
+        agentMonthlyAggregateRepository.applyDelta(agentId, monthYear, exportCount, totalAmount,
+            paidAmount, remainingAmount, 0);
+    }
+
+    /**
+     * Ghi nhận chênh lệch tiền thu vào dòng tổng hợp của đại lý trong tháng
+     * @param agentId ID của đại lý
+     * @param monthYear Tháng/năm của phiếu thu
+     * @param revenue Chênh lệch số tiền thu
+     */
+    public void recordPayment(int agentId, YearMonth monthYear, int revenue) {
+        if (revenue == 0) {
+            return;
+        }
+        agentMonthlyAggregateRepository.applyDelta(agentId, monthYear, 0, 0, 0, 0, revenue);
+    }
+
+    /**
+     * Lấy dòng tổng hợp của đại lý trong tháng, trả về dòng toàn số 0 nếu tháng đó chưa có phiếu
+     * @param agentId ID của đại lý
+     * @param monthYear Tháng/năm cần lấy
+     * @return Dòng tổng hợp (không gắn với persistence context nếu chưa có)
+     */
+    public AgentMonthlyAggregate getAggregate(int agentId, YearMonth monthYear) {
+        return agentMonthlyAggregateRepository
+            .findByAgentAndMonthAndYear(agentId, monthYear.getMonthValue(), monthYear.getYear())
+            .orElseGet(() -> new AgentMonthlyAggregate(monthYear.getMonthValue(), monthYear.getYear()));
+    }
+
+    /**
+     * Tính lại bảng tổng hợp nếu bảng còn trống, ví dụ ngay sau lần triển khai đầu tiên
+     * khi ddl-auto=update vừa tạo bảng rỗng trên cơ sở dữ liệu đã có phiếu
+     * @return true nếu đã tính lại
+     */
+    public boolean rebuildIfEmpty() {
+        if (agentMonthlyAggregateRepository.count() > 0) {
+            return false;
+        }
+        logger.info("Bảng tổng hợp đang trống, tính lại từ phiếu xuất và phiếu thu");
+        rebuildAll();
+        return true;
+    }
+
+    /**
+     * Tính lại toàn bộ bảng tổng hợp từ phiếu xuất và phiếu thu.
+     * Danh sách đại lý được chia thành các nhóm, mỗi nhóm chạy trong một giao dịch riêng trên một luồng của pool.
+     * @return Số đại lý, số nhóm, số dòng đã ghi và thời gian chạy
+     */
+    public AggregateRebuildResponse rebuildAll() {
+        long start = System.currentTimeMillis();
+        List<Integer> agentIds = agentRepository.findAllAgentIds();
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < agentIds.size(); from += chunkSize) {
+            chunks.add(agentIds.subList(from, Math.min(from + chunkSize, agentIds.size())));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, chunks.size())));
+        int rowCount = 0;
+        try {
+            List<Future<Integer>> results = new ArrayList<>(chunks.size());
+            for (List<Integer> chunk : chunks) {
+                results.add(executor.submit(() -> transactionTemplate.execute(
+                    status -> agentMonthlyAggregateRepository.rebuildForAgents(chunk))));
+            }
+            for (Future<Integer> result : results) {
+                rowCount += result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(ErrorCode.INTERNAL_SERVER_ERROR, "Tính lại bảng tổng hợp bị gián đoạn");
+        } catch (ExecutionException e) {
+            logger.error("Tính lại bảng tổng hợp thất bại", e.getCause());
+            throw new AppException(ErrorCode.INTERNAL_SERVER_ERROR, "Tính lại bảng tổng hợp thất bại: " + e.getCause().getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        logger.info("Tính lại bảng tổng hợp: {} đại lý, {} nhóm, {} dòng trong {} ms",
+            agentIds.size(), chunks.size(), rowCount, elapsed);
+        return new AggregateRebuildResponse(agentIds.size(), chunks.size(), rowCount, elapsed);
+    }
+}
@@ -4,6 +4,7 @@ import org.example.AgentManagementBE.Model.*;
 import org.example.AgentManagementBE.Repository.*;
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
 import org.example.AgentManagementBE.DTO.request.UpdateAgentRequest;
+import org.example.AgentManagementBE.DTO.response.DebtLimitViolation;
 import org.example.AgentManagementBE.exception.AppException;
 import org.example.AgentManagementBE.exception.ErrorCode;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +16,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.Optional;
 
 /**
  * Service xử lý logic liên quan đến đại lý
@@ -22,34 +24,31 @@ import java.util.ArrayList;
 @Service
 public class AgentService {
     private final AgentRepository agentRepository;
-    private final AgentTypeRepository agentTypeRepository;
-    private final DistrictRepository districtRepository;
-    private final ParameterRepository parameterRepository;
     private final DebtReportRepository debtReportRepository;
     private final ExportDetailRepository exportDetailRepository;
     private final ExportReceiptRepository exportReceiptRepository;
     private final PaymentReceiptRepository paymentReceiptRepository;
     private final SalesReportDetailRepository salesReportDetailRepository;
+    private final ReferenceDataCache referenceDataCache;
+    private final ParameterService parameterService;
 
     @Autowired
     public AgentService(AgentRepository agentRepository,
-                        AgentTypeRepository agentTypeRepository,
-                        DistrictRepository districtRepository,
-                        ParameterRepository parameterRepository,
                         DebtReportRepository debtReportRepository,
                         ExportDetailRepository exportDetailRepository,
                         ExportReceiptRepository exportReceiptRepository,
                         PaymentReceiptRepository paymentReceiptRepository,
-                        SalesReportDetailRepository salesReportDetailRepository) {
+                        SalesReportDetailRepository salesReportDetailRepository,
+                        ReferenceDataCache referenceDataCache,
+                        ParameterService parameterService) {
         this.agentRepository = agentRepository;
-        this.agentTypeRepository = agentTypeRepository;
-        this.districtRepository = districtRepository;
-        this.parameterRepository = parameterRepository;
         this.debtReportRepository = debtReportRepository;
         this.exportDetailRepository = exportDetailRepository;
         this.exportReceiptRepository = exportReceiptRepository;
         this.paymentReceiptRepository = paymentReceiptRepository;
         this.salesReportDetailRepository = salesReportDetailRepository;
+        this.referenceDataCache = referenceDataCache;
+        this.parameterService = parameterService;
     }
 
     /**
@@ -76,11 +75,11 @@ public class AgentService {
             throw new AppException(ErrorCode.AGENT_ALREADY_EXISTS);
         }
 
-        District existingDistrict = districtRepository.findByDistrictName(agent.getDistrict().getDistrictName())
+        District existingDistrict = referenceDataCache.findDistrictByName(agent.getDistrict().getDistrictName())
             .orElseThrow(() -> new AppException(ErrorCode.AGENT_DISTRICT_NOT_FOUND));
         agent.setDistrict(existingDistrict);
 
-        AgentType existingAgentType = agentTypeRepository.findByAgentTypeName(agent.getAgentType().getAgentTypeName())
+        AgentType existingAgentType = referenceDataCache.findAgentTypeByName(agent.getAgentType().getAgentTypeName())
             .orElseThrow(() -> new AppException(ErrorCode.AGENT_TYPE_NOT_FOUND));
         agent.setAgentType(existingAgentType);
 
@@ -100,13 +99,11 @@ public class AgentService {
                     agent.getDebtMoney(), existingAgentType.getMaximumDebt(), existingAgentType.getAgentTypeName()));
         }
         
-        Parameter maxAgentParam = parameterRepository.findByParamKey("max_agent_per_district");
-        if (maxAgentParam == null) {
-            throw new AppException(ErrorCode.PARAMETER_NOT_FOUND);
-        }
+        String maxAgentValue = parameterService.findValue("max_agent_per_district")
+            .orElseThrow(() -> new AppException(ErrorCode.PARAMETER_NOT_FOUND));
         
         long n = agentRepository.countByDistrictId(agent.getDistrict().getDistrictId());
-        long maxAgents = Long.parseLong(maxAgentParam.getParamValue());
+        long maxAgents = Long.parseLong(maxAgentValue);
         if (n >= maxAgents) {
             throw new AppException(ErrorCode.AGENT_MAX_LIMIT_REACHED);
         }
@@ -167,25 +164,54 @@ public class AgentService {
         Agent existingAgent = agentRepository.findAgentWithDebt(agentId)
             .orElseThrow(() -> new AppException(ErrorCode.AGENT_NOT_FOUND));
 
-        AgentType agentType = agentTypeRepository.findById(existingAgent.getAgentType().getAgentTypeId())
-            .orElseThrow(() -> new AppException(ErrorCode.AGENT_TYPE_NOT_FOUND));
-
-        // Kiểm tra số tiền nợ mới không vượt quá giới hạn
-        if (debtMoney > agentType.getMaximumDebt()) {
-            throw new AppException(ErrorCode.AGENT_DEBT_LIMIT_EXCEEDED, 
-                String.format("Số tiền nợ %d vượt quá giới hạn tối đa %d của loại đại lý '%s'", 
-                    debtMoney, agentType.getMaximumDebt(), agentType.getAgentTypeName()));
+        // So sánh và đặt trong một câu UPDATE: phiếu xuất/thu đồng thời làm nợ thay đổi thì không ghi đè
+        Integer oldDebtMoney = existingAgent.getDebtMoney();
+        if (agentRepository.setDebtMoneyIfUnchanged(agentId, oldDebtMoney, debtMoney) == 0) {
+            Agent current = agentRepository.findAgentWithDebt(agentId)
+                .orElseThrow(() -> new AppException(ErrorCode.AGENT_NOT_FOUND));
+            if (!current.getDebtMoney().equals(oldDebtMoney)) {
+                throw new AppException(ErrorCode.DATA_INTEGRITY_VIOLATION,
+                    "Số tiền nợ của đại lý vừa được thay đổi bởi giao dịch khác, vui lòng thử lại");
+            }
+            AgentType agentType = current.getAgentType();
+            throw new DebtLimitViolation(DebtLimitViolation.AGENT_DEBT_LIMIT_EXCEEDED, current.getAgentId(),
+                current.getAgentName(), oldDebtMoney, debtMoney - oldDebtMoney, agentType.getMaximumDebt(),
+                agentType.getAgentTypeName()).toAppException();
         }
 
-        Integer oldDebtMoney = existingAgent.getDebtMoney();
-        existingAgent.setDebtMoney(debtMoney);
-        Agent updatedAgent = agentRepository.save(existingAgent);
+        Agent updatedAgent = agentRepository.findAgentWithDebt(agentId)
+            .orElseThrow(() -> new AppException(ErrorCode.AGENT_NOT_FOUND));
         
         return ApiResponse.success(
             String.format("Cập nhật số tiền nợ thành công: %d → %d", oldDebtMoney, debtMoney), 
             updatedAgent);
     }
 
+    /**
+     * Cộng/trừ nợ của đại lý bằng một câu UPDATE duy nhất, kiểm tra giới hạn nợ ngay trong SQL
+     * @param agentId ID của đại lý
+     * @param delta Số tiền nợ thay đổi (dương: tăng nợ, âm: giảm nợ)
+     * @param enforceLimit Có kiểm tra giới hạn nợ tối đa của loại đại lý khi tăng nợ hay không
+     * @return Optional rỗng nếu cập nhật thành công, ngược lại chứa thông tin vi phạm
+     */
+    @Transactional
+    public Optional<DebtLimitViolation> applyDebtDelta(Integer agentId, Integer delta, boolean enforceLimit) {
+        if (agentRepository.applyDebtDelta(agentId, delta, enforceLimit) == 1) {
+            return Optional.empty();
+        }
+
+        // Không có dòng nào được cập nhật: đọc lại để xác định nguyên nhân
+        Agent agent = agentRepository.findAgentWithDebt(agentId)
+            .orElseThrow(() -> new AppException(ErrorCode.AGENT_NOT_FOUND));
+        AgentType agentType = agent.getAgentType();
+        String violationType = agent.getDebtMoney() + delta < 0
+            ? DebtLimitViolation.AGENT_DEBT_BELOW_ZERO
+            : DebtLimitViolation.AGENT_DEBT_LIMIT_EXCEEDED;
+
+        return Optional.of(new DebtLimitViolation(violationType, agent.getAgentId(), agent.getAgentName(),
+            agent.getDebtMoney(), delta, agentType.getMaximumDebt(), agentType.getAgentTypeName()));
+    }
+
     /**
      * Lấy thông tin nợ của đại lý
      */
@@ -193,7 +219,7 @@ public class AgentService {
         Agent agent = agentRepository.findAgentWithDebt(agentId)
             .orElseThrow(() -> new AppException(ErrorCode.AGENT_NOT_FOUND));
         
-        Integer maxDebt = agentTypeRepository.findById(agent.getAgentType().getAgentTypeId())
+        Integer maxDebt = referenceDataCache.findAgentTypeById(agent.getAgentType().getAgentTypeId())
             .orElseThrow(() -> new AppException(ErrorCode.AGENT_TYPE_NOT_FOUND))
             .getMaximumDebt();
         Integer remainingDebt = maxDebt - agent.getDebtMoney();
@@ -235,7 +261,7 @@ public class AgentService {
 
         // 4. Cập nhật loại đại lý (cần validate với debtMoney)
         if (request.getAgentTypeName() != null && !request.getAgentTypeName().trim().isEmpty()) {
-            AgentType newAgentType = agentTypeRepository.findByAgentTypeName(request.getAgentTypeName().trim())
+            AgentType newAgentType = referenceDataCache.findAgentTypeByName(request.getAgentTypeName().trim())
                 .orElseThrow(() -> new AppException(ErrorCode.AGENT_TYPE_NOT_FOUND, 
                     "Không tìm thấy loại đại lý: " + request.getAgentTypeName()));
             
@@ -250,16 +276,16 @@ public class AgentService {
 
         // 5. Cập nhật quận (cần validate số lượng agent tối đa)
         if (request.getDistrictName() != null && !request.getDistrictName().trim().isEmpty()) {
-            District newDistrict = districtRepository.findByDistrictName(request.getDistrictName().trim())
+            District newDistrict = referenceDataCache.findDistrictByName(request.getDistrictName().trim())
                 .orElseThrow(() -> new AppException(ErrorCode.AGENT_DISTRICT_NOT_FOUND,
                     "Không tìm thấy quận: " + request.getDistrictName()));
             
             // Chỉ validate nếu thay đổi quận
             if (!existingAgent.getDistrict().getDistrictId().equals(newDistrict.getDistrictId())) {
-                Parameter maxAgentParam = parameterRepository.findByParamKey("max_agent_per_district");
-                if (maxAgentParam != null) {
+                Optional<String> maxAgentValue = parameterService.findValue("max_agent_per_district");
+                if (maxAgentValue.isPresent()) {
                     long currentAgentsInNewDistrict = agentRepository.countByDistrictId(newDistrict.getDistrictId());
-                    long maxAgents = Long.parseLong(maxAgentParam.getParamValue());
+                    long maxAgents = Long.parseLong(maxAgentValue.get());
                     
                     if (currentAgentsInNewDistrict >= maxAgents) {
                         throw new AppException(ErrorCode.AGENT_MAX_LIMIT_REACHED,
@@ -302,14 +328,14 @@ public class AgentService {
 
         // Validate và set District
         if (updatedAgent.getDistrict() != null && updatedAgent.getDistrict().getDistrictName() != null) {
-            District district = districtRepository.findByDistrictName(updatedAgent.getDistrict().getDistrictName())
+            District district = referenceDataCache.findDistrictByName(updatedAgent.getDistrict().getDistrictName())
                 .orElseThrow(() -> new AppException(ErrorCode.AGENT_DISTRICT_NOT_FOUND));
             existingAgent.setDistrict(district);
         }
 
         // Validate và set AgentType
         if (updatedAgent.getAgentType() != null && updatedAgent.getAgentType().getAgentTypeName() != null) {
-            AgentType agentType = agentTypeRepository.findByAgentTypeName(updatedAgent.getAgentType().getAgentTypeName())
+            AgentType agentType = referenceDataCache.findAgentTypeByName(updatedAgent.getAgentType().getAgentTypeName())
                 .orElseThrow(() -> new AppException(ErrorCode.AGENT_TYPE_NOT_FOUND));
             
             // Kiểm tra debtMoney với maxDebt của AgentType mới
@@ -19,10 +19,13 @@ import java.util.List;
 public class AgentTypeService {
     private final AgentTypeRepository agentTypeRepository;
     private final AgentRepository agentRepository;
+    private final ReferenceDataCache referenceDataCache;
     
-    public AgentTypeService(AgentTypeRepository agentTypeRepository, AgentRepository agentRepository) {
+    public AgentTypeService(AgentTypeRepository agentTypeRepository, AgentRepository agentRepository,
+                            ReferenceDataCache referenceDataCache) {
         this.agentTypeRepository = agentTypeRepository;
         this.agentRepository = agentRepository;
+        this.referenceDataCache = referenceDataCache;
     }
 
     /**
@@ -30,7 +33,7 @@ public class AgentTypeService {
      * @return ApiResponse chứa danh sách loại đại lý
      */
     public ApiResponse<Iterable<AgentType>> getAllAgentTypes() {
-        Iterable<AgentType> agentTypes = agentTypeRepository.findAll();
+        Iterable<AgentType> agentTypes = referenceDataCache.getAgentTypes();
         if (!agentTypes.iterator().hasNext()) {
             throw new AppException(ErrorCode.AGENT_TYPE_NOT_FOUND, "Không có loại đại lý nào trong hệ thống");
         }
@@ -58,6 +61,7 @@ public class AgentTypeService {
         }
 
         AgentType savedAgentType = agentTypeRepository.save(newAgentType);
+        referenceDataCache.reloadAfterCommit();
         return ApiResponse.created("Thêm loại đại lý thành công", savedAgentType);
     }
 
@@ -92,6 +96,7 @@ public class AgentTypeService {
 
         existingAgentType.setMaximumDebt(newAgentType.getMaximumDebt());
         AgentType updatedAgentType = agentTypeRepository.save(existingAgentType);
+        referenceDataCache.reloadAfterCommit();
         return ApiResponse.success("Cập nhật loại đại lý thành công", updatedAgentType);
     }
 
@@ -103,7 +108,7 @@ public class AgentTypeService {
             throw new AppException(ErrorCode.BAD_REQUEST);
         }
 
-        AgentType agentType = agentTypeRepository.findByAgentTypeName(agentTypeName)
+        AgentType agentType = referenceDataCache.findAgentTypeByName(agentTypeName)
                 .orElseThrow(() -> new AppException(ErrorCode.AGENT_TYPE_NOT_FOUND));
         
         return ApiResponse.success("Lấy thông tin loại đại lý thành công", agentType);
@@ -128,6 +133,7 @@ public class AgentTypeService {
         }
 
         agentTypeRepository.delete(existingAgentType);
+        referenceDataCache.reloadAfterCommit();
         return ApiResponse.success("Xóa loại đại lý thành công", null);
     }
 }
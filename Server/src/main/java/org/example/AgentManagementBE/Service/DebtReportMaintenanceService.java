@@ -0,0 +1,80 @@
+package org.example.AgentManagementBE.Service;
+
+import org.example.AgentManagementBE.DTO.response.DebtReportVerificationResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+
+/**
+ * Cập nhật báo cáo công nợ khi phiếu xuất/phiếu thu thay đổi.
+ * Chế độ "incremental" cộng chênh lệch vào báo cáo bằng một câu UPDATE trong cùng giao dịch,
+ * chế độ "recompute" đưa cặp (đại lý, tháng) vào hàng đợi tính lại toàn bộ sau khi commit.
+ */
+@Service
+public class DebtReportMaintenanceService {
+    private static final Logger logger = LoggerFactory.getLogger(DebtReportMaintenanceService.class);
+
+    public static final String MODE_INCREMENTAL = "incremental";
+    public static final String MODE_RECOMPUTE = "recompute";
+
+    private final DebtReportService debtReportService;
+    private final DebtReportRecalculationQueue debtReportRecalculationQueue;
+    private final String mode;
+    private final boolean repairOnVerify;
+
+    @Autowired
+    public DebtReportMaintenanceService(DebtReportService debtReportService,
+                                        DebtReportRecalculationQueue debtReportRecalculationQueue,
+                                        @Value("${debt-report.maintenance.mode:incremental}") String mode,
+                                        @Value("${debt-report.verification.repair:false}") boolean repairOnVerify) {
+        this.debtReportService = debtReportService;
+        this.debtReportRecalculationQueue = debtReportRecalculationQueue;
+        this.mode = mode;
+        this.repairOnVerify = repairOnVerify;
+    }
+
+    /**
+     * Ghi nhận thay đổi công nợ của đại lý trong tháng
+     * @param agentId ID của đại lý
+     * @param monthYear Tháng/năm của phiếu
+     * @param delta Chênh lệch phát sinh (dương khi xuất hàng, âm khi thu tiền)
+     */
+    public void recordChange(int agentId, YearMonth monthYear, int delta) {
+        if (MODE_RECOMPUTE.equalsIgnoreCase(mode)) {
+            debtReportRecalculationQueue.enqueue(agentId, monthYear);
+        } else if (delta != 0) {
+            debtReportService.applyArisenDebtDelta(agentId, monthYear, delta);
+        }
+    }
+
+    /**
+     * Đối soát báo cáo công nợ tháng hiện tại và tháng trước theo lịch, ghi log các báo cáo bị lệch
+     */
+    @Scheduled(cron = "${debt-report.verification.cron:0 30 2 * * *}")
+    public void verifyRecentMonths() {
+        YearMonth current = YearMonth.now();
+        verifyAndLog(current.minusMonths(1));
+        verifyAndLog(current);
+    }
+
+    private void verifyAndLog(YearMonth monthYear) {
+        DebtReportVerificationResponse result = debtReportService.verifyDebtReports(
+            monthYear.getMonthValue(), monthYear.getYear(), repairOnVerify);
+        if (result.getDrifts().isEmpty()) {
+            logger.info("Đối soát công nợ {}: {} đại lý, không có sai lệch", monthYear, result.getCheckedCount());
+            return;
+        }
+        logger.warn("Đối soát công nợ {}: {}/{} báo cáo bị lệch{}", monthYear, result.getDrifts().size(),
+            result.getCheckedCount(), result.getRepaired() ? ", đã sửa" : "");
+        for (DebtReportVerificationResponse.DebtReportDrift drift : result.getDrifts()) {
+            logger.warn("  Đại lý {}: phát sinh {} (đúng {}), nợ cuối {} (đúng {})", drift.getAgentId(),
+                drift.getActualArisenDebt(), drift.getExpectedArisenDebt(),
+                drift.getActualLastDebt(), drift.getExpectedLastDebt());
+        }
+    }
+}
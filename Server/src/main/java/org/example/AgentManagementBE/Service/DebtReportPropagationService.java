@@ -0,0 +1,173 @@
+package org.example.AgentManagementBE.Service;
+
+import org.example.AgentManagementBE.DTO.response.DebtReportBalance;
+import org.example.AgentManagementBE.Repository.DebtReportRepository;
+import org.example.AgentManagementBE.Repository.DebtReportRepositoryCustom.DebtShift;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lan truyền thay đổi nợ cuối kỳ của một tháng sang các báo cáo công nợ các tháng sau.
+ * Dùng khi phiếu xuất/phiếu thu được ghi lùi ngày vào một tháng đã có báo cáo ở các tháng sau.
+ */
+@Service
+public class DebtReportPropagationService {
+    /**
+     * Số báo cáo đọc khi nối lại chuỗi: báo cáo liền trước, báo cáo của tháng thay đổi và báo cáo kế tiếp.
+     * Các báo cáo xa hơn đã được dời cùng một lượng nên vẫn khớp nhau, không cần đọc lại
+     */
+    static final int CHAIN_WINDOW = 3;
+
+    private final DebtReportRepository debtReportRepository;
+
+    @Autowired
+    public DebtReportPropagationService(DebtReportRepository debtReportRepository) {
+        this.debtReportRepository = debtReportRepository;
+    }
+
+    /**
+     * Dời nợ đầu kỳ/nợ cuối kỳ của mọi báo cáo sau tháng chỉ định bằng một câu UPDATE theo khoảng,
+     * sau đó nối lại chuỗi báo cáo: chèn các tháng bị thiếu và sửa các tháng có nợ đầu kỳ
+     * không khớp nợ cuối kỳ tháng trước.
+     * @param agentId ID của đại lý
+     * @param fromMonth Tháng vừa thay đổi nợ cuối kỳ
+     * @param delta Chênh lệch nợ cuối kỳ của tháng đó
+     */
+    @Transactional
+    public void propagateForward(int agentId, YearMonth fromMonth, int delta) {
+        YearMonth nextMonth = fromMonth.plusMonths(1);
+        if (delta != 0) {
+            debtReportRepository.shiftDebtFromMonth(agentId, nextMonth.getMonthValue(), nextMonth.getYear(), delta);
+        }
+        relinkChain(agentId, fromMonth);
+    }
+
+    /**
+     * Duyệt CHAIN_WINDOW báo cáo của đại lý bắt đầu từ báo cáo gần nhất trước tháng chỉ định,
+     * đảm bảo nợ đầu kỳ mỗi tháng bằng nợ cuối kỳ tháng liền trước và không có tháng bị thiếu.
+     * Mỗi lần sửa là một câu UPDATE theo khoảng nên phần chuỗi phía sau vẫn được dời theo
+     */
+    private void relinkChain(int agentId, YearMonth fromMonth) {
+        List<DebtReportBalance> chain = debtReportRepository.findChainFromMonth(
+            agentId, fromMonth.getMonthValue(), fromMonth.getYear(), PageRequest.of(0, CHAIN_WINDOW));
+        if (chain.size() < 2) {
+            return;
+        }
+
+        Map<YearMonth, Integer> missingMonths = new LinkedHashMap<>();
+        // Tổng các lần dời đã áp dụng cho các báo cáo phía sau trong lần duyệt này
+        int offset = 0;
+        DebtReportBalance previous = chain.get(0);
+        YearMonth previousMonth = YearMonth.of(previous.getYear(), previous.getMonth());
+        int carriedDebt = previous.getLastDebt();
+
+        for (DebtReportBalance current : chain.subList(1, chain.size())) {
+            YearMonth currentMonth = YearMonth.of(current.getYear(), current.getMonth());
+            for (YearMonth gap = previousMonth.plusMonths(1); gap.isBefore(currentMonth); gap = gap.plusMonths(1)) {
+                missingMonths.put(gap, carriedDebt);
+            }
+
+            int firstDebt = current.getFirstDebt() + offset;
+            if (firstDebt != carriedDebt) {
+                int correction = carriedDebt - firstDebt;
+                debtReportRepository.shiftDebtFromMonth(
+                    agentId, currentMonth.getMonthValue(), currentMonth.getYear(), correction);
+                offset += correction;
+            }
+
+            carriedDebt = current.getLastDebt() + offset;
+            previousMonth = currentMonth;
+        }
+
+        // Chèn sau cùng để các câu UPDATE theo khoảng ở trên không dời thêm lần nữa
+        debtReportRepository.batchInsertCarriedMonths(Map.of(agentId, missingMonths));
+    }
+
+    /**
+     * Lan truyền cho nhiều đại lý cùng một tháng (chốt công nợ) bằng một số câu lệnh cố định thay vì theo từng đại lý:
+     * một batch dời các tháng sau, hai câu truy vấn gộp lấy báo cáo liền trước và liền sau tháng đó,
+     * một batch sửa các mắt xích lệch và một batch chèn các tháng bị thiếu.
+     * Kết quả giống gọi propagateForward cho từng đại lý.
+     * @param fromMonth Tháng vừa ghi báo cáo
+     * @param written Số dư vừa ghi của tháng đó
+     * @param deltaByAgent Chênh lệch nợ cuối kỳ theo đại lý, chỉ các đại lý có trong map được lan truyền
+     */
+    @Transactional
+    public void propagateForwardAll(YearMonth fromMonth, List<DebtReportBalance> written,
+                                    Map<Integer, Integer> deltaByAgent) {
+        if (deltaByAgent.isEmpty()) {
+            return;
+        }
+        YearMonth nextMonth = fromMonth.plusMonths(1);
+        List<DebtShift> shifts = new ArrayList<>();
+        deltaByAgent.forEach((agentId, delta) -> {
+            if (delta != 0) {
+                shifts.add(new DebtShift(agentId, nextMonth, delta));
+            }
+        });
+        debtReportRepository.batchShiftDebtFromMonth(shifts);
+
+        // Đọc sau khi dời: báo cáo liền sau đã mang chênh lệch
+        Map<Integer, DebtReportBalance> previousByAgent = toBalanceMap(debtReportRepository.findNearestBalancesBefore(fromMonth));
+        Map<Integer, DebtReportBalance> nextByAgent = toBalanceMap(debtReportRepository.findNearestBalancesAfter(fromMonth));
+        List<DebtShift> corrections = new ArrayList<>();
+        Map<Integer, Map<YearMonth, Integer>> missingMonths = new LinkedHashMap<>();
+        for (DebtReportBalance current : written) {
+            int agentId = current.getAgentId();
+            if (!deltaByAgent.containsKey(agentId)) {
+                continue;
+            }
+            // Chênh lệch đã dời cho tháng vừa ghi và các tháng sau trong lần duyệt này
+            int offset = 0;
+            DebtReportBalance previous = previousByAgent.get(agentId);
+            if (previous != null) {
+                int carriedDebt = previous.getLastDebt();
+                addMissingMonths(missingMonths, agentId, monthOf(previous), fromMonth, carriedDebt);
+                if (current.getFirstDebt() != carriedDebt) {
+                    offset = carriedDebt - current.getFirstDebt();
+                    corrections.add(new DebtShift(agentId, fromMonth, offset));
+                }
+            }
+            DebtReportBalance next = nextByAgent.get(agentId);
+            if (next != null) {
+                int carriedDebt = current.getLastDebt() + offset;
+                addMissingMonths(missingMonths, agentId, fromMonth, monthOf(next), carriedDebt);
+                int firstDebt = next.getFirstDebt() + offset;
+                if (firstDebt != carriedDebt) {
+                    corrections.add(new DebtShift(agentId, monthOf(next), carriedDebt - firstDebt));
+                }
+            }
+        }
+        debtReportRepository.batchShiftDebtFromMonth(corrections);
+        // Chèn sau cùng để các lần dời ở trên không dời thêm lần nữa
+        debtReportRepository.batchInsertCarriedMonths(missingMonths);
+    }
+
+    private static void addMissingMonths(Map<Integer, Map<YearMonth, Integer>> missingMonths, int agentId,
+                                         YearMonth after, YearMonth before, int carriedDebt) {
+        for (YearMonth gap = after.plusMonths(1); gap.isBefore(before); gap = gap.plusMonths(1)) {
+            missingMonths.computeIfAbsent(agentId, key -> new LinkedHashMap<>()).put(gap, carriedDebt);
+        }
+    }
+
+    private static YearMonth monthOf(DebtReportBalance balance) {
+        return YearMonth.of(balance.getYear(), balance.getMonth());
+    }
+
+    private static Map<Integer, DebtReportBalance> toBalanceMap(List<DebtReportBalance> balances) {
+        Map<Integer, DebtReportBalance> result = new HashMap<>();
+        for (DebtReportBalance balance : balances) {
+            result.put(balance.getAgentId(), balance);
+        }
+        return result;
+    }
+}
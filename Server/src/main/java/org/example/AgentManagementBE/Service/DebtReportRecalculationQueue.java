@@ -0,0 +1,223 @@
+package org.example.AgentManagementBE.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Hàng đợi tính lại báo cáo công nợ theo cặp (đại lý, tháng).
+ * Các phiếu xuất/thu chỉ đánh dấu cặp cần tính lại sau khi giao dịch commit;
+ * worker nền gom các lần đánh dấu trùng và tính lại mỗi cặp đúng một lần.
+ * Cặp tính lại lỗi được giữ lại trong hàng đợi và thử lại sau thời gian chờ tăng gấp đôi mỗi lần,
+ * tối đa debt-report.recalculation.max-attempts lần; sau đó chỉ còn đối soát định kỳ sửa được.
+ */
+@Service
+public class DebtReportRecalculationQueue {
+    private static final Logger logger = LoggerFactory.getLogger(DebtReportRecalculationQueue.class);
+
+    private final DebtReportService debtReportService;
+
+    // Cặp (đại lý, tháng) đang chờ tính lại → thời điểm đánh dấu lần đầu, số lần đã thử và lúc được thử lại
+    private final Map<Key, Pending> pending = new ConcurrentHashMap<>();
+    private final Object drainLock = new Object();
+    private final int maxAttempts;
+    private final long retryBackoffNanos;
+
+    private final Counter enqueuedCounter;
+    private final Counter coalescedCounter;
+    private final Counter failedCounter;
+    private final Counter abandonedCounter;
+    private final Timer lagTimer;
+    private final Timer recalculationTimer;
+
+    @Autowired
+    public DebtReportRecalculationQueue(DebtReportService debtReportService,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${debt-report.recalculation.max-attempts:10}") int maxAttempts,
+                                        @Value("${debt-report.recalculation.retry-backoff-ms:1000}") long retryBackoffMs) {
+        this.debtReportService = debtReportService;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, retryBackoffMs));
+        this.enqueuedCounter = Counter.builder("debt_report.recalculation.enqueued")
+            .description("Số lần đánh dấu cần tính lại báo cáo công nợ")
+            .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("debt_report.recalculation.coalesced")
+            .description("Số lần đánh dấu bị gộp vào một cặp đang chờ")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("debt_report.recalculation.failed")
+            .description("Số lần tính lại báo cáo công nợ thất bại")
+            .register(meterRegistry);
+        this.abandonedCounter = Counter.builder("debt_report.recalculation.abandoned")
+            .description("Số cặp bị bỏ sau khi tính lại thất bại quá số lần cho phép")
+            .register(meterRegistry);
+        this.lagTimer = Timer.builder("debt_report.recalculation.lag")
+            .description("Thời gian từ lúc đánh dấu đến lúc bắt đầu tính lại")
+            .register(meterRegistry);
+        this.recalculationTimer = Timer.builder("debt_report.recalculation.duration")
+            .description("Thời gian tính lại một báo cáo công nợ")
+            .register(meterRegistry);
+        Gauge.builder("debt_report.recalculation.queue.depth", pending, Map::size)
+            .description("Số cặp (đại lý, tháng) đang chờ tính lại")
+            .register(meterRegistry);
+        Gauge.builder("debt_report.recalculation.queue.oldest.age.seconds", this, DebtReportRecalculationQueue::oldestPendingAgeSeconds)
+            .description("Tuổi của cặp chờ lâu nhất trong hàng đợi")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Đánh dấu báo cáo công nợ của đại lý trong tháng cần tính lại.
+     * Nếu đang trong giao dịch, việc đánh dấu chỉ xảy ra sau khi commit thành công.
+     * @param agentId ID của đại lý
+     * @param monthYear Tháng/năm cần tính lại
+     */
+    public void enqueue(int agentId, YearMonth monthYear) {
+        Key key = new Key(agentId, monthYear);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markPending(key);
+                }
+            });
+        } else {
+            markPending(key);
+        }
+    }
+
+    /**
+     * Tính lại ngay tất cả các cặp đang chờ trên luồng gọi, kể cả cặp đang trong thời gian chờ thử lại.
+     * Dùng trước các thao tác đọc cần DebtReport mới nhất; nên gọi ngoài giao dịch
+     * để lỗi của một cặp không đánh dấu rollback giao dịch của người gọi.
+     */
+    public void flush() {
+        drain(true, key -> true);
+    }
+
+    /**
+     * Tính lại ngay cặp (đại lý, tháng) nếu cặp đang chờ, các cặp khác để worker nền xử lý.
+     * Dùng trước khi đọc một báo cáo; không chờ lượt xả nền nếu cặp không có trong hàng đợi.
+     * @param agentId ID của đại lý
+     * @param monthYear Tháng/năm cần đọc
+     */
+    public void flush(int agentId, YearMonth monthYear) {
+        Key key = new Key(agentId, monthYear);
+        if (pending.containsKey(key)) {
+            drain(true, key::equals);
+        }
+    }
+
+    /**
+     * Tính lại ngay các cặp đang chờ của một tháng, các tháng khác để worker nền xử lý
+     * @param monthYear Tháng/năm cần đọc
+     */
+    public void flush(YearMonth monthYear) {
+        Predicate<Key> inMonth = key -> key.monthYear().equals(monthYear);
+        if (pending.keySet().stream().anyMatch(inMonth)) {
+            drain(true, inMonth);
+        }
+    }
+
+    /**
+     * Số cặp (đại lý, tháng) đang chờ tính lại
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${debt-report.recalculation.interval-ms:500}")
+    public void drainPending() {
+        drain(false, key -> true);
+    }
+
+    private void markPending(Key key) {
+        enqueuedCounter.increment();
+        long now = System.nanoTime();
+        if (pending.putIfAbsent(key, new Pending(now, 0, now)) != null) {
+            coalescedCounter.increment();
+        }
+    }
+
+    private void drain(boolean ignoreBackoff, Predicate<Key> selected) {
+        // Chỉ một luồng được xả hàng đợi tại một thời điểm; flush() chờ lượt xả đang chạy kết thúc.
+        // Mỗi lượt chỉ xử lý các cặp có mặt lúc bắt đầu, cặp được đánh dấu lại trong lúc tính sẽ vào lượt sau.
+        synchronized (drainLock) {
+            List<Key> keys = pending.keySet().stream().filter(selected).toList();
+            for (Key key : keys) {
+                Pending entry = pending.get(key);
+                if (entry == null || (!ignoreBackoff && entry.retryAt() - System.nanoTime() > 0)) {
+                    continue;
+                }
+                pending.remove(key, entry);
+                if (entry.attempts() == 0) {
+                    lagTimer.record(System.nanoTime() - entry.enqueuedAt(), TimeUnit.NANOSECONDS);
+                }
+                if (!recalculate(key)) {
+                    retryLater(key, entry);
+                }
+            }
+        }
+    }
+
+    private boolean recalculate(Key key) {
+        long start = System.nanoTime();
+        try {
+            debtReportService.updateDebtReportForAgent(key.agentId(), key.monthYear());
+            return true;
+        } catch (RuntimeException e) {
+            failedCounter.increment();
+            logger.error("Không thể tính lại báo cáo công nợ cho đại lý {} tháng {}: {}",
+                key.agentId(), key.monthYear(), e.getMessage());
+            return false;
+        } finally {
+            recalculationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Đưa cặp lỗi trở lại hàng đợi với thời gian chờ 1, 2, 4... lần retry-backoff-ms
+     */
+    private void retryLater(Key key, Pending failed) {
+        int attempts = failed.attempts() + 1;
+        if (attempts >= maxAttempts) {
+            abandonedCounter.increment();
+            logger.error("Bỏ tính lại báo cáo công nợ cho đại lý {} tháng {} sau {} lần thất bại",
+                key.agentId(), key.monthYear(), attempts);
+            return;
+        }
+        long backoff = retryBackoffNanos << Math.min(attempts - 1, 20);
+        // Cặp được đánh dấu lại trong lúc tính thì giữ số lần đã thử để vẫn bị giới hạn
+        pending.merge(key, new Pending(failed.enqueuedAt(), attempts, System.nanoTime() + backoff),
+            (marked, retry) -> retry);
+    }
+
+    private double oldestPendingAgeSeconds() {
+        long now = System.nanoTime();
+        long oldest = now;
+        for (Pending entry : pending.values()) {
+            oldest = Math.min(oldest, entry.enqueuedAt());
+        }
+        return (now - oldest) / 1_000_000_000.0;
+    }
+
+    private record Key(int agentId, YearMonth monthYear) {
+    }
+
+    private record Pending(long enqueuedAt, int attempts, long retryAt) {
+    }
+}
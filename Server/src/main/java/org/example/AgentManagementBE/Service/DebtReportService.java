@@ -2,11 +2,16 @@ package org.example.AgentManagementBE.Service;
 
 import org.example.AgentManagementBE.Model.DebtReport;
 import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.AgentMonthlyAggregate;
 import org.example.AgentManagementBE.Repository.DebtReportRepository;
 import org.example.AgentManagementBE.Repository.AgentRepository;
 import org.example.AgentManagementBE.Repository.ExportReceiptRepository;
 import org.example.AgentManagementBE.Repository.PaymentReceiptRepository;
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
+import org.example.AgentManagementBE.DTO.response.AgentAmount;
+import org.example.AgentManagementBE.DTO.response.DebtReportBalance;
+import org.example.AgentManagementBE.DTO.response.DebtReportVerificationResponse;
+import org.example.AgentManagementBE.DTO.response.KeysetPage;
 import org.example.AgentManagementBE.exception.AppException;
 import org.example.AgentManagementBE.exception.ErrorCode;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,7 +19,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -26,16 +34,25 @@ public class DebtReportService {
     private final AgentRepository agentRepository;
     private final ExportReceiptRepository exportReceiptRepository;
     private final PaymentReceiptRepository paymentReceiptRepository;
+    private final DebtReportPropagationService debtReportPropagationService;
+    private final AgentMonthlyAggregateService agentMonthlyAggregateService;
+    private final KeysetPagination keysetPagination;
 
     @Autowired
     public DebtReportService(DebtReportRepository debtReportRepository, 
                            AgentRepository agentRepository,
                            ExportReceiptRepository exportReceiptRepository,
-                           PaymentReceiptRepository paymentReceiptRepository) {
+                           PaymentReceiptRepository paymentReceiptRepository,
+                           DebtReportPropagationService debtReportPropagationService,
+                           AgentMonthlyAggregateService agentMonthlyAggregateService,
+                           KeysetPagination keysetPagination) {
         this.debtReportRepository = debtReportRepository;
         this.agentRepository = agentRepository;
         this.exportReceiptRepository = exportReceiptRepository;
         this.paymentReceiptRepository = paymentReceiptRepository;
+        this.debtReportPropagationService = debtReportPropagationService;
+        this.agentMonthlyAggregateService = agentMonthlyAggregateService;
+        this.keysetPagination = keysetPagination;
     }
 
     /**
@@ -55,15 +72,12 @@ public class DebtReportService {
         // Tìm hoặc tạo báo cáo công nợ cho tháng này
         DebtReport debtReport = debtReportRepository.findByMonthYearAndAgent(month, year, agentId)
             .orElseGet(() -> createDebtReportForMonth(agentId, monthYear));
+        int previousLastDebt = debtReport.getLastDebt();
         
-        // Tính arisen_debt = tổng totalAmount từ ExportReceipt - tổng revenue từ PaymentReceipt
-        Integer totalExportAmount = exportReceiptRepository.getTotalMoneyByAgentAndMonthAndYear(agentId, month, year);
-        Integer totalPaymentRevenue = paymentReceiptRepository.getTotalRevenueByAgentAndMonthAndYear(agentId, month, year);
-        
-        if (totalExportAmount == null) totalExportAmount = 0;
-        if (totalPaymentRevenue == null) totalPaymentRevenue = 0;
-        
-        Integer arisenDebt = totalExportAmount - totalPaymentRevenue;
+        // Tính arisen_debt = tổng totalAmount từ ExportReceipt - tổng revenue từ PaymentReceipt,
+        // đọc sẵn từ một dòng của bảng tổng hợp theo đại lý và tháng
+        AgentMonthlyAggregate aggregate = agentMonthlyAggregateService.getAggregate(agentId, monthYear);
+        Integer arisenDebt = aggregate.getTotalAmount() - aggregate.getPaymentRevenue();
         
         // Cập nhật arisen_debt và last_debt
         debtReport.setArisenDebt(arisenDebt);
@@ -71,6 +85,9 @@ public class DebtReportService {
         
         // Lưu báo cáo
         debtReportRepository.save(debtReport);
+
+        // Lan truyền chênh lệch nợ cuối kỳ sang các tháng sau
+        debtReportPropagationService.propagateForward(agentId, monthYear, debtReport.getLastDebt() - previousLastDebt);
     }
     
     /**
@@ -175,10 +192,10 @@ public class DebtReportService {
     }
 
     /**
-     * Lấy tất cả báo cáo công nợ
+     * Lấy tất cả báo cáo công nợ (all=true), tối đa pagination.all-max-rows báo cáo
      */
     public ApiResponse<List<DebtReport>> getAllDebtReports() {
-        List<DebtReport> reports = debtReportRepository.findAll();
+        List<DebtReport> reports = keysetPagination.all(debtReportRepository::findPageAfter);
         if (reports.isEmpty()) {
             throw new AppException(ErrorCode.DEBT_REPORT_NOT_FOUND);
         }
@@ -186,25 +203,183 @@ public class DebtReportService {
     }
 
     /**
-     * Tổng hợp báo cáo công nợ theo tháng và năm
+     * Lấy một trang báo cáo công nợ theo ID tăng dần
+     * @param cursor Con trỏ nextCursor của trang trước, null cho trang đầu
+     * @param limit Số báo cáo mỗi trang, null để dùng mặc định
+     */
+    public ApiResponse<KeysetPage<DebtReport>> getDebtReportPage(String cursor, Integer limit) {
+        KeysetPage<DebtReport> page = keysetPagination.page(cursor, limit,
+            debtReportRepository::findPageAfter, DebtReport::getDebtReportId);
+        return ApiResponse.success("Lấy danh sách báo cáo công nợ thành công", page);
+    }
+
+    /**
+     * Tổng hợp báo cáo công nợ theo tháng và năm cho tất cả đại lý.
+     * Phát sinh và nợ đầu kỳ được tính bằng các câu truy vấn gộp theo đại lý,
+     * sau đó toàn bộ báo cáo được ghi bằng JDBC batch thay vì xử lý từng đại lý.
+     * Đại lý có nợ cuối kỳ thay đổi hoặc báo cáo mới tạo được lan truyền sang các tháng sau như updateDebtReportForAgent,
+     * cũng bằng một số câu lệnh cố định cho mọi đại lý.
      */
     @Transactional
     public ApiResponse<List<DebtReport>> summarizeDebtReports(Integer month, Integer year) {
-        List<Agent> agents = agentRepository.findAll();
-        if (agents.isEmpty()) {
+        List<Integer> agentIds = agentRepository.findAllAgentIds();
+        if (agentIds.isEmpty()) {
             throw new AppException(ErrorCode.AGENT_NOT_FOUND);
         }
 
-        YearMonth monthYear = YearMonth.of(year, month);
-        List<DebtReport> reports = agents.stream()
-            .map(agent -> {
-                // Cập nhật báo cáo công nợ cho từng đại lý
-                updateDebtReportForAgent(agent.getAgentId(), monthYear);
-                return debtReportRepository.findByMonthYearAndAgent(month, year, agent.getAgentId())
-                    .orElseThrow(() -> new AppException(ErrorCode.DEBT_REPORT_NOT_FOUND));
-            })
-            .toList();
+        Map<Integer, DebtReportBalance> currentByAgent = toBalanceMap(
+            debtReportRepository.findBalancesByMonthAndYear(month, year));
+        List<DebtReportBalance> balances = computeBalances(agentIds, YearMonth.of(year, month), currentByAgent);
 
+        debtReportRepository.batchUpsert(month, year, balances);
+        propagateChanges(YearMonth.of(year, month), balances, currentByAgent);
+
+        List<DebtReport> reports = debtReportRepository.findByMonthAndYearWithAgent(month, year);
         return ApiResponse.success("Tổng hợp báo cáo công nợ thành công", reports);
     }
-}
\ No newline at end of file
+
+    /**
+     * Cộng chênh lệch có dấu vào phát sinh và nợ cuối kỳ của báo cáo công nợ bằng một câu UPDATE,
+     * rồi lan truyền chênh lệch sang các tháng sau.
+     * Nếu báo cáo của tháng chưa tồn tại thì tạo mới bằng cách tính lại toàn bộ.
+     * @param agentId ID của đại lý
+     * @param monthYear Tháng/năm của phiếu
+     * @param delta Chênh lệch công nợ (dương khi xuất hàng, âm khi thu tiền)
+     */
+    @Transactional
+    public void applyArisenDebtDelta(int agentId, YearMonth monthYear, int delta) {
+        int updated = debtReportRepository.applyArisenDebtDelta(
+            agentId, monthYear.getMonthValue(), monthYear.getYear(), delta);
+        if (updated == 0) {
+            updateDebtReportForAgent(agentId, monthYear);
+        } else {
+            debtReportPropagationService.propagateForward(agentId, monthYear, delta);
+        }
+    }
+
+    /**
+     * Đối soát báo cáo công nợ của tháng với số liệu tính lại từ phiếu xuất và phiếu thu
+     * @param month Tháng
+     * @param year Năm
+     * @param repair true để ghi đè các báo cáo bị lệch bằng số liệu tính lại
+     * @return Kết quả đối soát kèm danh sách báo cáo bị lệch
+     */
+    @Transactional
+    public DebtReportVerificationResponse verifyDebtReports(int month, int year, boolean repair) {
+        List<Integer> agentIds = agentRepository.findAllAgentIds();
+        Map<Integer, DebtReportBalance> currentByAgent = toBalanceMap(
+            debtReportRepository.findBalancesByMonthAndYear(month, year));
+        List<DebtReportBalance> expectedBalances = computeBalances(agentIds, YearMonth.of(year, month), currentByAgent);
+
+        List<DebtReportVerificationResponse.DebtReportDrift> drifts = new ArrayList<>();
+        List<DebtReportBalance> repairs = new ArrayList<>();
+        for (DebtReportBalance expected : expectedBalances) {
+            DebtReportBalance actual = currentByAgent.get(expected.getAgentId());
+            boolean drifted = actual == null
+                ? expected.getArisenDebt() != 0
+                : !actual.getArisenDebt().equals(expected.getArisenDebt())
+                    || !actual.getLastDebt().equals(expected.getLastDebt());
+            if (drifted) {
+                drifts.add(new DebtReportVerificationResponse.DebtReportDrift(
+                    expected.getAgentId(),
+                    expected.getDebtReportId(),
+                    actual != null ? actual.getArisenDebt() : null,
+                    expected.getArisenDebt(),
+                    actual != null ? actual.getLastDebt() : null,
+                    expected.getLastDebt()));
+                repairs.add(expected);
+            }
+        }
+
+        if (repair && !repairs.isEmpty()) {
+            debtReportRepository.batchUpsert(month, year, repairs);
+            // Các tháng sau phải nhận phần nợ cuối kỳ vừa được sửa
+            propagateChanges(YearMonth.of(year, month), repairs, currentByAgent);
+        }
+        return new DebtReportVerificationResponse(month, year, expectedBalances.size(), repair && !repairs.isEmpty(), drifts);
+    }
+
+    /**
+     * Tính số dư đúng của tháng cho từng đại lý từ các câu truy vấn gộp theo đại lý.
+     * Báo cáo đã có giữ nguyên nợ đầu kỳ, báo cáo mới lấy nợ cuối kỳ tháng trước.
+     */
+    private List<DebtReportBalance> computeBalances(List<Integer> agentIds, YearMonth monthYear,
+                                                    Map<Integer, DebtReportBalance> currentByAgent) {
+        int month = monthYear.getMonthValue();
+        int year = monthYear.getYear();
+        YearMonth previousMonth = monthYear.minusMonths(1);
+
+        // Tổng xuất và tổng thu của từng đại lý trong tháng
+        Map<Integer, Long> exportByAgent = toAmountMap(
+            exportReceiptRepository.getTotalMoneyGroupedByAgentAndMonthAndYear(month, year));
+        Map<Integer, Long> paymentByAgent = toAmountMap(
+            paymentReceiptRepository.getTotalRevenueGroupedByAgentAndMonthAndYear(month, year));
+
+        // Nợ cuối kỳ tháng trước (làm nợ đầu kỳ cho báo cáo mới)
+        Map<Integer, DebtReportBalance> previousByAgent = toBalanceMap(
+            debtReportRepository.findBalancesByMonthAndYear(previousMonth.getMonthValue(), previousMonth.getYear()));
+
+        List<DebtReportBalance> balances = new ArrayList<>(agentIds.size());
+        for (Integer agentId : agentIds) {
+            DebtReportBalance current = currentByAgent.get(agentId);
+            Integer debtReportId = null;
+            Integer firstDebt = 0;
+            if (current != null) {
+                debtReportId = current.getDebtReportId();
+                firstDebt = current.getFirstDebt();
+            } else if (previousByAgent.containsKey(agentId)) {
+                firstDebt = previousByAgent.get(agentId).getLastDebt();
+            }
+
+            // arisen_debt = tổng totalAmount từ ExportReceipt - tổng revenue từ PaymentReceipt
+            int arisenDebt = toDebtAmount(agentId,
+                exportByAgent.getOrDefault(agentId, 0L) - paymentByAgent.getOrDefault(agentId, 0L));
+            int lastDebt = toDebtAmount(agentId, (long) firstDebt + arisenDebt);
+            balances.add(new DebtReportBalance(agentId, debtReportId, firstDebt, arisenDebt, lastDebt));
+        }
+        return balances;
+    }
+
+    /**
+     * Lan truyền sang các tháng sau cho các báo cáo vừa ghi có nợ cuối kỳ thay đổi hoặc vừa được tạo,
+     * dùng một lần lan truyền hàng loạt cho mọi đại lý thay vì từng đại lý
+     */
+    private void propagateChanges(YearMonth monthYear, List<DebtReportBalance> written,
+                                  Map<Integer, DebtReportBalance> previousByAgent) {
+        Map<Integer, Integer> deltaByAgent = new HashMap<>();
+        for (DebtReportBalance balance : written) {
+            DebtReportBalance previous = previousByAgent.get(balance.getAgentId());
+            int previousLastDebt = previous != null ? previous.getLastDebt() : balance.getFirstDebt();
+            int delta = balance.getLastDebt() - previousLastDebt;
+            // Báo cáo mới có thể lấp một tháng bị thiếu nên vẫn phải nối lại chuỗi dù không có chênh lệch
+            if (delta != 0 || previous == null) {
+                deltaByAgent.put(balance.getAgentId(), delta);
+            }
+        }
+        debtReportPropagationService.propagateForwardAll(monthYear, written, deltaByAgent);
+    }
+
+    private static int toDebtAmount(int agentId, long amount) {
+        if (amount < Integer.MIN_VALUE || amount > Integer.MAX_VALUE) {
+            throw new AppException(ErrorCode.AMOUNT_OUT_OF_RANGE,
+                "Công nợ của đại lý " + agentId + " vượt quá giới hạn cho phép: " + amount);
+        }
+        return (int) amount;
+    }
+
+    private Map<Integer, Long> toAmountMap(List<AgentAmount> amounts) {
+        Map<Integer, Long> result = new HashMap<>();
+        for (AgentAmount amount : amounts) {
+            result.put(amount.getAgentId(), amount.getAmount() != null ? amount.getAmount() : 0L);
+        }
+        return result;
+    }
+
+    private Map<Integer, DebtReportBalance> toBalanceMap(List<DebtReportBalance> balances) {
+        Map<Integer, DebtReportBalance> result = new HashMap<>();
+        for (DebtReportBalance balance : balances) {
+            result.putIfAbsent(balance.getAgentId(), balance);
+        }
+        return result;
+    }
+}
@@ -16,9 +16,11 @@ import java.util.List;
 @Service
 public class DistrictService {
     private final DistrictRepository districtRepository;
+    private final ReferenceDataCache referenceDataCache;
     
-    public DistrictService(DistrictRepository districtRepository) {
+    public DistrictService(DistrictRepository districtRepository, ReferenceDataCache referenceDataCache) {
         this.districtRepository = districtRepository;
+        this.referenceDataCache = referenceDataCache;
     }
     
     /**
@@ -26,7 +28,7 @@ public class DistrictService {
      * @return ApiResponse chứa danh sách quận/huyện
      */
     public ApiResponse<List<District>> getAllDistricts() {
-        List<District> districts = districtRepository.findAll();
+        List<District> districts = referenceDataCache.getDistricts();
         if (districts.isEmpty()) {
             throw new AppException(ErrorCode.DISTRICT_NOT_FOUND, "Không có quận/huyện nào trong hệ thống");
         }
@@ -48,6 +50,7 @@ public class DistrictService {
         }
         
         District savedDistrict = districtRepository.save(district);
+        referenceDataCache.reloadAfterCommit();
         return ApiResponse.created("Thêm quận thành công!", savedDistrict);
     }
 
@@ -59,7 +62,7 @@ public class DistrictService {
             throw new AppException(ErrorCode.BAD_REQUEST);
         }
 
-        District district = districtRepository.findByDistrictName(districtName)
+        District district = referenceDataCache.findDistrictByName(districtName)
                 .orElseThrow(() -> new AppException(ErrorCode.DISTRICT_NOT_FOUND));
         
         return ApiResponse.success("Lấy thông tin quận thành công", district);
@@ -86,6 +89,7 @@ public class DistrictService {
 
         existingDistrict.setDistrictName(newDistrict.getDistrictName());
         District updatedDistrict = districtRepository.save(existingDistrict);
+        referenceDataCache.reloadAfterCommit();
         
         return ApiResponse.success("Cập nhật quận thành công", updatedDistrict);
     }
@@ -108,6 +112,7 @@ public class DistrictService {
         }
 
         districtRepository.delete(district);
+        referenceDataCache.reloadAfterCommit();
         return ApiResponse.success("Xóa quận thành công", null);
     }
 }
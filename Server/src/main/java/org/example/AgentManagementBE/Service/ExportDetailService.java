@@ -8,6 +8,7 @@ import org.example.AgentManagementBE.exception.ErrorCode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -17,10 +18,12 @@ import java.util.List;
 @Service
 public class ExportDetailService {
     private final ExportDetailRepository exportDetailRepository;
+    private final JsonStreamWriter jsonStreamWriter;
 
     @Autowired
-    public ExportDetailService(ExportDetailRepository exportDetailRepository) {
+    public ExportDetailService(ExportDetailRepository exportDetailRepository, JsonStreamWriter jsonStreamWriter) {
         this.exportDetailRepository = exportDetailRepository;
+        this.jsonStreamWriter = jsonStreamWriter;
     }
 
     /**
@@ -49,6 +52,19 @@ public class ExportDetailService {
         return ApiResponse.success("Lấy chi tiết phiếu xuất hàng theo sản phẩm thành công", details);
     }
 
+    /**
+     * Bản streaming của getExportDetailsByProductId: các chi tiết được đọc và ghi ra client dần dần
+     * @param productId ID sản phẩm
+     * @return Thân phản hồi ghi JSON khi Spring MVC gửi phản hồi
+     */
+    public StreamingResponseBody streamExportDetailsByProductId(Integer productId) {
+        if (!exportDetailRepository.existsByProduct_ProductId(productId)) {
+            throw new AppException(ErrorCode.EXPORT_DETAIL_NOT_FOUND);
+        }
+        return jsonStreamWriter.stream("Lấy chi tiết phiếu xuất hàng theo sản phẩm thành công",
+            () -> exportDetailRepository.streamByProductId(productId));
+    }
+
     /**
      * Lấy chi tiết phiếu xuất hàng theo ID phiếu xuất và ID sản phẩm
      * @param exportReceiptId ID phiếu xuất hàng
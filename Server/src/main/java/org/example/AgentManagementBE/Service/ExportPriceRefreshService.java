@@ -0,0 +1,247 @@
+package org.example.AgentManagementBE.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.example.AgentManagementBE.Config.CacheCoherenceService;
+import org.example.AgentManagementBE.DTO.response.ExportPriceRefreshJob;
+import org.example.AgentManagementBE.Repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cập nhật giá xuất của toàn bộ sản phẩm khi tỷ lệ export_price_ratio thay đổi.
+ * Mỗi tác vụ chạy nền trên một luồng riêng, chia bảng Product theo khoảng productId và cập nhật
+ * mỗi khoảng bằng một câu UPDATE trong giao dịch riêng; tiến độ được xem qua getJob.
+ * Tác vụ đang chờ hoặc đang chạy dừng lại khi có tác vụ với tỷ lệ mới hơn.
+ */
+@Service
+public class ExportPriceRefreshService {
+    private static final Logger logger = LoggerFactory.getLogger(ExportPriceRefreshService.class);
+
+    public static final String RATIO_KEY = "export_price_ratio";
+    public static final String TRIGGER_PARAMETER_CHANGE = "PARAMETER_CHANGE";
+    public static final String TRIGGER_MANUAL = "MANUAL";
+
+    private final ProductRepository productRepository;
+    private final CacheCoherenceService cacheCoherenceService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int historySize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "export-price-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong jobSequence = new AtomicLong();
+    private volatile long latestJobId;
+    // Các tác vụ gần nhất theo thứ tự tạo, cũ nhất bị bỏ khi vượt historySize
+    private final Map<Long, JobState> jobs = new LinkedHashMap<>();
+
+    private final Counter updatedRowsCounter;
+    private final Timer durationTimer;
+
+    @Autowired
+    public ExportPriceRefreshService(ProductRepository productRepository,
+                                     ParameterService parameterService,
+                                     CacheCoherenceService cacheCoherenceService,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${export-price-refresh.chunk-size:5000}") int chunkSize,
+                                     @Value("${export-price-refresh.history-size:20}") int historySize) {
+        this.productRepository = productRepository;
+        this.cacheCoherenceService = cacheCoherenceService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.historySize = Math.max(1, historySize);
+        this.updatedRowsCounter = Counter.builder("product.export_price_refresh.rows")
+            .description("Số sản phẩm được cập nhật giá xuất theo tỷ lệ mới")
+            .register(meterRegistry);
+        this.durationTimer = Timer.builder("product.export_price_refresh.duration")
+            .description("Thời gian cập nhật giá xuất cho toàn bộ sản phẩm")
+            .register(meterRegistry);
+        parameterService.addListener(RATIO_KEY, this::onRatioChanged);
+    }
+
+    /**
+     * Giá xuất tính từ giá nhập và tỷ lệ, làm tròn nửa lên giống ROUND của cơ sở dữ liệu trên số thập phân;
+     * tỷ lệ được làm tròn 4 chữ số như CAST(? AS DECIMAL(10,4)) trong câu UPDATE
+     */
+    public static int exportPriceOf(int importPrice, BigDecimal ratio) {
+        return BigDecimal.valueOf(importPrice).multiply(ratio.setScale(4, RoundingMode.HALF_UP))
+            .setScale(0, RoundingMode.HALF_UP).intValueExact();
+    }
+
+    /**
+     * Tạo tác vụ cập nhật giá xuất với tỷ lệ cho trước và đưa vào hàng đợi chạy nền
+     * @param ratio Tỷ lệ đơn giá xuất (lớn hơn 0)
+     * @param trigger Nguồn tạo tác vụ (TRIGGER_PARAMETER_CHANGE hoặc TRIGGER_MANUAL)
+     * @return Trạng thái ban đầu của tác vụ
+     */
+    public ExportPriceRefreshJob submit(BigDecimal ratio, String trigger) {
+        JobState job = new JobState(jobSequence.incrementAndGet(), ratio, trigger);
+        synchronized (jobs) {
+            jobs.put(job.jobId, job);
+            if (jobs.size() > historySize) {
+                jobs.remove(jobs.keySet().iterator().next());
+            }
+        }
+        latestJobId = job.jobId;
+        executor.execute(() -> run(job));
+        logger.info("Tạo tác vụ cập nhật giá xuất {} với tỷ lệ {} ({})", job.jobId, ratio, trigger);
+        return job.toResponse();
+    }
+
+    public Optional<ExportPriceRefreshJob> getJob(long jobId) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(jobId)).map(JobState::toResponse);
+        }
+    }
+
+    /**
+     * Các tác vụ gần nhất, mới nhất trước
+     */
+    public List<ExportPriceRefreshJob> getRecentJobs() {
+        List<ExportPriceRefreshJob> recent = new ArrayList<>();
+        synchronized (jobs) {
+            for (JobState job : jobs.values()) {
+                recent.add(0, job.toResponse());
+            }
+        }
+        return recent;
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void onRatioChanged(String paramKey, String oldValue, String newValue, long version) {
+        if (newValue == null) {
+            return;
+        }
+        BigDecimal ratio;
+        try {
+            ratio = new BigDecimal(newValue.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Bỏ qua tỷ lệ đơn giá xuất không hợp lệ '{}' (phiên bản tham số {})", newValue, version);
+            return;
+        }
+        if (ratio.signum() <= 0) {
+            logger.warn("Bỏ qua tỷ lệ đơn giá xuất không dương '{}' (phiên bản tham số {})", newValue, version);
+            return;
+        }
+        submit(ratio, TRIGGER_PARAMETER_CHANGE);
+    }
+
+    private void run(JobState job) {
+        if (isSuperseded(job)) {
+            return;
+        }
+        job.startedAt = LocalDateTime.now();
+        job.status = ExportPriceRefreshJob.STATUS_RUNNING;
+        long start = System.nanoTime();
+        try {
+            Optional<Integer> minId = productRepository.findMinProductId();
+            Optional<Integer> maxId = productRepository.findMaxProductId();
+            if (minId.isPresent() && maxId.isPresent()) {
+                long min = minId.get();
+                long max = maxId.get();
+                job.totalChunks = (int) ((max - min) / chunkSize + 1);
+                for (long from = min; from <= max; from += chunkSize) {
+                    if (isSuperseded(job)) {
+                        return;
+                    }
+                    int fromId = (int) from;
+                    int toId = (int) Math.min(from + chunkSize, max + 1);
+                    Integer updated = transactionTemplate.execute(status -> {
+                        int rows = productRepository.updateExportPrices(job.ratio, fromId, toId);
+                        if (rows > 0) {
+                            // Node khác xóa vùng Product để không bán theo giá xuất cũ
+                            cacheCoherenceService.bumpVersion(CacheCoherenceService.REGION_PRODUCT);
+                        }
+                        return rows;
+                    });
+                    job.updatedRows += updated;
+                    job.completedChunks++;
+                    updatedRowsCounter.increment(updated);
+                }
+            }
+            job.status = ExportPriceRefreshJob.STATUS_COMPLETED;
+            job.finishedAt = LocalDateTime.now();
+            logger.info("Tác vụ cập nhật giá xuất {} hoàn tất: {} sản phẩm, {} khoảng",
+                job.jobId, job.updatedRows, job.completedChunks);
+        } catch (RuntimeException e) {
+            job.errorMessage = e.getMessage();
+            job.status = ExportPriceRefreshJob.STATUS_FAILED;
+            job.finishedAt = LocalDateTime.now();
+            logger.error("Tác vụ cập nhật giá xuất {} thất bại sau {} khoảng", job.jobId, job.completedChunks, e);
+        } finally {
+            durationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private boolean isSuperseded(JobState job) {
+        if (latestJobId == job.jobId) {
+            return false;
+        }
+        // Các khoảng đã chạy được tác vụ mới hơn tính lại theo tỷ lệ mới
+        job.status = ExportPriceRefreshJob.STATUS_SUPERSEDED;
+        job.finishedAt = LocalDateTime.now();
+        return true;
+    }
+
+    /**
+     * Trạng thái tác vụ; chỉ luồng chạy nền ghi, các luồng request đọc qua toResponse.
+     * finishedAt được ghi sau cùng nên khi đã có finishedAt thì các trường khác là kết quả cuối.
+     */
+    private static final class JobState {
+        private final long jobId;
+        private final BigDecimal ratio;
+        private final String trigger;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private volatile String status = ExportPriceRefreshJob.STATUS_QUEUED;
+        private volatile int totalChunks;
+        private volatile int completedChunks;
+        private volatile int updatedRows;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String errorMessage;
+
+        private JobState(long jobId, BigDecimal ratio, String trigger) {
+            this.jobId = jobId;
+            this.ratio = ratio;
+            this.trigger = trigger;
+        }
+
+        private ExportPriceRefreshJob toResponse() {
+            return new ExportPriceRefreshJob(jobId, ratio, trigger, status, totalChunks, completedChunks,
+                updatedRows, submittedAt, startedAt, finishedAt, errorMessage);
+        }
+    }
+}
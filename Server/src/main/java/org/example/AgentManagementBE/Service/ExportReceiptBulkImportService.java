@@ -0,0 +1,488 @@
+package org.example.AgentManagementBE.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.AgentManagementBE.DTO.request.CreateExportReceiptWithMultipleProductsRequest;
+import org.example.AgentManagementBE.DTO.request.ExportDetailRequest;
+import org.example.AgentManagementBE.DTO.response.BulkImportLineResult;
+import org.example.AgentManagementBE.DTO.response.BulkImportReport;
+import org.example.AgentManagementBE.DTO.response.DebtLimitViolation;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.ExportDetail;
+import org.example.AgentManagementBE.Model.ExportReceipt;
+import org.example.AgentManagementBE.Model.Product;
+import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.Repository.ExportDetailRepository;
+import org.example.AgentManagementBE.Repository.ExportReceiptRepository;
+import org.example.AgentManagementBE.Repository.ProductRepository;
+import org.example.AgentManagementBE.exception.AppException;
+import org.example.AgentManagementBE.exception.ErrorCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Nhập hàng loạt phiếu xuất nhiều mặt hàng từ tệp gửi dạng stream, mỗi dòng một phiếu:
+ * <ul>
+ *   <li>NDJSON: mỗi dòng là một CreateExportReceiptWithMultipleProductsRequest, ví dụ
+ *       {"createDate":"2024-03-01","agentId":1,"paidAmount":0,"exportDetails":[{"productID":2,"quantityExport":5}]}</li>
+ *   <li>CSV: dòng tiêu đề "createDate,agentId,paidAmount,products", cột products dạng "productId:số lượng;..."</li>
+ * </ul>
+ * Tệp được đọc từng dòng và kiểm tra với đại lý, sản phẩm nạp sẵn một lần vào bộ nhớ; tồn kho và nợ được trừ/cộng
+ * dần trong bộ nhớ để các dòng sau thấy ảnh hưởng của các dòng trước. Các dòng hợp lệ được ghi theo lô
+ * (export-receipt-bulk.chunk-size): phiếu và chi tiết bằng JDBC batch, tồn kho, nợ, bảng tổng hợp và báo cáo công nợ
+ * được cộng dồn theo sản phẩm, đại lý và tháng rồi ghi một lần cho cả lô.
+ * Mặc định mỗi lô là một giao dịch riêng và một lô lỗi được ghi lại từng dòng để chỉ các dòng lỗi bị bỏ;
+ * chế độ strict ghi cả tệp trong một giao dịch và hủy toàn bộ nếu có bất kỳ dòng lỗi nào.
+ */
+@Service
+public class ExportReceiptBulkImportService {
+    private static final Logger logger = LoggerFactory.getLogger(ExportReceiptBulkImportService.class);
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+    public static final String CSV_HEADER = "createDate,agentId,paidAmount,products";
+
+    private final ExportReceiptRepository exportReceiptRepository;
+    private final ExportDetailRepository exportDetailRepository;
+    private final AgentRepository agentRepository;
+    private final ProductRepository productRepository;
+    private final AgentService agentService;
+    private final AgentMonthlyAggregateService agentMonthlyAggregateService;
+    private final DebtReportMaintenanceService debtReportMaintenanceService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    @Autowired
+    public ExportReceiptBulkImportService(ExportReceiptRepository exportReceiptRepository,
+                                          ExportDetailRepository exportDetailRepository,
+                                          AgentRepository agentRepository,
+                                          ProductRepository productRepository,
+                                          AgentService agentService,
+                                          AgentMonthlyAggregateService agentMonthlyAggregateService,
+                                          DebtReportMaintenanceService debtReportMaintenanceService,
+                                          ObjectMapper objectMapper,
+                                          PlatformTransactionManager transactionManager,
+                                          @Value("${export-receipt-bulk.chunk-size:500}") int chunkSize) {
+        this.exportReceiptRepository = exportReceiptRepository;
+        this.exportDetailRepository = exportDetailRepository;
+        this.agentRepository = agentRepository;
+        this.productRepository = productRepository;
+        this.agentService = agentService;
+        this.agentMonthlyAggregateService = agentMonthlyAggregateService;
+        this.debtReportMaintenanceService = debtReportMaintenanceService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Đọc và nhập toàn bộ tệp
+     * @param body Nội dung tệp (UTF-8), được đọc dần
+     * @param format FORMAT_NDJSON hoặc FORMAT_CSV
+     * @param strict true: lưu cả tệp hoặc không lưu dòng nào
+     * @return Kết quả từng dòng, theo thứ tự dòng trong tệp
+     */
+    public BulkImportReport ingest(InputStream body, String format, boolean strict) throws IOException {
+        if (!FORMAT_NDJSON.equals(format) && !FORMAT_CSV.equals(format)) {
+            throw new AppException(ErrorCode.INVALID_FORMAT, "Định dạng tệp phải là ndjson hoặc csv");
+        }
+        long start = System.nanoTime();
+        Run run = new Run(format, strict);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        if (strict) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    readAll(reader, run);
+                    if (run.failed) {
+                        status.setRollbackOnly();
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        } else {
+            readAll(reader, run);
+        }
+
+        boolean committed = !(strict && run.failed);
+        List<BulkImportLineResult> lines = new ArrayList<>(run.results.size());
+        int created = 0;
+        for (BulkImportLineResult result : run.results) {
+            if (!committed && BulkImportLineResult.STATUS_CREATED.equals(result.getStatus())) {
+                result = new BulkImportLineResult(result.getLineNumber(), BulkImportLineResult.STATUS_ROLLED_BACK, null, null);
+            }
+            if (BulkImportLineResult.STATUS_CREATED.equals(result.getStatus())) {
+                created++;
+            }
+            lines.add(result);
+        }
+        lines.sort(Comparator.comparing(BulkImportLineResult::getLineNumber));
+        int rejected = (int) lines.stream().filter(line -> BulkImportLineResult.STATUS_REJECTED.equals(line.getStatus())).count();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Nhập phiếu xuất hàng loạt ({}{}): {} dòng, {} phiếu được tạo, {} dòng lỗi, {} lô, {} ms",
+            format, strict ? ", strict" : "", lines.size(), created, rejected, run.chunkCount, elapsedMillis);
+        return new BulkImportReport(format, strict, committed, lines.size(), created, rejected, run.chunkCount,
+            elapsedMillis, lines);
+    }
+
+    private void readAll(BufferedReader reader, Run run) {
+        try {
+            String line;
+            int lineNumber = 0;
+            boolean headerSeen = false;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (FORMAT_CSV.equals(run.format) && !headerSeen) {
+                    headerSeen = true;
+                    if (!line.replace(" ", "").equalsIgnoreCase(CSV_HEADER)) {
+                        throw new AppException(ErrorCode.INVALID_FORMAT, "Dòng tiêu đề CSV phải là: " + CSV_HEADER);
+                    }
+                    continue;
+                }
+                accept(run, lineNumber, line);
+            }
+            flush(run);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Kiểm tra một dòng; dòng hợp lệ giữ chỗ tồn kho, nợ trong bộ nhớ và được đưa vào lô hiện tại
+     */
+    private void accept(Run run, int lineNumber, String line) {
+        PendingReceipt pending;
+        try {
+            CreateExportReceiptWithMultipleProductsRequest request = FORMAT_CSV.equals(run.format)
+                ? parseCsv(line)
+                : parseJson(line);
+            pending = validate(run, lineNumber, request);
+        } catch (AppException e) {
+            run.reject(lineNumber, e.getMessage());
+            return;
+        }
+        run.reserve(pending);
+        run.chunk.add(pending);
+        if (run.chunk.size() >= chunkSize) {
+            flush(run);
+        }
+    }
+
+    private CreateExportReceiptWithMultipleProductsRequest parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, CreateExportReceiptWithMultipleProductsRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new AppException(ErrorCode.INVALID_FORMAT, "Dòng không phải JSON hợp lệ: " + e.getOriginalMessage());
+        }
+    }
+
+    private CreateExportReceiptWithMultipleProductsRequest parseCsv(String line) {
+        String[] columns = line.split(",", -1);
+        if (columns.length != 4) {
+            throw new AppException(ErrorCode.INVALID_FORMAT, "Dòng CSV phải có 4 cột: " + CSV_HEADER);
+        }
+        try {
+            List<ExportDetailRequest> details = new ArrayList<>();
+            for (String item : columns[3].split(";")) {
+                if (item.isBlank()) {
+                    continue;
+                }
+                String[] parts = item.split(":", -1);
+                if (parts.length != 2) {
+                    throw new AppException(ErrorCode.INVALID_FORMAT, "Mặt hàng phải có dạng productId:số lượng, nhận được '" + item.trim() + "'");
+                }
+                details.add(new ExportDetailRequest(Integer.valueOf(parts[0].trim()), Integer.valueOf(parts[1].trim())));
+            }
+            return new CreateExportReceiptWithMultipleProductsRequest(LocalDate.parse(columns[0].trim()),
+                Integer.valueOf(columns[1].trim()), Integer.valueOf(columns[2].trim()), details);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new AppException(ErrorCode.INVALID_FORMAT, "Giá trị không hợp lệ: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cùng các ràng buộc với ExportReceiptService.createExportReceiptWithMultipleProducts, kiểm tra trên bộ nhớ
+     */
+    private PendingReceipt validate(Run run, int lineNumber, CreateExportReceiptWithMultipleProductsRequest request) {
+        if (request.getCreateDate() == null || request.getAgentId() == null || request.getPaidAmount() == null) {
+            throw new AppException(ErrorCode.MISSING_REQUIRED_FIELD, "Thiếu createDate, agentId hoặc paidAmount");
+        }
+        if (request.getPaidAmount() < 0) {
+            throw new AppException(ErrorCode.NUMBER_NEGATIVE, "Số tiền đã trả phải lớn hơn hoặc bằng 0");
+        }
+        if (request.getExportDetails() == null || request.getExportDetails().isEmpty()) {
+            throw new AppException(ErrorCode.BAD_REQUEST, "Danh sách mặt hàng không được để trống");
+        }
+        AgentBalance agent = run.agents.get(request.getAgentId());
+        if (agent == null) {
+            throw new AppException(ErrorCode.AGENT_NOT_FOUND, "Không tìm thấy đại lý với ID: " + request.getAgentId());
+        }
+
+        Set<Integer> productIds = new HashSet<>();
+        List<ExportDetail> details = new ArrayList<>(request.getExportDetails().size());
+        int totalAmount = 0;
+        try {
+            for (ExportDetailRequest detailRequest : request.getExportDetails()) {
+                Integer productId = detailRequest.getProductID();
+                Integer quantity = detailRequest.getQuantityExport();
+                if (productId == null || quantity == null || quantity <= 0) {
+                    throw new AppException(ErrorCode.BAD_REQUEST, "Mỗi mặt hàng cần productID và số lượng xuất lớn hơn 0");
+                }
+                if (!productIds.add(productId)) {
+                    throw new AppException(ErrorCode.BAD_REQUEST, "Sản phẩm ID " + productId + " đã tồn tại trong phiếu xuất này");
+                }
+                ProductStock stock = run.products.get(productId);
+                if (stock == null) {
+                    throw new AppException(ErrorCode.PRODUCT_NOT_FOUND, "Không tìm thấy sản phẩm với ID: " + productId);
+                }
+                if (stock.inventory < quantity) {
+                    throw new AppException(ErrorCode.INSUFFICIENT_INVENTORY, "Không đủ hàng tồn kho cho sản phẩm ID: "
+                        + productId + ". Tồn kho còn lại: " + stock.inventory + ", yêu cầu xuất: " + quantity);
+                }
+                int intoMoney = Math.multiplyExact(quantity, stock.product.getExportPrice());
+                details.add(new ExportDetail(null, stock.product, quantity, stock.product.getExportPrice()));
+                totalAmount = Math.addExact(totalAmount, intoMoney);
+            }
+        } catch (ArithmeticException e) {
+            throw new AppException(ErrorCode.BAD_REQUEST, "Tổng tiền của phiếu vượt quá giới hạn");
+        }
+
+        if (request.getPaidAmount() > totalAmount) {
+            throw new AppException(ErrorCode.BAD_REQUEST, "Số tiền đã trả không được vượt quá tổng tiền");
+        }
+        int remainingAmount = totalAmount - request.getPaidAmount();
+        if (agent.debt + remainingAmount > agent.maxDebt) {
+            throw new AppException(ErrorCode.AGENT_DEBT_LIMIT_EXCEEDED, "Nợ của đại lý " + agent.agent.getAgentName()
+                + " sẽ là " + (agent.debt + remainingAmount) + ", vượt quá nợ tối đa " + agent.maxDebt);
+        }
+
+        ExportReceipt receipt = new ExportReceipt(agent.agent, request.getCreateDate());
+        receipt.setTotalAmount(totalAmount);
+        receipt.setPaidAmount(request.getPaidAmount());
+        receipt.setRemainingAmount(remainingAmount);
+        for (ExportDetail detail : details) {
+            detail.setExportReceipt(receipt);
+        }
+        return new PendingReceipt(lineNumber, receipt, details);
+    }
+
+    /**
+     * Ghi lô hiện tại. Không strict: lô lỗi được ghi lại từng dòng trong giao dịch riêng rồi nạp lại tồn kho, nợ
+     * của các đại lý, sản phẩm liên quan. Strict: lỗi đầu tiên đánh dấu cả tệp thất bại, các lô sau chỉ còn được kiểm tra.
+     */
+    private void flush(Run run) {
+        if (run.chunk.isEmpty()) {
+            return;
+        }
+        List<PendingReceipt> chunk = new ArrayList<>(run.chunk);
+        run.chunk.clear();
+        run.chunkCount++;
+
+        if (run.strict) {
+            if (!run.failed) {
+                try {
+                    write(chunk);
+                    chunk.forEach(run::created);
+                    return;
+                } catch (RuntimeException e) {
+                    run.failed = true;
+                    String message = "Lỗi khi ghi lô chứa dòng này: " + e.getMessage();
+                    chunk.forEach(pending -> run.reject(pending.lineNumber, message));
+                    return;
+                }
+            }
+            // Cả tệp sẽ bị hủy: lô này không được ghi nên không có ID
+            chunk.forEach(run::rolledBack);
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(chunk));
+            chunk.forEach(run::created);
+        } catch (RuntimeException chunkError) {
+            // Tồn kho hoặc nợ đã bị thay đổi bởi request khác sau khi nạp: tìm đúng dòng không còn ghi được
+            logger.warn("Lô {} phiếu xuất từ dòng {} bị lỗi ({}), ghi lại từng dòng",
+                chunk.size(), chunk.get(0).lineNumber, chunkError.getMessage());
+            for (PendingReceipt pending : chunk) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write(List.of(pending)));
+                    run.created(pending);
+                } catch (RuntimeException lineError) {
+                    run.reject(pending.lineNumber, lineError.getMessage());
+                }
+            }
+            run.reload(chunk);
+        }
+    }
+
+    /**
+     * Ghi các phiếu của lô và ảnh hưởng đã cộng dồn; phải chạy trong giao dịch
+     */
+    private void write(List<PendingReceipt> chunk) {
+        List<ExportReceipt> receipts = new ArrayList<>(chunk.size());
+        List<ExportDetail> details = new ArrayList<>();
+        // Sắp theo ID để các lô chạy song song khóa dòng theo cùng thứ tự
+        Map<Integer, Integer> quantitiesByProductId = new TreeMap<>();
+        Map<Integer, Integer> debtByAgentId = new TreeMap<>();
+        Map<AgentMonth, int[]> totalsByAgentMonth = new HashMap<>();
+        for (PendingReceipt pending : chunk) {
+            ExportReceipt receipt = pending.receipt;
+            receipt.setExportReceiptId(null);
+            receipts.add(receipt);
+            details.addAll(pending.details);
+            for (ExportDetail detail : pending.details) {
+                quantitiesByProductId.merge(detail.getProduct().getProductId(), detail.getQuantityExport(), Integer::sum);
+            }
+            int agentId = receipt.getAgent().getAgentId();
+            debtByAgentId.merge(agentId, receipt.getRemainingAmount(), Integer::sum);
+            int[] totals = totalsByAgentMonth.computeIfAbsent(
+                new AgentMonth(agentId, YearMonth.from(receipt.getCreateDate())), key -> new int[4]);
+            totals[0]++;
+            totals[1] += receipt.getTotalAmount();
+            totals[2] += receipt.getPaidAmount();
+            totals[3] += receipt.getRemainingAmount();
+        }
+
+        exportReceiptRepository.batchInsert(receipts);
+        exportDetailRepository.batchInsert(details);
+        List<Integer> insufficientProductIds = productRepository.batchDecrementInventory(quantitiesByProductId);
+        if (!insufficientProductIds.isEmpty()) {
+            throw new AppException(ErrorCode.INSUFFICIENT_INVENTORY,
+                "Không đủ hàng tồn kho cho sản phẩm ID: " + insufficientProductIds);
+        }
+        for (Map.Entry<Integer, Integer> debt : debtByAgentId.entrySet()) {
+            if (debt.getValue() == 0) {
+                continue;
+            }
+            Optional<DebtLimitViolation> violation = agentService.applyDebtDelta(debt.getKey(), debt.getValue(), true);
+            if (violation.isPresent()) {
+                throw violation.get().toAppException();
+            }
+        }
+        for (Map.Entry<AgentMonth, int[]> entry : totalsByAgentMonth.entrySet()) {
+            int[] totals = entry.getValue();
+            agentMonthlyAggregateService.recordExport(entry.getKey().agentId(), entry.getKey().monthYear(),
+                totals[0], totals[1], totals[2], totals[3]);
+            debtReportMaintenanceService.recordChange(entry.getKey().agentId(), entry.getKey().monthYear(), totals[1]);
+        }
+    }
+
+    private record AgentMonth(int agentId, YearMonth monthYear) {
+    }
+
+    private record PendingReceipt(int lineNumber, ExportReceipt receipt, List<ExportDetail> details) {
+    }
+
+    private static final class AgentBalance {
+        private Agent agent;
+        private int debt;
+        private int maxDebt;
+
+        private AgentBalance(Agent agent) {
+            this.agent = agent;
+            this.debt = agent.getDebtMoney() == null ? 0 : agent.getDebtMoney();
+            this.maxDebt = agent.getAgentType().getMaximumDebt();
+        }
+    }
+
+    private static final class ProductStock {
+        private Product product;
+        private int inventory;
+
+        private ProductStock(Product product) {
+            this.product = product;
+            this.inventory = product.getInventoryQuantity() == null ? 0 : product.getInventoryQuantity();
+        }
+    }
+
+    /**
+     * Trạng thái của một lần nhập: đại lý, sản phẩm nạp sẵn cùng số dư đang giữ chỗ, lô hiện tại và kết quả
+     */
+    private final class Run {
+        private final String format;
+        private final boolean strict;
+        private final Map<Integer, AgentBalance> agents = new HashMap<>();
+        private final Map<Integer, ProductStock> products = new HashMap<>();
+        private final List<PendingReceipt> chunk = new ArrayList<>();
+        private final List<BulkImportLineResult> results = new ArrayList<>();
+        private int chunkCount;
+        private boolean failed;
+
+        private Run(String format, boolean strict) {
+            this.format = format;
+            this.strict = strict;
+            for (Agent agent : agentRepository.findAllWithDetails()) {
+                agents.put(agent.getAgentId(), new AgentBalance(agent));
+            }
+            for (Product product : productRepository.findAll()) {
+                products.put(product.getProductId(), new ProductStock(product));
+            }
+        }
+
+        private void reserve(PendingReceipt pending) {
+            agents.get(pending.receipt.getAgent().getAgentId()).debt += pending.receipt.getRemainingAmount();
+            for (ExportDetail detail : pending.details) {
+                products.get(detail.getProduct().getProductId()).inventory -= detail.getQuantityExport();
+            }
+        }
+
+        /**
+         * Nạp lại số dư thật của các đại lý, sản phẩm trong lô sau khi lô bị lỗi
+         */
+        private void reload(List<PendingReceipt> pendings) {
+            Set<Integer> agentIds = new HashSet<>();
+            Set<Integer> productIds = new HashSet<>();
+            for (PendingReceipt pending : pendings) {
+                agentIds.add(pending.receipt.getAgent().getAgentId());
+                pending.details.forEach(detail -> productIds.add(detail.getProduct().getProductId()));
+            }
+            for (Agent agent : agentRepository.findAllById(agentIds)) {
+                agents.put(agent.getAgentId(), new AgentBalance(agent));
+            }
+            for (Product product : productRepository.findAllById(productIds)) {
+                products.put(product.getProductId(), new ProductStock(product));
+            }
+        }
+
+        private void created(PendingReceipt pending) {
+            results.add(BulkImportLineResult.created(pending.lineNumber, pending.receipt.getExportReceiptId()));
+        }
+
+        private void rolledBack(PendingReceipt pending) {
+            results.add(new BulkImportLineResult(pending.lineNumber, BulkImportLineResult.STATUS_ROLLED_BACK, null, null));
+        }
+
+        private void reject(int lineNumber, String message) {
+            failed = true;
+            results.add(BulkImportLineResult.rejected(lineNumber, message));
+        }
+    }
+}
@@ -4,20 +4,27 @@ import org.example.AgentManagementBE.Model.ExportReceipt;
 import org.example.AgentManagementBE.Model.ExportDetail;
 import org.example.AgentManagementBE.Model.Agent;
 import org.example.AgentManagementBE.Model.Product;
+import org.example.AgentManagementBE.Model.AgentMonthlyAggregate;
 import org.example.AgentManagementBE.Repository.ExportReceiptRepository;
 import org.example.AgentManagementBE.Repository.ExportDetailRepository;
 import org.example.AgentManagementBE.Repository.AgentRepository;
 import org.example.AgentManagementBE.Repository.ProductRepository;
+import org.example.AgentManagementBE.Repository.ExportReceiptSpecifications;
 
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
+import org.example.AgentManagementBE.DTO.response.KeysetPage;
 import org.example.AgentManagementBE.DTO.request.CreateExportReceiptRequest;
 import org.example.AgentManagementBE.DTO.request.CreateExportReceiptWithMultipleProductsRequest;
 import org.example.AgentManagementBE.DTO.request.ExportDetailRequest;
+import org.example.AgentManagementBE.DTO.request.ExportReceiptSearchCriteria;
+import org.example.AgentManagementBE.DTO.response.DebtLimitViolation;
 import org.example.AgentManagementBE.exception.AppException;
 import org.example.AgentManagementBE.exception.ErrorCode;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.YearMonth;
@@ -25,6 +32,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Service xử lý logic liên quan đến phiếu xuất hàng
@@ -35,33 +45,87 @@ public class ExportReceiptService {
     private final ExportDetailRepository exportDetailRepository;
     private final AgentRepository agentRepository;
     private final ProductRepository productRepository;
-    private final DebtReportService debtReportService;
+    private final DebtReportMaintenanceService debtReportMaintenanceService;
+    private final AgentService agentService;
+    private final AgentMonthlyAggregateService agentMonthlyAggregateService;
+    private final KeysetPagination keysetPagination;
+    private final JsonStreamWriter jsonStreamWriter;
 
     @Autowired
     public ExportReceiptService(ExportReceiptRepository exportReceiptRepository,
                                ExportDetailRepository exportDetailRepository,
                                AgentRepository agentRepository,
                                ProductRepository productRepository,
-                               DebtReportService debtReportService) {
+                               DebtReportMaintenanceService debtReportMaintenanceService,
+                               AgentService agentService,
+                               AgentMonthlyAggregateService agentMonthlyAggregateService,
+                               KeysetPagination keysetPagination,
+                               JsonStreamWriter jsonStreamWriter) {
         this.exportReceiptRepository = exportReceiptRepository;
         this.exportDetailRepository = exportDetailRepository;
         this.agentRepository = agentRepository;
         this.productRepository = productRepository;
-        this.debtReportService = debtReportService;
+        this.debtReportMaintenanceService = debtReportMaintenanceService;
+        this.agentService = agentService;
+        this.agentMonthlyAggregateService = agentMonthlyAggregateService;
+        this.keysetPagination = keysetPagination;
+        this.jsonStreamWriter = jsonStreamWriter;
     }
 
     /**
-     * Lấy tất cả phiếu xuất hàng
+     * Lấy tất cả phiếu xuất hàng (all=true), tối đa pagination.all-max-rows phiếu
      * @return ApiResponse chứa danh sách phiếu xuất hàng
      */
     public ApiResponse<List<ExportReceipt>> getAllExportReceipts() {
-        List<ExportReceipt> receipts = exportReceiptRepository.findAll();
+        List<ExportReceipt> receipts = keysetPagination.all(exportReceiptRepository::findPageAfter);
         if (receipts.isEmpty()) {
             throw new AppException(ErrorCode.EXPORT_RECEIPT_NOT_FOUND);
         }
         return ApiResponse.success("Lấy danh sách phiếu xuất hàng thành công", receipts);
     }
 
+    /**
+     * Lấy một trang phiếu xuất hàng theo ID tăng dần
+     * @param cursor Con trỏ nextCursor của trang trước, null cho trang đầu
+     * @param limit Số phiếu mỗi trang, null để dùng mặc định
+     * @return ApiResponse chứa trang phiếu xuất hàng
+     */
+    public ApiResponse<KeysetPage<ExportReceipt>> getExportReceiptPage(String cursor, Integer limit) {
+        KeysetPage<ExportReceipt> page = keysetPagination.page(cursor, limit,
+            exportReceiptRepository::findPageAfter, ExportReceipt::getExportReceiptId);
+        return ApiResponse.success("Lấy danh sách phiếu xuất hàng thành công", page);
+    }
+
+    /**
+     * Tìm phiếu xuất theo nhiều điều kiện trong một câu truy vấn, sắp theo ngày lập mới nhất trước rồi ID giảm dần
+     * @param criteria Điều kiện lọc, trường null không lọc
+     * @param cursor Con trỏ nextCursor của trang trước, null cho trang đầu
+     * @param limit Số phiếu mỗi trang, null để dùng mặc định
+     * @return ApiResponse chứa một trang phiếu xuất
+     */
+    public ApiResponse<KeysetPage<ExportReceipt>> searchExportReceipts(ExportReceiptSearchCriteria criteria,
+                                                                       String cursor, Integer limit) {
+        if (criteria.getFromDate() != null && criteria.getToDate() != null
+                && criteria.getFromDate().isAfter(criteria.getToDate())) {
+            throw new AppException(ErrorCode.INVALID_DATE_RANGE);
+        }
+        if ((criteria.getMinAmount() != null && criteria.getMinAmount() < 0)
+                || (criteria.getMaxAmount() != null && criteria.getMaxAmount() < 0)) {
+            throw new AppException(ErrorCode.NUMBER_NEGATIVE);
+        }
+        if (criteria.getMinAmount() != null && criteria.getMaxAmount() != null
+                && criteria.getMinAmount() > criteria.getMaxAmount()) {
+            throw new AppException(ErrorCode.BAD_REQUEST, "Tổng tiền tối thiểu không được lớn hơn tổng tiền tối đa");
+        }
+        Specification<ExportReceipt> filter = ExportReceiptSpecifications.matching(criteria);
+        // Khóa con trỏ là "ngày lập|ID" của phiếu cuối trang trước
+        KeysetPage<ExportReceipt> page = keysetPagination.page(cursor, limit, SearchKey::parse,
+            (afterKey, pageable) -> exportReceiptRepository.search(afterKey == null ? filter
+                : filter.and(ExportReceiptSpecifications.after(afterKey.createDate(), afterKey.exportReceiptId())), pageable),
+            receipt -> receipt.getCreateDate() + "|" + receipt.getExportReceiptId());
+        return ApiResponse.success("Tìm phiếu xuất hàng thành công", page);
+    }
+
     /**
      * Lấy phiếu xuất hàng theo ID
      * @param exportReceiptId ID của phiếu xuất hàng
@@ -93,12 +157,7 @@ public class ExportReceiptService {
      * @return ApiResponse chứa danh sách phiếu xuất hàng
      */
     public ApiResponse<List<ExportReceipt>> getExportReceiptsByMonthAndYear(Integer month, Integer year) {
-        if (month == null || month < 1 || month > 12) {
-            throw new AppException(ErrorCode.BAD_REQUEST, "Tháng không hợp lệ");
-        }
-        if (year == null || year < 1900 || year > 2100) {
-            throw new AppException(ErrorCode.BAD_REQUEST, "Năm không hợp lệ");
-        }
+        validateMonthAndYear(month, year);
 
         List<ExportReceipt> receipts = exportReceiptRepository.findByMonthAndYear(month, year);
         if (receipts.isEmpty()) {
@@ -107,6 +166,32 @@ public class ExportReceiptService {
         return ApiResponse.success("Lấy danh sách phiếu xuất hàng theo tháng và năm thành công", receipts);
     }
 
+    /**
+     * Bản streaming của getExportReceiptsByMonthAndYear: cùng khuôn dạng phản hồi nhưng các phiếu được đọc
+     * và ghi ra client dần dần nên bộ nhớ không tăng theo số phiếu trong tháng
+     * @param month Tháng cần tìm
+     * @param year Năm cần tìm
+     * @return Thân phản hồi ghi JSON khi Spring MVC gửi phản hồi
+     */
+    public StreamingResponseBody streamExportReceiptsByMonthAndYear(Integer month, Integer year) {
+        validateMonthAndYear(month, year);
+        // Kiểm tra trước khi bắt đầu ghi để vẫn trả được 404 thay vì một danh sách rỗng
+        if (exportReceiptRepository.countByMonthAndYear(month, year) == 0) {
+            throw new AppException(ErrorCode.EXPORT_RECEIPT_NOT_FOUND);
+        }
+        return jsonStreamWriter.stream("Lấy danh sách phiếu xuất hàng theo tháng và năm thành công",
+            () -> exportReceiptRepository.streamByMonthAndYear(month, year));
+    }
+
+    private void validateMonthAndYear(Integer month, Integer year) {
+        if (month == null || month < 1 || month > 12) {
+            throw new AppException(ErrorCode.BAD_REQUEST, "Tháng không hợp lệ");
+        }
+        if (year == null || year < 1900 || year > 2100) {
+            throw new AppException(ErrorCode.BAD_REQUEST, "Năm không hợp lệ");
+        }
+    }
+
     /**
      * Lấy phiếu xuất hàng theo đại lý
      * @param agentId ID của đại lý
@@ -164,24 +249,8 @@ public class ExportReceiptService {
                     request.getPaidAmount(), totalAmount));
         }
 
-        // Kiểm tra Agent debt limit sau khi thêm remainingAmount
-        Integer newTotalDebt = agent.getDebtMoney() + remainingAmount;
-        if (agent.getAgentType() != null && newTotalDebt > agent.getAgentType().getMaximumDebt()) {
-            Map<String, Object> constraintViolation = new HashMap<>();
-            constraintViolation.put("violationType", "AGENT_DEBT_LIMIT_EXCEEDED");
-            constraintViolation.put("agentId", agent.getAgentId());
-            constraintViolation.put("agentName", agent.getAgentName());
-            constraintViolation.put("currentDebt", agent.getDebtMoney());
-            constraintViolation.put("additionalDebt", remainingAmount);
-            constraintViolation.put("newTotalDebt", newTotalDebt);
-            constraintViolation.put("maxAllowedDebt", agent.getAgentType().getMaximumDebt());
-            constraintViolation.put("agentTypeName", agent.getAgentType().getAgentTypeName());
-            constraintViolation.put("suggestion", "Giảm số lượng xuất hoặc tăng số tiền trả trước");
-            
-            throw new AppException(ErrorCode.AGENT_DEBT_LIMIT_EXCEEDED,
-                String.format("Tạo phiếu xuất sẽ làm nợ của đại lý '%s' vượt quá giới hạn. Nợ hiện tại: %d, Thêm: %d, Tổng: %d, Giới hạn: %d", 
-                    agent.getAgentName(), agent.getDebtMoney(), remainingAmount, newTotalDebt, agent.getAgentType().getMaximumDebt()));
-        }
+        // Tăng nợ của Agent và kiểm tra giới hạn nợ trong cùng một câu UPDATE
+        applyExportDebt(agent.getAgentId(), remainingAmount);
 
         // Tạo ExportReceipt
         ExportReceipt exportReceipt = new ExportReceipt();
@@ -205,19 +274,19 @@ public class ExportReceiptService {
         // Lưu ExportDetail
         exportDetailRepository.save(exportDetail);
 
-        // Cập nhật inventory của Product (giảm đi quantityExport)
-        Integer currentInventory = product.getInventoryQuantity();
-        product.setInventoryQuantity(currentInventory - request.getQuantityExport());
-        productRepository.save(product);
+        // Trừ tồn kho có điều kiện ngay trong câu UPDATE để tránh bán vượt khi có nhiều giao dịch đồng thời
+        if (productRepository.decrementInventory(product.getProductId(), request.getQuantityExport()) == 0) {
+            throw new AppException(ErrorCode.INSUFFICIENT_INVENTORY,
+                String.format("Không đủ hàng tồn kho cho sản phẩm '%s'. Yêu cầu: %d", 
+                    product.getProductName(), request.getQuantityExport()));
+        }
 
-        // Cập nhật debt của Agent (tăng lên remainingAmount)
-        Integer currentDebt = agent.getDebtMoney();
-        agent.setDebtMoney(currentDebt + remainingAmount);
-        agentRepository.save(agent);
-        
-        // Cập nhật báo cáo công nợ
+        // Cập nhật bảng tổng hợp trước để báo cáo công nợ tính lại (nếu có) đọc được số liệu mới
+        recordExportAggregate(savedReceipt, 1);
+
+        // Cập nhật báo cáo công nợ: phát sinh tăng thêm tổng tiền của phiếu xuất
         YearMonth monthYear = YearMonth.from(request.getCreateDate());
-        debtReportService.updateDebtReportForAgent(agent.getAgentId(), monthYear);
+        debtReportMaintenanceService.recordChange(agent.getAgentId(), monthYear, totalAmount);
 
         return ApiResponse.created("Tạo phiếu xuất hàng thành công", savedReceipt);
     }
@@ -324,6 +393,11 @@ public class ExportReceiptService {
     public ApiResponse<ExportReceipt> updateExportReceipt(ExportReceipt exportReceipt) {
         ExportReceipt existingReceipt = exportReceiptRepository.findById(exportReceipt.getExportReceiptId())
             .orElseThrow(() -> new AppException(ErrorCode.EXPORT_RECEIPT_NOT_FOUND));
+        int previousAgentId = existingReceipt.getAgent().getAgentId();
+        YearMonth previousMonthYear = YearMonth.from(existingReceipt.getCreateDate());
+        int previousTotalAmount = existingReceipt.getTotalAmount();
+        int previousPaidAmount = existingReceipt.getPaidAmount();
+        int previousRemainingAmount = existingReceipt.getRemainingAmount();
 
         // Cập nhật thông tin
         existingReceipt.setCreateDate(exportReceipt.getCreateDate());
@@ -333,10 +407,17 @@ public class ExportReceiptService {
         existingReceipt.setRemainingAmount(exportReceipt.getRemainingAmount());
 
         ExportReceipt updatedReceipt = exportReceiptRepository.save(existingReceipt);
+
+        // Cập nhật bảng tổng hợp: bỏ số liệu cũ khỏi tháng cũ, cộng số liệu mới vào tháng mới
+        agentMonthlyAggregateService.recordExport(previousAgentId, previousMonthYear, -1,
+            -previousTotalAmount, -previousPaidAmount, -previousRemainingAmount);
+        recordExportAggregate(updatedReceipt, 1);
         
-        // Cập nhật báo cáo công nợ
+        // Cập nhật báo cáo công nợ: bỏ tổng tiền cũ khỏi báo cáo cũ, cộng tổng tiền mới vào báo cáo mới
         YearMonth monthYear = YearMonth.from(updatedReceipt.getCreateDate());
-        debtReportService.updateDebtReportForAgent(updatedReceipt.getAgent().getAgentId(), monthYear);
+        debtReportMaintenanceService.recordChange(previousAgentId, previousMonthYear, -previousTotalAmount);
+        debtReportMaintenanceService.recordChange(updatedReceipt.getAgent().getAgentId(), monthYear,
+            updatedReceipt.getTotalAmount());
 
         return ApiResponse.success("Cập nhật phiếu xuất hàng thành công", updatedReceipt);
     }
@@ -354,12 +435,14 @@ public class ExportReceiptService {
         // Lưu thông tin để cập nhật báo cáo công nợ sau khi xóa
         Agent agent = receipt.getAgent();
         LocalDate createDate = receipt.getCreateDate();
+        int totalAmount = receipt.getTotalAmount();
         
         exportReceiptRepository.delete(receipt);
+        recordExportAggregate(receipt, -1);
         
-        // Cập nhật báo cáo công nợ
+        // Cập nhật báo cáo công nợ: phát sinh giảm đúng tổng tiền của phiếu đã xóa
         YearMonth monthYear = YearMonth.from(createDate);
-        debtReportService.updateDebtReportForAgent(agent.getAgentId(), monthYear);
+        debtReportMaintenanceService.recordChange(agent.getAgentId(), monthYear, -totalAmount);
         
         return ApiResponse.success("Xóa phiếu xuất hàng thành công", null);
     }
@@ -414,10 +497,12 @@ public class ExportReceiptService {
             throw new AppException(ErrorCode.BAD_REQUEST, "Năm không hợp lệ");
         }
 
+        // Đọc một dòng từ bảng tổng hợp thay vì đếm và cộng lại các phiếu xuất
+        AgentMonthlyAggregate aggregate = agentMonthlyAggregateService.getAggregate(agentId, YearMonth.of(year, month));
         Map<String, Object> statistics = new HashMap<>();
-        statistics.put("totalReceipts", exportReceiptRepository.countByAgentAndMonthAndYear(agentId, month, year));
-        statistics.put("totalMoney", exportReceiptRepository.getTotalMoneyByAgentAndMonthAndYear(agentId, month, year));
-        statistics.put("totalRemainAmount", exportReceiptRepository.getTotalRemainAmountByAgentAndMonthAndYear(agentId, month, year));
+        statistics.put("totalReceipts", aggregate.getExportCount().longValue());
+        statistics.put("totalMoney", aggregate.getTotalAmount());
+        statistics.put("totalRemainAmount", aggregate.getRemainingAmount());
 
         return ApiResponse.success("Lấy thống kê xuất hàng theo đại lý, tháng và năm thành công", statistics);
     }
@@ -441,34 +526,31 @@ public class ExportReceiptService {
         Agent agent = agentRepository.findById(request.getAgentId())
                 .orElseThrow(() -> new AppException(ErrorCode.AGENT_NOT_FOUND));
 
-        // Tạo ExportReceipt trước
-        ExportReceipt exportReceipt = new ExportReceipt();
-        exportReceipt.setAgent(agent);
-        exportReceipt.setCreateDate(request.getCreateDate());
-        exportReceipt.setTotalAmount(0); // Sẽ tính sau
-        exportReceipt.setPaidAmount(request.getPaidAmount());
-        exportReceipt.setRemainingAmount(0); // Sẽ tính sau
+        // Kiểm tra sản phẩm trùng trong cùng một phiếu xuất
+        Set<Integer> productIds = new LinkedHashSet<>();
+        for (ExportDetailRequest detailRequest : request.getExportDetails()) {
+            if (!productIds.add(detailRequest.getProductID())) {
+                throw new AppException(ErrorCode.BAD_REQUEST, 
+                    "Sản phẩm ID " + detailRequest.getProductID() + " đã tồn tại trong phiếu xuất này");
+            }
+        }
 
-        // Lưu ExportReceipt trước để có ID
-        ExportReceipt savedReceipt = exportReceiptRepository.save(exportReceipt);
+        // Lấy tất cả sản phẩm trong một truy vấn
+        Map<Integer, Product> productsById = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            productsById.put(product.getProductId(), product);
+        }
 
-        List<ExportDetail> exportDetailList = new ArrayList<>();
+        List<ExportDetail> exportDetailList = new ArrayList<>(request.getExportDetails().size());
+        Map<Integer, Integer> quantitiesByProductId = new HashMap<>();
         Integer totalAmount = 0;
 
-        // Xử lý từng mặt hàng
+        // Kiểm tra từng mặt hàng trong bộ nhớ
         for (ExportDetailRequest detailRequest : request.getExportDetails()) {
-            // Kiểm tra sản phẩm tồn tại
-            Product product = productRepository.findById(detailRequest.getProductID())
-                    .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND, 
-                        "Không tìm thấy sản phẩm với ID: " + detailRequest.getProductID()));
-
-            // Kiểm tra sản phẩm có trùng trong cùng một phiếu xuất không
-            boolean isDuplicate = exportDetailList.stream()
-                    .anyMatch(detail -> detail.getProduct().getProductId().equals(detailRequest.getProductID()));
-            
-            if (isDuplicate) {
-                throw new AppException(ErrorCode.BAD_REQUEST, 
-                    "Sản phẩm ID " + detailRequest.getProductID() + " đã tồn tại trong phiếu xuất này");
+            Product product = productsById.get(detailRequest.getProductID());
+            if (product == null) {
+                throw new AppException(ErrorCode.PRODUCT_NOT_FOUND, 
+                    "Không tìm thấy sản phẩm với ID: " + detailRequest.getProductID());
             }
 
             // Kiểm tra số lượng tồn kho
@@ -487,19 +569,14 @@ public class ExportReceiptService {
 
             // Tạo ExportDetail
             ExportDetail exportDetail = new ExportDetail();
-            exportDetail.setExportReceipt(savedReceipt);
             exportDetail.setProduct(product);
             exportDetail.setQuantityExport(detailRequest.getQuantityExport());
             exportDetail.setExportPrice(exportPrice);
             exportDetail.setIntoMoney(intoMoney);
 
             exportDetailList.add(exportDetail);
+            quantitiesByProductId.put(product.getProductId(), detailRequest.getQuantityExport());
             totalAmount += intoMoney;
-
-            // Cập nhật inventory của Product (giảm đi quantityExport)
-            Integer currentInventory = product.getInventoryQuantity();
-            product.setInventoryQuantity(currentInventory - detailRequest.getQuantityExport());
-            productRepository.save(product);
         }
 
         // Kiểm tra paidAmount không vượt quá totalAmount
@@ -510,26 +587,61 @@ public class ExportReceiptService {
         // Tính remainingAmount
         Integer remainingAmount = totalAmount - request.getPaidAmount();
 
-        // Lưu tất cả ExportDetail
-        exportDetailRepository.saveAll(exportDetailList);
+        // Tăng nợ của Agent và kiểm tra giới hạn nợ trong cùng một câu UPDATE
+        applyExportDebt(agent.getAgentId(), remainingAmount);
 
-        // Cập nhật totalAmount và remainingAmount cho ExportReceipt
-        savedReceipt.setTotalAmount(totalAmount);
-        savedReceipt.setRemainingAmount(remainingAmount);
-        ExportReceipt finalReceipt = exportReceiptRepository.save(savedReceipt);
+        // Lưu ExportReceipt với tổng tiền đã tính
+        ExportReceipt exportReceipt = new ExportReceipt();
+        exportReceipt.setAgent(agent);
+        exportReceipt.setCreateDate(request.getCreateDate());
+        exportReceipt.setTotalAmount(totalAmount);
+        exportReceipt.setPaidAmount(request.getPaidAmount());
+        exportReceipt.setRemainingAmount(remainingAmount);
+        ExportReceipt finalReceipt = exportReceiptRepository.save(exportReceipt);
 
-        // Cập nhật debt của Agent (tăng lên remainingAmount)
-        Integer currentDebt = agent.getDebtMoney();
-        agent.setDebtMoney(currentDebt + remainingAmount);
-        agentRepository.save(agent);
-        
-        // Cập nhật báo cáo công nợ
+        // Lưu tất cả ExportDetail bằng JDBC batch, rồi trừ tồn kho có điều kiện từng sản phẩm
+        for (ExportDetail exportDetail : exportDetailList) {
+            exportDetail.setExportReceipt(finalReceipt);
+        }
+        exportDetailRepository.batchInsert(exportDetailList);
+        List<Integer> insufficientProductIds = productRepository.batchDecrementInventory(quantitiesByProductId);
+        if (!insufficientProductIds.isEmpty()) {
+            throw new AppException(ErrorCode.INSUFFICIENT_INVENTORY, 
+                "Không đủ hàng tồn kho cho sản phẩm ID: " + insufficientProductIds);
+        }
+
+        recordExportAggregate(finalReceipt, 1);
+
+        // Cập nhật báo cáo công nợ: phát sinh tăng thêm tổng tiền của phiếu xuất
         YearMonth monthYear = YearMonth.from(request.getCreateDate());
-        debtReportService.updateDebtReportForAgent(agent.getAgentId(), monthYear);
+        debtReportMaintenanceService.recordChange(agent.getAgentId(), monthYear, finalReceipt.getTotalAmount());
 
         return ApiResponse.created("Tạo phiếu xuất hàng với nhiều mặt hàng thành công", finalReceipt);
     }
 
+    /**
+     * Tăng nợ đại lý theo số tiền còn lại của phiếu xuất, ném lỗi nếu vượt giới hạn nợ
+     * @param agentId ID của đại lý
+     * @param remainingAmount Số tiền còn nợ của phiếu xuất
+     */
+    private void applyExportDebt(Integer agentId, Integer remainingAmount) {
+        Optional<DebtLimitViolation> violation = agentService.applyDebtDelta(agentId, remainingAmount, true);
+        if (violation.isPresent()) {
+            violation.get().setSuggestion("Giảm số lượng xuất hoặc tăng số tiền trả trước");
+            throw violation.get().toAppException();
+        }
+    }
+
+    /**
+     * Cộng (sign = 1) hoặc trừ (sign = -1) số liệu của phiếu xuất vào bảng tổng hợp theo đại lý và tháng
+     * @param receipt Phiếu xuất
+     * @param sign Dấu của thay đổi
+     */
+    private void recordExportAggregate(ExportReceipt receipt, int sign) {
+        agentMonthlyAggregateService.recordExport(receipt.getAgent().getAgentId(), YearMonth.from(receipt.getCreateDate()),
+            sign, sign * receipt.getTotalAmount(), sign * receipt.getPaidAmount(), sign * receipt.getRemainingAmount());
+    }
+
     /**
      * Tạo phiếu xuất hàng mới (method cũ cho tương thích ngược)
      * @param exportReceipt Phiếu xuất hàng cần tạo
@@ -544,6 +656,14 @@ public class ExportReceiptService {
         }
         
         ExportReceipt savedReceipt = exportReceiptRepository.save(exportReceipt);
+        recordExportAggregate(savedReceipt, 1);
         return ApiResponse.created("Tạo phiếu xuất hàng thành công", savedReceipt);
     }
-}
\ No newline at end of file
+
+    private record SearchKey(LocalDate createDate, int exportReceiptId) {
+        static SearchKey parse(String key) {
+            int separator = key.indexOf('|');
+            return new SearchKey(LocalDate.parse(key.substring(0, separator)), Integer.parseInt(key.substring(separator + 1)));
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.example.AgentManagementBE.Repository.ImportReceiptRepository;
 import org.example.AgentManagementBE.Repository.ImportDetailRepository;
 import org.example.AgentManagementBE.Repository.ProductRepository;
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
+import org.example.AgentManagementBE.DTO.response.KeysetPage;
 import org.example.AgentManagementBE.DTO.request.CreateImportReceiptRequest;
 import org.example.AgentManagementBE.DTO.request.CreateImportReceiptWithMultipleProductsRequest;
 import org.example.AgentManagementBE.DTO.request.ImportDetailRequest;
@@ -29,28 +30,43 @@ public class ImportReceiptService {
     private final ImportReceiptRepository importReceiptRepository;
     private final ImportDetailRepository importDetailRepository;
     private final ProductRepository productRepository;
+    private final KeysetPagination keysetPagination;
 
     @Autowired
     public ImportReceiptService(ImportReceiptRepository importReceiptRepository, 
                                ImportDetailRepository importDetailRepository,
-                               ProductRepository productRepository) {
+                               ProductRepository productRepository,
+                               KeysetPagination keysetPagination) {
         this.importReceiptRepository = importReceiptRepository;
         this.importDetailRepository = importDetailRepository;
         this.productRepository = productRepository;
+        this.keysetPagination = keysetPagination;
     }
 
     /**
-     * Lấy tất cả phiếu nhập hàng
+     * Lấy tất cả phiếu nhập hàng (all=true), tối đa pagination.all-max-rows phiếu
      * @return ApiResponse chứa danh sách phiếu nhập hàng
      */
     public ApiResponse<List<ImportReceipt>> getAllImportReceipts() {
-        List<ImportReceipt> receipts = importReceiptRepository.findAll();
+        List<ImportReceipt> receipts = keysetPagination.all(importReceiptRepository::findPageAfter);
         if (receipts.isEmpty()) {
             throw new AppException(ErrorCode.IMPORT_RECEIPT_NOT_FOUND);
         }
         return ApiResponse.success("Lấy danh sách phiếu nhập hàng thành công", receipts);
     }
 
+    /**
+     * Lấy một trang phiếu nhập hàng theo ID tăng dần
+     * @param cursor Con trỏ nextCursor của trang trước, null cho trang đầu
+     * @param limit Số phiếu mỗi trang, null để dùng mặc định
+     * @return ApiResponse chứa trang phiếu nhập hàng
+     */
+    public ApiResponse<KeysetPage<ImportReceipt>> getImportReceiptPage(String cursor, Integer limit) {
+        KeysetPage<ImportReceipt> page = keysetPagination.page(cursor, limit,
+            importReceiptRepository::findPageAfter, ImportReceipt::getImportReceiptId);
+        return ApiResponse.success("Lấy danh sách phiếu nhập hàng thành công", page);
+    }
+
     /**
      * Lấy phiếu nhập hàng theo ID
      * @param importReceiptId ID của phiếu nhập hàng
@@ -145,10 +161,8 @@ public class ImportReceiptService {
         // Lưu ImportDetail
         importDetailRepository.save(importDetail);
 
-        // Cập nhật inventory của Product
-        Integer currentInventory = product.getInventoryQuantity();
-        product.setInventoryQuantity(currentInventory + request.getQuantityImport());
-        productRepository.save(product);
+        // Cộng tồn kho ngay trong câu UPDATE để không ghi đè phiếu xuất đồng thời
+        productRepository.incrementInventory(product.getProductId(), request.getQuantityImport());
 
         return ApiResponse.created("Tạo phiếu nhập hàng thành công", savedReceipt);
     }
@@ -202,23 +216,16 @@ public class ImportReceiptService {
         // Lấy danh sách các ImportDetail để xử lý inventory
         List<ImportDetail> importDetails = importDetailRepository.findByImportReceipt_ImportReceiptId(importReceiptId);
         
-        // Trừ lại inventory của các sản phẩm
+        // Trừ lại inventory của các sản phẩm bằng câu UPDATE có điều kiện, tồn kho không bao giờ âm
         for (ImportDetail detail : importDetails) {
             Product product = detail.getProduct();
-            Integer currentInventory = product.getInventoryQuantity();
             Integer quantityToSubtract = detail.getQuantityImport();
-            
-            // Kiểm tra xem có đủ inventory để trừ không
-            if (currentInventory < quantityToSubtract) {
+            if (productRepository.decrementInventory(product.getProductId(), quantityToSubtract) == 0) {
                 throw new AppException(ErrorCode.BAD_REQUEST, 
                     "Không thể xóa phiếu nhập hàng. Số lượng tồn kho hiện tại của sản phẩm '" 
-                    + product.getProductName() + "' (" + currentInventory + ") " +
+                    + product.getProductName() + "' (" + currentInventory(product) + ") " +
                     "không đủ để trừ số lượng đã nhập (" + quantityToSubtract + ")");
             }
-            
-            // Cập nhật inventory
-            product.setInventoryQuantity(currentInventory - quantityToSubtract);
-            productRepository.save(product);
         }
         
         // Xóa các ImportDetail trước
@@ -305,11 +312,17 @@ public class ImportReceiptService {
         // Cập nhật chỉ totalAmount của ImportReceipt bằng query
         importReceiptRepository.updateTotalAmount(request.getImportReceiptId(), newTotalAmount);
 
-        // Cập nhật inventory của Product: trừ quantity cũ, cộng quantity mới
-        Integer currentInventory = product.getInventoryQuantity();
-        Integer newInventory = currentInventory - oldQuantity + newQuantity;
-        product.setInventoryQuantity(newInventory);
-        productRepository.save(product);
+        // Cập nhật inventory của Product theo chênh lệch quantity, giảm thì chỉ trừ khi còn đủ tồn kho
+        int quantityDelta = newQuantity - oldQuantity;
+        if (quantityDelta > 0) {
+            productRepository.incrementInventory(product.getProductId(), quantityDelta);
+        } else if (quantityDelta < 0
+                && productRepository.decrementInventory(product.getProductId(), -quantityDelta) == 0) {
+            throw new AppException(ErrorCode.INSUFFICIENT_INVENTORY,
+                "Không thể giảm số lượng nhập. Số lượng tồn kho hiện tại của sản phẩm '"
+                + product.getProductName() + "' (" + currentInventory(product) + ") " +
+                "không đủ để trừ " + (-quantityDelta));
+        }
 
         // Load lại ImportReceipt sau khi update để trả về response
         ImportReceipt updatedReceipt = importReceiptRepository.findById(request.getImportReceiptId())
@@ -377,10 +390,8 @@ public class ImportReceiptService {
             importDetailList.add(importDetail);
             totalAmount += intoMoney;
 
-            // Cập nhật inventory của Product
-            Integer currentInventory = product.getInventoryQuantity();
-            product.setInventoryQuantity(currentInventory + detailRequest.getQuantityImport());
-            productRepository.save(product);
+            // Cộng tồn kho ngay trong câu UPDATE
+            productRepository.incrementInventory(product.getProductId(), detailRequest.getQuantityImport());
         }
 
         // Lưu tất cả ImportDetail
@@ -392,4 +403,12 @@ public class ImportReceiptService {
 
         return ApiResponse.created("Tạo phiếu nhập hàng với nhiều mặt hàng thành công", finalReceipt);
     }
+
+    /**
+     * Tồn kho hiện tại trong cơ sở dữ liệu, không lấy từ entity đã nạp trước câu UPDATE
+     */
+    private Integer currentInventory(Product product) {
+        return productRepository.findInventoryQuantityById(product.getProductId())
+            .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
+    }
 }
\ No newline at end of file
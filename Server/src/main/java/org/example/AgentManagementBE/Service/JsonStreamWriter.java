@@ -0,0 +1,98 @@
+package org.example.AgentManagementBE.Service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Ghi kết quả truy vấn dạng Stream thành phản hồi JSON cùng khuôn dạng ApiResponse
+ * ({"code", "status", "message", "data": [...]}) mà không giữ toàn bộ danh sách trong bộ nhớ.
+ * Mỗi dòng được ghi ngay qua JsonGenerator; cứ streaming.clear-every dòng thì đẩy dữ liệu ra client
+ * và xóa persistence context để các entity đã ghi được thu gom.
+ */
+@Component
+public class JsonStreamWriter {
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int clearEvery;
+
+    @Autowired
+    public JsonStreamWriter(ObjectMapper objectMapper,
+                            EntityManager entityManager,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${streaming.clear-every:1000}") int clearEvery) {
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.clearEvery = Math.max(1, clearEvery);
+    }
+
+    /**
+     * Thân phản hồi ghi các dòng của rows vào trường data. Truy vấn chỉ chạy khi Spring MVC ghi phản hồi,
+     * trong một giao dịch chỉ đọc riêng giữ kết nối mở suốt quá trình duyệt Stream.
+     * @param message Thông điệp của phản hồi
+     * @param rows Tạo Stream kết quả; được gọi bên trong giao dịch và luôn được đóng
+     */
+    public <T> StreamingResponseBody stream(String message, Supplier<Stream<T>> rows) {
+        return outputStream -> write(message, rows, outputStream);
+    }
+
+    /**
+     * Ghi ngay vào outputStream, trả về số dòng đã ghi
+     */
+    public <T> long write(String message, Supplier<Stream<T>> rows, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+            // Lỗi giữa chừng phải để lại JSON dở dang, không tự đóng mảng thành một danh sách thiếu mà trông hợp lệ
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.writeStartObject();
+            generator.writeNumberField("code", 200);
+            generator.writeStringField("status", "success");
+            generator.writeStringField("message", message);
+            generator.writeArrayFieldStart("data");
+            Long written;
+            try {
+                written = readOnlyTransaction.execute(status -> writeRows(rows, generator));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            return written == null ? 0 : written;
+        }
+    }
+
+    private <T> long writeRows(Supplier<Stream<T>> rows, JsonGenerator generator) {
+        long written = 0;
+        try (Stream<T> stream = rows.get()) {
+            Iterator<T> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
+                written++;
+                if (written % clearEvery == 0) {
+                    generator.flush();
+                    entityManager.clear();
+                }
+            }
+        } catch (IOException e) {
+            // Client ngắt kết nối: dừng duyệt và trả kết nối cơ sở dữ liệu
+            throw new UncheckedIOException(e);
+        }
+        return written;
+    }
+}
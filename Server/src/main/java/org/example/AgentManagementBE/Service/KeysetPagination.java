@@ -0,0 +1,119 @@
+package org.example.AgentManagementBE.Service;
+
+import org.example.AgentManagementBE.DTO.response.KeysetPage;
+import org.example.AgentManagementBE.exception.AppException;
+import org.example.AgentManagementBE.exception.ErrorCode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Phân trang theo khóa (seek) dùng chung cho các API danh sách.
+ * Mỗi repository cung cấp một truy vấn "khóa lớn hơn afterKey, sắp theo khóa tăng dần" nhận Pageable làm giới hạn số dòng;
+ * trang tiếp theo bắt đầu ngay sau khóa cuối của trang trước nên chi phí mỗi trang không tăng theo vị trí như OFFSET.
+ * Con trỏ trả cho client là khóa cuối được mã hóa Base64, client chỉ truyền lại chứ không tự tạo.
+ */
+@Component
+public class KeysetPagination {
+    private final int defaultLimit;
+    private final int maxLimit;
+    private final int allMaxRows;
+
+    @Autowired
+    public KeysetPagination(@Value("${pagination.default-limit:50}") int defaultLimit,
+                            @Value("${pagination.max-limit:500}") int maxLimit,
+                            @Value("${pagination.all-max-rows:10000}") int allMaxRows) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.defaultLimit = Math.min(Math.max(1, defaultLimit), this.maxLimit);
+        this.allMaxRows = Math.max(1, allMaxRows);
+    }
+
+    /**
+     * Lấy một trang sau con trỏ
+     * @param cursor Con trỏ nextCursor của trang trước, null hoặc rỗng để lấy trang đầu
+     * @param limit Số dòng mỗi trang, null để dùng mặc định; không được vượt quá pagination.max-limit
+     * @param query Truy vấn (afterKey, giới hạn) → các dòng có khóa lớn hơn afterKey theo thứ tự khóa tăng dần
+     * @param keyOf Khóa của một dòng
+     */
+    public <T> KeysetPage<T> page(String cursor, Integer limit, BiFunction<Integer, Pageable, List<T>> query,
+                                  Function<T, Integer> keyOf) {
+        return page(cursor, limit, KeysetPagination::parseIdKey, (afterKey, pageable) ->
+            query.apply(afterKey == null ? 0 : afterKey, pageable), row -> Integer.toString(keyOf.apply(row)));
+    }
+
+    /**
+     * Lấy một trang sau con trỏ với khóa nhiều cột (ví dụ ngày rồi ID); thứ tự do truy vấn quyết định
+     * @param keyParser Chuyển chuỗi khóa đã giải mã thành khóa, ném RuntimeException nếu không hợp lệ
+     * @param query Truy vấn (afterKey hoặc null cho trang đầu, giới hạn) → các dòng đứng sau afterKey
+     * @param keyFormatter Chuỗi khóa của một dòng, keyParser phải đọc lại được
+     */
+    public <K, T> KeysetPage<T> page(String cursor, Integer limit, Function<String, K> keyParser,
+                                     BiFunction<K, Pageable, List<T>> query, Function<T, String> keyFormatter) {
+        int pageSize = resolveLimit(limit);
+        K afterKey = decodeCursor(cursor, keyParser);
+        // Lấy thêm một dòng để biết còn trang sau hay không mà không cần COUNT
+        List<T> rows = query.apply(afterKey, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        List<T> items = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        String nextCursor = hasMore ? encodeCursor(keyFormatter.apply(items.get(items.size() - 1))) : null;
+        return new KeysetPage<>(items, nextCursor, hasMore, pageSize);
+    }
+
+    /**
+     * Lấy toàn bộ dòng cho tham số all=true, báo lỗi thay vì trả về khi vượt quá pagination.all-max-rows
+     * @param query Cùng truy vấn dùng cho page
+     */
+    public <T> List<T> all(BiFunction<Integer, Pageable, List<T>> query) {
+        List<T> rows = query.apply(0, PageRequest.of(0, allMaxRows + 1));
+        if (rows.size() > allMaxRows) {
+            throw new AppException(ErrorCode.RESULT_TOO_LARGE,
+                "Kết quả vượt quá " + allMaxRows + " dòng, hãy dùng phân trang với tham số cursor và limit");
+        }
+        return rows;
+    }
+
+    private int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return defaultLimit;
+        }
+        if (limit < 1 || limit > maxLimit) {
+            throw new AppException(ErrorCode.BAD_REQUEST, "Số dòng mỗi trang phải từ 1 đến " + maxLimit);
+        }
+        return limit;
+    }
+
+    private static String encodeCursor(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static <K> K decodeCursor(String cursor, Function<String, K> keyParser) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return keyParser.apply(new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8));
+        } catch (AppException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // Gồm lỗi giải mã Base64 và lỗi đọc khóa của keyParser
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+    }
+
+    private static Integer parseIdKey(String key) {
+        int id = Integer.parseInt(key);
+        if (id < 0) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+        return id;
+    }
+}
@@ -1,40 +1,81 @@
 package org.example.AgentManagementBE.Service;
 
-import org.example.AgentManagementBE.Model.Product;
+import org.example.AgentManagementBE.Config.CacheCoherenceService;
 import org.example.AgentManagementBE.Model.Parameter;
 import org.example.AgentManagementBE.Model.District;
-import org.example.AgentManagementBE.Repository.ProductRepository;
 import org.example.AgentManagementBE.Repository.ParameterRepository;
 import org.example.AgentManagementBE.Repository.AgentRepository;
 import org.example.AgentManagementBE.Repository.DistrictRepository;
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
+import org.example.AgentManagementBE.DTO.response.ExportPriceRefreshJob;
 import org.example.AgentManagementBE.exception.AppException;
 import org.example.AgentManagementBE.exception.ErrorCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.context.annotation.Lazy;
 
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Service quản lý tham số hệ thống. Toàn bộ bảng Parameter được giữ trong một snapshot bất biến
+ * (đọc không khóa qua biến volatile), thay snapshot mới kèm số phiên bản tăng dần sau mỗi lần thêm
+ * hoặc cập nhật tham số được commit (hoặc khi CacheCoherenceService báo node khác đã thay đổi),
+ * rồi báo cho các listener đã đăng ký theo khóa tham số.
+ */
 @Service
 public class ParameterService {
+    private static final Logger logger = LoggerFactory.getLogger(ParameterService.class);
+
+    /**
+     * Nhận thông báo khi giá trị một tham số thay đổi, được gọi sau khi giao dịch thay đổi đã commit
+     */
+    @FunctionalInterface
+    public interface ParameterChangeListener {
+        void onParameterChanged(String paramKey, String oldValue, String newValue, long version);
+    }
+
+    private record Snapshot(long version, List<Parameter> parameters, Map<String, Parameter> byKey) {
+    }
+
     private final ParameterRepository parameterRepository;
-    private final ProductRepository productRepository;
     private final ProductService productService;
     private final AgentRepository agentRepository;
     private final DistrictRepository districtRepository;
+    private final CacheCoherenceService cacheCoherenceService;
+
+    private final Map<String, List<ParameterChangeListener>> listeners = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot;
     
     public ParameterService(ParameterRepository parameterRepository, 
-                           ProductRepository productRepository,
                            @Lazy ProductService productService,
                            AgentRepository agentRepository,
-                           DistrictRepository districtRepository) {
+                           DistrictRepository districtRepository,
+                           CacheCoherenceService cacheCoherenceService) {
         this.parameterRepository = parameterRepository;
-        this.productRepository = productRepository;
         this.productService = productService;
         this.agentRepository = agentRepository;
         this.districtRepository = districtRepository;
+        this.cacheCoherenceService = cacheCoherenceService;
+        cacheCoherenceService.register(CacheCoherenceService.REGION_PARAMETER, this::reload);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup() {
+        reload();
     }
 
     public ApiResponse<Parameter> addParameter(Parameter parameter) {
@@ -51,6 +92,7 @@ public class ParameterService {
         }
 
         Parameter savedParameter = parameterRepository.save(parameter);
+        reloadAfterCommit();
         return ApiResponse.created("Thêm tham số thành công", savedParameter);
     }
 
@@ -59,15 +101,13 @@ public class ParameterService {
             throw new AppException(ErrorCode.BAD_REQUEST);
         }
 
-        Parameter parameter = parameterRepository.findByParamKey(paramKey);
-        if (parameter == null) {
-            throw new AppException(ErrorCode.PARAMETER_NOT_FOUND);
-        }
+        Parameter parameter = findParameter(paramKey)
+            .orElseThrow(() -> new AppException(ErrorCode.PARAMETER_NOT_FOUND));
         return ApiResponse.success("Lấy thông tin tham số thành công", parameter);
     }
 
     public ApiResponse<List<Parameter>> getAllParameters() {
-        List<Parameter> parameters = parameterRepository.findAll();
+        List<Parameter> parameters = snapshot().parameters();
         return ApiResponse.success("Lấy danh sách tham số thành công", parameters);
     }
 
@@ -139,8 +179,7 @@ public class ParameterService {
                     existingParameter.setParamDescription(parameter.getParamDescription());
                 }
                 parameterRepository.save(existingParameter);
-                
-                productService.refreshAllProductExportPrices();
+                // Giá xuất được ExportPriceRefreshService cập nhật nền khi snapshot mới báo tỷ lệ thay đổi sau commit
                 
             } catch (NumberFormatException e) {
                 throw new AppException(ErrorCode.INVALID_PARAMETER_VALUE, "Giá trị tỷ lệ đơn giá xuất không hợp lệ - phải là số");
@@ -153,39 +192,169 @@ public class ParameterService {
             parameterRepository.save(existingParameter);
         }
 
+        reloadAfterCommit();
         return ApiResponse.success("Cập nhật tham số thành công", existingParameter);
     }
 
     /**
-     * Áp dụng tỷ lệ đơn giá xuất cho tất cả sản phẩm
+     * Áp dụng tỷ lệ đơn giá xuất hiện tại cho tất cả sản phẩm, chạy nền
      */
-    @Transactional
-    public ApiResponse<String> applyExportPriceRatioToAllProducts() {
+    public ApiResponse<ExportPriceRefreshJob> applyExportPriceRatioToAllProducts() {
+        // Lấy tỷ lệ hiện tại từ parameter
+        String ratioValue = findValue("export_price_ratio")
+            .orElseThrow(() -> new AppException(ErrorCode.PARAMETER_NOT_FOUND, "Không tìm thấy tham số export_price_ratio"));
+
+        double ratio;
+        try {
+            ratio = Double.parseDouble(ratioValue);
+        } catch (NumberFormatException e) {
+            throw new AppException(ErrorCode.INVALID_PARAMETER_VALUE, "Giá trị tỷ lệ đơn giá xuất không hợp lệ");
+        }
+        return productService.refreshAllProductExportPrices(ratio);
+    }
+
+    /**
+     * Tra tham số trong snapshot; nếu không có thì hỏi cơ sở dữ liệu (tham số vừa được thêm ở node khác)
+     * mà không đưa vào snapshot. Entity trả về dùng chung giữa các luồng, không được sửa.
+     */
+    public Optional<Parameter> findParameter(String paramKey) {
+        if (paramKey == null) {
+            return Optional.empty();
+        }
+        Parameter cached = snapshot().byKey().get(paramKey);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return Optional.ofNullable(parameterRepository.findByParamKey(paramKey));
+    }
+
+    public Optional<String> findValue(String paramKey) {
+        return findParameter(paramKey).map(Parameter::getParamValue);
+    }
+
+    /**
+     * Giá trị số nguyên của tham số, hoặc defaultValue nếu tham số không tồn tại hay không phải số
+     */
+    public long getLong(String paramKey, long defaultValue) {
+        Optional<String> value = findValue(paramKey);
+        if (value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.get().trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Giá trị số thực của tham số, hoặc defaultValue nếu tham số không tồn tại hay không phải số
+     */
+    public double getDouble(String paramKey, double defaultValue) {
+        Optional<String> value = findValue(paramKey);
+        if (value.isEmpty()) {
+            return defaultValue;
+        }
         try {
-            // Lấy tỷ lệ hiện tại từ parameter
-            Parameter exportRatioParam = parameterRepository.findByParamKey("export_price_ratio");
-            if (exportRatioParam == null) {
-                throw new AppException(ErrorCode.PARAMETER_NOT_FOUND, "Không tìm thấy tham số export_price_ratio");
+            return Double.parseDouble(value.get().trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Phiên bản của snapshot hiện tại, tăng sau mỗi lần nạp lại
+     */
+    public long getVersion() {
+        return snapshot().version();
+    }
+
+    public void addListener(String paramKey, ParameterChangeListener listener) {
+        listeners.computeIfAbsent(paramKey, key -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public void removeListener(String paramKey, ParameterChangeListener listener) {
+        List<ParameterChangeListener> registered = listeners.get(paramKey);
+        if (registered != null) {
+            registered.remove(listener);
+        }
+    }
+
+    /**
+     * Nạp lại toàn bộ bảng Parameter, thay snapshot với phiên bản mới và báo cho listener
+     * của những tham số có giá trị thay đổi
+     */
+    public void reload() {
+        Snapshot previous;
+        Snapshot next;
+        synchronized (this) {
+            previous = snapshot;
+            List<Parameter> parameters = parameterRepository.findAll().stream()
+                .map(p -> new Parameter(p.getParamKey(), p.getParamValue(), p.getParamDescription()))
+                .sorted(Comparator.comparing(Parameter::getParamKey))
+                .toList();
+            Map<String, Parameter> byKey = new HashMap<>(parameters.size() * 2);
+            for (Parameter parameter : parameters) {
+                byKey.put(parameter.getParamKey(), parameter);
             }
+            next = new Snapshot(previous == null ? 1 : previous.version() + 1, parameters, Map.copyOf(byKey));
+            snapshot = next;
+        }
+        logger.debug("Đã nạp {} tham số, phiên bản {}", next.parameters().size(), next.version());
+        if (previous != null) {
+            notifyListeners(previous, next);
+        }
+    }
 
-            double ratio = Double.parseDouble(exportRatioParam.getParamValue());
-            
-            // Áp dụng cho tất cả sản phẩm
-            List<Product> products = productRepository.findAll();
-            for (Product product : products) {
-                int newExportPrice = (int) Math.round(product.getImportPrice() * ratio);
-                product.setExportPrice(newExportPrice);
+    /**
+     * Nạp lại sau khi giao dịch hiện tại commit (hoặc ngay lập tức nếu không có giao dịch)
+     */
+    public void reloadAfterCommit() {
+        cacheCoherenceService.bumpVersion(CacheCoherenceService.REGION_PARAMETER);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload();
+                }
+            });
+        } else {
+            reload();
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
             }
-            
-            productRepository.saveAll(products);
-            
-            return ApiResponse.success("Áp dụng tỷ lệ đơn giá xuất cho " + products.size() + " sản phẩm thành công", 
-                "Đã cập nhật " + products.size() + " sản phẩm với tỷ lệ " + ratio);
-                
-        } catch (NumberFormatException e) {
-            throw new AppException(ErrorCode.INVALID_PARAMETER_VALUE, "Giá trị tỷ lệ đơn giá xuất không hợp lệ");
-        } catch (Exception e) {
-            throw new AppException(ErrorCode.INTERNAL_SERVER_ERROR, "Lỗi khi áp dụng tỷ lệ đơn giá xuất: " + e.getMessage());
         }
+        return current;
+    }
+
+    private void notifyListeners(Snapshot previous, Snapshot next) {
+        for (Map.Entry<String, List<ParameterChangeListener>> entry : listeners.entrySet()) {
+            String oldValue = valueOf(previous, entry.getKey());
+            String newValue = valueOf(next, entry.getKey());
+            if (Objects.equals(oldValue, newValue)) {
+                continue;
+            }
+            for (ParameterChangeListener listener : entry.getValue()) {
+                try {
+                    listener.onParameterChanged(entry.getKey(), oldValue, newValue, next.version());
+                } catch (RuntimeException e) {
+                    logger.error("Listener của tham số {} bị lỗi: {}", entry.getKey(), e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private static String valueOf(Snapshot snapshot, String paramKey) {
+        Parameter parameter = snapshot.byKey().get(paramKey);
+        return parameter == null ? null : parameter.getParamValue();
     }
 }
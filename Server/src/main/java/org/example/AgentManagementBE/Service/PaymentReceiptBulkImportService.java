@@ -0,0 +1,384 @@
+package org.example.AgentManagementBE.Service;
+
+import org.example.AgentManagementBE.DTO.response.BulkImportLineResult;
+import org.example.AgentManagementBE.DTO.response.BulkImportReport;
+import org.example.AgentManagementBE.DTO.response.DebtLimitViolation;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.PaymentReceipt;
+import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.Repository.PaymentReceiptRepository;
+import org.example.AgentManagementBE.exception.AppException;
+import org.example.AgentManagementBE.exception.ErrorCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Nhập hàng loạt phiếu thu từ sao kê ngân hàng dạng CSV gửi dạng stream, dòng tiêu đề
+ * "paymentDate,amount,agentId,reference". Đại lý được xác định theo cột agentId, nếu bỏ trống thì theo
+ * số điện thoại hoặc email của đại lý xuất hiện trong nội dung chuyển khoản (reference).
+ * Cả tệp chạy trong một giao dịch: phiếu thu được ghi bằng JDBC batch (payment-receipt-bulk.batch-size),
+ * tiền thu được cộng dồn theo đại lý và theo (đại lý, tháng) rồi cuối tệp mới trừ nợ mỗi đại lý bằng một câu
+ * UPDATE, cập nhật bảng tổng hợp và báo cáo công nợ mỗi (đại lý, tháng) một lần.
+ * Trước khi trừ nợ, các đại lý trong tệp được khóa và kiểm tra lại với nợ hiện tại: nếu phiếu thu khác đã
+ * trừ nợ trong lúc nhập, các dòng vượt quá nợ còn lại bị xóa và báo lỗi thay vì hủy cả tệp.
+ * Dòng lỗi chỉ bị bỏ qua, trừ khi strict thì không lưu phiếu nào.
+ */
+@Service
+public class PaymentReceiptBulkImportService {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentReceiptBulkImportService.class);
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String CSV_HEADER = "paymentDate,amount,agentId,reference";
+
+    private final PaymentReceiptRepository paymentReceiptRepository;
+    private final AgentRepository agentRepository;
+    private final AgentService agentService;
+    private final AgentMonthlyAggregateService agentMonthlyAggregateService;
+    private final DebtReportMaintenanceService debtReportMaintenanceService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public PaymentReceiptBulkImportService(PaymentReceiptRepository paymentReceiptRepository,
+                                           AgentRepository agentRepository,
+                                           AgentService agentService,
+                                           AgentMonthlyAggregateService agentMonthlyAggregateService,
+                                           DebtReportMaintenanceService debtReportMaintenanceService,
+                                           PlatformTransactionManager transactionManager,
+                                           @Value("${payment-receipt-bulk.batch-size:500}") int batchSize) {
+        this.paymentReceiptRepository = paymentReceiptRepository;
+        this.agentRepository = agentRepository;
+        this.agentService = agentService;
+        this.agentMonthlyAggregateService = agentMonthlyAggregateService;
+        this.debtReportMaintenanceService = debtReportMaintenanceService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Đọc và nhập toàn bộ sao kê
+     * @param body Nội dung tệp CSV (UTF-8), được đọc dần
+     * @param strict true: lưu cả tệp hoặc không lưu dòng nào
+     * @return Kết quả từng dòng, theo thứ tự dòng trong tệp
+     */
+    public BulkImportReport ingest(InputStream body, boolean strict) throws IOException {
+        long start = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Run run;
+        try {
+            // Nợ đại lý được nạp trong giao dịch, cùng lúc với các câu ghi của tệp
+            run = transactionTemplate.execute(status -> {
+                Run current = new Run(strict);
+                readAll(reader, current);
+                if (!(strict && current.rejectedCount > 0)) {
+                    applyTotals(current);
+                }
+                if (strict && current.rejectedCount > 0) {
+                    status.setRollbackOnly();
+                }
+                return current;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        boolean committed = !(strict && run.rejectedCount > 0);
+        List<BulkImportLineResult> lines = new ArrayList<>(run.results.size());
+        for (BulkImportLineResult result : run.results) {
+            String lateRejection = run.lateRejections.get(result.getLineNumber());
+            if (lateRejection != null) {
+                result = BulkImportLineResult.rejected(result.getLineNumber(), lateRejection);
+            }
+            if (!committed && BulkImportLineResult.STATUS_CREATED.equals(result.getStatus())) {
+                result = new BulkImportLineResult(result.getLineNumber(), BulkImportLineResult.STATUS_ROLLED_BACK, null, null);
+            }
+            lines.add(result);
+        }
+        lines.sort(Comparator.comparing(BulkImportLineResult::getLineNumber));
+        int created = committed ? lines.size() - run.rejectedCount : 0;
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Nhập phiếu thu hàng loạt{}: {} dòng, {} phiếu được tạo, {} dòng lỗi, {} đại lý, {} ms",
+            strict ? " (strict)" : "", lines.size(), created, run.rejectedCount, run.revenueByAgentId.size(), elapsedMillis);
+        return new BulkImportReport(FORMAT_CSV, strict, committed, lines.size(), created, run.rejectedCount,
+            run.batchCount, elapsedMillis, lines);
+    }
+
+    private void readAll(BufferedReader reader, Run run) {
+        try {
+            String line;
+            int lineNumber = 0;
+            boolean headerSeen = false;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (!headerSeen) {
+                    headerSeen = true;
+                    if (!line.replace(" ", "").equalsIgnoreCase(CSV_HEADER)) {
+                        throw new AppException(ErrorCode.INVALID_FORMAT, "Dòng tiêu đề CSV phải là: " + CSV_HEADER);
+                    }
+                    continue;
+                }
+                accept(run, lineNumber, line);
+            }
+            flush(run);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Kiểm tra một dòng với nợ còn lại (đã trừ các dòng trước) của đại lý và đưa phiếu hợp lệ vào lô
+     */
+    private void accept(Run run, int lineNumber, String line) {
+        PaymentReceipt receipt;
+        try {
+            receipt = parse(run, line);
+        } catch (AppException e) {
+            run.results.add(BulkImportLineResult.rejected(lineNumber, e.getMessage()));
+            run.rejectedCount++;
+            return;
+        }
+        int agentId = receipt.getAgent().getAgentId();
+        run.debtByAgentId.merge(agentId, -receipt.getRevenue(), Integer::sum);
+        run.revenueByAgentId.merge(agentId, receipt.getRevenue(), Integer::sum);
+        run.revenueByAgentMonth.merge(new AgentMonth(agentId, YearMonth.from(receipt.getPaymentDate())),
+            receipt.getRevenue(), Integer::sum);
+        run.pending.add(new PendingPayment(lineNumber, receipt));
+        if (run.pending.size() >= batchSize) {
+            flush(run);
+        }
+    }
+
+    private PaymentReceipt parse(Run run, String line) {
+        // Nội dung chuyển khoản là cột cuối, có thể chứa dấu phẩy
+        String[] columns = line.split(",", 4);
+        if (columns.length < 3) {
+            throw new AppException(ErrorCode.INVALID_FORMAT, "Dòng CSV phải có các cột: " + CSV_HEADER);
+        }
+        LocalDate paymentDate;
+        int amount;
+        try {
+            paymentDate = LocalDate.parse(columns[0].trim());
+            amount = Integer.parseInt(columns[1].trim());
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new AppException(ErrorCode.INVALID_FORMAT, "Giá trị không hợp lệ: " + e.getMessage());
+        }
+        if (amount <= 0) {
+            throw new AppException(ErrorCode.BAD_REQUEST, "Số tiền thu phải lớn hơn 0");
+        }
+
+        Agent agent = run.match(columns[2].trim(), columns.length == 4 ? columns[3] : "");
+        int debt = run.debtByAgentId.get(agent.getAgentId());
+        if (amount > debt) {
+            throw new AppException(ErrorCode.BAD_REQUEST, "Số tiền thu " + amount + " vượt quá số tiền nợ hiện tại "
+                + debt + " của đại lý " + agent.getAgentName());
+        }
+        return new PaymentReceipt(agent, paymentDate, amount);
+    }
+
+    private void flush(Run run) {
+        if (run.pending.isEmpty() || (run.strict && run.rejectedCount > 0)) {
+            // Strict đã có dòng lỗi: cả tệp sẽ bị hủy, không cần ghi thêm
+            run.pending.forEach(pending -> run.results.add(new BulkImportLineResult(pending.lineNumber,
+                BulkImportLineResult.STATUS_ROLLED_BACK, null, null)));
+            run.pending.clear();
+            return;
+        }
+        List<PaymentReceipt> receipts = run.pending.stream().map(PendingPayment::receipt).toList();
+        paymentReceiptRepository.batchInsert(receipts);
+        run.batchCount++;
+        for (PendingPayment pending : run.pending) {
+            PaymentReceipt receipt = pending.receipt;
+            run.results.add(BulkImportLineResult.created(pending.lineNumber, receipt.getPaymentId()));
+            run.acceptedByAgentId.computeIfAbsent(receipt.getAgent().getAgentId(), agentId -> new ArrayList<>())
+                .add(new AcceptedPayment(pending.lineNumber, receipt.getPaymentId(), receipt.getRevenue(),
+                    YearMonth.from(receipt.getPaymentDate())));
+        }
+        run.pending.clear();
+    }
+
+    /**
+     * Khóa các đại lý trong tệp và kiểm tra lại với nợ hiện tại, rồi trừ nợ mỗi đại lý một lần theo thứ tự ID,
+     * sau đó cập nhật tổng hợp và báo cáo công nợ mỗi (đại lý, tháng) một lần
+     */
+    private void applyTotals(Run run) {
+        revalidateAgainstLockedDebts(run);
+        if (run.strict && run.rejectedCount > 0) {
+            return;
+        }
+        for (Map.Entry<Integer, Integer> revenue : run.revenueByAgentId.entrySet()) {
+            if (revenue.getValue() == 0) {
+                continue;
+            }
+            Optional<DebtLimitViolation> violation = agentService.applyDebtDelta(revenue.getKey(), -revenue.getValue(), false);
+            if (violation.isPresent()) {
+                throw violation.get().toAppException();
+            }
+        }
+        for (Map.Entry<AgentMonth, Integer> revenue : run.revenueByAgentMonth.entrySet()) {
+            if (revenue.getValue() == 0) {
+                continue;
+            }
+            AgentMonth agentMonth = revenue.getKey();
+            agentMonthlyAggregateService.recordPayment(agentMonth.agentId(), agentMonth.monthYear(), revenue.getValue());
+            debtReportMaintenanceService.recordChange(agentMonth.agentId(), agentMonth.monthYear(), -revenue.getValue());
+        }
+    }
+
+    /**
+     * Nợ đã đọc lúc bắt đầu tệp có thể cũ nếu phiếu thu khác trừ nợ trong lúc nhập. Giữ các dòng của đại lý theo
+     * thứ tự dòng khi tổng còn trong nợ đã khóa; các dòng còn lại bị xóa và báo lỗi, tổng cộng dồn được trừ tương ứng
+     */
+    private void revalidateAgainstLockedDebts(Run run) {
+        Map<Integer, Integer> lockedDebts = agentRepository.lockDebts(run.revenueByAgentId.keySet());
+        List<Integer> rejectedPaymentIds = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> revenue : run.revenueByAgentId.entrySet()) {
+            int debt = lockedDebts.getOrDefault(revenue.getKey(), 0);
+            if (revenue.getValue() <= debt) {
+                continue;
+            }
+            int kept = 0;
+            for (AcceptedPayment payment : run.acceptedByAgentId.get(revenue.getKey())) {
+                if (kept + payment.amount <= debt) {
+                    kept += payment.amount;
+                    continue;
+                }
+                rejectedPaymentIds.add(payment.paymentId);
+                run.lateRejections.put(payment.lineNumber, "Số tiền thu " + payment.amount
+                    + " vượt quá số tiền nợ còn lại " + (debt - kept) + " của đại lý " + run.agentsById.get(revenue.getKey()).getAgentName()
+                    + " (nợ đã thay đổi trong lúc nhập)");
+                run.rejectedCount++;
+                run.revenueByAgentMonth.merge(new AgentMonth(revenue.getKey(), payment.monthYear), -payment.amount, Integer::sum);
+            }
+            revenue.setValue(kept);
+        }
+        if (!rejectedPaymentIds.isEmpty()) {
+            logger.warn("Nhập phiếu thu hàng loạt: {} dòng bị từ chối vì nợ đại lý đã thay đổi trong lúc nhập",
+                rejectedPaymentIds.size());
+            if (!run.strict) {
+                paymentReceiptRepository.deleteAllByIdInBatch(rejectedPaymentIds);
+            }
+        }
+    }
+
+    private record AgentMonth(int agentId, YearMonth monthYear) {
+    }
+
+    private record AcceptedPayment(int lineNumber, int paymentId, int amount, YearMonth monthYear) {
+    }
+
+    private record PendingPayment(int lineNumber, PaymentReceipt receipt) {
+    }
+
+    /**
+     * Trạng thái của một lần nhập: đại lý nạp sẵn, nợ còn lại sau các dòng đã nhận, các tổng cộng dồn và kết quả
+     */
+    private final class Run {
+        private final boolean strict;
+        private final Map<Integer, Agent> agentsById = new HashMap<>();
+        // Số điện thoại (chỉ gồm chữ số) và email chữ thường; giá trị null khi nhiều đại lý trùng
+        private final Map<String, Agent> agentsByContact = new HashMap<>();
+        private final Map<Integer, Integer> debtByAgentId = new HashMap<>();
+        private final Map<Integer, Integer> revenueByAgentId = new TreeMap<>();
+        private final Map<AgentMonth, Integer> revenueByAgentMonth = new HashMap<>();
+        private final List<PendingPayment> pending = new ArrayList<>();
+        private final List<BulkImportLineResult> results = new ArrayList<>();
+        // Các phiếu đã ghi theo đại lý, theo thứ tự dòng, để kiểm tra lại với nợ đã khóa
+        private final Map<Integer, List<AcceptedPayment>> acceptedByAgentId = new HashMap<>();
+        // Dòng đã ghi nhưng bị từ chối khi kiểm tra lại: số dòng → lý do
+        private final Map<Integer, String> lateRejections = new HashMap<>();
+        private int rejectedCount;
+        private int batchCount;
+
+        private Run(boolean strict) {
+            this.strict = strict;
+            for (Agent agent : agentRepository.findAllWithDetails()) {
+                agentsById.put(agent.getAgentId(), agent);
+                debtByAgentId.put(agent.getAgentId(), agent.getDebtMoney() == null ? 0 : agent.getDebtMoney());
+                addContact(phoneKey(agent.getPhone()), agent);
+                addContact(agent.getEmail() == null ? null : agent.getEmail().trim().toLowerCase(Locale.ROOT), agent);
+            }
+        }
+
+        private void addContact(String key, Agent agent) {
+            if (key == null || key.isEmpty()) {
+                return;
+            }
+            agentsByContact.put(key, agentsByContact.containsKey(key) ? null : agent);
+        }
+
+        /**
+         * Đại lý theo agentId, nếu trống thì theo số điện thoại/email duy nhất tìm thấy trong nội dung chuyển khoản
+         */
+        private Agent match(String agentId, String reference) {
+            if (!agentId.isEmpty()) {
+                Agent agent;
+                try {
+                    agent = agentsById.get(Integer.valueOf(agentId));
+                } catch (NumberFormatException e) {
+                    throw new AppException(ErrorCode.INVALID_FORMAT, "agentId không hợp lệ: " + agentId);
+                }
+                if (agent == null) {
+                    throw new AppException(ErrorCode.AGENT_NOT_FOUND, "Không tìm thấy đại lý với ID: " + agentId);
+                }
+                return agent;
+            }
+
+            Agent matched = null;
+            for (String token : reference.split("[\\s,;:()/|]+")) {
+                String key = token.contains("@") ? token.replaceAll("\\.+$", "").toLowerCase(Locale.ROOT) : phoneKey(token);
+                if (key == null || !agentsByContact.containsKey(key)) {
+                    continue;
+                }
+                Agent agent = agentsByContact.get(key);
+                if (agent == null || (matched != null && !matched.getAgentId().equals(agent.getAgentId()))) {
+                    throw new AppException(ErrorCode.BAD_REQUEST, "Nội dung chuyển khoản khớp với nhiều đại lý: " + reference.trim());
+                }
+                matched = agent;
+            }
+            if (matched == null) {
+                throw new AppException(ErrorCode.AGENT_NOT_FOUND, "Không xác định được đại lý từ nội dung chuyển khoản: " + reference.trim());
+            }
+            return matched;
+        }
+
+        /**
+         * Chuẩn hóa số điện thoại về dãy chữ số, bỏ mã quốc gia 84; null nếu không giống số điện thoại
+         */
+        private String phoneKey(String value) {
+            if (value == null) {
+                return null;
+            }
+            String digits = value.replaceAll("[\\s.+-]", "");
+            if (!digits.matches("\\d{9,12}")) {
+                return null;
+            }
+            return digits.startsWith("84") ? "0" + digits.substring(2) : digits;
+        }
+    }
+}
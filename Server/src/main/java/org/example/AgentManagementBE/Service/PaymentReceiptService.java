@@ -7,6 +7,8 @@ import org.example.AgentManagementBE.Repository.DebtReportRepository;
 import org.example.AgentManagementBE.Repository.AgentRepository;
 import org.example.AgentManagementBE.Repository.PaymentReceiptRepository;
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
+import org.example.AgentManagementBE.DTO.response.KeysetPage;
+import org.example.AgentManagementBE.DTO.response.DebtLimitViolation;
 import org.example.AgentManagementBE.exception.AppException;
 import org.example.AgentManagementBE.exception.ErrorCode;
 import org.springframework.stereotype.Service;
@@ -15,6 +17,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Service xử lý logic liên quan đến phiếu thu tiền
@@ -25,32 +28,50 @@ public class PaymentReceiptService {
     private final AgentRepository agentRepository;
     private final AgentService agentService;
     private final DebtReportRepository debtReportRepository;
-    private final DebtReportService debtReportService;
+    private final DebtReportMaintenanceService debtReportMaintenanceService;
+    private final AgentMonthlyAggregateService agentMonthlyAggregateService;
+    private final KeysetPagination keysetPagination;
 
     public PaymentReceiptService(PaymentReceiptRepository paymentReceiptRepository, 
                                AgentRepository agentRepository, 
                                AgentService agentService, 
                                DebtReportRepository debtReportRepository,
-                               DebtReportService debtReportService) {
+                               DebtReportMaintenanceService debtReportMaintenanceService,
+                               AgentMonthlyAggregateService agentMonthlyAggregateService,
+                               KeysetPagination keysetPagination) {
         this.paymentReceiptRepository = paymentReceiptRepository;
         this.agentRepository = agentRepository;
         this.agentService = agentService;
         this.debtReportRepository = debtReportRepository;
-        this.debtReportService = debtReportService;
+        this.debtReportMaintenanceService = debtReportMaintenanceService;
+        this.agentMonthlyAggregateService = agentMonthlyAggregateService;
+        this.keysetPagination = keysetPagination;
     }
 
     /**
-     * Lấy danh sách tất cả phiếu thu tiền
+     * Lấy danh sách tất cả phiếu thu tiền (all=true), tối đa pagination.all-max-rows phiếu
      * @return ApiResponse chứa danh sách phiếu thu tiền
      */
     public ApiResponse<List<PaymentReceipt>> getAllPaymentReceipts() {
-        List<PaymentReceipt> receipts = paymentReceiptRepository.findAll();
+        List<PaymentReceipt> receipts = keysetPagination.all(paymentReceiptRepository::findPageAfter);
         if (receipts.isEmpty()) {
             throw new AppException(ErrorCode.PAYMENT_RECEIPT_NOT_FOUND);
         }
         return ApiResponse.success("Lấy danh sách phiếu thu tiền thành công", receipts);
     }
 
+    /**
+     * Lấy một trang phiếu thu tiền theo ID tăng dần
+     * @param cursor Con trỏ nextCursor của trang trước, null cho trang đầu
+     * @param limit Số phiếu mỗi trang, null để dùng mặc định
+     * @return ApiResponse chứa trang phiếu thu tiền
+     */
+    public ApiResponse<KeysetPage<PaymentReceipt>> getPaymentReceiptPage(String cursor, Integer limit) {
+        KeysetPage<PaymentReceipt> page = keysetPagination.page(cursor, limit,
+            paymentReceiptRepository::findPageAfter, PaymentReceipt::getPaymentId);
+        return ApiResponse.success("Lấy danh sách phiếu thu tiền thành công", page);
+    }
+
     /**
      * Lấy phiếu thu tiền theo ID
      * @param paymentId ID phiếu thu tiền
@@ -99,28 +120,19 @@ public class PaymentReceiptService {
             throw new AppException(ErrorCode.BAD_REQUEST, "Số tiền thu phải lớn hơn 0");
         }
 
-        // Kiểm tra đại lý tồn tại
-        Agent existingAgent = agentRepository.findById(paymentReceipt.getAgent().getAgentId())
-            .orElseThrow(() -> new AppException(ErrorCode.AGENT_NOT_FOUND));
-
-        Integer paymentAmount = paymentReceipt.getRevenue();
-        Integer oldDebtMoney = existingAgent.getDebtMoney();
-        
-        if (oldDebtMoney < paymentAmount) {
-            throw new AppException(ErrorCode.BAD_REQUEST, "Số tiền thu vượt quá số tiền nợ hiện tại");
-        }
-
-        // Cập nhật số tiền nợ của đại lý
-        existingAgent.setDebtMoney(oldDebtMoney - paymentAmount);
-        agentRepository.save(existingAgent);
+        // Giảm nợ của đại lý, câu UPDATE chỉ thành công khi số nợ còn đủ để thu
+        applyPaymentDebt(paymentReceipt.getAgent().getAgentId(), -paymentReceipt.getRevenue());
 
         // Lưu phiếu thu tiền
         PaymentReceipt savedReceipt = paymentReceiptRepository.save(paymentReceipt);
 
-        // Cập nhật báo cáo công nợ theo tháng/năm của phiếu thu
+        // Cập nhật báo cáo công nợ theo tháng/năm của phiếu thu: phát sinh giảm đúng số tiền thu
         LocalDate receiptDate = paymentReceipt.getPaymentDate();
         YearMonth monthYear = YearMonth.from(receiptDate);
-        debtReportService.updateDebtReportForAgent(paymentReceipt.getAgent().getAgentId(), monthYear);
+        agentMonthlyAggregateService.recordPayment(paymentReceipt.getAgent().getAgentId(), monthYear,
+            paymentReceipt.getRevenue());
+        debtReportMaintenanceService.recordChange(paymentReceipt.getAgent().getAgentId(), monthYear,
+            -paymentReceipt.getRevenue());
 
         return ApiResponse.created("Tạo phiếu thu tiền thành công", savedReceipt);
     }
@@ -144,9 +156,8 @@ public class PaymentReceiptService {
             throw new AppException(ErrorCode.BAD_REQUEST, "Số tiền thu phải lớn hơn 0");
         }
 
-        // Kiểm tra đại lý tồn tại
-        Agent agent = agentRepository.findById(paymentReceipt.getAgent().getAgentId())
-            .orElseThrow(() -> new AppException(ErrorCode.AGENT_NOT_FOUND));
+        int previousAgentId = existingReceipt.getAgent().getAgentId();
+        YearMonth previousMonthYear = YearMonth.from(existingReceipt.getPaymentDate());
 
         // Tính toán sự thay đổi trong số tiền thu
         Integer oldRevenue = existingReceipt.getRevenue();
@@ -154,12 +165,7 @@ public class PaymentReceiptService {
         Integer revenueChange = newRevenue - oldRevenue;
 
         // Cập nhật số tiền nợ của đại lý
-        Integer currentDebt = agent.getDebtMoney();
-        if (currentDebt < revenueChange) {
-            throw new AppException(ErrorCode.BAD_REQUEST, "Số tiền thu vượt quá số tiền nợ hiện tại");
-        }
-        agent.setDebtMoney(currentDebt - revenueChange);
-        agentRepository.save(agent);
+        applyPaymentDebt(paymentReceipt.getAgent().getAgentId(), -revenueChange);
 
         // Cập nhật thông tin phiếu thu
         existingReceipt.setPaymentDate(paymentReceipt.getPaymentDate());
@@ -168,10 +174,13 @@ public class PaymentReceiptService {
 
         PaymentReceipt updatedReceipt = paymentReceiptRepository.save(existingReceipt);
 
-        // Cập nhật báo cáo công nợ theo tháng/năm của phiếu thu
+        // Cập nhật báo cáo công nợ: hoàn lại số tiền thu cũ ở báo cáo cũ, trừ số tiền thu mới ở báo cáo mới
         LocalDate receiptDate = updatedReceipt.getPaymentDate();
         YearMonth monthYear = YearMonth.from(receiptDate);
-        debtReportService.updateDebtReportForAgent(updatedReceipt.getAgent().getAgentId(), monthYear);
+        agentMonthlyAggregateService.recordPayment(previousAgentId, previousMonthYear, -oldRevenue);
+        agentMonthlyAggregateService.recordPayment(updatedReceipt.getAgent().getAgentId(), monthYear, newRevenue);
+        debtReportMaintenanceService.recordChange(previousAgentId, previousMonthYear, oldRevenue);
+        debtReportMaintenanceService.recordChange(updatedReceipt.getAgent().getAgentId(), monthYear, -newRevenue);
 
         return ApiResponse.success("Cập nhật phiếu thu tiền thành công", updatedReceipt);
     }
@@ -188,18 +197,30 @@ public class PaymentReceiptService {
 
         // Cập nhật lại số tiền nợ của đại lý (tăng lên vì xóa phiếu thu)
         Agent agent = receipt.getAgent();
-        Integer currentDebt = agent.getDebtMoney();
-        agent.setDebtMoney(currentDebt + receipt.getRevenue());
-        agentRepository.save(agent);
+        applyPaymentDebt(agent.getAgentId(), receipt.getRevenue());
 
         // Xóa phiếu thu
         paymentReceiptRepository.delete(receipt);
 
-        // Cập nhật báo cáo công nợ theo tháng/năm của phiếu thu
+        // Cập nhật báo cáo công nợ theo tháng/năm của phiếu thu: phát sinh tăng lại số tiền thu đã xóa
         LocalDate receiptDate = receipt.getPaymentDate();
         YearMonth monthYear = YearMonth.from(receiptDate);
-        debtReportService.updateDebtReportForAgent(agent.getAgentId(), monthYear);
+        agentMonthlyAggregateService.recordPayment(agent.getAgentId(), monthYear, -receipt.getRevenue());
+        debtReportMaintenanceService.recordChange(agent.getAgentId(), monthYear, receipt.getRevenue());
 
         return ApiResponse.success("Xóa phiếu thu tiền thành công", null);
     }
+
+    /**
+     * Cập nhật nợ của đại lý theo phiếu thu. Phiếu thu chỉ hoàn trả hoặc giảm số nợ đã phát sinh
+     * nên không áp giới hạn nợ tối đa, chỉ chặn nợ âm.
+     * @param agentId ID đại lý
+     * @param delta Số nợ thay đổi (âm khi thu tiền, dương khi hoàn tác phiếu thu)
+     */
+    private void applyPaymentDebt(Integer agentId, Integer delta) {
+        Optional<DebtLimitViolation> violation = agentService.applyDebtDelta(agentId, delta, false);
+        if (violation.isPresent()) {
+            throw violation.get().toAppException();
+        }
+    }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package org.example.AgentManagementBE.Service;
 
+import org.example.AgentManagementBE.Config.TokenRevocationRegistry;
+import org.example.AgentManagementBE.Config.UserDetailsCache;
 import org.example.AgentManagementBE.exception.AppException;
 import org.example.AgentManagementBE.exception.ErrorCode;
 import org.example.AgentManagementBE.Model.Person;
@@ -9,7 +11,6 @@ import org.example.AgentManagementBE.Model.Role;
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
 import org.example.AgentManagementBE.Repository.PersonRepository;
 import org.example.AgentManagementBE.Repository.PersonRoleRepository;
-import org.example.AgentManagementBE.Repository.RoleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -23,15 +24,21 @@ public class PersonRoleService {
 
     private final PersonRoleRepository personRoleRepository;
     private final PersonRepository personRepository;
-    private final RoleRepository roleRepository;
+    private final UserDetailsCache userDetailsCache;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final ReferenceDataCache referenceDataCache;
 
     @Autowired
     public PersonRoleService(PersonRoleRepository personRoleRepository, 
                            PersonRepository personRepository, 
-                           RoleRepository roleRepository) {
+                           UserDetailsCache userDetailsCache,
+                           TokenRevocationRegistry tokenRevocationRegistry,
+                           ReferenceDataCache referenceDataCache) {
         this.personRoleRepository = personRoleRepository;
         this.personRepository = personRepository;
-        this.roleRepository = roleRepository;
+        this.userDetailsCache = userDetailsCache;
+        this.tokenRevocationRegistry = tokenRevocationRegistry;
+        this.referenceDataCache = referenceDataCache;
     }
 
     public ResponseEntity<ApiResponse<PersonRole>> assignRoleToPerson(Integer personId, Integer roleId) {
@@ -44,7 +51,7 @@ public class PersonRoleService {
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
 
         // Check if role exists
-        Role role = roleRepository.findById(roleId)
+        Role role = referenceDataCache.findRoleById(roleId)
                 .orElseThrow(() -> new AppException(ErrorCode.ROLE_NOT_FOUND));
 
         // Check if assignment already exists
@@ -56,6 +63,8 @@ public class PersonRoleService {
         PersonRole personRole = new PersonRole(id, person, role);
         
         PersonRole savedPersonRole = personRoleRepository.save(personRole);
+        userDetailsCache.evictPerson(personId);
+        tokenRevocationRegistry.revokePerson(personId);
         return ResponseEntity.ok(ApiResponse.success("Gán vai trò thành công!", savedPersonRole));
     }
 
@@ -71,6 +80,8 @@ public class PersonRoleService {
         }
 
         personRoleRepository.deleteById(id);
+        userDetailsCache.evictPerson(personId);
+        tokenRevocationRegistry.revokePerson(personId);
         return ResponseEntity.ok(ApiResponse.success("Xóa vai trò thành công!", null));
     }
 
@@ -94,7 +105,7 @@ public class PersonRoleService {
         }
 
         // Check if role exists
-        if (!roleRepository.existsById(roleId)) {
+        if (referenceDataCache.findRoleById(roleId).isEmpty()) {
             throw new AppException(ErrorCode.ROLE_NOT_FOUND);
         }
 
@@ -122,7 +133,7 @@ public class PersonRoleService {
         }
 
         // Check if role exists
-        if (!roleRepository.existsById(roleId)) {
+        if (referenceDataCache.findRoleById(roleId).isEmpty()) {
             throw new AppException(ErrorCode.ROLE_NOT_FOUND);
         }
 
@@ -141,6 +152,8 @@ public class PersonRoleService {
         }
 
         personRoleRepository.deleteByPersonId(personId);
+        userDetailsCache.evictPerson(personId);
+        tokenRevocationRegistry.revokePerson(personId);
         return ResponseEntity.ok(ApiResponse.success("Xóa tất cả vai trò thành công!", null));
     }
 
@@ -158,10 +171,8 @@ public class PersonRoleService {
             throw new AppException(ErrorCode.BAD_REQUEST);
         }
 
-        Role role = roleRepository.getRoleByName(roleName);
-        if (role == null) {
-            throw new AppException(ErrorCode.ROLE_NOT_FOUND);
-        }
+        Role role = referenceDataCache.findRoleByName(roleName)
+                .orElseThrow(() -> new AppException(ErrorCode.ROLE_NOT_FOUND));
 
         boolean hasRole = personRoleRepository.existsByPersonIdAndRoleId(personId, role.getRoleId());
         return ResponseEntity.ok(ApiResponse.success("Kiểm tra vai trò thành công!", hasRole));
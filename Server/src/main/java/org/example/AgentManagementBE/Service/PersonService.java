@@ -1,10 +1,13 @@
 package org.example.AgentManagementBE.Service;
 
 import org.example.AgentManagementBE.Config.SHA256PasswordEncoder;
+import org.example.AgentManagementBE.Config.TokenRevocationRegistry;
+import org.example.AgentManagementBE.Config.UserDetailsCache;
 import org.example.AgentManagementBE.exception.AppException;
 import org.example.AgentManagementBE.exception.ErrorCode;
 import org.example.AgentManagementBE.Model.Person;
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
+import org.example.AgentManagementBE.DTO.response.KeysetPage;
 import org.example.AgentManagementBE.Repository.PersonRepository;
 import org.example.AgentManagementBE.Repository.PersonRoleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,11 +24,19 @@ public class PersonService {
 
     private final PersonRepository personRepository;
     private final PersonRoleRepository personRoleRepository;
+    private final UserDetailsCache userDetailsCache;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final KeysetPagination keysetPagination;
 
     @Autowired
-    public PersonService(PersonRepository personRepository, PersonRoleRepository personRoleRepository) {
+    public PersonService(PersonRepository personRepository, PersonRoleRepository personRoleRepository,
+                         UserDetailsCache userDetailsCache, TokenRevocationRegistry tokenRevocationRegistry,
+                         KeysetPagination keysetPagination) {
         this.personRepository = personRepository;
         this.personRoleRepository = personRoleRepository;
+        this.userDetailsCache = userDetailsCache;
+        this.tokenRevocationRegistry = tokenRevocationRegistry;
+        this.keysetPagination = keysetPagination;
     }
 
     public ResponseEntity<ApiResponse<Person>> login(String personEmail, String passwordHash) {
@@ -81,6 +92,7 @@ public class PersonService {
         newPerson.setIsActive(true);
         
         Person savedPerson = personRepository.save(newPerson);
+        tokenRevocationRegistry.refreshAfterCommit();
         return ResponseEntity.ok(ApiResponse.success("Tạo người dùng thành công!", savedPerson));
     }
 
@@ -118,9 +130,14 @@ public class PersonService {
             // Hash new password with SHA-256
             String hashedPassword = SHA256PasswordEncoder.hashSHA256(updatedPerson.getPasswordHash());
             existingPerson.setPasswordHash(hashedPassword);
+            // Đổi mật khẩu thu hồi các JWT đã cấp
+            existingPerson.setRoleVersion(existingPerson.getRoleVersion() + 1);
         }
         
         Person savedPerson = personRepository.save(existingPerson);
+        // Email, tên đăng nhập hoặc mật khẩu có thể đã đổi, xóa UserDetails cũ khỏi cache
+        userDetailsCache.evictPerson(personId);
+        tokenRevocationRegistry.refreshAfterCommit();
         return ResponseEntity.ok(ApiResponse.success("Cập nhật người dùng thành công!", savedPerson));
     }
 
@@ -145,15 +162,22 @@ public class PersonService {
         
         // Xóa Person khỏi database (hard delete)
         personRepository.delete(person);
+        userDetailsCache.evictPerson(personId);
+        tokenRevocationRegistry.refreshAfterCommit();
         
         return ResponseEntity.ok(ApiResponse.success("Xóa người dùng thành công!", null));
     }
 
     public ResponseEntity<ApiResponse<List<Person>>> getAllPersons() {
-        List<Person> persons = personRepository.findAll();
+        List<Person> persons = keysetPagination.all(personRepository::findPageAfter);
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách người dùng thành công!", persons));
     }
 
+    public ResponseEntity<ApiResponse<KeysetPage<Person>>> getPersonPage(String cursor, Integer limit) {
+        KeysetPage<Person> page = keysetPagination.page(cursor, limit, personRepository::findPageAfter, Person::getPersonId);
+        return ResponseEntity.ok(ApiResponse.success("Lấy danh sách người dùng thành công!", page));
+    }
+
     public ResponseEntity<ApiResponse<Person>> getPersonById(Integer personId) {
         if (personId == null) {
             throw new AppException(ErrorCode.BAD_REQUEST);
@@ -1,5 +1,6 @@
 package org.example.AgentManagementBE.Service;
 
+import org.example.AgentManagementBE.Config.CacheCoherenceService;
 import org.example.AgentManagementBE.Model.Unit;
 import org.example.AgentManagementBE.Model.Product;
 import org.example.AgentManagementBE.Model.Parameter;
@@ -10,11 +11,14 @@ import org.example.AgentManagementBE.DTO.request.ApiResponse;
 import org.example.AgentManagementBE.DTO.request.CreateProductRequest;
 import org.example.AgentManagementBE.DTO.request.UpdateImportPriceRequest;
 import org.example.AgentManagementBE.DTO.request.UpdateInventoryQuantityRequest;
+import org.example.AgentManagementBE.DTO.response.ExportPriceRefreshJob;
+import org.example.AgentManagementBE.DTO.response.KeysetPage;
 import org.example.AgentManagementBE.exception.AppException;
 import org.example.AgentManagementBE.exception.ErrorCode;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Service
@@ -22,11 +26,24 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final UnitRepository unitRepository;
     private final ParameterRepository parameterRepository;
-
-    public ProductService(ProductRepository productRepository, UnitRepository unitRepository, ParameterRepository parameterRepository) {
+    private final ReferenceDataCache referenceDataCache;
+    private final ParameterService parameterService;
+    private final ExportPriceRefreshService exportPriceRefreshService;
+    private final KeysetPagination keysetPagination;
+    private final CacheCoherenceService cacheCoherenceService;
+
+    public ProductService(ProductRepository productRepository, UnitRepository unitRepository, ParameterRepository parameterRepository,
+                          ReferenceDataCache referenceDataCache, ParameterService parameterService,
+                          ExportPriceRefreshService exportPriceRefreshService, KeysetPagination keysetPagination,
+                          CacheCoherenceService cacheCoherenceService) {
         this.productRepository = productRepository;
         this.unitRepository = unitRepository;
         this.parameterRepository = parameterRepository;
+        this.referenceDataCache = referenceDataCache;
+        this.parameterService = parameterService;
+        this.exportPriceRefreshService = exportPriceRefreshService;
+        this.keysetPagination = keysetPagination;
+        this.cacheCoherenceService = cacheCoherenceService;
     }
 
     public ApiResponse<Product> getProductById(Integer productId) {
@@ -72,8 +89,8 @@ public class ProductService {
                 "Sản phẩm '" + request.getProductName() + "' với đơn vị '" + request.getUnitName() + "' đã tồn tại");
         }
 
-        Unit existingUnit = unitRepository.findByUnitName(request.getUnitName())
-                .orElseGet(() -> unitRepository.save(new Unit(request.getUnitName())));
+        Unit existingUnit = referenceDataCache.findUnitByName(request.getUnitName())
+                .orElseGet(() -> createUnit(request.getUnitName()));
 
         Integer exportPrice = calculateExportPrice(request.getImportPrice());
 
@@ -88,29 +105,29 @@ public class ProductService {
         return ApiResponse.created("Tạo sản phẩm mới thành công", savedProduct);
     }
 
+    /**
+     * Tạo đơn vị mới khi sản phẩm dùng đơn vị chưa có và làm mới cache danh mục sau khi commit
+     */
+    private Unit createUnit(String unitName) {
+        Unit savedUnit = unitRepository.save(new Unit(unitName));
+        referenceDataCache.reloadAfterCommit();
+        return savedUnit;
+    }
+
     /**
      * Tính toán giá xuất dựa trên giá nhập và tỷ lệ export_price_ratio từ parameter
      */
     private Integer calculateExportPrice(Integer importPrice) {
-        try {
-            // Lấy tỷ lệ export_price_ratio từ parameter
-            Parameter exportRatioParam = parameterRepository.findByParamKey("export_price_ratio");
-            
-            double ratio;
-            if (exportRatioParam != null) {
-                ratio = Double.parseDouble(exportRatioParam.getParamValue());
-            } else {
-                // Nếu không tìm thấy parameter, sử dụng giá trị mặc định và tạo parameter mới
-                ratio = 1.02; // Giá trị mặc định
-                Parameter defaultParam = new Parameter("export_price_ratio", "1.02", "Tỷ lệ đơn giá xuất so với đơn giá nhập");
-                parameterRepository.save(defaultParam);
-            }
-            
-            return (int) Math.round(importPrice * ratio);
-        } catch (NumberFormatException e) {
-            // Nếu parameter có giá trị không hợp lệ, sử dụng giá trị mặc định
-            return (int) Math.round(importPrice * 1.02);
+        // Lấy tỷ lệ export_price_ratio từ snapshot tham số
+        if (parameterService.findValue("export_price_ratio").isEmpty()) {
+            // Nếu không tìm thấy parameter, tạo parameter mới với giá trị mặc định
+            Parameter defaultParam = new Parameter("export_price_ratio", "1.02", "Tỷ lệ đơn giá xuất so với đơn giá nhập");
+            parameterRepository.save(defaultParam);
+            parameterService.reloadAfterCommit();
+            return ExportPriceRefreshService.exportPriceOf(importPrice, BigDecimal.valueOf(1.02));
         }
+        // Giá trị không hợp lệ được thay bằng tỷ lệ mặc định trong getCurrentExportPriceRatio
+        return ExportPriceRefreshService.exportPriceOf(importPrice, BigDecimal.valueOf(getCurrentExportPriceRatio()));
     }
 
     @Transactional
@@ -126,7 +143,7 @@ public class ProductService {
                 "Sản phẩm '" + newProduct.getProductName() + "' với đơn vị '" + newProduct.getUnit().getUnitName() + "' đã tồn tại");
         }
 
-        Unit existingUnit = unitRepository.findByUnitName(newProduct.getUnit().getUnitName())
+        Unit existingUnit = referenceDataCache.findUnitByName(newProduct.getUnit().getUnitName())
                 .orElseThrow(() -> new AppException(ErrorCode.UNIT_NOT_FOUND));
 
         newProduct.setUnit(existingUnit);
@@ -141,14 +158,26 @@ public class ProductService {
         return ApiResponse.created("Tạo sản phẩm mới thành công", savedProduct);
     }
 
+    /**
+     * Lấy tất cả sản phẩm (all=true), tối đa pagination.all-max-rows sản phẩm
+     */
     public ApiResponse<List<Product>> getAllProducts() {
-        List<Product> products = productRepository.findAll();
+        List<Product> products = keysetPagination.all(productRepository::findPageAfter);
         if (products.isEmpty()) {
             throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
         }
         return ApiResponse.success("Lấy danh sách sản phẩm thành công", products);
     }
 
+    /**
+     * Lấy một trang sản phẩm theo ID tăng dần
+     */
+    public ApiResponse<KeysetPage<Product>> getProductPage(String cursor, Integer limit) {
+        KeysetPage<Product> page = keysetPagination.page(cursor, limit,
+            productRepository::findPageAfter, Product::getProductId);
+        return ApiResponse.success("Lấy danh sách sản phẩm thành công", page);
+    }
+
     @Transactional
     public ApiResponse<Product> increaseInventory(Integer productId, Integer quantity) {
         if (quantity == null || quantity <= 0) {
@@ -170,15 +199,15 @@ public class ProductService {
             throw new AppException(ErrorCode.NUMBER_NEGATIVE);
         }
 
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
-
-        if (product.getInventoryQuantity() < quantity) {
+        if (productRepository.decrementInventory(productId, quantity) == 0) {
+            if (!productRepository.existsById(productId)) {
+                throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
+            }
             throw new AppException(ErrorCode.INSUFFICIENT_INVENTORY);
         }
 
-        product.setInventoryQuantity(product.getInventoryQuantity() - quantity);
-        Product updatedProduct = productRepository.save(product);
+        Product updatedProduct = productRepository.findById(productId)
+                .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
 
         return ApiResponse.success("Giảm số lượng tồn kho thành công", updatedProduct);
     }
@@ -204,12 +233,13 @@ public class ProductService {
                 "Sản phẩm '" + request.getProductName() + "' với đơn vị '" + request.getUnitName() + "' đã tồn tại");
         }
 
-        Unit existingUnit = unitRepository.findByUnitName(request.getUnitName())
-                .orElseGet(() -> unitRepository.save(new Unit(request.getUnitName())));
+        Unit existingUnit = referenceDataCache.findUnitByName(request.getUnitName())
+                .orElseGet(() -> createUnit(request.getUnitName()));
 
         // Tự động tính exportPrice dựa trên tỷ lệ từ parameter
         Integer exportPrice = calculateExportPrice(request.getImportPrice());
 
+        onExportPriceChange(existingProduct.getExportPrice(), exportPrice);
         existingProduct.setProductName(request.getProductName());
         existingProduct.setUnit(existingUnit);
         existingProduct.setImportPrice(request.getImportPrice());
@@ -220,42 +250,42 @@ public class ProductService {
     }
 
     /**
-     * Cập nhật lại tất cả giá xuất của sản phẩm dựa trên tỷ lệ hiện tại
+     * Bắt đầu cập nhật lại tất cả giá xuất của sản phẩm dựa trên tỷ lệ hiện tại, chạy nền
      */
-    @Transactional
-    public ApiResponse<String> refreshAllProductExportPrices() {
-        try {
-            List<Product> products = productRepository.findAll();
-            
-            for (Product product : products) {
-                Integer newExportPrice = calculateExportPrice(product.getImportPrice());
-                product.setExportPrice(newExportPrice);
-            }
-            
-            productRepository.saveAll(products);
-            
-            return ApiResponse.success("Cập nhật giá xuất cho tất cả sản phẩm thành công", 
-                "Đã cập nhật " + products.size() + " sản phẩm");
-                
-        } catch (Exception e) {
-            throw new AppException(ErrorCode.INTERNAL_SERVER_ERROR, "Lỗi khi cập nhật giá xuất: " + e.getMessage());
+    public ApiResponse<ExportPriceRefreshJob> refreshAllProductExportPrices() {
+        return refreshAllProductExportPrices(getCurrentExportPriceRatio());
+    }
+
+    /**
+     * Bắt đầu cập nhật lại tất cả giá xuất theo tỷ lệ cho trước, chạy nền
+     * @return Trạng thái ban đầu của tác vụ, tiến độ xem qua getExportPriceRefreshJob
+     */
+    public ApiResponse<ExportPriceRefreshJob> refreshAllProductExportPrices(double ratio) {
+        if (ratio <= 0) {
+            throw new AppException(ErrorCode.INVALID_PARAMETER_VALUE, "Tỷ lệ đơn giá xuất phải lớn hơn 0");
         }
+        ExportPriceRefreshJob job = exportPriceRefreshService.submit(BigDecimal.valueOf(ratio),
+            ExportPriceRefreshService.TRIGGER_MANUAL);
+        return ApiResponse.success("Đã bắt đầu cập nhật giá xuất cho tất cả sản phẩm", job);
+    }
+
+    public ApiResponse<ExportPriceRefreshJob> getExportPriceRefreshJob(long jobId) {
+        ExportPriceRefreshJob job = exportPriceRefreshService.getJob(jobId)
+                .orElseThrow(() -> new AppException(ErrorCode.EXPORT_PRICE_REFRESH_JOB_NOT_FOUND));
+        return ApiResponse.success("Lấy trạng thái cập nhật giá xuất thành công", job);
+    }
+
+    public ApiResponse<List<ExportPriceRefreshJob>> getExportPriceRefreshJobs() {
+        return ApiResponse.success("Lấy danh sách tác vụ cập nhật giá xuất thành công",
+            exportPriceRefreshService.getRecentJobs());
     }
 
     /**
      * Lấy tỷ lệ export_price_ratio hiện tại
      */
     public double getCurrentExportPriceRatio() {
-        try {
-            Parameter exportRatioParam = parameterRepository.findByParamKey("export_price_ratio");
-            if (exportRatioParam != null) {
-                return Double.parseDouble(exportRatioParam.getParamValue());
-            } else {
-                return 1.02; // Giá trị mặc định
-            }
-        } catch (NumberFormatException e) {
-            return 1.02; // Giá trị mặc định nếu có lỗi
-        }
+        // Giá trị mặc định 1.02 nếu chưa có tham số hoặc giá trị không hợp lệ
+        return parameterService.getDouble("export_price_ratio", 1.02);
     }
 
     /**
@@ -319,6 +349,7 @@ public class ProductService {
 
         // Tự động tính lại giá xuất dựa trên tỷ lệ hiện tại
         Integer newExportPrice = calculateExportPrice(request.getImportPrice());
+        onExportPriceChange(oldExportPrice, newExportPrice);
         product.setExportPrice(newExportPrice);
 
         // Lưu thay đổi
@@ -331,6 +362,15 @@ public class ProductService {
         );
     }
 
+    /**
+     * Báo các node khác xóa vùng Product trong cache cấp hai khi giá xuất đổi, để không bán theo giá cũ
+     */
+    private void onExportPriceChange(Integer oldExportPrice, Integer newExportPrice) {
+        if (!newExportPrice.equals(oldExportPrice)) {
+            cacheCoherenceService.bumpVersion(CacheCoherenceService.REGION_PRODUCT);
+        }
+    }
+
     /**
      * Cập nhật trực tiếp số lượng tồn kho
      */
@@ -0,0 +1,227 @@
+package org.example.AgentManagementBE.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.AgentManagementBE.Config.CacheCoherenceService;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Model.Role;
+import org.example.AgentManagementBE.Model.Unit;
+import org.example.AgentManagementBE.Repository.AgentTypeRepository;
+import org.example.AgentManagementBE.Repository.DistrictRepository;
+import org.example.AgentManagementBE.Repository.RoleRepository;
+import org.example.AgentManagementBE.Repository.UnitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache dữ liệu danh mục (loại đại lý, quận, đơn vị, vai trò) trong bộ nhớ, tra theo tên và theo ID.
+ * Các bảng này chỉ vài chục dòng và hiếm khi thay đổi: toàn bộ được nạp khi khởi động vào một snapshot
+ * bất biến và thay snapshot mới sau khi AgentTypeService/DistrictService/UnitService/RoleService commit thay đổi
+ * (hoặc khi CacheCoherenceService báo node khác đã thay đổi).
+ * Các entity trả về là bản detached dùng chung giữa các luồng, chỉ được đọc hoặc gán làm quan hệ, không được sửa.
+ */
+@Service
+public class ReferenceDataCache {
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    private record Snapshot(List<AgentType> agentTypes,
+                            Map<String, AgentType> agentTypesByName,
+                            Map<Integer, AgentType> agentTypesById,
+                            List<District> districts,
+                            Map<String, District> districtsByName,
+                            Map<Integer, District> districtsById,
+                            List<Unit> units,
+                            Map<String, Unit> unitsByName,
+                            Map<Integer, Unit> unitsById,
+                            List<Role> roles,
+                            Map<String, Role> rolesByName,
+                            Map<Integer, Role> rolesById) {
+    }
+
+    private final AgentTypeRepository agentTypeRepository;
+    private final DistrictRepository districtRepository;
+    private final UnitRepository unitRepository;
+    private final RoleRepository roleRepository;
+    private final CacheCoherenceService cacheCoherenceService;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter reloadCounter;
+
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public ReferenceDataCache(AgentTypeRepository agentTypeRepository,
+                              DistrictRepository districtRepository,
+                              UnitRepository unitRepository,
+                              RoleRepository roleRepository,
+                              MeterRegistry meterRegistry,
+                              CacheCoherenceService cacheCoherenceService) {
+        this.agentTypeRepository = agentTypeRepository;
+        this.districtRepository = districtRepository;
+        this.unitRepository = unitRepository;
+        this.roleRepository = roleRepository;
+        this.cacheCoherenceService = cacheCoherenceService;
+        this.hitCounter = Counter.builder("reference_data.cache.hits")
+            .description("Số lần tra danh mục có sẵn trong cache")
+            .register(meterRegistry);
+        this.missCounter = Counter.builder("reference_data.cache.misses")
+            .description("Số lần tra danh mục không có trong cache, phải truy vấn cơ sở dữ liệu")
+            .register(meterRegistry);
+        this.reloadCounter = Counter.builder("reference_data.cache.reloads")
+            .description("Số lần nạp lại toàn bộ dữ liệu danh mục")
+            .register(meterRegistry);
+        cacheCoherenceService.register(CacheCoherenceService.REGION_REFERENCE_DATA, this::reload);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup() {
+        reload();
+    }
+
+    public Optional<AgentType> findAgentTypeByName(String agentTypeName) {
+        return lookup(snapshot().agentTypesByName(), agentTypeName,
+            () -> agentTypeRepository.findByAgentTypeName(agentTypeName));
+    }
+
+    public Optional<AgentType> findAgentTypeById(Integer agentTypeId) {
+        return lookup(snapshot().agentTypesById(), agentTypeId, () -> agentTypeRepository.findById(agentTypeId));
+    }
+
+    public List<AgentType> getAgentTypes() {
+        return snapshot().agentTypes();
+    }
+
+    public Optional<District> findDistrictByName(String districtName) {
+        return lookup(snapshot().districtsByName(), districtName,
+            () -> districtRepository.findByDistrictName(districtName));
+    }
+
+    public Optional<District> findDistrictById(Integer districtId) {
+        return lookup(snapshot().districtsById(), districtId, () -> districtRepository.findById(districtId));
+    }
+
+    public List<District> getDistricts() {
+        return snapshot().districts();
+    }
+
+    public Optional<Unit> findUnitByName(String unitName) {
+        return lookup(snapshot().unitsByName(), unitName, () -> unitRepository.findByUnitName(unitName));
+    }
+
+    public Optional<Unit> findUnitById(Integer unitId) {
+        return lookup(snapshot().unitsById(), unitId, () -> unitRepository.findById(unitId));
+    }
+
+    public List<Unit> getUnits() {
+        return snapshot().units();
+    }
+
+    public Optional<Role> findRoleByName(String roleName) {
+        return lookup(snapshot().rolesByName(), roleName, () -> roleRepository.findByRoleName(roleName));
+    }
+
+    public Optional<Role> findRoleById(Integer roleId) {
+        return lookup(snapshot().rolesById(), roleId, () -> roleRepository.findById(roleId));
+    }
+
+    public List<Role> getRoles() {
+        return snapshot().roles();
+    }
+
+    /**
+     * Nạp lại cả bốn bảng danh mục và thay snapshot trong một lần gán
+     */
+    public void reload() {
+        List<AgentType> agentTypes = sorted(agentTypeRepository.findAll(), AgentType::getAgentTypeId);
+        List<District> districts = sorted(districtRepository.findAll(), District::getDistrictId);
+        List<Unit> units = sorted(unitRepository.findAll(), Unit::getUnitId);
+        List<Role> roles = sorted(roleRepository.findAll(), Role::getRoleId);
+        snapshot = new Snapshot(
+            agentTypes, index(agentTypes, AgentType::getAgentTypeName), index(agentTypes, AgentType::getAgentTypeId),
+            districts, index(districts, District::getDistrictName), index(districts, District::getDistrictId),
+            units, index(units, Unit::getUnitName), index(units, Unit::getUnitId),
+            roles, index(roles, Role::getRoleName), index(roles, Role::getRoleId));
+        reloadCounter.increment();
+        logger.debug("Đã nạp dữ liệu danh mục: {} loại đại lý, {} quận, {} đơn vị, {} vai trò",
+            agentTypes.size(), districts.size(), units.size(), roles.size());
+    }
+
+    /**
+     * Nạp lại sau khi giao dịch hiện tại commit (hoặc ngay lập tức nếu không có giao dịch),
+     * dùng sau khi thêm, sửa hoặc xóa dữ liệu danh mục
+     */
+    public void reloadAfterCommit() {
+        cacheCoherenceService.bumpVersion(CacheCoherenceService.REGION_REFERENCE_DATA);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload();
+                }
+            });
+        } else {
+            reload();
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Tra trong snapshot; nếu không có thì hỏi cơ sở dữ liệu (so sánh tên theo collation của cơ sở dữ liệu,
+     * hoặc dòng vừa được thêm ở node khác) mà không đưa kết quả vào cache
+     */
+    private <K, T> Optional<T> lookup(Map<K, T> map, K key, Supplier<Optional<T>> fallback) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        T cached = map.get(key);
+        if (cached != null) {
+            hitCounter.increment();
+            return Optional.of(cached);
+        }
+        missCounter.increment();
+        return fallback.get();
+    }
+
+    private static <T> List<T> sorted(List<T> rows, Function<T, Integer> id) {
+        return rows.stream().sorted(Comparator.comparing(id)).toList();
+    }
+
+    private static <K, T> Map<K, T> index(List<T> rows, Function<T, K> key) {
+        Map<K, T> map = new HashMap<>(rows.size() * 2);
+        for (T row : rows) {
+            K value = key.apply(row);
+            if (value != null) {
+                map.put(value, row);
+            }
+        }
+        return Map.copyOf(map);
+    }
+}
@@ -1,5 +1,7 @@
 package org.example.AgentManagementBE.Service;
 
+import org.example.AgentManagementBE.Config.TokenRevocationRegistry;
+import org.example.AgentManagementBE.Config.UserDetailsCache;
 import org.example.AgentManagementBE.exception.AppException;
 import org.example.AgentManagementBE.exception.ErrorCode;
 import org.example.AgentManagementBE.Model.Role;
@@ -8,17 +10,26 @@ import org.example.AgentManagementBE.Repository.RoleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Service
+@Transactional
 public class RoleService {
 
     private final RoleRepository roleRepository;
+    private final UserDetailsCache userDetailsCache;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final ReferenceDataCache referenceDataCache;
 
     @Autowired
-    public RoleService(RoleRepository roleRepository) {
+    public RoleService(RoleRepository roleRepository, UserDetailsCache userDetailsCache,
+                       TokenRevocationRegistry tokenRevocationRegistry, ReferenceDataCache referenceDataCache) {
         this.roleRepository = roleRepository;
+        this.userDetailsCache = userDetailsCache;
+        this.tokenRevocationRegistry = tokenRevocationRegistry;
+        this.referenceDataCache = referenceDataCache;
     }
 
     public ResponseEntity<ApiResponse<Role>> createRole(Role newRole) {
@@ -34,6 +45,7 @@ public class RoleService {
         }
 
         Role savedRole = roleRepository.save(newRole);
+        referenceDataCache.reloadAfterCommit();
         return ResponseEntity.ok(ApiResponse.success("Tạo vai trò thành công!", savedRole));
     }
 
@@ -50,9 +62,13 @@ public class RoleService {
                 throw new AppException(ErrorCode.ROLE_ALREADY_EXISTS);
             }
             existingRole.setRoleName(updatedRole.getRoleName());
+            tokenRevocationRegistry.revokeRole(roleId);
         }
         
         Role savedRole = roleRepository.save(existingRole);
+        referenceDataCache.reloadAfterCommit();
+        // Đổi tên vai trò làm thay đổi quyền của mọi người dùng đang giữ vai trò này
+        userDetailsCache.evictAll();
         return ResponseEntity.ok(ApiResponse.success("Cập nhật vai trò thành công!", savedRole));
     }
 
@@ -64,12 +80,15 @@ public class RoleService {
         Role role = roleRepository.findById(roleId)
                 .orElseThrow(() -> new AppException(ErrorCode.ROLE_NOT_FOUND));
         
+        tokenRevocationRegistry.revokeRole(roleId);
         roleRepository.delete(role);
+        userDetailsCache.evictAll();
+        referenceDataCache.reloadAfterCommit();
         return ResponseEntity.ok(ApiResponse.success("Xóa vai trò thành công!", null));
     }
 
     public ResponseEntity<ApiResponse<List<Role>>> getAllRoles() {
-        List<Role> roles = roleRepository.findAll();
+        List<Role> roles = referenceDataCache.getRoles();
         return ResponseEntity.ok(ApiResponse.success("Lấy danh sách vai trò thành công!", roles));
     }
 
@@ -78,7 +97,7 @@ public class RoleService {
             throw new AppException(ErrorCode.BAD_REQUEST);
         }
         
-        Role role = roleRepository.findById(roleId)
+        Role role = referenceDataCache.findRoleById(roleId)
                 .orElseThrow(() -> new AppException(ErrorCode.ROLE_NOT_FOUND));
         
         return ResponseEntity.ok(ApiResponse.success("Lấy thông tin vai trò thành công!", role));
@@ -89,10 +108,8 @@ public class RoleService {
             throw new AppException(ErrorCode.BAD_REQUEST);
         }
         
-        Role role = roleRepository.getRoleByName(roleName);
-        if (role == null) {
-            throw new AppException(ErrorCode.ROLE_NOT_FOUND);
-        }
+        Role role = referenceDataCache.findRoleByName(roleName)
+                .orElseThrow(() -> new AppException(ErrorCode.ROLE_NOT_FOUND));
         
         return ResponseEntity.ok(ApiResponse.success("Lấy thông tin vai trò thành công!", role));
     }
@@ -101,6 +118,6 @@ public class RoleService {
         if (roleName == null || roleName.trim().isEmpty()) {
             throw new AppException(ErrorCode.BAD_REQUEST);
         }
-        return roleRepository.existsByRoleName(roleName);
+        return referenceDataCache.findRoleByName(roleName).isPresent();
     }
 }
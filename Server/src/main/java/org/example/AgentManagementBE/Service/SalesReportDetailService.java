@@ -3,12 +3,13 @@ package org.example.AgentManagementBE.Service;
 import org.example.AgentManagementBE.Model.SalesReportDetail;
 import org.example.AgentManagementBE.Model.SalesReport;
 import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.AgentMonthlyAggregate;
 import org.example.AgentManagementBE.Repository.SalesReportDetailRepository;
 import org.example.AgentManagementBE.Repository.SalesReportRepository;
 import org.example.AgentManagementBE.Repository.AgentRepository;
-import org.example.AgentManagementBE.Repository.ExportReceiptRepository;
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
 import org.example.AgentManagementBE.DTO.request.CreateSalesReportDetailRequest;
+import org.example.AgentManagementBE.DTO.response.KeysetPage;
 import org.example.AgentManagementBE.DTO.response.SalesReportDetailResponse;
 import org.example.AgentManagementBE.exception.AppException;
 import org.example.AgentManagementBE.exception.ErrorCode;
@@ -16,6 +17,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,17 +34,27 @@ public class SalesReportDetailService {
     private AgentRepository agentRepository;
     
     @Autowired
-    private ExportReceiptRepository exportReceiptRepository;
+    private AgentMonthlyAggregateService agentMonthlyAggregateService;
 
-    // Lấy tất cả chi tiết báo cáo doanh số
+    @Autowired
+    private KeysetPagination keysetPagination;
+
+    // Lấy tất cả chi tiết báo cáo doanh số (all=true), tối đa pagination.all-max-rows dòng
     public ApiResponse<List<SalesReportDetail>> getAllSalesReportDetails() {
-        List<SalesReportDetail> details = salesReportDetailRepository.findAll();
+        List<SalesReportDetail> details = keysetPagination.all(salesReportDetailRepository::findPageAfter);
         if (details.isEmpty()) {
             throw new AppException(ErrorCode.SALES_REPORT_DETAIL_NOT_FOUND);
         }
         return ApiResponse.success("Lấy danh sách chi tiết báo cáo doanh số thành công", details);
     }
 
+    // Lấy một trang chi tiết báo cáo doanh số theo ID tăng dần
+    public ApiResponse<KeysetPage<SalesReportDetail>> getSalesReportDetailPage(String cursor, Integer limit) {
+        KeysetPage<SalesReportDetail> page = keysetPagination.page(cursor, limit,
+            salesReportDetailRepository::findPageAfter, SalesReportDetail::getSalesReportDetailId);
+        return ApiResponse.success("Lấy danh sách chi tiết báo cáo doanh số thành công", page);
+    }
+
     // Lấy chi tiết báo cáo doanh số theo agentId
     public ApiResponse<List<SalesReportDetail>> getByAgentId(Integer agentId) {
         List<SalesReportDetail> details = salesReportDetailRepository.findByAgentId(agentId);
@@ -201,18 +213,18 @@ public class SalesReportDetailService {
         Integer month = salesReport.getMonth();
         Integer year = salesReport.getYear();
 
-        // Tính toán các giá trị:
-        // 1. exportCount: đếm số lượng ExportReceipt của agent trong tháng/năm
-        Long exportCount = exportReceiptRepository.countByAgentAndMonthAndYear(
-                request.getAgentId(), month, year);
+        // Tính toán các giá trị từ một dòng của bảng tổng hợp theo đại lý và tháng:
+        AgentMonthlyAggregate aggregate = agentMonthlyAggregateService.getAggregate(
+                request.getAgentId(), YearMonth.of(year, month));
+
+        // 1. exportCount: số lượng ExportReceipt của agent trong tháng/năm
+        Long exportCount = aggregate.getExportCount().longValue();
 
         // 2. totalAmount: tổng totalAmount từ ExportReceipt của agent trong tháng/năm
-        Integer totalAmount = exportReceiptRepository.getTotalMoneyByAgentAndMonthAndYear(
-                request.getAgentId(), month, year);
+        Integer totalAmount = aggregate.getTotalAmount();
 
         // 3. paidAmount: tổng paidAmount từ ExportReceipt của agent trong tháng/năm
-        Integer paidAmount = exportReceiptRepository.getTotalPaidAmountByAgentAndMonthAndYear(
-                request.getAgentId(), month, year);
+        Integer paidAmount = aggregate.getPaidAmount();
 
         // 4. ratio: totalAmount / totalRevenue * 100
         Double ratio = 0.0;
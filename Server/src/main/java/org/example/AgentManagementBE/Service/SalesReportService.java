@@ -1,11 +1,10 @@
 package org.example.AgentManagementBE.Service;
 
 import org.example.AgentManagementBE.Model.SalesReport;
-import org.example.AgentManagementBE.Model.Agent;
 import org.example.AgentManagementBE.Repository.SalesReportRepository;
-import org.example.AgentManagementBE.Repository.ExportReceiptRepository;
-import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.Repository.AgentMonthlyAggregateRepository;
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
+import org.example.AgentManagementBE.DTO.response.AgentSalesTotal;
 import org.example.AgentManagementBE.DTO.response.SalesReportResponse;
 import org.example.AgentManagementBE.DTO.response.SalesReportSummaryResponse;
 import org.example.AgentManagementBE.exception.AppException;
@@ -24,16 +23,13 @@ import java.util.ArrayList;
 @Service
 public class SalesReportService {
     private final SalesReportRepository salesReportRepository;
-    private final ExportReceiptRepository exportReceiptRepository;
-    private final AgentRepository agentRepository;
+    private final AgentMonthlyAggregateRepository agentMonthlyAggregateRepository;
 
     @Autowired
     public SalesReportService(SalesReportRepository salesReportRepository, 
-                             ExportReceiptRepository exportReceiptRepository,
-                             AgentRepository agentRepository) {
+                             AgentMonthlyAggregateRepository agentMonthlyAggregateRepository) {
         this.salesReportRepository = salesReportRepository;
-        this.exportReceiptRepository = exportReceiptRepository;
-        this.agentRepository = agentRepository;
+        this.agentMonthlyAggregateRepository = agentMonthlyAggregateRepository;
     }
 
     /**
@@ -83,8 +79,9 @@ public class SalesReportService {
             throw new AppException(ErrorCode.SALES_REPORT_ALREADY_EXISTS);
         }
 
-        // Tính totalRevenue từ tất cả ExportReceipt trong tháng/năm
-        Integer totalRevenue = exportReceiptRepository.getTotalMoneyByMonthAndYear(month, year);
+        // Tính totalRevenue từ tất cả ExportReceipt trong tháng/năm, cộng trên bảng tổng hợp (một dòng mỗi đại lý)
+        Integer totalRevenue = toReportAmount("Tổng doanh thu tháng " + month + "/" + year,
+            agentMonthlyAggregateRepository.getTotalAmountByMonthAndYear(month, year));
         
         SalesReport salesReport = new SalesReport(month, year);
         salesReport.setTotalRevenue(totalRevenue);
@@ -208,68 +205,52 @@ public class SalesReportService {
             throw new AppException(ErrorCode.BAD_REQUEST, "Năm không hợp lệ");
         }
 
+        // Đọc số phiếu và tổng trị giá của từng đại lý có phát sinh từ bảng tổng hợp, đã sắp theo trị giá giảm dần
+        List<AgentSalesTotal> agentTotals = agentMonthlyAggregateRepository.getAgentSalesTotalsByMonthAndYear(month, year);
+
         // Tính tổng doanh thu (tổng tất cả totalAmount của ExportReceipt trong tháng/năm)
-        Integer totalRevenue = exportReceiptRepository.getTotalMoneyByMonthAndYear(month, year);
-        
-        if (totalRevenue == null || totalRevenue == 0) {
+        long totalRevenueLong = 0;
+        for (AgentSalesTotal agentTotal : agentTotals) {
+            totalRevenueLong += agentTotal.getTotalAmount();
+        }
+        Integer totalRevenue = toReportAmount("Tổng doanh thu tháng " + month + "/" + year, totalRevenueLong);
+
+        if (totalRevenue == 0) {
             // Nếu không có doanh thu, trả về danh sách rỗng
             return ApiResponse.success("Không có dữ liệu doanh thu trong tháng " + month + "/" + year, 
                 new SalesReportSummaryResponse(0, new ArrayList<>()));
         }
 
-        // Lấy tất cả đại lý
-        List<Agent> allAgents = agentRepository.findAllWithDetails();
-        
-        List<SalesReportSummaryResponse.AgentSalesSummary> agentSummaries = new ArrayList<>();
+        List<SalesReportSummaryResponse.AgentSalesSummary> agentSummaries = new ArrayList<>(agentTotals.size());
         int stt = 1;
 
-        for (Agent agent : allAgents) {
-            // Đếm số phiếu xuất của đại lý trong tháng/năm
-            Long exportCountLong = exportReceiptRepository.countByAgentAndMonthAndYear(
-                agent.getAgentId(), month, year);
-            Integer exportCount = exportCountLong.intValue();
-
-            // Tính tổng trị giá của đại lý trong tháng/năm
-            Integer agentTotalAmount = exportReceiptRepository.getTotalMoneyByAgentAndMonthAndYear(
-                agent.getAgentId(), month, year);
-            
-            if (agentTotalAmount == null) {
-                agentTotalAmount = 0;
-            }
-
-            // Tính tỷ lệ: (Tổng trị giá của đại lý / Tổng doanh thu) * 100
-            Double ratio = 0.0;
-            if (totalRevenue > 0) {
-                ratio = (agentTotalAmount.doubleValue() / totalRevenue.doubleValue()) * 100;
-                // Làm tròn đến 2 chữ số thập phân
-                ratio = Math.round(ratio * 100.0) / 100.0;
-            }
-
-            // Chỉ thêm vào danh sách nếu đại lý có phiếu xuất hoặc có doanh thu
-            if (exportCount > 0 || agentTotalAmount > 0) {
-                SalesReportSummaryResponse.AgentSalesSummary summary = 
-                    new SalesReportSummaryResponse.AgentSalesSummary(
-                        stt++,
-                        agent.getAgentId(),
-                        agent.getAgentName(),
-                        exportCount,
-                        agentTotalAmount,
-                        ratio
-                    );
-                agentSummaries.add(summary);
-            }
-        }
-
-        // Sắp xếp theo tổng trị giá giảm dần
-        agentSummaries.sort((a, b) -> b.getTotalAmount().compareTo(a.getTotalAmount()));
-        
-        // Cập nhật lại STT sau khi sắp xếp
-        for (int i = 0; i < agentSummaries.size(); i++) {
-            agentSummaries.get(i).setStt(i + 1);
+        for (AgentSalesTotal agentTotal : agentTotals) {
+            Integer agentTotalAmount = toReportAmount("Doanh thu của đại lý " + agentTotal.getAgentId(),
+                agentTotal.getTotalAmount());
+
+            // Tính tỷ lệ: (Tổng trị giá của đại lý / Tổng doanh thu) * 100, làm tròn đến 2 chữ số thập phân
+            Double ratio = (agentTotalAmount.doubleValue() / totalRevenue.doubleValue()) * 100;
+            ratio = Math.round(ratio * 100.0) / 100.0;
+
+            agentSummaries.add(new SalesReportSummaryResponse.AgentSalesSummary(
+                stt++,
+                agentTotal.getAgentId(),
+                agentTotal.getAgentName(),
+                toReportAmount("Số phiếu xuất của đại lý " + agentTotal.getAgentId(), agentTotal.getReceiptCount()),
+                agentTotalAmount,
+                ratio
+            ));
         }
 
         SalesReportSummaryResponse response = new SalesReportSummaryResponse(totalRevenue, agentSummaries);
         
         return ApiResponse.success("Lấy bảng tổng hợp báo cáo doanh số thành công", response);
     }
-}
\ No newline at end of file
+
+    private static int toReportAmount(String label, long amount) {
+        if (amount < Integer.MIN_VALUE || amount > Integer.MAX_VALUE) {
+            throw new AppException(ErrorCode.AMOUNT_OUT_OF_RANGE, label + " vượt quá giới hạn cho phép: " + amount);
+        }
+        return (int) amount;
+    }
+}
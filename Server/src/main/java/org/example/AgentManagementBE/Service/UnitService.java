@@ -17,9 +17,11 @@ import java.util.List;
 public class UnitService {
 
     private final UnitRepository unitRepository;
+    private final ReferenceDataCache referenceDataCache;
 
-    public UnitService(UnitRepository unitRepository) {
+    public UnitService(UnitRepository unitRepository, ReferenceDataCache referenceDataCache) {
         this.unitRepository = unitRepository;
+        this.referenceDataCache = referenceDataCache;
     }
 
     /**
@@ -38,6 +40,7 @@ public class UnitService {
         }
 
         Unit savedUnit = unitRepository.save(unit);
+        referenceDataCache.reloadAfterCommit();
         return ApiResponse.created("Thêm đơn vị thành công!", savedUnit);
     }
 
@@ -45,7 +48,7 @@ public class UnitService {
      * Lấy danh sách tất cả đơn vị
      */
     public ApiResponse<List<Unit>> getAllUnits() {
-        List<Unit> units = unitRepository.findAll();
+        List<Unit> units = referenceDataCache.getUnits();
         if (units.isEmpty()) {
             throw new AppException(ErrorCode.UNIT_NOT_FOUND);
         }
@@ -60,7 +63,7 @@ public class UnitService {
             throw new AppException(ErrorCode.BAD_REQUEST, "Tên đơn vị không được để trống");
         }
 
-        Unit unit = unitRepository.findByUnitName(unitName)
+        Unit unit = referenceDataCache.findUnitByName(unitName)
                 .orElseThrow(() -> new AppException(ErrorCode.UNIT_NOT_FOUND));
         return ApiResponse.success("Lấy thông tin đơn vị thành công", unit);
     }
@@ -87,6 +90,7 @@ public class UnitService {
 
         existingUnit.setUnitName(newUnit.getUnitName());
         Unit updatedUnit = unitRepository.save(existingUnit);
+        referenceDataCache.reloadAfterCommit();
 
         return ApiResponse.success("Cập nhật đơn vị thành công", updatedUnit);
     }
@@ -109,6 +113,7 @@ public class UnitService {
         }
 
         unitRepository.delete(unit);
+        referenceDataCache.reloadAfterCommit();
         return ApiResponse.success("Xóa đơn vị thành công", null);
     }
 }
@@ -2,23 +2,33 @@ package org.example.AgentManagementBE.exception;
 
 public class AppException extends RuntimeException {
     private final ErrorCode errorCode;
+    private final Object data;
 
-    // Constructor có ErrorCode và message tùy chỉnh
-    public AppException(ErrorCode errorCode, String message) {
+    // Constructor có ErrorCode, message tùy chỉnh và dữ liệu chi tiết trả về cho client
+    public AppException(ErrorCode errorCode, String message, Object data) {
         super(message);
         this.errorCode = errorCode;
+        this.data = data;
+    }
+
+    // Constructor có ErrorCode và message tùy chỉnh
+    public AppException(ErrorCode errorCode, String message) {
+        this(errorCode, message, null);
     }
 
     // Constructor chỉ với ErrorCode, dùng message mặc định
     public AppException(ErrorCode errorCode) {
-        super(errorCode.getMessage());
-        this.errorCode = errorCode;
+        this(errorCode, errorCode.getMessage(), null);
     }
 
     public ErrorCode getErrorCode() {
         return errorCode;
     }
 
+    public Object getData() {
+        return data;
+    }
+
     public int getCode() {
         return errorCode.getCode();
     }
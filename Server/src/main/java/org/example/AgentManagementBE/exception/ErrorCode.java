@@ -47,6 +47,7 @@ public enum ErrorCode {
     PRODUCT_ALREADY_EXISTS(400, "Mặt hàng đã tồn tại!"),
     INSUFFICIENT_INVENTORY(400, "Số lượng tồn kho không đủ!"),
     PRODUCT_INSUFFICIENT_QUANTITY(400, "Số lượng sản phẩm không đủ"),
+    EXPORT_PRICE_REFRESH_JOB_NOT_FOUND(404, "Không tìm thấy tác vụ cập nhật giá xuất!"),
 
     // ====== INVOICE - RECEIPT ======
     RECEIPT_NOT_FOUND(404, "Không tìm thấy phiếu thu!"),
@@ -118,9 +119,12 @@ public enum ErrorCode {
     BAD_REQUEST(400, "Yêu cầu không hợp lệ!"),
     MISSING_REQUIRED_FIELD(400, "Thiếu trường bắt buộc!"),
     INVALID_FORMAT(400, "Dữ liệu không đúng định dạng!"),
+    INVALID_CURSOR(400, "Con trỏ phân trang không hợp lệ!"),
+    RESULT_TOO_LARGE(400, "Kết quả quá lớn, hãy dùng phân trang!"),
     DATA_INTEGRITY_VIOLATION(409, "Xung đột dữ liệu!"),
     INVALID_DATE_RANGE(400, "Khoảng thời gian không hợp lệ!"),
     NUMBER_NEGATIVE(400, "Giá trị số không được âm!"),
+    AMOUNT_OUT_OF_RANGE(400, "Số tiền vượt quá giới hạn cho phép!"),
 
     // ====== SYSTEM / SERVER ======
     INTERNAL_SERVER_ERROR(500, "Lỗi máy chủ nội bộ!"),
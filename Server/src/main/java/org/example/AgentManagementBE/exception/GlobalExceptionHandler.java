@@ -1,6 +1,7 @@
 package org.example.AgentManagementBE.exception;
 
 import org.example.AgentManagementBE.DTO.request.ApiResponse;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -14,7 +15,16 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ApiResponse<Object>> handleAppException(AppException ex) {
         ErrorCode code = ex.getErrorCode();
         return ResponseEntity.status(code.getCode())
-                .body(new ApiResponse<>(code.getCode(), "error", code.getMessage(), null));
+                .body(new ApiResponse<>(code.getCode(), "error", code.getMessage(), ex.getData()));
+    }
+
+    // Bản ghi đã bị sửa ở nơi khác (@Version): trả về xung đột để người dùng tải lại rồi thử lại
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ApiResponse<Object>> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        ErrorCode code = ErrorCode.DATA_INTEGRITY_VIOLATION;
+        return ResponseEntity.status(code.getCode())
+                .body(new ApiResponse<>(code.getCode(), "error",
+                    "Dữ liệu đã bị thay đổi bởi người khác, vui lòng tải lại và thử lại", null));
     }
 
     @ExceptionHandler(HttpMediaTypeNotSupportedException.class)
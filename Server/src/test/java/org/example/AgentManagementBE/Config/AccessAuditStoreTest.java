@@ -0,0 +1,119 @@
+package org.example.AgentManagementBE.Config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.AgentManagementBE.DTO.response.AccessAuditEntry;
+import org.example.AgentManagementBE.exception.AppException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessAuditStoreTest {
+
+    private static final int EVENTS = 1_000;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Sự kiện cách nhau 1 phút, bắt đầu từ 1000 phút trước
+    private final LocalDateTime start = LocalDateTime.now().withNano(0).minusMinutes(EVENTS);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void searchFiltersByUserUriPrefixAndTimeAcrossSegments() throws Exception {
+        AccessAuditStore store = filledStore();
+        assertTrue(store.segmentCount() > 1, "Segment 4KB phải được chia thành nhiều file");
+
+        // Đại lý 42 được gọi ở mọi sự kiện i % 100 == 42, người dùng theo i % 3
+        List<AccessAuditEntry> agent42 = store.search(null, "/api/agents/42", null, start, start.plusMinutes(EVENTS), 1000);
+        assertEquals(10, agent42.size());
+        assertEquals(start.plusMinutes(942), agent42.get(0).getTimestamp());
+        assertEquals(start.plusMinutes(42), agent42.get(9).getTimestamp());
+
+        List<AccessAuditEntry> byUser = store.search("user1@example.com", "/api/agents/42", null,
+            start, start.plusMinutes(EVENTS), 1000);
+        assertEquals(3, byUser.size());
+        assertTrue(byUser.stream().allMatch(entry -> "user1@example.com".equals(entry.getUsername())));
+
+        List<AccessAuditEntry> window = store.search(null, null, null, start.plusMinutes(100), start.plusMinutes(199), 1000);
+        assertEquals(100, window.size());
+        assertEquals(start.plusMinutes(199), window.get(0).getTimestamp());
+        assertEquals(start.plusMinutes(100), window.get(99).getTimestamp());
+
+        List<AccessAuditEntry> newest = store.search(null, null, "access", start, start.plusMinutes(EVENTS), 5);
+        assertEquals(5, newest.size());
+        assertEquals(start.plusMinutes(EVENTS - 1), newest.get(0).getTimestamp());
+        assertEquals("GET", newest.get(0).getMethod());
+    }
+
+    @Test
+    void reopenedStoreRecoversSegmentsAndKeepsAppending() throws Exception {
+        filledStore();
+
+        AccessAuditStore reopened = store();
+        reopened.append(AccessLogRingBuffer.EventType.LOGIN, System.currentTimeMillis(), false,
+            "admin@example.com", null, null, null, "127.0.0.1");
+
+        assertEquals(EVENTS, reopened.search(null, "/api/agents/", null, start, start.plusMinutes(EVENTS), 1000).size());
+        List<AccessAuditEntry> logins = reopened.search("admin@example.com", null, "LOGIN", null, null, 10);
+        assertEquals(1, logins.size());
+        assertEquals(Boolean.FALSE, logins.get(0).getSuccess());
+    }
+
+    @Test
+    void retentionDeletesOnlyClosedSegmentsOlderThanCutoff() throws Exception {
+        AccessAuditStore store = store();
+        long old = millis(LocalDateTime.now().minusDays(120));
+        for (int i = 0; i < 200; i++) {
+            store.append(AccessLogRingBuffer.EventType.ACCESS, old + i, true, "old@example.com", "GET",
+                "/api/agents/" + i, "JUnit", "127.0.0.1");
+        }
+        store.append(AccessLogRingBuffer.EventType.ACCESS, System.currentTimeMillis(), true, "new@example.com", "GET",
+            "/api/agents/1", "JUnit", "127.0.0.1");
+        int before = store.segmentCount();
+
+        int deleted = store.applyRetention();
+
+        assertTrue(deleted > 0);
+        assertEquals(before - deleted, store.segmentCount());
+        assertEquals(1, store.search(null, null, null, LocalDateTime.now().minusDays(200), null, 1000).stream()
+            .filter(entry -> "new@example.com".equals(entry.getUsername())).count());
+    }
+
+    @Test
+    void invalidQueriesAreRejected() throws Exception {
+        AccessAuditStore store = store();
+        LocalDateTime now = LocalDateTime.now();
+        assertThrows(AppException.class, () -> store.search(null, null, null, now, now.minusDays(1), 10));
+        assertThrows(AppException.class, () -> store.search(null, null, null, null, null, 5000));
+        assertThrows(AppException.class, () -> store.search(null, null, "UPDATE", null, null, 10));
+    }
+
+    private AccessAuditStore filledStore() throws Exception {
+        AccessAuditStore store = store();
+        for (int i = 0; i < EVENTS; i++) {
+            store.append(AccessLogRingBuffer.EventType.ACCESS, millis(start.plusMinutes(i)), true,
+                "user" + (i % 3) + "@example.com", "GET", "/api/agents/" + (i % 100), "JUnit", "127.0.0.1");
+        }
+        store.close();
+        return store;
+    }
+
+    private AccessAuditStore store() throws Exception {
+        AccessAuditStore store = new AccessAuditStore(meterRegistry, directory.toString(), 4, 90);
+        store.open();
+        return store;
+    }
+
+    private long millis(LocalDateTime time) {
+        return time.atZone(ZONE).toInstant().toEpochMilli();
+    }
+}
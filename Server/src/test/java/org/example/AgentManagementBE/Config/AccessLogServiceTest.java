@@ -0,0 +1,116 @@
+package org.example.AgentManagementBE.Config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogServiceTest {
+
+    private static final int THREADS = 4;
+    private static final int EVENTS_PER_THREAD = 5_000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path directory;
+
+    @TempDir
+    Path auditDirectory;
+
+    @Test
+    void blockPolicyWritesEveryEventFromConcurrentThreads() throws Exception {
+        // Vòng đệm nhỏ hơn nhiều so với số sự kiện để luồng ghi phải chờ
+        AccessLogService service = service(64, AccessLogService.POLICY_BLOCK);
+        service.start();
+
+        runConcurrently(service);
+        service.stop();
+
+        List<String> lines = readLines();
+        assertEquals(THREADS * EVENTS_PER_THREAD, lines.size());
+        assertEquals(0.0, meterRegistry.get("access_log.events.dropped").counter().count());
+        assertEquals(THREADS * EVENTS_PER_THREAD, meterRegistry.get("access_log.events.written").counter().count());
+        assertEquals(THREADS * EVENTS_PER_THREAD, meterRegistry.get("audit.events.appended").counter().count());
+        assertTrue(lines.get(0).matches("\\[\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}] USER=user\\d+ METHOD=GET URI=/api/agents/\\d+ USER_AGENT=JUnit IP=127\\.0\\.0\\.1"),
+            lines.get(0));
+    }
+
+    @Test
+    void dropPolicyCountsEventsThatDoNotFit() throws Exception {
+        // Chưa khởi động luồng ghi: chỉ 8 sự kiện đầu vào được vòng đệm
+        AccessLogService service = service(8, AccessLogService.POLICY_DROP);
+        for (int i = 0; i < 20; i++) {
+            service.logAccess("user", "GET", "/api/agents", "JUnit", "127.0.0.1");
+        }
+        assertEquals(8, service.pendingEvents());
+        assertEquals(12.0, meterRegistry.get("access_log.events.dropped").counter().count());
+
+        service.start();
+        // Chờ luồng ghi rút hết vòng đệm để hai sự kiện sau chắc chắn có chỗ
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.pendingEvents() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, service.pendingEvents());
+        service.logLogin("admin@example.com", "127.0.0.1", false);
+        service.logLogout("admin@example.com", "127.0.0.1");
+        service.stop();
+
+        List<String> lines = readLines();
+        assertEquals(10, lines.size());
+        assertTrue(lines.get(8).endsWith("LOGIN FAILED USER=admin@example.com IP=127.0.0.1"));
+        assertTrue(lines.get(9).endsWith("LOGOUT USER=admin@example.com IP=127.0.0.1"));
+        // Sự kiện bị bỏ không vào kho nhật ký nhị phân
+        assertEquals(10.0, meterRegistry.get("audit.events.appended").counter().count());
+    }
+
+    private AccessLogService service(int bufferSize, String policy) throws Exception {
+        AccessAuditStore accessAuditStore = new AccessAuditStore(meterRegistry, auditDirectory.toString(), 1024, 90);
+        accessAuditStore.open();
+        return new AccessLogService(meterRegistry, accessAuditStore, directory.toString(), bufferSize, policy, 32, 10, 50);
+    }
+
+    private void runConcurrently(AccessLogService service) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String username = "user" + t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                    service.logAccess(username, "GET", "/api/agents/" + i, "JUnit", "127.0.0.1");
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private List<String> readLines() throws Exception {
+        List<String> lines = new ArrayList<>();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.sorted().toList()) {
+                lines.addAll(Files.readAllLines(file));
+            }
+        }
+        return lines;
+    }
+}
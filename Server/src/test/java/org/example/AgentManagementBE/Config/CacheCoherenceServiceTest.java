@@ -0,0 +1,98 @@
+package org.example.AgentManagementBE.Config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Repository.CacheVersionRepository;
+import org.example.AgentManagementBE.Repository.DistrictRepository;
+import org.example.AgentManagementBE.Service.ReferenceDataCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hai context ứng dụng dùng chung một cơ sở dữ liệu H2 đóng vai hai node sau load balancer
+ */
+class CacheCoherenceServiceTest {
+
+    private static final String DATABASE_URL = "jdbc:h2:mem:cachecoherence;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE";
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = District.class)
+    @EnableJpaRepositories(basePackageClasses = DistrictRepository.class)
+    @Import({CacheCoherenceService.class, ReferenceDataCache.class})
+    static class NodeConfiguration {
+    }
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        // Node A tạo lược đồ, node B dùng lại lược đồ đó
+        nodeA = startNode("create-drop");
+        nodeB = startNode("none");
+    }
+
+    @AfterEach
+    void stopNodes() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    @Test
+    void otherNodeReloadsRegionAfterPolling() {
+        ReferenceDataCache cacheA = nodeA.getBean(ReferenceDataCache.class);
+        ReferenceDataCache cacheB = nodeB.getBean(ReferenceDataCache.class);
+        CacheCoherenceService coherenceB = nodeB.getBean(CacheCoherenceService.class);
+        assertEquals(0, coherenceB.poll());
+
+        nodeA.getBean(DistrictRepository.class).save(new District("Quận mới"));
+        cacheA.reloadAfterCommit();
+
+        assertTrue(hasDistrict(cacheA, "Quận mới"));
+        assertFalse(hasDistrict(cacheB, "Quận mới"));
+
+        assertEquals(1, coherenceB.poll());
+        assertTrue(hasDistrict(cacheB, "Quận mới"));
+        assertEquals(1.0, nodeB.getBean(MeterRegistry.class).get("cache.coherence.invalidations")
+            .tag("region", CacheCoherenceService.REGION_REFERENCE_DATA).counter().count());
+
+        // Không có thay đổi mới thì không nạp lại
+        assertEquals(0, coherenceB.poll());
+        assertEquals(1L, nodeB.getBean(CacheVersionRepository.class)
+            .findById(CacheCoherenceService.REGION_REFERENCE_DATA).orElseThrow().getVersion());
+    }
+
+    private ConfigurableApplicationContext startNode(String ddlAuto) {
+        // Tham số dòng lệnh ghi đè application.properties (properties() chỉ đặt giá trị mặc định)
+        return new SpringApplicationBuilder(NodeConfiguration.class)
+            .web(WebApplicationType.NONE)
+            .run("--spring.datasource.url=" + DATABASE_URL,
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                "--spring.jpa.show-sql=false");
+    }
+
+    private static boolean hasDistrict(ReferenceDataCache cache, String districtName) {
+        return cache.getDistricts().stream().anyMatch(district -> districtName.equals(district.getDistrictName()));
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.AgentManagementBE.Config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.AgentManagementBE.Model.Person;
+import org.example.AgentManagementBE.Service.PersonService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CustomUserDetailsServiceTest {
+
+    private static final String EMAIL = "admin@example.com";
+    private static final String PASSWORD = "secret";
+
+    private final SHA256PasswordEncoder passwordEncoder = new SHA256PasswordEncoder();
+    private CustomUserDetailsService userDetailsService;
+    private AuthenticationManager authenticationManager;
+
+    @BeforeEach
+    void setUp() {
+        Person person = new Person("admin", passwordEncoder.encode(PASSWORD), EMAIL, "Người Quản Trị");
+        person.setPersonId(1);
+        PersonService personService = mock(PersonService.class);
+        when(personService.findByEmail(EMAIL)).thenReturn(person);
+        when(personService.getUserRoles(1)).thenReturn(List.of("ADMIN"));
+
+        userDetailsService = new CustomUserDetailsService();
+        ReflectionTestUtils.setField(userDetailsService, "personService", personService);
+        ReflectionTestUtils.setField(userDetailsService, "userDetailsCache",
+            new UserDetailsCache(new SimpleMeterRegistry(), mock(CacheCoherenceService.class), 60, 100));
+
+        // Cấu hình giống SecurityConfig: ProviderManager mặc định xóa mật khẩu sau khi xác thực
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(userDetailsService);
+        provider.setPasswordEncoder(passwordEncoder);
+        authenticationManager = new ProviderManager(provider);
+    }
+
+    @Test
+    void loggingInTwiceInARowSucceeds() {
+        assertTrue(login().isAuthenticated());
+        // Request mang JWT nạp người dùng vào cache giữa hai lần đăng nhập
+        assertNotNull(userDetailsService.loadCachedUserByUsername(EMAIL));
+        assertTrue(login().isAuthenticated());
+
+        assertEquals(passwordEncoder.encode(PASSWORD), userDetailsService.loadCachedUserByUsername(EMAIL).getPassword());
+    }
+
+    private Authentication login() {
+        return authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(EMAIL, PASSWORD));
+    }
+}
@@ -0,0 +1,217 @@
+package org.example.AgentManagementBE.Config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.AgentManagementBE.Model.Person;
+import org.example.AgentManagementBE.Model.PersonRole;
+import org.example.AgentManagementBE.Model.PersonRoleId;
+import org.example.AgentManagementBE.Model.Role;
+import org.example.AgentManagementBE.Repository.PersonRepository;
+import org.example.AgentManagementBE.Repository.PersonRoleRepository;
+import org.example.AgentManagementBE.Repository.RoleRepository;
+import org.example.AgentManagementBE.Service.KeysetPagination;
+import org.example.AgentManagementBE.Service.PersonService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * So sánh thông lượng xác thực request giữa chế độ nạp quyền từ cơ sở dữ liệu và chế độ không trạng thái
+ * (tin claim "roles" đã ký), đồng thời kiểm tra danh sách thu hồi của chế độ không trạng thái
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:jwtfilter;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class JwtAuthenticationFilterBenchmarkTest {
+
+    private static final int REQUESTS = 2000;
+    private static final String EMAIL = "admin@example.com";
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private PersonRoleRepository personRoleRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TokenRevocationRegistry tokenRevocationRegistry;
+    private JwtTokenProvider jwtTokenProvider;
+    private Person person;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        Role admin = roleRepository.save(new Role("ADMIN"));
+        person = personRepository.save(new Person("admin", "hash", EMAIL, "Người Quản Trị"));
+        personRoleRepository.save(new PersonRole(new PersonRoleId(person.getPersonId(), admin.getRoleId()), person, admin));
+        entityManager.flush();
+        entityManager.clear();
+
+        tokenRevocationRegistry = new TokenRevocationRegistry(personRepository, meterRegistry,
+            mock(CacheCoherenceService.class), JwtAuthenticationFilter.MODE_STATELESS);
+        jwtTokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtTokenVerifier",
+            new JwtTokenVerifier("benchmarkSecretKeyForJwtAuthenticationFilterTests", 1024, meterRegistry));
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtExpirationMs", 3_600_000L);
+        ReflectionTestUtils.setField(jwtTokenProvider, "refreshExpirationMs", 3_600_000L);
+        ReflectionTestUtils.setField(jwtTokenProvider, "tokenRevocationRegistry", tokenRevocationRegistry);
+        token = jwtTokenProvider.generateToken(EMAIL, List.of("ADMIN"));
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void statelessModeAuthenticatesWithoutDatabaseAccess() throws Exception {
+        // TTL 0: mỗi request đều nạp lại từ cơ sở dữ liệu như trước khi có cache
+        long databaseStatements = run(filter(JwtAuthenticationFilter.MODE_DATABASE, 0));
+        long cachedStatements = run(filter(JwtAuthenticationFilter.MODE_DATABASE, 60));
+        long statelessStatements = run(filter(JwtAuthenticationFilter.MODE_STATELESS, 60));
+
+        assertTrue(databaseStatements >= REQUESTS, "Mỗi request phải truy vấn người dùng và vai trò");
+        assertTrue(cachedStatements < databaseStatements);
+        assertEquals(0, statelessStatements);
+    }
+
+    @Test
+    void bothModesResolveTheSameAuthorities() throws Exception {
+        JwtAuthenticationFilter database = filter(JwtAuthenticationFilter.MODE_DATABASE, 60);
+        JwtAuthenticationFilter stateless = filter(JwtAuthenticationFilter.MODE_STATELESS, 60);
+
+        assertEquals(authorities(authenticate(database)), authorities(authenticate(stateless)));
+        assertEquals(Set.of("ROLE_ADMIN"), authorities(authenticate(stateless)));
+    }
+
+    @Test
+    void statelessModeRejectsRevokedTokens() throws Exception {
+        JwtAuthenticationFilter stateless = filter(JwtAuthenticationFilter.MODE_STATELESS, 60);
+        assertNotNull(authenticate(stateless));
+
+        // Vai trò thay đổi: phiên bản vai trò tăng, token cũ bị từ chối, token mới vẫn hợp lệ
+        tokenRevocationRegistry.revokePerson(person.getPersonId());
+        tokenRevocationRegistry.refresh();
+        assertNull(authenticate(stateless));
+        token = jwtTokenProvider.generateToken(EMAIL, List.of("ADMIN"));
+        assertNotNull(authenticate(stateless));
+
+        // Người dùng bị khóa: mọi token đều bị từ chối
+        Person stored = personRepository.findById(person.getPersonId()).orElseThrow();
+        stored.setIsActive(false);
+        personRepository.saveAndFlush(stored);
+        tokenRevocationRegistry.refresh();
+        assertNull(authenticate(stateless));
+    }
+
+    @Test
+    void issuedTokensCarryRoleVersionFromDatabase() {
+        // Nạp bảng trong bộ nhớ rồi đổi phiên bản vai trò như từ một node khác
+        assertFalse(tokenRevocationRegistry.isRevoked(EMAIL, 0));
+        personRepository.incrementRoleVersion(person.getPersonId());
+
+        String issued = jwtTokenProvider.generateToken(EMAIL, List.of("ADMIN"));
+        assertEquals(1, jwtTokenProvider.getRoleVersionFromClaims(jwtTokenProvider.getValidClaims(issued)));
+    }
+
+    @Test
+    void databaseModeNeverLoadsRevocationList() {
+        PersonRepository repository = mock(PersonRepository.class);
+        TokenRevocationRegistry registry = new TokenRevocationRegistry(repository, new SimpleMeterRegistry(),
+            mock(CacheCoherenceService.class), JwtAuthenticationFilter.MODE_DATABASE);
+
+        registry.refresh();
+        registry.refreshAfterCommit();
+        verifyNoInteractions(repository);
+    }
+
+    private JwtAuthenticationFilter filter(String mode, long cacheTtlSeconds) {
+        UserDetailsCache userDetailsCache = new UserDetailsCache(new SimpleMeterRegistry(), mock(CacheCoherenceService.class),
+            cacheTtlSeconds, 100);
+        PersonService personService = new PersonService(personRepository, personRoleRepository, userDetailsCache,
+            tokenRevocationRegistry, new KeysetPagination(50, 500, 10_000));
+        CustomUserDetailsService userDetailsService = new CustomUserDetailsService();
+        ReflectionTestUtils.setField(userDetailsService, "personService", personService);
+        ReflectionTestUtils.setField(userDetailsService, "userDetailsCache", userDetailsCache);
+
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtTokenProvider", jwtTokenProvider);
+        ReflectionTestUtils.setField(filter, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(filter, "accessLogService", mock(AccessLogService.class));
+        ReflectionTestUtils.setField(filter, "tokenRevocationRegistry", tokenRevocationRegistry);
+        ReflectionTestUtils.setField(filter, "authorizationMode", mode);
+        return filter;
+    }
+
+    /**
+     * Chạy REQUESTS request qua filter và trả về số câu SQL đã thực thi
+     */
+    private long run(JwtAuthenticationFilter filter) throws Exception {
+        // Làm nóng: nạp danh sách thu hồi và cache trước khi đo
+        for (int i = 0; i < 100; i++) {
+            assertNotNull(authenticate(filter));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            assertNotNull(authenticate(filter));
+        }
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Authentication authenticate(JwtAuthenticationFilter filter) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/agents");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private Set<String> authorities(Authentication authentication) {
+        return authentication.getAuthorities().stream()
+            .map(GrantedAuthority::getAuthority)
+            .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.AgentManagementBE.Config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * So sánh chi phí xác minh một JWT: cách cũ (dựng khóa và parse ba lần cho validate/hạn/subject)
+ * với cách mới (khóa dựng sẵn, parse một lần, có hoặc không có LRU claims)
+ */
+class JwtTokenVerifierBenchmarkTest {
+
+    private static final String SECRET = "benchmarkSecretKeyForJwtTokenVerifierTests";
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 20_000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void compareLegacyAndSingleParseVerification() {
+        String token = token(SECRET, 3_600_000L);
+        SimpleMeterRegistry uncachedRegistry = new SimpleMeterRegistry();
+        SimpleMeterRegistry cachedRegistry = new SimpleMeterRegistry();
+        JwtTokenVerifier uncached = new JwtTokenVerifier(SECRET, 0, uncachedRegistry);
+        JwtTokenVerifier cached = new JwtTokenVerifier(SECRET, 1024, cachedRegistry);
+
+        double legacyNanos = measure(token, this::legacyValidate);
+        double singleParseNanos = measure(token, uncached::verify);
+        double cachedNanos = measure(token, cached::verify);
+
+        // Parse một lần nhanh hơn dựng khóa và parse ba lần; tra LRU nhanh hơn cả hai
+        assertTrue(singleParseNanos < legacyNanos, singleParseNanos + " ns/op, cách cũ " + legacyNanos + " ns/op");
+        assertTrue(cachedNanos < singleParseNanos, cachedNanos + " ns/op, không cache " + singleParseNanos + " ns/op");
+
+        // Không có LRU: mỗi lần gọi kiểm tra chữ ký đúng một lần; có LRU: chỉ lần đầu
+        assertEquals(WARMUP + ITERATIONS, uncachedRegistry.get("jwt.verification.cache.misses").counter().count());
+        assertEquals(1.0, cachedRegistry.get("jwt.verification.cache.misses").counter().count());
+    }
+
+    @Test
+    void cachedTokensReturnSameClaimsAndRecordMetrics() {
+        JwtTokenVerifier verifier = new JwtTokenVerifier(SECRET, 2, meterRegistry);
+        String token = token(SECRET, 3_600_000L);
+
+        Claims first = verifier.verify(token);
+        assertSame(first, verifier.verify(token));
+        assertEquals("admin@example.com", first.getSubject());
+        assertEquals(1.0, meterRegistry.get("jwt.verification.cache.hits").counter().count());
+        assertEquals(1.0, meterRegistry.get("jwt.verification.cache.misses").counter().count());
+
+        // LRU giới hạn số token giữ lại
+        verifier.verify(token(SECRET, 3_500_000L));
+        verifier.verify(token(SECRET, 3_400_000L));
+        assertEquals(2, verifier.cachedTokenCount());
+    }
+
+    @Test
+    void tamperedAndExpiredTokensAreRejected() {
+        JwtTokenVerifier verifier = new JwtTokenVerifier(SECRET, 1024, meterRegistry);
+        String token = token(SECRET, 3_600_000L);
+        verifier.verify(token);
+
+        // Đổi chữ ký: khóa cache là toàn bộ token nên không được lấy claims của token hợp lệ
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        assertThrows(JwtException.class, () -> verifier.verify(tampered));
+        assertThrows(JwtException.class, () -> verifier.verify(token("anotherSecretKeyThatIsLongEnoughForHs256", 3_600_000L)));
+        assertThrows(ExpiredJwtException.class, () -> verifier.verify(token(SECRET, -1_000L)));
+    }
+
+    /**
+     * Luồng cũ của JwtTokenProvider: mỗi lần gọi dựng lại khóa,
+     * parse để validate, parse để kiểm tra hạn và parse để lấy subject
+     */
+    private Claims legacyValidate(String token) {
+        Jwts.parser().verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes())).build().parseSignedClaims(token);
+        Claims expiry = Jwts.parser().verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes())).build()
+            .parseSignedClaims(token).getPayload();
+        if (expiry.getExpiration().before(new Date())) {
+            throw new IllegalStateException("expired");
+        }
+        return Jwts.parser().verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes())).build()
+            .parseSignedClaims(token).getPayload();
+    }
+
+    /**
+     * Thời gian trung bình mỗi lần xác minh (ns) sau khi làm nóng
+     */
+    private double measure(String token, Function<String, Claims> verify) {
+        for (int i = 0; i < WARMUP; i++) {
+            verify.apply(token);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            verify.apply(token);
+        }
+        return (System.nanoTime() - start) / (double) ITERATIONS;
+    }
+
+    private String token(String secret, long ttlMs) {
+        SecretKey key = Keys.hmacShaKeyFor(secret.getBytes());
+        Date now = new Date();
+        return Jwts.builder()
+            .subject("admin@example.com")
+            .issuedAt(now)
+            .expiration(new Date(now.getTime() + ttlMs))
+            .signWith(key)
+            .compact();
+    }
+}
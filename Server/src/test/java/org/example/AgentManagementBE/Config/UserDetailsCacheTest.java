@@ -0,0 +1,70 @@
+package org.example.AgentManagementBE.Config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+class UserDetailsCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CacheCoherenceService cacheCoherenceService = mock(CacheCoherenceService.class);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Function<String, UserDetailsCache.LoadedUser> loader = subject -> {
+        loads.incrementAndGet();
+        UserDetails userDetails = User.withUsername(subject).password("x").roles("VIEWER").build();
+        return new UserDetailsCache.LoadedUser(subject.length(), userDetails);
+    };
+
+    @Test
+    void repeatedLookupsHitCacheAndRecordMetrics() {
+        UserDetailsCache cache = new UserDetailsCache(meterRegistry, cacheCoherenceService, 60, 100);
+
+        UserDetails first = cache.get("admin@example.com", loader);
+        for (int i = 0; i < 9; i++) {
+            assertSame(first, cache.get("admin@example.com", loader));
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(9.0, meterRegistry.get("user_details.cache.hits").counter().count());
+        assertEquals(1.0, meterRegistry.get("user_details.cache.misses").counter().count());
+        assertEquals(0.9, meterRegistry.get("user_details.cache.hit.ratio").gauge().value(), 1e-9);
+        assertEquals(1, meterRegistry.get("user_details.cache.load").timer().count());
+    }
+
+    @Test
+    void evictPersonForcesReload() {
+        UserDetailsCache cache = new UserDetailsCache(meterRegistry, cacheCoherenceService, 60, 100);
+        cache.get("a@x.vn", loader);
+        cache.get("bb@x.vn", loader);
+
+        // personId của loader bằng độ dài subject
+        cache.evictPerson("a@x.vn".length());
+        cache.get("a@x.vn", loader);
+        cache.get("bb@x.vn", loader);
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void expiredEntriesAreReloadedAndSizeStaysBounded() {
+        UserDetailsCache expiring = new UserDetailsCache(meterRegistry, cacheCoherenceService, 0, 100);
+        expiring.get("a@x.vn", loader);
+        expiring.get("a@x.vn", loader);
+        assertEquals(2, loads.get());
+
+        UserDetailsCache bounded = new UserDetailsCache(new SimpleMeterRegistry(), cacheCoherenceService, 60, 3);
+        for (int i = 0; i < 10; i++) {
+            bounded.get("user" + i + "@x.vn", loader);
+        }
+        assertEquals(3, bounded.size());
+    }
+}
@@ -0,0 +1,154 @@
+package org.example.AgentManagementBE.Repository;
+
+import jakarta.persistence.EntityManager;
+import org.example.AgentManagementBE.DTO.response.AgentAmount;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Model.ExportReceipt;
+import org.example.AgentManagementBE.Model.ImportReceipt;
+import org.example.AgentManagementBE.Model.PaymentReceipt;
+import org.example.AgentManagementBE.Model.SalesReport;
+import org.example.AgentManagementBE.Model.SalesReportDetail;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:monthrangequery;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class MonthRangeQueryTest {
+
+    // Các ngày sát biên tháng 3/2024 (năm nhuận): chỉ hai ngày giữa thuộc tháng
+    private static final List<LocalDate> DATES = List.of(
+        LocalDate.of(2024, 2, 29), LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), LocalDate.of(2024, 4, 1));
+
+    @Autowired
+    private ExportReceiptRepository exportReceiptRepository;
+
+    @Autowired
+    private ImportReceiptRepository importReceiptRepository;
+
+    @Autowired
+    private PaymentReceiptRepository paymentReceiptRepository;
+
+    @Autowired
+    private SalesReportRepository salesReportRepository;
+
+    @Autowired
+    private SalesReportDetailRepository salesReportDetailRepository;
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    @Autowired
+    private AgentTypeRepository agentTypeRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Agent agent;
+    private Agent idle;
+
+    @BeforeEach
+    void setUp() {
+        AgentType agentType = agentTypeRepository.save(new AgentType("Loại " + System.nanoTime(), 100_000));
+        District district = districtRepository.save(new District("Quận " + System.nanoTime()));
+        agent = agent("Đại lý 1", agentType, district);
+        idle = agent("Đại lý 2", agentType, district);
+
+        int amount = 1;
+        for (LocalDate date : DATES) {
+            ExportReceipt exportReceipt = new ExportReceipt(agent, date);
+            exportReceipt.setTotalAmount(amount);
+            exportReceipt.setPaidAmount(amount);
+            exportReceipt.setRemainingAmount(0);
+            exportReceiptRepository.save(exportReceipt);
+
+            ImportReceipt importReceipt = new ImportReceipt(date);
+            importReceipt.setTotalAmount(amount);
+            importReceiptRepository.save(importReceipt);
+
+            paymentReceiptRepository.save(new PaymentReceipt(agent, date, amount));
+            amount *= 10;
+        }
+    }
+
+    @Test
+    void monthQueriesIncludeFirstAndLastDayOnly() {
+        assertEquals(List.of(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31)),
+            exportReceiptRepository.findByMonthAndYear(3, 2024).stream().map(ExportReceipt::getCreateDate).sorted().toList());
+        assertEquals(2, exportReceiptRepository.countByMonthAndYear(3, 2024));
+        assertEquals(110, (int) exportReceiptRepository.getTotalMoneyByMonthAndYear(3, 2024));
+        assertEquals(110, (int) exportReceiptRepository.getTotalPaidAmountByAgentAndMonthAndYear(agent.getAgentId(), 3, 2024));
+        assertEquals(List.of(List.of(agent.getAgentId(), 110L)),
+            amounts(exportReceiptRepository.getTotalMoneyGroupedByAgentAndMonthAndYear(3, 2024)));
+
+        assertEquals(2, importReceiptRepository.findByMonthAndYear(3, 2024).size());
+        assertEquals(110, (int) importReceiptRepository.getTotalMoneyByMonthAndYear(3, 2024));
+
+        assertEquals(110, (int) paymentReceiptRepository.getTotalRevenueByAgentAndMonthAndYear(agent.getAgentId(), 3, 2024));
+        assertEquals(List.of(List.of(agent.getAgentId(), 110L)),
+            amounts(paymentReceiptRepository.getTotalRevenueGroupedByAgentAndMonthAndYear(3, 2024)));
+
+        // Tháng 2 năm nhuận kết thúc ở ngày 29
+        assertEquals(1, exportReceiptRepository.countByMonthAndYear(2, 2024));
+        assertEquals(1000, (int) exportReceiptRepository.getTotalMoneyByMonthAndYear(4, 2024));
+    }
+
+    @Test
+    void createsSalesReportDetailsForEveryAgentAndReturnsThem() {
+        SalesReport salesReport = new SalesReport(3, 2024);
+        salesReport.setTotalRevenue(110);
+        salesReport.setCreatedAt(LocalDateTime.now());
+        salesReportRepository.save(salesReport);
+
+        List<SalesReportDetail> details = salesReportDetailRepository.createSalesReportDetails(3, 2024);
+
+        assertEquals(2, details.size());
+        SalesReportDetail active = detailOf(details, agent);
+        assertEquals(List.of(2, 110, 110, 100),
+            List.of(active.getExportCount(), active.getTotalAmount(), active.getPaidAmount(), active.getRatio()));
+        SalesReportDetail none = detailOf(details, idle);
+        assertEquals(List.of(0, 0, 0, 0),
+            List.of(none.getExportCount(), none.getTotalAmount(), none.getPaidAmount(), none.getRatio()));
+
+        // Các dòng đã được ghi thật, không chỉ nằm trong persistence context
+        entityManager.clear();
+        assertEquals(2, salesReportDetailRepository.findByMonthAndYear(3, 2024).size());
+    }
+
+    private Agent agent(String name, AgentType agentType, District district) {
+        Agent agent = new Agent(name, agentType, null, null, null, district, LocalDate.of(2024, 1, 1));
+        agent.setDebtMoney(0);
+        return agentRepository.save(agent);
+    }
+
+    private static List<List<Object>> amounts(List<AgentAmount> amounts) {
+        return amounts.stream().map(amount -> List.<Object>of(amount.getAgentId(), amount.getAmount())).toList();
+    }
+
+    private static SalesReportDetail detailOf(List<SalesReportDetail> details, Agent agent) {
+        return details.stream()
+            .filter(detail -> detail.getAgent().getAgentId().equals(agent.getAgentId()))
+            .findFirst()
+            .orElseThrow();
+    }
+}
@@ -0,0 +1,204 @@
+package org.example.AgentManagementBE.Repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.AgentManagementBE.Config.SecondLevelCacheConfig;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Model.Product;
+import org.example.AgentManagementBE.Model.Unit;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:secondlevelcache;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(SecondLevelCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UnitRepository unitRepository;
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    @Autowired
+    private AgentTypeRepository agentTypeRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate tx;
+    private Statistics statistics;
+    private Integer productId;
+    private Integer agentId;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManagerFactory.getCache().evictAll();
+        agentRepository.deleteAll();
+        productRepository.deleteAll();
+
+        Unit unit = unitRepository.save(new Unit("Thùng " + System.nanoTime()));
+        Product product = new Product("Bia Tiger", unit, 1000, 1020);
+        product.setInventoryQuantity(100);
+        productId = productRepository.save(product).getProductId();
+
+        AgentType agentType = agentTypeRepository.save(new AgentType("Loại " + System.nanoTime(), 10_000));
+        District district = districtRepository.save(new District("Quận " + System.nanoTime()));
+        Agent agent = new Agent("Đại lý 1", agentType, null, null, null, district, LocalDate.now());
+        agent.setDebtMoney(0);
+        agentId = agentRepository.save(agent).getAgentId();
+        statistics.clear();
+    }
+
+    @Test
+    void findByIdIsServedFromCacheAfterFirstLoad() {
+        inventory();
+        agentDebt();
+        long statements = statistics.getPrepareStatementCount();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(100, inventory());
+            assertEquals(0, agentDebt());
+        }
+
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getDomainDataRegionStatistics(Product.class.getName()).getHitCount() >= 10);
+        assertTrue(statistics.getDomainDataRegionStatistics(Agent.class.getName()).getHitCount() >= 10);
+    }
+
+    @Test
+    void guardedUpdatesEvictOnlyTheChangedRows() {
+        Product other = new Product("Bia Sài Gòn", productRepository.findById(productId).orElseThrow().getUnit(), 900, 918);
+        other.setInventoryQuantity(50);
+        Integer otherId = productRepository.save(other).getProductId();
+        assertEquals(100, inventory());
+        assertEquals(50, (int) tx.execute(status -> productRepository.findById(otherId).orElseThrow().getInventoryQuantity()));
+        assertEquals(0, agentDebt());
+
+        assertEquals(1, (int) tx.execute(status -> productRepository.decrementInventory(productId, 30)));
+        assertEquals(1, (int) tx.execute(status -> agentRepository.applyDebtDelta(agentId, 4_000, true)));
+        // Vượt nợ tối đa: không cập nhật
+        assertEquals(0, (int) tx.execute(status -> agentRepository.applyDebtDelta(agentId, 7_000, true)));
+
+        assertEquals(70, inventory());
+        assertEquals(4_000, agentDebt());
+        assertTrue(entityManagerFactory.getCache().contains(Product.class, otherId),
+            "Sản phẩm không bị sửa phải còn trong cache");
+
+        assertEquals(1, (int) tx.execute(status -> productRepository.batchDecrementInventory(Map.of(productId, 20, otherId, 60)).size()));
+        assertEquals(50, inventory());
+        assertEquals(50, (int) tx.execute(status -> productRepository.findById(otherId).orElseThrow().getInventoryQuantity()));
+    }
+
+    @Test
+    void batchDecrementFlushesPendingChangesAndReportsEveryUnappliedRow() {
+        List<Integer> insufficient = tx.execute(status -> {
+            // Thay đổi chưa flush phải xuống DB trước câu UPDATE, nếu không lần flush khi commit ghi đè kết quả trừ kho
+            productRepository.findById(productId).orElseThrow().setInventoryQuantity(40);
+            return productRepository.batchDecrementInventory(Map.of(productId, 30, Integer.MAX_VALUE, 1));
+        });
+
+        assertEquals(List.of(Integer.MAX_VALUE), insufficient);
+        assertEquals(10, jdbcTemplate.queryForObject("SELECT inventory_quantity FROM product WHERE product_id = ?",
+            Integer.class, productId));
+        assertEquals(10, inventory());
+    }
+
+    @Test
+    void rolledBackUpdateDoesNotLeaveNewValueInCache() {
+        assertEquals(100, inventory());
+
+        tx.executeWithoutResult(status -> {
+            productRepository.decrementInventory(productId, 10);
+            // Đọc lại trong giao dịch có thể đưa giá trị chưa commit vào cache, phải bị xóa khi rollback
+            productRepository.findById(productId);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(100, inventory());
+    }
+
+    @Test
+    void saveFromStaleCacheKeepsGuardedColumnsAndRejectsConcurrentEdits() {
+        assertEquals(0, agentDebt());
+        assertEquals(100, inventory());
+        // Node khác ghi nợ và tồn kho: cache của node này vẫn giữ giá trị cũ
+        jdbcTemplate.update("UPDATE agent SET debt_money = 4000 WHERE agent_id = ?", agentId);
+        jdbcTemplate.update("UPDATE product SET inventory_quantity = 70 WHERE product_id = ?", productId);
+
+        tx.executeWithoutResult(status -> {
+            Agent agent = agentRepository.findById(agentId).orElseThrow();
+            agent.setPhone("0901234567");
+            agentRepository.save(agent);
+            Product product = productRepository.findById(productId).orElseThrow();
+            product.setImportPrice(1100);
+            productRepository.save(product);
+        });
+        assertEquals(4000, (int) jdbcTemplate.queryForObject(
+            "SELECT debt_money FROM agent WHERE agent_id = ?", Integer.class, agentId));
+        assertEquals(70, (int) jdbcTemplate.queryForObject(
+            "SELECT inventory_quantity FROM product WHERE product_id = ?", Integer.class, productId));
+
+        // Node khác sửa tên qua JPA (tăng version): lưu từ bản cũ trong cache bị từ chối
+        assertEquals("Đại lý 1", tx.execute(status -> agentRepository.findById(agentId).orElseThrow().getAgentName()));
+        jdbcTemplate.update("UPDATE agent SET agent_name = 'Đại lý A', version = version + 1 WHERE agent_id = ?", agentId);
+        assertThrows(OptimisticLockingFailureException.class, () -> tx.executeWithoutResult(status -> {
+            Agent agent = agentRepository.findById(agentId).orElseThrow();
+            agent.setAgentName("Đại lý B");
+            agentRepository.save(agent);
+        }));
+        assertEquals("Đại lý A", jdbcTemplate.queryForObject(
+            "SELECT agent_name FROM agent WHERE agent_id = ?", String.class, agentId));
+    }
+
+    private int inventory() {
+        return tx.execute(status -> productRepository.findById(productId).orElseThrow().getInventoryQuantity());
+    }
+
+    private int agentDebt() {
+        return tx.execute(status -> agentRepository.findById(agentId).orElseThrow().getDebtMoney());
+    }
+}
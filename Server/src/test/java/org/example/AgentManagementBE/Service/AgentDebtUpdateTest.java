@@ -0,0 +1,129 @@
+package org.example.AgentManagementBE.Service;
+
+import jakarta.persistence.EntityManager;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.Repository.AgentTypeRepository;
+import org.example.AgentManagementBE.Repository.DistrictRepository;
+import org.example.AgentManagementBE.exception.AppException;
+import org.example.AgentManagementBE.exception.ErrorCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:agentdebtupdate;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AgentDebtUpdateTest {
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    @Autowired
+    private AgentTypeRepository agentTypeRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private AgentService agentService;
+    private District district;
+    private Agent agent;
+
+    @BeforeEach
+    void setUp() {
+        agentService = service(agentRepository);
+        AgentType agentType = agentTypeRepository.save(new AgentType("Loại " + System.nanoTime(), 100_000));
+        district = districtRepository.save(new District("Quận " + System.nanoTime()));
+        agent = new Agent("Đại lý 1", agentType, null, null, null, district, LocalDate.of(2024, 1, 1));
+        agent.setDebtMoney(1000);
+        agent = agentRepository.save(agent);
+        entityManager.flush();
+    }
+
+    @Test
+    void debtDeltaRefreshesOnlyTheUpdatedAgent() {
+        assertEquals(1, agentRepository.applyDebtDelta(agent.getAgentId(), 500, true));
+
+        // Đại lý người gọi đang giữ thấy nợ mới, các entity khác vẫn được quản lý
+        assertEquals(1500, (int) agent.getDebtMoney());
+        assertTrue(entityManager.contains(agent));
+        assertTrue(entityManager.contains(district));
+        assertSame(agent, agentRepository.findAgentWithDebt(agent.getAgentId()).orElseThrow());
+    }
+
+    @Test
+    void rejectedDeltaReportsCurrentDebt() {
+        jdbcTemplate.update("UPDATE agent SET debt_money = 99000 WHERE agent_id = ?", agent.getAgentId());
+
+        AppException ex = assertThrows(AppException.class,
+            () -> agentService.applyDebtDelta(agent.getAgentId(), 2000, true).ifPresent(violation -> {
+                throw violation.toAppException();
+            }));
+
+        assertEquals(ErrorCode.AGENT_DEBT_LIMIT_EXCEEDED, ex.getErrorCode());
+        assertEquals(99_000, (int) agent.getDebtMoney());
+    }
+
+    @Test
+    void updateDebtMoneySetsTargetAndChecksLimitInBothDirections() {
+        assertEquals(200, (int) agentService.updateDebtMoney(200, agent.getAgentId()).getData().getDebtMoney());
+        assertEquals(200, debt());
+
+        jdbcTemplate.update("UPDATE agent_type SET max_debt = 100 WHERE agent_type_id = ?",
+            agent.getAgentType().getAgentTypeId());
+        // Giảm nợ nhưng vẫn trên giới hạn mới: bị từ chối thay vì bỏ qua kiểm tra
+        AppException ex = assertThrows(AppException.class, () -> agentService.updateDebtMoney(150, agent.getAgentId()));
+        assertEquals(ErrorCode.AGENT_DEBT_LIMIT_EXCEEDED, ex.getErrorCode());
+        assertEquals(200, debt());
+    }
+
+    @Test
+    void updateDebtMoneyDoesNotOverwriteConcurrentChange() {
+        AgentRepository repository = mock(AgentRepository.class);
+        Agent changed = new Agent("Đại lý 1", agent.getAgentType(), null, null, null, district, LocalDate.of(2024, 1, 1));
+        changed.setDebtMoney(1300);
+        when(repository.findAgentWithDebt(agent.getAgentId())).thenReturn(Optional.of(agent), Optional.of(changed));
+        when(repository.setDebtMoneyIfUnchanged(agent.getAgentId(), 1000, 500)).thenReturn(0);
+
+        AppException ex = assertThrows(AppException.class,
+            () -> service(repository).updateDebtMoney(500, agent.getAgentId()));
+
+        assertEquals(ErrorCode.DATA_INTEGRITY_VIOLATION, ex.getErrorCode());
+    }
+
+    private AgentService service(AgentRepository repository) {
+        return new AgentService(repository, null, null, null, null, null, mock(ReferenceDataCache.class),
+            mock(ParameterService.class));
+    }
+
+    private int debt() {
+        return jdbcTemplate.queryForObject("SELECT debt_money FROM agent WHERE agent_id = ?", Integer.class, agent.getAgentId());
+    }
+}
@@ -0,0 +1,219 @@
+package org.example.AgentManagementBE.Service;
+
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.AgentMonthlyAggregate;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Repository.AgentMonthlyAggregateRepository;
+import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.Repository.AgentTypeRepository;
+import org.example.AgentManagementBE.Repository.DistrictRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:agentmonthlyaggregate;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AgentMonthlyAggregateServiceTest {
+
+    private static final YearMonth MARCH = YearMonth.of(2024, 3);
+    private static final String SNAPSHOT_SQL =
+        "SELECT agent, year, month, export_count, total_amount, paid_amount, remaining_amount, payment_revenue " +
+        "FROM agent_monthly_aggregate WHERE export_count <> 0 OR total_amount <> 0 OR paid_amount <> 0 " +
+        "OR remaining_amount <> 0 OR payment_revenue <> 0 ORDER BY agent, year, month";
+
+    @Autowired
+    private AgentMonthlyAggregateRepository agentMonthlyAggregateRepository;
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    @Autowired
+    private AgentTypeRepository agentTypeRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private AgentMonthlyAggregateService service;
+    private final List<Agent> agents = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM payment_receipt");
+        jdbcTemplate.update("DELETE FROM export_receipt");
+        agentMonthlyAggregateRepository.deleteAll();
+        agentRepository.deleteAll();
+        agents.clear();
+
+        // Nhóm 2 đại lý để lần tính lại chia thành nhiều giao dịch chạy song song
+        service = new AgentMonthlyAggregateService(agentMonthlyAggregateRepository, agentRepository, transactionManager, 2, 2);
+        AgentType agentType = agentTypeRepository.save(new AgentType("Loại " + System.nanoTime(), 100_000));
+        District district = districtRepository.save(new District("Quận " + System.nanoTime()));
+        for (int i = 0; i < 5; i++) {
+            Agent agent = new Agent("Đại lý " + i, agentType, null, null, null, district, LocalDate.of(2024, 1, 1));
+            agent.setDebtMoney(0);
+            agents.add(agentRepository.save(agent));
+        }
+    }
+
+    @Test
+    void appliesCreateUpdateAndDeleteDeltas() {
+        int agentId = agents.get(0).getAgentId();
+
+        service.recordExport(agentId, MARCH, 1, 1000, 200, 800);
+        service.recordPayment(agentId, MARCH, 300);
+        assertAggregate(agentId, 1, 1000, 200, 800, 300);
+
+        // Sửa phiếu: số phiếu không đổi, chỉ cộng chênh lệch tiền
+        service.recordExport(agentId, MARCH, 0, 500, 0, 500);
+        service.recordPayment(agentId, MARCH, -100);
+        assertAggregate(agentId, 1, 1500, 200, 1300, 200);
+
+        // Xóa phiếu
+        service.recordExport(agentId, MARCH, -1, -1500, -200, -1300);
+        assertAggregate(agentId, 0, 0, 0, 0, 200);
+    }
+
+    @Test
+    void rebuildMatchesIncrementalDeltas() {
+        Random random = new Random(7);
+        List<Integer> exportIds = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            int agentId = agents.get(random.nextInt(agents.size())).getAgentId();
+            LocalDate date = MARCH.plusMonths(random.nextInt(4)).atDay(1 + random.nextInt(28));
+            YearMonth month = YearMonth.from(date);
+            int amount = 1 + random.nextInt(10_000);
+            int operation = random.nextInt(10);
+            if (operation < 5) {
+                int paid = random.nextInt(amount + 1);
+                jdbcTemplate.update("INSERT INTO export_receipt (agent, create_date, total_amount, paid_amount, " +
+                    "remaining_amount) VALUES (?, ?, ?, ?, ?)", agentId, Date.valueOf(date), amount, paid, amount - paid);
+                exportIds.add(jdbcTemplate.queryForObject("SELECT MAX(export_receipt_id) FROM export_receipt", Integer.class));
+                service.recordExport(agentId, month, 1, amount, paid, amount - paid);
+            } else if (operation < 8) {
+                jdbcTemplate.update("INSERT INTO payment_receipt (agent, payment_date, revenue) VALUES (?, ?, ?)",
+                    agentId, Date.valueOf(date), amount);
+                service.recordPayment(agentId, month, amount);
+            } else if (!exportIds.isEmpty()) {
+                // Sửa hoặc xóa một phiếu xuất đã có
+                Integer exportId = exportIds.get(random.nextInt(exportIds.size()));
+                Map<String, Object> receipt = jdbcTemplate.queryForMap("SELECT agent, create_date, total_amount, " +
+                    "paid_amount, remaining_amount FROM export_receipt WHERE export_receipt_id = ?", exportId);
+                int owner = ((Number) receipt.get("agent")).intValue();
+                YearMonth receiptMonth = YearMonth.from(((Date) receipt.get("create_date")).toLocalDate());
+                int total = ((Number) receipt.get("total_amount")).intValue();
+                int paid = ((Number) receipt.get("paid_amount")).intValue();
+                int remaining = ((Number) receipt.get("remaining_amount")).intValue();
+                if (operation == 8) {
+                    jdbcTemplate.update("UPDATE export_receipt SET total_amount = ?, remaining_amount = ? " +
+                        "WHERE export_receipt_id = ?", total + amount, remaining + amount, exportId);
+                    service.recordExport(owner, receiptMonth, 0, amount, 0, amount);
+                } else {
+                    jdbcTemplate.update("DELETE FROM export_receipt WHERE export_receipt_id = ?", exportId);
+                    exportIds.remove(exportId);
+                    service.recordExport(owner, receiptMonth, -1, -total, -paid, -remaining);
+                }
+            }
+        }
+        List<Map<String, Object>> incremental = jdbcTemplate.queryForList(SNAPSHOT_SQL);
+        assertFalse(incremental.isEmpty());
+
+        assertEquals(3, (int) service.rebuildAll().getChunkCount());
+        assertEquals(incremental, jdbcTemplate.queryForList(SNAPSHOT_SQL));
+    }
+
+    @Test
+    void emptyTableIsBackfilledFromExistingReceipts() {
+        int agentId = agents.get(0).getAgentId();
+        // Phiếu có từ trước khi triển khai bảng tổng hợp
+        jdbcTemplate.update("INSERT INTO export_receipt (agent, create_date, total_amount, paid_amount, " +
+            "remaining_amount) VALUES (?, ?, ?, ?, ?)", agentId, Date.valueOf(MARCH.atDay(5)), 1000, 400, 600);
+        jdbcTemplate.update("INSERT INTO payment_receipt (agent, payment_date, revenue) VALUES (?, ?, ?)",
+            agentId, Date.valueOf(MARCH.atDay(9)), 250);
+
+        assertTrue(service.rebuildIfEmpty());
+        assertAggregate(agentId, 1, 1000, 400, 600, 250);
+
+        // Bảng đã có dữ liệu: không tính lại ở lần khởi động sau
+        service.recordPayment(agentId, MARCH, 50);
+        assertFalse(service.rebuildIfEmpty());
+        assertAggregate(agentId, 1, 1000, 400, 600, 300);
+    }
+
+    @Test
+    void rebuildWaitsForReceiptTransactionOfSameAgent() throws Exception {
+        int agentId = agents.get(0).getAgentId();
+        CountDownLatch applied = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        // Giao dịch phiếu: ghi phiếu và cộng chênh lệch rồi dừng lại trước khi commit
+        CompletableFuture<Void> receipt = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO export_receipt (agent, create_date, total_amount, paid_amount, " +
+                "remaining_amount) VALUES (?, ?, ?, ?, ?)", agentId, Date.valueOf(MARCH.atDay(5)), 1000, 0, 1000);
+            service.recordExport(agentId, MARCH, 1, 1000, 0, 1000);
+            applied.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(applied.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<?> rebuild = CompletableFuture.supplyAsync(service::rebuildAll);
+        Thread.sleep(300);
+        assertFalse(rebuild.isDone());
+
+        release.countDown();
+        receipt.get(5, TimeUnit.SECONDS);
+        rebuild.get(5, TimeUnit.SECONDS);
+        // Không bị cộng hai lần: lần tính lại đọc phiếu sau khi giao dịch phiếu commit
+        assertAggregate(agentId, 1, 1000, 0, 1000, 0);
+    }
+
+    private void assertAggregate(int agentId, int exportCount, int totalAmount, int paidAmount, int remainingAmount,
+                                 int paymentRevenue) {
+        AgentMonthlyAggregate aggregate = agentMonthlyAggregateRepository
+            .findByAgentAndMonthAndYear(agentId, MARCH.getMonthValue(), MARCH.getYear()).orElseThrow();
+        assertEquals(List.of(exportCount, totalAmount, paidAmount, remainingAmount, paymentRevenue),
+            List.of(aggregate.getExportCount(), aggregate.getTotalAmount(), aggregate.getPaidAmount(),
+                aggregate.getRemainingAmount(), aggregate.getPaymentRevenue()));
+    }
+}
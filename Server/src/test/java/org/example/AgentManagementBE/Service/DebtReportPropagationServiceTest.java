@@ -0,0 +1,356 @@
+package org.example.AgentManagementBE.Service;
+
+import jakarta.persistence.EntityManager;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.DebtReport;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Model.ExportReceipt;
+import org.example.AgentManagementBE.Model.PaymentReceipt;
+import org.example.AgentManagementBE.Repository.AgentMonthlyAggregateRepository;
+import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.Repository.AgentTypeRepository;
+import org.example.AgentManagementBE.Repository.DebtReportRepository;
+import org.example.AgentManagementBE.Repository.DistrictRepository;
+import org.example.AgentManagementBE.Repository.ExportReceiptRepository;
+import org.example.AgentManagementBE.Repository.PaymentReceiptRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ghi phiếu xuất/phiếu thu lùi ngày theo thứ tự ngẫu nhiên rồi kiểm tra chuỗi báo cáo công nợ:
+ * các tháng liên tục, nợ đầu kỳ bằng nợ cuối kỳ tháng trước và phát sinh khớp với phiếu.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:debtpropagation;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class DebtReportPropagationServiceTest {
+
+    private static final YearMonth FIRST_MONTH = YearMonth.of(2025, 1);
+    private static final int MONTHS = 12;
+    private static final int OPERATIONS = 80;
+
+    @Autowired
+    private DebtReportRepository debtReportRepository;
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    @Autowired
+    private AgentTypeRepository agentTypeRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private ExportReceiptRepository exportReceiptRepository;
+
+    @Autowired
+    private PaymentReceiptRepository paymentReceiptRepository;
+
+    @Autowired
+    private AgentMonthlyAggregateRepository agentMonthlyAggregateRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private DebtReportService debtReportService;
+    private AgentMonthlyAggregateService aggregateService;
+    private Agent agent;
+
+    @BeforeEach
+    void setUp() {
+        DebtReportPropagationService propagationService = new DebtReportPropagationService(debtReportRepository);
+        aggregateService = new AgentMonthlyAggregateService(agentMonthlyAggregateRepository, agentRepository,
+            transactionManager, 200, 1);
+        debtReportService = new DebtReportService(debtReportRepository, agentRepository,
+            exportReceiptRepository, paymentReceiptRepository, propagationService, aggregateService,
+            new KeysetPagination(50, 500, 10_000));
+
+        AgentType agentType = agentTypeRepository.save(new AgentType("Loại 1", Integer.MAX_VALUE));
+        District district = districtRepository.save(new District("Quận 1"));
+        agent = new Agent("Đại lý 1", agentType, null, null, null, district, FIRST_MONTH.atDay(1));
+        agent.setDebtMoney(0);
+        agent = agentRepository.save(agent);
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1L, 7L, 42L, 2025L, 99991L})
+    void randomizedBackDatedHistoryKeepsChainInvariant(long seed) {
+        Random random = new Random(seed);
+        Map<YearMonth, Integer> expectedArisen = new HashMap<>();
+        List<ExportReceipt> exports = new ArrayList<>();
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            YearMonth month = FIRST_MONTH.plusMonths(random.nextInt(MONTHS));
+            LocalDate date = month.atDay(1 + random.nextInt(month.lengthOfMonth()));
+            int amount = 1 + random.nextInt(1000);
+            int operation = random.nextInt(10);
+
+            if (operation < 6) {
+                ExportReceipt receipt = new ExportReceipt(agent, date);
+                receipt.setTotalAmount(amount);
+                receipt.setPaidAmount(0);
+                receipt.setRemainingAmount(amount);
+                exports.add(exportReceiptRepository.save(receipt));
+                aggregateService.recordExport(agent.getAgentId(), month, 1, amount, 0, amount);
+                expectedArisen.merge(month, amount, Integer::sum);
+                debtReportService.applyArisenDebtDelta(agent.getAgentId(), month, amount);
+            } else if (operation < 9) {
+                paymentReceiptRepository.save(new PaymentReceipt(agent, date, amount));
+                aggregateService.recordPayment(agent.getAgentId(), month, amount);
+                expectedArisen.merge(month, -amount, Integer::sum);
+                debtReportService.applyArisenDebtDelta(agent.getAgentId(), month, -amount);
+            } else if (!exports.isEmpty()) {
+                ExportReceipt removed = exports.remove(random.nextInt(exports.size()));
+                YearMonth removedMonth = YearMonth.from(removed.getCreateDate());
+                exportReceiptRepository.deleteById(removed.getExportReceiptId());
+                aggregateService.recordExport(agent.getAgentId(), removedMonth, -1, -removed.getTotalAmount(),
+                    0, -removed.getTotalAmount());
+                expectedArisen.merge(removedMonth, -removed.getTotalAmount(), Integer::sum);
+                debtReportService.applyArisenDebtDelta(agent.getAgentId(), removedMonth, -removed.getTotalAmount());
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        assertChainInvariant(expectedArisen);
+    }
+
+    @Test
+    void backDatedChangeReadsOnlyNeighbouringReports() {
+        Map<YearMonth, Integer> expectedArisen = new HashMap<>();
+        for (int i = 0; i < 36; i++) {
+            YearMonth month = FIRST_MONTH.plusMonths(i);
+            recordExport(agent, month, 100);
+            debtReportService.applyArisenDebtDelta(agent.getAgentId(), month, 100);
+            expectedArisen.put(month, 100);
+        }
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Thay đổi ở tháng thứ 2 dời 34 tháng sau bằng một câu UPDATE, chỉ đọc vài báo cáo quanh tháng đó
+        recordExport(agent, FIRST_MONTH.plusMonths(1), 50);
+        debtReportService.applyArisenDebtDelta(agent.getAgentId(), FIRST_MONTH.plusMonths(1), 50);
+        expectedArisen.merge(FIRST_MONTH.plusMonths(1), 50, Integer::sum);
+
+        long chainRows = Arrays.stream(statistics.getQueries())
+            .filter(query -> query.contains("MAX(p.year * 12 + p.month)"))
+            .mapToLong(query -> statistics.getQueryStatistics(query).getExecutionRowCount())
+            .sum();
+        assertTrue(chainRows > 0 && chainRows <= DebtReportPropagationService.CHAIN_WINDOW, chainRows + " báo cáo được đọc");
+        entityManager.flush();
+        entityManager.clear();
+        assertChainInvariant(expectedArisen);
+    }
+
+    @Test
+    void backDatedChangeRefreshesAffectedReportsWithoutClearingPersistenceContext() {
+        for (int i = 0; i < 3; i++) {
+            recordExport(agent, FIRST_MONTH.plusMonths(i), 100);
+            debtReportService.applyArisenDebtDelta(agent.getAgentId(), FIRST_MONTH.plusMonths(i), 100);
+        }
+        DebtReport first = debtReportRepository.findByMonthYearAndAgent(
+            FIRST_MONTH.getMonthValue(), FIRST_MONTH.getYear(), agent.getAgentId()).orElseThrow();
+        YearMonth third = FIRST_MONTH.plusMonths(2);
+        DebtReport last = debtReportRepository.findByMonthYearAndAgent(
+            third.getMonthValue(), third.getYear(), agent.getAgentId()).orElseThrow();
+
+        recordExport(agent, FIRST_MONTH.plusMonths(1), 50);
+        debtReportService.applyArisenDebtDelta(agent.getAgentId(), FIRST_MONTH.plusMonths(1), 50);
+
+        // Entity của người gọi vẫn được quản lý; chỉ báo cáo bị câu UPDATE dời mới được nạp lại
+        assertTrue(entityManager.contains(agent));
+        assertTrue(entityManager.contains(first));
+        assertTrue(entityManager.contains(last));
+        assertEquals(100, first.getLastDebt());
+        assertEquals(250, last.getFirstDebt());
+        assertEquals(350, last.getLastDebt());
+    }
+
+    @Test
+    void summaryMatchesPerAgentRecomputeAndPropagatesToLaterMonths() {
+        Agent second = new Agent("Đại lý 2", agent.getAgentType(), null, null, null, agent.getDistrict(), FIRST_MONTH.atDay(1));
+        second.setDebtMoney(0);
+        second = agentRepository.save(second);
+        YearMonth february = FIRST_MONTH.plusMonths(1);
+        YearMonth march = FIRST_MONTH.plusMonths(2);
+        YearMonth april = FIRST_MONTH.plusMonths(3);
+
+        recordExport(agent, february, 1000);
+        recordPayment(agent, march, 300);
+        recordExport(second, march, 500);
+        recordExport(second, april, 200);
+        for (YearMonth month : List.of(february, march, april)) {
+            debtReportService.summarizeDebtReports(month.getMonthValue(), month.getYear());
+        }
+
+        // Phiếu ghi lùi vào tháng 3 mà chưa cập nhật báo cáo
+        recordExport(agent, march, 700);
+        recordPayment(second, march, 50);
+        entityManager.flush();
+        entityManager.clear();
+        List<Map<String, Object>> before = debtReportRows();
+
+        // Cách cũ: tính lại từng đại lý
+        for (Agent each : List.of(agent, second)) {
+            debtReportService.updateDebtReportForAgent(each.getAgentId(), march);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        List<Map<String, Object>> expected = debtReportRows();
+        assertNotEquals(before, expected);
+
+        restoreDebtReportRows(before);
+        debtReportService.summarizeDebtReports(march.getMonthValue(), march.getYear());
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(expected, debtReportRows());
+        // Tháng 4 nhận nợ cuối kỳ mới của tháng 3: 1000 - 300 + 700
+        assertEquals(1400, jdbcTemplate.queryForObject("SELECT first_debt FROM debt_report WHERE agent = ? " +
+            "AND year = ? AND month = ?", Integer.class, agent.getAgentId(), april.getYear(), april.getMonthValue()));
+    }
+
+    @Test
+    void summaryRelinksGapsAndLaterMonthsLikePerAgentRecompute() {
+        Agent second = new Agent("Đại lý 2", agent.getAgentType(), null, null, null, agent.getDistrict(), FIRST_MONTH.atDay(1));
+        second.setDebtMoney(0);
+        second = agentRepository.save(second);
+        Agent third = new Agent("Đại lý 3", agent.getAgentType(), null, null, null, agent.getDistrict(), FIRST_MONTH.atDay(1));
+        third.setDebtMoney(0);
+        third = agentRepository.save(third);
+        YearMonth march = FIRST_MONTH.plusMonths(2);
+
+        // Đại lý 1: thiếu tháng 2 và tháng 4, tháng 5 có nợ đầu kỳ cũ
+        recordExport(agent, FIRST_MONTH, 400);
+        recordExport(agent, march, 300);
+        recordExport(agent, FIRST_MONTH.plusMonths(4), 50);
+        insertDebtReport(agent, FIRST_MONTH, 0, 400);
+        insertDebtReport(agent, FIRST_MONTH.plusMonths(4), 100, 50);
+        // Đại lý 2: tháng 3 đã có báo cáo, phiếu thu ghi lùi làm đổi nợ cuối kỳ
+        recordExport(second, FIRST_MONTH.plusMonths(1), 200);
+        recordPayment(second, march, 80);
+        insertDebtReport(second, FIRST_MONTH.plusMonths(1), 0, 200);
+        insertDebtReport(second, march, 200, 0);
+        insertDebtReport(second, FIRST_MONTH.plusMonths(3), 200, 0);
+        // Đại lý 3: chỉ có báo cáo tháng 6
+        recordExport(third, march, 10);
+        insertDebtReport(third, FIRST_MONTH.plusMonths(5), 0, 0);
+        entityManager.flush();
+        entityManager.clear();
+        List<Map<String, Object>> before = debtReportRows();
+
+        for (Agent each : List.of(agent, second, third)) {
+            debtReportService.updateDebtReportForAgent(each.getAgentId(), march);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        List<Map<String, Object>> expected = debtReportBalances();
+        assertNotEquals(before.size(), expected.size());
+
+        restoreDebtReportRows(before);
+        debtReportService.summarizeDebtReports(march.getMonthValue(), march.getYear());
+        entityManager.flush();
+        entityManager.clear();
+        assertEquals(expected, debtReportBalances());
+        assertEquals(750, jdbcTemplate.queryForObject("SELECT last_debt FROM debt_report WHERE agent = ? " +
+            "AND year = ? AND month = ?", Integer.class, agent.getAgentId(), 2025, 5));
+    }
+
+    private void insertDebtReport(Agent owner, YearMonth month, int firstDebt, int arisenDebt) {
+        jdbcTemplate.update("INSERT INTO debt_report (agent, year, month, first_debt, arisen_debt, last_debt) " +
+            "VALUES (?, ?, ?, ?, ?, ?)", owner.getAgentId(), month.getYear(), month.getMonthValue(), firstDebt,
+            arisenDebt, firstDebt + arisenDebt);
+    }
+
+    private List<Map<String, Object>> debtReportBalances() {
+        return jdbcTemplate.queryForList("SELECT agent, year, month, first_debt, arisen_debt, last_debt " +
+            "FROM debt_report ORDER BY agent, year, month");
+    }
+
+    private void recordExport(Agent owner, YearMonth month, int amount) {
+        ExportReceipt receipt = new ExportReceipt(owner, month.atDay(10));
+        receipt.setTotalAmount(amount);
+        receipt.setPaidAmount(0);
+        receipt.setRemainingAmount(amount);
+        exportReceiptRepository.save(receipt);
+        aggregateService.recordExport(owner.getAgentId(), month, 1, amount, 0, amount);
+    }
+
+    private void recordPayment(Agent owner, YearMonth month, int amount) {
+        paymentReceiptRepository.save(new PaymentReceipt(owner, month.atDay(15), amount));
+        aggregateService.recordPayment(owner.getAgentId(), month, amount);
+    }
+
+    private List<Map<String, Object>> debtReportRows() {
+        return jdbcTemplate.queryForList("SELECT debt_report_id, agent, year, month, first_debt, arisen_debt, last_debt " +
+            "FROM debt_report ORDER BY agent, year, month");
+    }
+
+    private void restoreDebtReportRows(List<Map<String, Object>> rows) {
+        jdbcTemplate.update("DELETE FROM debt_report");
+        for (Map<String, Object> row : rows) {
+            jdbcTemplate.update("INSERT INTO debt_report (debt_report_id, agent, year, month, first_debt, arisen_debt, " +
+                "last_debt) VALUES (?, ?, ?, ?, ?, ?, ?)", row.get("debt_report_id"), row.get("agent"), row.get("year"),
+                row.get("month"), row.get("first_debt"), row.get("arisen_debt"), row.get("last_debt"));
+        }
+    }
+
+    private void assertChainInvariant(Map<YearMonth, Integer> expectedArisen) {
+        List<DebtReport> reports = new ArrayList<>(debtReportRepository.findByAgentId(agent.getAgentId()));
+        reports.sort(Comparator.comparing((DebtReport r) -> r.getYear()).thenComparing(DebtReport::getMonth));
+
+        YearMonth firstReported = YearMonth.of(reports.get(0).getYear(), reports.get(0).getMonth());
+        assertEquals(0, reports.get(0).getFirstDebt(), "Tháng đầu tiên không có nợ chuyển sang");
+
+        int carried = 0;
+        for (int i = 0; i < reports.size(); i++) {
+            DebtReport report = reports.get(i);
+            YearMonth month = YearMonth.of(report.getYear(), report.getMonth());
+            assertEquals(firstReported.plusMonths(i), month, "Chuỗi báo cáo bị thiếu tháng");
+            assertEquals(carried, report.getFirstDebt(), "Nợ đầu kỳ " + month + " phải bằng nợ cuối kỳ tháng trước");
+            assertEquals(expectedArisen.getOrDefault(month, 0), report.getArisenDebt(), "Phát sinh " + month);
+            assertEquals(report.getFirstDebt() + report.getArisenDebt(), report.getLastDebt(), "Nợ cuối kỳ " + month);
+            carried = report.getLastDebt();
+        }
+
+        int totalArisen = expectedArisen.values().stream().mapToInt(Integer::intValue).sum();
+        assertEquals(totalArisen, carried);
+    }
+}
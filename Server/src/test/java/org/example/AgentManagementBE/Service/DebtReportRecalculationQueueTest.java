@@ -0,0 +1,143 @@
+package org.example.AgentManagementBE.Service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class DebtReportRecalculationQueueTest {
+
+    private static final YearMonth JUNE = YearMonth.of(2025, 6);
+
+    private final DebtReportService debtReportService = mock(DebtReportService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DebtReportRecalculationQueue queue = new DebtReportRecalculationQueue(debtReportService, meterRegistry, 3, 60_000);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void burstOfEnqueuesIsRecalculatedOncePerKey() {
+        for (int i = 0; i < 50; i++) {
+            queue.enqueue(1, JUNE);
+        }
+        queue.enqueue(2, JUNE);
+        queue.enqueue(1, JUNE.plusMonths(1));
+
+        assertEquals(3, queue.size());
+        assertEquals(3.0, meterRegistry.get("debt_report.recalculation.queue.depth").gauge().value());
+
+        queue.flush();
+
+        verify(debtReportService, times(1)).updateDebtReportForAgent(1, JUNE);
+        verify(debtReportService, times(1)).updateDebtReportForAgent(2, JUNE);
+        verify(debtReportService, times(1)).updateDebtReportForAgent(1, JUNE.plusMonths(1));
+        assertEquals(0, queue.size());
+        assertEquals(52.0, meterRegistry.get("debt_report.recalculation.enqueued").counter().count());
+        assertEquals(49.0, meterRegistry.get("debt_report.recalculation.coalesced").counter().count());
+        assertEquals(3, meterRegistry.get("debt_report.recalculation.lag").timer().count());
+    }
+
+    @Test
+    void keyedFlushRecalculatesOnlyTheRequestedKeys() {
+        queue.enqueue(1, JUNE);
+        queue.enqueue(2, JUNE);
+        queue.enqueue(1, JUNE.plusMonths(1));
+
+        queue.flush(1, JUNE);
+
+        verify(debtReportService, times(1)).updateDebtReportForAgent(1, JUNE);
+        verify(debtReportService, never()).updateDebtReportForAgent(2, JUNE);
+        verify(debtReportService, never()).updateDebtReportForAgent(1, JUNE.plusMonths(1));
+        assertEquals(2, queue.size());
+
+        queue.flush(JUNE.plusMonths(1));
+
+        verify(debtReportService, times(1)).updateDebtReportForAgent(1, JUNE.plusMonths(1));
+        verify(debtReportService, never()).updateDebtReportForAgent(2, JUNE);
+        assertEquals(1, queue.size());
+
+        // Cặp không còn chờ thì không tính lại
+        queue.flush(1, JUNE);
+        verify(debtReportService, times(1)).updateDebtReportForAgent(1, JUNE);
+    }
+
+    @Test
+    void enqueueInsideTransactionWaitsForCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        queue.enqueue(1, JUNE);
+        assertEquals(0, queue.size());
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    void rolledBackTransactionNeverEnqueues() {
+        TransactionSynchronizationManager.initSynchronization();
+        queue.enqueue(1, JUNE);
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+
+        queue.flush();
+
+        assertEquals(0, queue.size());
+        verifyNoInteractions(debtReportService);
+    }
+
+    @Test
+    void failedRecalculationIsRetriedUntilItSucceeds() {
+        doThrow(new RuntimeException("boom")).doNothing().when(debtReportService).updateDebtReportForAgent(1, JUNE);
+        queue.enqueue(1, JUNE);
+        queue.enqueue(2, JUNE);
+
+        queue.flush();
+
+        verify(debtReportService, times(1)).updateDebtReportForAgent(2, JUNE);
+        assertEquals(1.0, meterRegistry.get("debt_report.recalculation.failed").counter().count());
+        // Cặp lỗi vẫn chờ, worker nền chưa thử lại trong thời gian chờ
+        assertEquals(1, queue.size());
+        queue.drainPending();
+        verify(debtReportService, times(1)).updateDebtReportForAgent(1, JUNE);
+
+        queue.flush();
+        verify(debtReportService, times(2)).updateDebtReportForAgent(1, JUNE);
+        verify(debtReportService, times(1)).updateDebtReportForAgent(2, JUNE);
+        assertEquals(0, queue.size());
+        assertEquals(0.0, meterRegistry.get("debt_report.recalculation.abandoned").counter().count());
+    }
+
+    @Test
+    void keyIsAbandonedAfterMaxAttempts() {
+        doThrow(new RuntimeException("boom")).when(debtReportService).updateDebtReportForAgent(1, JUNE);
+        queue.enqueue(1, JUNE);
+
+        for (int i = 0; i < 5; i++) {
+            queue.flush();
+        }
+
+        verify(debtReportService, times(3)).updateDebtReportForAgent(1, JUNE);
+        assertEquals(0, queue.size());
+        assertEquals(1.0, meterRegistry.get("debt_report.recalculation.abandoned").counter().count());
+        verify(debtReportService, never()).updateDebtReportForAgent(2, JUNE);
+    }
+}
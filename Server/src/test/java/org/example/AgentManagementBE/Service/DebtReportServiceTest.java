@@ -0,0 +1,164 @@
+package org.example.AgentManagementBE.Service;
+
+import org.example.AgentManagementBE.DTO.response.AgentAmount;
+import org.example.AgentManagementBE.DTO.response.DebtReportBalance;
+import org.example.AgentManagementBE.DTO.response.DebtReportVerificationResponse;
+import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.Repository.DebtReportRepository;
+import org.example.AgentManagementBE.Repository.ExportReceiptRepository;
+import org.example.AgentManagementBE.Repository.PaymentReceiptRepository;
+import org.example.AgentManagementBE.exception.AppException;
+import org.example.AgentManagementBE.exception.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DebtReportServiceTest {
+
+    private static final YearMonth JUNE = YearMonth.of(2025, 6);
+
+    private final DebtReportRepository debtReportRepository = mock(DebtReportRepository.class);
+    private final AgentRepository agentRepository = mock(AgentRepository.class);
+    private final ExportReceiptRepository exportReceiptRepository = mock(ExportReceiptRepository.class);
+    private final PaymentReceiptRepository paymentReceiptRepository = mock(PaymentReceiptRepository.class);
+    private final DebtReportPropagationService debtReportPropagationService = mock(DebtReportPropagationService.class);
+    private final AgentMonthlyAggregateService agentMonthlyAggregateService = mock(AgentMonthlyAggregateService.class);
+
+    private final DebtReportService debtReportService = new DebtReportService(
+        debtReportRepository, agentRepository, exportReceiptRepository, paymentReceiptRepository,
+        debtReportPropagationService, agentMonthlyAggregateService, mock(KeysetPagination.class));
+
+    @Test
+    void deltaIsAppliedWithSingleUpdateWhenReportExists() {
+        when(debtReportRepository.applyArisenDebtDelta(1, 6, 2025, -300)).thenReturn(1);
+
+        debtReportService.applyArisenDebtDelta(1, JUNE, -300);
+
+        verify(debtReportRepository).applyArisenDebtDelta(1, 6, 2025, -300);
+        verify(debtReportPropagationService).propagateForward(1, JUNE, -300);
+        verify(agentMonthlyAggregateService, never()).getAggregate(anyInt(), any());
+        verify(exportReceiptRepository, never()).getTotalMoneyByAgentAndMonthAndYear(anyInt(), anyInt(), anyInt());
+        verify(paymentReceiptRepository, never()).getTotalRevenueByAgentAndMonthAndYear(anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void missingReportFallsBackToFullRecompute() {
+        when(debtReportRepository.applyArisenDebtDelta(1, 6, 2025, 500)).thenReturn(0);
+        when(agentRepository.findById(1)).thenReturn(Optional.empty());
+
+        // Không có báo cáo nên phải tính lại toàn bộ, bước đầu tiên là kiểm tra đại lý tồn tại
+        AppException ex = assertThrows(AppException.class, () -> debtReportService.applyArisenDebtDelta(1, JUNE, 500));
+
+        assertEquals(ErrorCode.AGENT_NOT_FOUND, ex.getErrorCode());
+        verify(agentRepository).findById(1);
+    }
+
+    @Test
+    void verificationReportsDriftAndRepairsOnlyDriftedRows() {
+        when(agentRepository.findAllAgentIds()).thenReturn(List.of(1, 2, 3));
+        when(exportReceiptRepository.getTotalMoneyGroupedByAgentAndMonthAndYear(6, 2025)).thenReturn(List.of(
+            new AgentAmount(1, 1000L), new AgentAmount(2, 500L), new AgentAmount(3, 200L)));
+        when(paymentReceiptRepository.getTotalRevenueGroupedByAgentAndMonthAndYear(6, 2025)).thenReturn(List.of(
+            new AgentAmount(1, 400L)));
+        when(debtReportRepository.findBalancesByMonthAndYear(5, 2025)).thenReturn(List.of());
+        when(debtReportRepository.findBalancesByMonthAndYear(6, 2025)).thenReturn(List.of(
+            // Đại lý 1 đúng: 100 + (1000 - 400) = 700
+            new DebtReportBalance(1, 11, 100, 600, 700),
+            // Đại lý 2 lệch: phát sinh đúng là 500
+            new DebtReportBalance(2, 12, 0, 450, 450)));
+        // Đại lý 3 có phát sinh nhưng chưa có báo cáo
+
+        DebtReportVerificationResponse result = debtReportService.verifyDebtReports(6, 2025, true);
+
+        assertEquals(3, result.getCheckedCount());
+        assertTrue(result.getRepaired());
+        assertEquals(2, result.getDrifts().size());
+        DebtReportVerificationResponse.DebtReportDrift drift = result.getDrifts().get(0);
+        assertEquals(2, drift.getAgentId());
+        assertEquals(450, drift.getActualArisenDebt());
+        assertEquals(500, drift.getExpectedArisenDebt());
+        assertEquals(500, drift.getExpectedLastDebt());
+        DebtReportVerificationResponse.DebtReportDrift missing = result.getDrifts().get(1);
+        assertEquals(3, missing.getAgentId());
+        assertNull(missing.getDebtReportId());
+        assertNull(missing.getActualArisenDebt());
+        verify(debtReportRepository).batchUpsert(eq(6), eq(2025), anyList());
+    }
+
+    @Test
+    void summaryRejectsDebtOutsideIntRange() {
+        when(agentRepository.findAllAgentIds()).thenReturn(List.of(1));
+        when(exportReceiptRepository.getTotalMoneyGroupedByAgentAndMonthAndYear(6, 2025)).thenReturn(List.of(
+            new AgentAmount(1, 3_000_000_000L)));
+        when(paymentReceiptRepository.getTotalRevenueGroupedByAgentAndMonthAndYear(6, 2025)).thenReturn(List.of());
+        when(debtReportRepository.findBalancesByMonthAndYear(anyInt(), anyInt())).thenReturn(List.of());
+
+        AppException ex = assertThrows(AppException.class, () -> debtReportService.summarizeDebtReports(6, 2025));
+
+        assertEquals(ErrorCode.AMOUNT_OUT_OF_RANGE, ex.getErrorCode());
+        verify(debtReportRepository, never()).batchUpsert(anyInt(), anyInt(), anyList());
+    }
+
+    @Test
+    void summaryPropagatesEveryAgentWithFixedStatements() {
+        List<Integer> agentIds = IntStream.rangeClosed(1, 100).boxed().toList();
+        List<DebtReportBalance> may = agentIds.stream()
+            .map(agentId -> new DebtReportBalance(agentId, 1000 + agentId, 0, 10, 10, 5, 2025)).toList();
+        when(agentRepository.findAllAgentIds()).thenReturn(agentIds);
+        when(exportReceiptRepository.getTotalMoneyGroupedByAgentAndMonthAndYear(6, 2025)).thenReturn(
+            agentIds.stream().map(agentId -> new AgentAmount(agentId, 100L)).toList());
+        when(paymentReceiptRepository.getTotalRevenueGroupedByAgentAndMonthAndYear(6, 2025)).thenReturn(List.of());
+        when(debtReportRepository.findBalancesByMonthAndYear(6, 2025)).thenReturn(List.of());
+        when(debtReportRepository.findBalancesByMonthAndYear(5, 2025)).thenReturn(may);
+        when(debtReportRepository.findNearestBalancesBefore(JUNE)).thenReturn(may);
+        when(debtReportRepository.findNearestBalancesAfter(JUNE)).thenReturn(List.of());
+        DebtReportService service = new DebtReportService(debtReportRepository, agentRepository, exportReceiptRepository,
+            paymentReceiptRepository, new DebtReportPropagationService(debtReportRepository), agentMonthlyAggregateService,
+            mock(KeysetPagination.class));
+
+        // Lần chốt đầu tiên của tháng: mọi đại lý đều có báo cáo mới
+        service.summarizeDebtReports(6, 2025);
+
+        verify(debtReportRepository).batchUpsert(eq(6), eq(2025), anyList());
+        verify(debtReportRepository, times(2)).batchShiftDebtFromMonth(anyList());
+        verify(debtReportRepository).findNearestBalancesBefore(JUNE);
+        verify(debtReportRepository).findNearestBalancesAfter(JUNE);
+        verify(debtReportRepository).batchInsertCarriedMonths(Map.of());
+        verify(debtReportRepository, never()).shiftDebtFromMonth(anyInt(), anyInt(), anyInt(), anyInt());
+        verify(debtReportRepository, never()).findChainFromMonth(anyInt(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void verificationWithoutRepairDoesNotWrite() {
+        when(agentRepository.findAllAgentIds()).thenReturn(List.of(1));
+        when(exportReceiptRepository.getTotalMoneyGroupedByAgentAndMonthAndYear(6, 2025)).thenReturn(List.of(
+            new AgentAmount(1, 1000L)));
+        when(paymentReceiptRepository.getTotalRevenueGroupedByAgentAndMonthAndYear(6, 2025)).thenReturn(List.of());
+        when(debtReportRepository.findBalancesByMonthAndYear(anyInt(), anyInt())).thenReturn(List.of());
+
+        DebtReportVerificationResponse result = debtReportService.verifyDebtReports(6, 2025, false);
+
+        assertEquals(1, result.getDrifts().size());
+        assertFalse(result.getRepaired());
+        verify(debtReportRepository, never()).batchUpsert(anyInt(), anyInt(), anyList());
+    }
+}
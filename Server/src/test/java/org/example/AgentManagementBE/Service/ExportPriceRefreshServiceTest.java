@@ -0,0 +1,126 @@
+package org.example.AgentManagementBE.Service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.AgentManagementBE.Config.CacheCoherenceService;
+import org.example.AgentManagementBE.DTO.response.ExportPriceRefreshJob;
+import org.example.AgentManagementBE.Model.Product;
+import org.example.AgentManagementBE.Model.Unit;
+import org.example.AgentManagementBE.Repository.ProductRepository;
+import org.example.AgentManagementBE.Repository.UnitRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:exportpricerefresh;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExportPriceRefreshServiceTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UnitRepository unitRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ExportPriceRefreshService exportPriceRefreshService;
+    private ParameterService.ParameterChangeListener ratioListener;
+    private final List<Integer> productIds = new ArrayList<>();
+    private final CacheCoherenceService cacheCoherenceService = mock(CacheCoherenceService.class);
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        productIds.clear();
+        Unit unit = unitRepository.save(new Unit("Thùng " + System.nanoTime()));
+        int[] importPrices = {1000, 1025, 2000, 3333, 15000};
+        for (int i = 0; i < importPrices.length; i++) {
+            Product product = new Product("Sản phẩm " + i, unit, importPrices[i],
+                ExportPriceRefreshService.exportPriceOf(importPrices[i], new BigDecimal("1.02")));
+            product.setInventoryQuantity(0);
+            productIds.add(productRepository.save(product).getProductId());
+        }
+
+        ParameterService parameterService = mock(ParameterService.class);
+        exportPriceRefreshService = new ExportPriceRefreshService(productRepository, parameterService,
+            cacheCoherenceService, transactionManager, new SimpleMeterRegistry(), 2, 20);
+        ArgumentCaptor<ParameterService.ParameterChangeListener> captor =
+            ArgumentCaptor.forClass(ParameterService.ParameterChangeListener.class);
+        verify(parameterService).addListener(eq(ExportPriceRefreshService.RATIO_KEY), captor.capture());
+        ratioListener = captor.getValue();
+    }
+
+    @AfterEach
+    void tearDown() {
+        exportPriceRefreshService.stop();
+    }
+
+    @Test
+    void ratioChangeRefreshesPricesInChunksInBackground() throws InterruptedException {
+        ratioListener.onParameterChanged(ExportPriceRefreshService.RATIO_KEY, "1.02", "1.1", 2);
+
+        ExportPriceRefreshJob job = awaitFinished(exportPriceRefreshService.getRecentJobs().get(0).getJobId());
+        assertEquals(ExportPriceRefreshJob.STATUS_COMPLETED, job.getStatus());
+        assertEquals(ExportPriceRefreshService.TRIGGER_PARAMETER_CHANGE, job.getTrigger());
+        assertEquals(3, job.getTotalChunks());
+        assertEquals(3, job.getCompletedChunks());
+        assertEquals(5, job.getUpdatedRows());
+        for (Integer productId : productIds) {
+            Product product = productRepository.findById(productId).orElseThrow();
+            assertEquals(ExportPriceRefreshService.exportPriceOf(product.getImportPrice(), new BigDecimal("1.1")),
+                product.getExportPrice());
+        }
+        // 1025 × 1.1 = 1127.5 được làm tròn lên giống Java
+        assertEquals(1128, productRepository.findById(productIds.get(1)).orElseThrow().getExportPrice());
+        // Mỗi khoảng có dòng bị sửa báo các node khác xóa vùng Product
+        verify(cacheCoherenceService, times(3)).bumpVersion(CacheCoherenceService.REGION_PRODUCT);
+
+        // Chạy lại cùng tỷ lệ không sửa dòng nào
+        long rerunId = exportPriceRefreshService.submit(new BigDecimal("1.1"), ExportPriceRefreshService.TRIGGER_MANUAL).getJobId();
+        assertEquals(0, awaitFinished(rerunId).getUpdatedRows());
+        verify(cacheCoherenceService, times(3)).bumpVersion(CacheCoherenceService.REGION_PRODUCT);
+
+        // Giá trị không hợp lệ không tạo tác vụ
+        ratioListener.onParameterChanged(ExportPriceRefreshService.RATIO_KEY, "1.1", "abc", 3);
+        assertEquals(2, exportPriceRefreshService.getRecentJobs().size());
+    }
+
+    private ExportPriceRefreshJob awaitFinished(long jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            ExportPriceRefreshJob job = exportPriceRefreshService.getJob(jobId).orElseThrow();
+            if (job.getFinishedAt() != null) {
+                return job;
+            }
+            Thread.sleep(20);
+        }
+        return fail("Tác vụ " + jobId + " chưa xong sau 10 giây");
+    }
+}
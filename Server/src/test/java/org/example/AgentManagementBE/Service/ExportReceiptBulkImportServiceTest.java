@@ -0,0 +1,258 @@
+package org.example.AgentManagementBE.Service;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.example.AgentManagementBE.DTO.response.BulkImportLineResult;
+import org.example.AgentManagementBE.DTO.response.BulkImportReport;
+import org.example.AgentManagementBE.DTO.response.DebtLimitViolation;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.AgentMonthlyAggregate;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Model.Product;
+import org.example.AgentManagementBE.Model.Unit;
+import org.example.AgentManagementBE.Repository.AgentMonthlyAggregateRepository;
+import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.Repository.AgentTypeRepository;
+import org.example.AgentManagementBE.Repository.DistrictRepository;
+import org.example.AgentManagementBE.Repository.ExportDetailRepository;
+import org.example.AgentManagementBE.Repository.ExportReceiptRepository;
+import org.example.AgentManagementBE.Repository.ProductRepository;
+import org.example.AgentManagementBE.Repository.UnitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:exportreceiptbulk;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExportReceiptBulkImportServiceTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2024, 3);
+
+    @Autowired
+    private ExportReceiptRepository exportReceiptRepository;
+
+    @Autowired
+    private ExportDetailRepository exportDetailRepository;
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    @Autowired
+    private AgentTypeRepository agentTypeRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UnitRepository unitRepository;
+
+    @Autowired
+    private AgentMonthlyAggregateRepository agentMonthlyAggregateRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private AgentService agentService;
+    private DebtReportMaintenanceService debtReportMaintenanceService;
+    private Agent first;
+    private Agent second;
+    private Product water;
+    private Product juice;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM export_detail");
+        jdbcTemplate.update("DELETE FROM export_receipt");
+        agentMonthlyAggregateRepository.deleteAll();
+        agentRepository.deleteAll();
+        productRepository.deleteAll();
+
+        agentService = new AgentService(agentRepository, null, exportDetailRepository, exportReceiptRepository,
+            null, null, mock(ReferenceDataCache.class), mock(ParameterService.class));
+        debtReportMaintenanceService = mock(DebtReportMaintenanceService.class);
+
+        AgentType agentType = agentTypeRepository.save(new AgentType("Loại " + System.nanoTime(), 20_000));
+        District district = districtRepository.save(new District("Quận " + System.nanoTime()));
+        first = agent("Đại lý 1", agentType, district);
+        second = agent("Đại lý 2", agentType, district);
+        Unit unit = unitRepository.save(new Unit("Thùng " + System.nanoTime()));
+        water = product("Nước suối", unit, 1000, 10);
+        juice = product("Nước cam", unit, 2000, 5);
+    }
+
+    @Test
+    void ndjsonRejectsOnlyInvalidLines() throws Exception {
+        String body = String.join("\n",
+            receipt(first, 1000, item(water, 3)),
+            "{\"createDate\":",
+            receipt(first, 0, item(water, 8)),
+            receipt(second, 4000, item(juice, 2)),
+            "{\"createDate\":\"2024-03-05\",\"agentId\":999999,\"paidAmount\":0,\"exportDetails\":[" + item(water, 1) + "]}",
+            "",
+            receipt(first, 0, item(water, 7), item(juice, 1)));
+
+        BulkImportReport report = service(agentService, 2).ingest(stream(body), ExportReceiptBulkImportService.FORMAT_NDJSON, false);
+
+        assertTrue(report.getCommitted());
+        assertEquals(List.of(1, 2, 3, 4, 5, 7), report.getLines().stream().map(BulkImportLineResult::getLineNumber).toList());
+        assertEquals(List.of("CREATED", "REJECTED", "REJECTED", "CREATED", "REJECTED", "CREATED"),
+            report.getLines().stream().map(BulkImportLineResult::getStatus).toList());
+        assertTrue(report.getLines().get(2).getMessage().contains("Tồn kho còn lại: 7"), report.getLines().get(2).getMessage());
+        assertEquals(3, report.getCreatedCount());
+        assertEquals(3, report.getRejectedCount());
+        assertEquals(2, report.getChunkCount());
+        assertNotNull(report.getLines().get(0).getRecordId());
+
+        assertEquals(0, inventory(water));
+        assertEquals(2, inventory(juice));
+        assertEquals(2000 + 9000, debt(first));
+        assertEquals(0, debt(second));
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM export_detail", Integer.class));
+        // Hai phiếu của đại lý 1 nằm ở hai lô khác nhau
+        AgentMonthlyAggregate aggregate = aggregate(first);
+        assertEquals(2, aggregate.getExportCount());
+        assertEquals(12_000, aggregate.getTotalAmount());
+        assertEquals(1000, aggregate.getPaidAmount());
+        assertEquals(11_000, aggregate.getRemainingAmount());
+        verify(debtReportMaintenanceService, times(2)).recordChange(eq(first.getAgentId()), eq(MONTH), anyInt());
+    }
+
+    @Test
+    void csvChunkFailureFallsBackToSingleLines() throws Exception {
+        // Nợ của đại lý 2 đã bị request khác đẩy tới giới hạn sau khi tệp được nạp
+        AgentService concurrentlyChanged = spy(agentService);
+        doReturn(Optional.of(new DebtLimitViolation(DebtLimitViolation.AGENT_DEBT_LIMIT_EXCEEDED, second.getAgentId(),
+            second.getAgentName(), 20_000, 2000, 20_000, "Loại")))
+            .when(concurrentlyChanged).applyDebtDelta(eq(second.getAgentId()), anyInt(), eq(true));
+        String body = String.join("\n",
+            ExportReceiptBulkImportService.CSV_HEADER,
+            "2024-03-02," + first.getAgentId() + ",0," + water.getProductId() + ":2;" + juice.getProductId() + ":1",
+            "2024-03-02," + second.getAgentId() + ",0," + water.getProductId() + ":2",
+            "2024-03-03," + first.getAgentId() + ",0," + water.getProductId() + "-1",
+            "2024-03-04," + first.getAgentId() + ",500," + juice.getProductId() + ":1");
+
+        BulkImportReport report = service(concurrentlyChanged, 2).ingest(stream(body), ExportReceiptBulkImportService.FORMAT_CSV, false);
+
+        assertEquals(List.of("CREATED", "REJECTED", "REJECTED", "CREATED"),
+            report.getLines().stream().map(BulkImportLineResult::getStatus).toList());
+        assertEquals(2, report.getLines().get(0).getLineNumber());
+        assertTrue(report.getLines().get(1).getMessage().contains("vượt quá giới hạn"), report.getLines().get(1).getMessage());
+        assertEquals(8, inventory(water));
+        assertEquals(3, inventory(juice));
+        assertEquals(4000 + 1500, debt(first));
+        assertEquals(0, debt(second));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM export_receipt", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM export_receipt WHERE agent = ?",
+            Integer.class, second.getAgentId()));
+    }
+
+    @Test
+    void strictModeRollsBackWholeFile() throws Exception {
+        String body = String.join("\n",
+            receipt(first, 0, item(water, 1)),
+            receipt(first, 0, item(water, 1)),
+            receipt(second, 0, item(juice, 1)),
+            receipt(second, 0, item(juice, 6)));
+
+        BulkImportReport report = service(agentService, 2).ingest(stream(body), ExportReceiptBulkImportService.FORMAT_NDJSON, true);
+
+        assertFalse(report.getCommitted());
+        assertEquals(List.of("ROLLED_BACK", "ROLLED_BACK", "ROLLED_BACK", "REJECTED"),
+            report.getLines().stream().map(BulkImportLineResult::getStatus).toList());
+        assertNull(report.getLines().get(0).getRecordId());
+        assertEquals(0, report.getCreatedCount());
+        assertEquals(10, inventory(water));
+        assertEquals(5, inventory(juice));
+        assertEquals(0, debt(first));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM export_receipt", Integer.class));
+        assertTrue(agentMonthlyAggregateRepository.findByAgentAndMonthAndYear(first.getAgentId(),
+            MONTH.getMonthValue(), MONTH.getYear()).isEmpty());
+    }
+
+    private ExportReceiptBulkImportService service(AgentService agentService, int chunkSize) {
+        AgentMonthlyAggregateService aggregateService = new AgentMonthlyAggregateService(agentMonthlyAggregateRepository,
+            agentRepository, transactionManager, 200, 1);
+        return new ExportReceiptBulkImportService(exportReceiptRepository, exportDetailRepository, agentRepository,
+            productRepository, agentService, aggregateService, debtReportMaintenanceService,
+            JsonMapper.builder().findAndAddModules().build(), transactionManager, chunkSize);
+    }
+
+    private Agent agent(String name, AgentType agentType, District district) {
+        Agent agent = new Agent(name, agentType, null, null, null, district, MONTH.atDay(1));
+        agent.setDebtMoney(0);
+        return agentRepository.save(agent);
+    }
+
+    private Product product(String name, Unit unit, int exportPrice, int inventory) {
+        Product product = new Product(name, unit, exportPrice, exportPrice);
+        product.setInventoryQuantity(inventory);
+        return productRepository.save(product);
+    }
+
+    private static String receipt(Agent agent, int paidAmount, String... items) {
+        return "{\"createDate\":\"" + LocalDate.of(2024, 3, 1) + "\",\"agentId\":" + agent.getAgentId()
+            + ",\"paidAmount\":" + paidAmount + ",\"exportDetails\":[" + String.join(",", items) + "]}";
+    }
+
+    private static String item(Product product, int quantity) {
+        return "{\"productID\":" + product.getProductId() + ",\"quantityExport\":" + quantity + "}";
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int inventory(Product product) {
+        return jdbcTemplate.queryForObject("SELECT inventory_quantity FROM product WHERE product_id = ?",
+            Integer.class, product.getProductId());
+    }
+
+    private int debt(Agent agent) {
+        return jdbcTemplate.queryForObject("SELECT debt_money FROM agent WHERE agent_id = ?", Integer.class, agent.getAgentId());
+    }
+
+    private AgentMonthlyAggregate aggregate(Agent agent) {
+        return agentMonthlyAggregateRepository.findByAgentAndMonthAndYear(agent.getAgentId(),
+            MONTH.getMonthValue(), MONTH.getYear()).orElseThrow();
+    }
+}
@@ -0,0 +1,232 @@
+package org.example.AgentManagementBE.Service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.AgentManagementBE.DTO.request.ExportReceiptSearchCriteria;
+import org.example.AgentManagementBE.DTO.response.KeysetPage;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Model.ExportReceipt;
+import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.Repository.AgentTypeRepository;
+import org.example.AgentManagementBE.Repository.DistrictRepository;
+import org.example.AgentManagementBE.Repository.ExportDetailRepository;
+import org.example.AgentManagementBE.Repository.ExportReceiptRepository;
+import org.example.AgentManagementBE.Repository.ProductRepository;
+import org.example.AgentManagementBE.exception.AppException;
+import org.example.AgentManagementBE.exception.ErrorCode;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Đo độ trễ API tìm phiếu xuất theo các tổ hợp điều kiện và kiểm tra phân trang theo con trỏ trả đúng kết quả
+ * của một câu truy vấn có ORDER BY. Mặc định sinh 20.000 phiếu; chạy với
+ * -Dexport-receipt-search.benchmark.rows=5000000 để đo trên bộ dữ liệu 5 triệu phiếu.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:exportreceiptsearch;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExportReceiptSearchBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("export-receipt-search.benchmark.rows", 20_000);
+    private static final int AGENTS = 80;
+    private static final int DISTRICTS = 20;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+    private static final int DAYS = 730;
+    private static final int RUNS = 30;
+    private static final int PAGE_SIZE = 50;
+
+    @Autowired
+    private ExportReceiptRepository exportReceiptRepository;
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    @Autowired
+    private AgentTypeRepository agentTypeRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Agent> agents = new ArrayList<>();
+
+    @Test
+    void searchServesEachPageWithOneIndexedQuery() {
+        seed();
+        ExportReceiptService service = new ExportReceiptService(exportReceiptRepository,
+            mock(ExportDetailRepository.class), agentRepository, mock(ProductRepository.class),
+            mock(DebtReportMaintenanceService.class), mock(AgentService.class),
+            mock(AgentMonthlyAggregateService.class), new KeysetPagination(PAGE_SIZE, 500, 10_000),
+            mock(JsonStreamWriter.class));
+
+        Agent first = agents.get(0);
+        Agent second = agents.get(1);
+        LocalDate from = FIRST_DAY.plusDays(90);
+        LocalDate to = FIRST_DAY.plusDays(120);
+        Map<String, ExportReceiptSearchCriteria> scenarios = new LinkedHashMap<>();
+        scenarios.put("no filter", criteria(null, null, null, null, null, null, null, null));
+        scenarios.put("agents", criteria(List.of(first.getAgentId(), second.getAgentId()), null, null, null, null, null, null, null));
+        scenarios.put("agents+dates+remaining", criteria(List.of(first.getAgentId(), second.getAgentId()), null, null,
+            from, to, null, null, true));
+        scenarios.put("district", criteria(null, first.getDistrict().getDistrictId(), null, null, null, null, null, null));
+        scenarios.put("district+type+dates", criteria(null, first.getDistrict().getDistrictId(),
+            first.getAgentType().getAgentTypeId(), from, to, null, null, null));
+        scenarios.put("dates+amount", criteria(null, null, null, from, to, 2_000_000, 5_000_000, null));
+        scenarios.put("amount+paid", criteria(null, null, null, null, null, 9_000_000, null, false));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (Map.Entry<String, ExportReceiptSearchCriteria> scenario : scenarios.entrySet()) {
+            long[] secondPage = new long[RUNS];
+            long[] thirdPage = new long[RUNS];
+            boolean hasThirdPage = true;
+            for (int run = 0; run < RUNS; run++) {
+                statistics.clear();
+                String cursor = service.searchExportReceipts(scenario.getValue(), null, null).getData().getNextCursor();
+                int pages = 1;
+                long[][] timings = {secondPage, thirdPage};
+                for (int i = 0; i < timings.length && cursor != null; i++, pages++) {
+                    long start = System.nanoTime();
+                    cursor = service.searchExportReceipts(scenario.getValue(), cursor, null).getData().getNextCursor();
+                    timings[i][run] = System.nanoTime() - start;
+                }
+                hasThirdPage &= pages == 3;
+                // Đại lý, loại đại lý và quận được nạp cùng câu truy vấn của trang
+                assertEquals(pages, statistics.getPrepareStatementCount());
+            }
+            if (hasThirdPage) {
+                // Trang sau tìm tiếp từ con trỏ nên không chậm dần theo vị trí như OFFSET
+                double second50 = percentile(secondPage, 50);
+                double third50 = percentile(thirdPage, 50);
+                assertTrue(third50 <= second50 * 2 + 5, String.format(
+                    "%s: third page p50 %.2f ms, second page p50 %.2f ms", scenario.getKey(), third50, second50));
+            }
+        }
+
+        List<Integer> expected = expectedIds(first, second, from, to);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, walk(service, scenarios.get("agents+dates+remaining")));
+    }
+
+    @Test
+    void rejectsInvalidRangesAndCursors() {
+        ExportReceiptService service = new ExportReceiptService(exportReceiptRepository,
+            mock(ExportDetailRepository.class), agentRepository, mock(ProductRepository.class),
+            mock(DebtReportMaintenanceService.class), mock(AgentService.class),
+            mock(AgentMonthlyAggregateService.class), new KeysetPagination(PAGE_SIZE, 500, 10_000),
+            mock(JsonStreamWriter.class));
+
+        AppException dates = assertThrows(AppException.class, () -> service.searchExportReceipts(
+            criteria(null, null, null, FIRST_DAY.plusDays(1), FIRST_DAY, null, null, null), null, null));
+        assertEquals(ErrorCode.INVALID_DATE_RANGE, dates.getErrorCode());
+
+        AppException amounts = assertThrows(AppException.class, () -> service.searchExportReceipts(
+            criteria(null, null, null, null, null, 5, 1, null), null, null));
+        assertEquals(ErrorCode.BAD_REQUEST, amounts.getErrorCode());
+
+        // Con trỏ của danh sách thường (chỉ có ID) không dùng được cho tìm kiếm
+        AppException cursor = assertThrows(AppException.class, () -> service.searchExportReceipts(
+            criteria(null, null, null, null, null, null, null, null), "MTA", null));
+        assertEquals(ErrorCode.INVALID_CURSOR, cursor.getErrorCode());
+    }
+
+    private void seed() {
+        AgentType[] agentTypes = {
+            agentTypeRepository.save(new AgentType("Loại 1", Integer.MAX_VALUE)),
+            agentTypeRepository.save(new AgentType("Loại 2", Integer.MAX_VALUE))
+        };
+        District[] districts = new District[DISTRICTS];
+        for (int i = 0; i < DISTRICTS; i++) {
+            districts[i] = districtRepository.save(new District("Quận " + (i + 1)));
+        }
+        for (int i = 0; i < AGENTS; i++) {
+            Agent agent = new Agent("Đại lý " + i, agentTypes[i % agentTypes.length], null, null, null,
+                districts[i % DISTRICTS], FIRST_DAY);
+            agent.setDebtMoney(0);
+            agents.add(agentRepository.save(agent));
+        }
+
+        Random random = new Random(42);
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            int total = random.nextInt(10_000_001);
+            // Khoảng một nửa số phiếu đã trả đủ
+            int paid = random.nextBoolean() ? total : random.nextInt(total + 1);
+            batch.add(new Object[] {agents.get(random.nextInt(AGENTS)).getAgentId(),
+                Date.valueOf(FIRST_DAY.plusDays(random.nextInt(DAYS))), total, paid, total - paid});
+            if (batch.size() == 10_000 || i == ROWS - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO export_receipt (agent, create_date, total_amount, paid_amount, " +
+                    "remaining_amount) VALUES (?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    private static ExportReceiptSearchCriteria criteria(List<Integer> agentIds, Integer districtId, Integer agentTypeId,
+                                                        LocalDate fromDate, LocalDate toDate,
+                                                        Integer minAmount, Integer maxAmount, Boolean hasRemaining) {
+        return new ExportReceiptSearchCriteria(agentIds, districtId, agentTypeId, fromDate, toDate,
+            minAmount, maxAmount, hasRemaining);
+    }
+
+    private List<Integer> walk(ExportReceiptService service, ExportReceiptSearchCriteria criteria) {
+        List<Integer> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            KeysetPage<ExportReceipt> page = service.searchExportReceipts(criteria, cursor, 7).getData();
+            page.getItems().forEach(receipt -> ids.add(receipt.getExportReceiptId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private List<Integer> expectedIds(Agent first, Agent second, LocalDate from, LocalDate to) {
+        return jdbcTemplate.queryForList("SELECT export_receipt_id FROM export_receipt " +
+                "WHERE agent IN (?, ?) AND create_date BETWEEN ? AND ? AND remaining_amount > 0 " +
+                "ORDER BY create_date DESC, export_receipt_id DESC", Integer.class,
+            first.getAgentId(), second.getAgentId(), Date.valueOf(from), Date.valueOf(to));
+    }
+
+    private static double percentile(long[] nanos, int percentile) {
+        long[] sorted = Arrays.copyOf(nanos, nanos.length);
+        Arrays.sort(sorted);
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(percentile / 100.0 * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.AgentManagementBE.Service;
+
+import org.example.AgentManagementBE.DTO.request.CreateExportReceiptWithMultipleProductsRequest;
+import org.example.AgentManagementBE.DTO.request.ExportDetailRequest;
+import org.example.AgentManagementBE.DTO.response.DebtLimitViolation;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.ExportReceipt;
+import org.example.AgentManagementBE.Model.Product;
+import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.Repository.ExportDetailRepository;
+import org.example.AgentManagementBE.Repository.ExportReceiptRepository;
+import org.example.AgentManagementBE.Repository.ProductRepository;
+import org.example.AgentManagementBE.exception.AppException;
+import org.example.AgentManagementBE.exception.ErrorCode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExportReceiptServiceTest {
+
+    private final ExportReceiptRepository exportReceiptRepository = mock(ExportReceiptRepository.class);
+    private final ExportDetailRepository exportDetailRepository = mock(ExportDetailRepository.class);
+    private final AgentRepository agentRepository = mock(AgentRepository.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final DebtReportMaintenanceService debtReportMaintenanceService = mock(DebtReportMaintenanceService.class);
+    private final AgentService agentService = mock(AgentService.class);
+    private final AgentMonthlyAggregateService agentMonthlyAggregateService = mock(AgentMonthlyAggregateService.class);
+
+    private final ExportReceiptService exportReceiptService = new ExportReceiptService(
+        exportReceiptRepository, exportDetailRepository, agentRepository, productRepository, debtReportMaintenanceService,
+        agentService, agentMonthlyAggregateService, mock(KeysetPagination.class), mock(JsonStreamWriter.class));
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 50, 500})
+    void createWithMultipleProductsUsesConstantNumberOfStatements(int lineCount) {
+        stubAgent();
+        List<Product> products = new ArrayList<>();
+        List<ExportDetailRequest> details = new ArrayList<>();
+        for (int i = 1; i <= lineCount; i++) {
+            products.add(product(i, 100));
+            details.add(new ExportDetailRequest(i, 1));
+        }
+        when(productRepository.findAllById(anyIterable())).thenReturn(products);
+        when(exportReceiptRepository.save(any(ExportReceipt.class))).thenAnswer(inv -> {
+            ExportReceipt receipt = inv.getArgument(0);
+            receipt.setExportReceiptId(1);
+            return receipt;
+        });
+
+        exportReceiptService.createExportReceiptWithMultipleProducts(
+            new CreateExportReceiptWithMultipleProductsRequest(LocalDate.of(2025, 6, 1), 1, 0, details));
+
+        verify(productRepository, times(1)).findAllById(anyIterable());
+        verify(productRepository, never()).findById(anyInt());
+        verify(productRepository, never()).save(any(Product.class));
+        verify(productRepository, times(1)).batchDecrementInventory(anyMap());
+        verify(exportDetailRepository, times(1)).batchInsert(anyList());
+        verify(exportDetailRepository, never()).saveAll(anyIterable());
+        verify(exportReceiptRepository, times(1)).save(any(ExportReceipt.class));
+    }
+
+    @Test
+    void createWithMultipleProductsRejectsDuplicateProduct() {
+        stubAgent();
+        List<ExportDetailRequest> details = List.of(new ExportDetailRequest(1, 1), new ExportDetailRequest(1, 2));
+
+        assertThrows(AppException.class, () -> exportReceiptService.createExportReceiptWithMultipleProducts(
+            new CreateExportReceiptWithMultipleProductsRequest(LocalDate.of(2025, 6, 1), 1, 0, details)));
+
+        verify(productRepository, never()).findAllById(anyIterable());
+        verify(exportReceiptRepository, never()).save(any(ExportReceipt.class));
+    }
+
+    @Test
+    void createWithMultipleProductsRejectsInsufficientInventoryBeforeWriting() {
+        stubAgent();
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of(product(1, 100), product(2, 1)));
+        List<ExportDetailRequest> details = List.of(new ExportDetailRequest(1, 1), new ExportDetailRequest(2, 5));
+
+        assertThrows(AppException.class, () -> exportReceiptService.createExportReceiptWithMultipleProducts(
+            new CreateExportReceiptWithMultipleProductsRequest(LocalDate.of(2025, 6, 1), 1, 0, details)));
+
+        verify(exportReceiptRepository, never()).save(any(ExportReceipt.class));
+        verify(exportDetailRepository, never()).batchInsert(anyList());
+        verify(productRepository, never()).batchDecrementInventory(anyMap());
+    }
+
+    @Test
+    void createWithMultipleProductsSurfacesDebtLimitViolation() {
+        stubAgent();
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of(product(1, 100)));
+        when(agentService.applyDebtDelta(1, 5000, true)).thenReturn(Optional.of(new DebtLimitViolation(
+            DebtLimitViolation.AGENT_DEBT_LIMIT_EXCEEDED, 1, "Đại lý 1", 9000, 5000, 10000, "Loại 1")));
+        List<ExportDetailRequest> details = List.of(new ExportDetailRequest(1, 5));
+
+        AppException ex = assertThrows(AppException.class, () -> exportReceiptService.createExportReceiptWithMultipleProducts(
+            new CreateExportReceiptWithMultipleProductsRequest(LocalDate.of(2025, 6, 1), 1, 0, details)));
+
+        assertEquals(ErrorCode.AGENT_DEBT_LIMIT_EXCEEDED, ex.getErrorCode());
+        DebtLimitViolation violation = (DebtLimitViolation) ex.getData();
+        assertEquals(14000, violation.getNewTotalDebt());
+        assertEquals(10000, violation.getMaxAllowedDebt());
+        verify(exportReceiptRepository, never()).save(any(ExportReceipt.class));
+    }
+
+    private void stubAgent() {
+        AgentType agentType = new AgentType("Loại 1", Integer.MAX_VALUE);
+        Agent agent = new Agent();
+        agent.setAgentId(1);
+        agent.setAgentName("Đại lý 1");
+        agent.setAgentType(agentType);
+        agent.setDebtMoney(0);
+        when(agentRepository.findById(1)).thenReturn(Optional.of(agent));
+    }
+
+    private static Product product(int id, int inventory) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName("Sản phẩm " + id);
+        product.setExportPrice(1000);
+        product.setInventoryQuantity(inventory);
+        return product;
+    }
+}
@@ -0,0 +1,189 @@
+package org.example.AgentManagementBE.Service;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.persistence.EntityManager;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Model.Product;
+import org.example.AgentManagementBE.Model.Unit;
+import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.Repository.AgentTypeRepository;
+import org.example.AgentManagementBE.Repository.DistrictRepository;
+import org.example.AgentManagementBE.Repository.ExportDetailRepository;
+import org.example.AgentManagementBE.Repository.ExportReceiptRepository;
+import org.example.AgentManagementBE.Repository.ProductRepository;
+import org.example.AgentManagementBE.Repository.UnitRepository;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ghi 1 triệu chi tiết phiếu xuất qua JsonStreamWriter. Maven chạy lớp này trong một JVM riêng với -Xmx nhỏ
+ * (execution streaming-memory trong pom.xml): nếu danh sách bị dựng trong bộ nhớ thì test hết heap.
+ * Cơ sở dữ liệu H2 dạng file để dữ liệu mẫu không nằm trong heap.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:file:./target/h2/exportstreaming;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExportStreamingMemoryTest {
+
+    private static final int DETAILS = Integer.getInteger("export-streaming.rows", 1_000_000);
+    private static final int DETAILS_PER_RECEIPT = 10;
+    private static final int CLEAR_EVERY = 500;
+    private static final int YEAR = 2024;
+    private static final int MONTH = 3;
+
+    @Autowired
+    private ExportDetailRepository exportDetailRepository;
+
+    @Autowired
+    private ExportReceiptRepository exportReceiptRepository;
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    @Autowired
+    private AgentTypeRepository agentTypeRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UnitRepository unitRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void streamsMillionRowsWithBoundedPersistenceContext() throws Exception {
+        Product product = seed();
+        JsonStreamWriter writer = new JsonStreamWriter(JsonMapper.builder().findAndAddModules().build(),
+            entityManager, transactionManager, CLEAR_EVERY);
+
+        SamplingOutputStream details = new SamplingOutputStream();
+        long written = writer.write("Chi tiết", () -> exportDetailRepository.streamByProductId(product.getProductId()), details);
+
+        assertEquals(DETAILS, written);
+        assertTrue(details.head().startsWith("{\"code\":200,\"status\":\"success\",\"message\":\"Chi tiết\",\"data\":[{"),
+            details.head());
+        assertTrue(details.tail().endsWith("}]}"), details.tail());
+        // Mỗi dòng gồm chi tiết, phiếu, sản phẩm và các entity dùng chung; context được xóa sau mỗi CLEAR_EVERY dòng
+        assertTrue(details.maxManagedEntities <= CLEAR_EVERY * 3 + 10,
+            "Persistence context giữ " + details.maxManagedEntities + " entity");
+        // Cả triệu dòng đã thực sự được ghi ra chứ không chỉ đếm
+        assertTrue(details.bytes > written * 100, details.bytes + " byte cho " + written + " dòng");
+
+        SamplingOutputStream receipts = new SamplingOutputStream();
+        assertEquals(DETAILS / DETAILS_PER_RECEIPT,
+            writer.write("Phiếu xuất", () -> exportReceiptRepository.streamByMonthAndYear(MONTH, YEAR), receipts));
+        assertTrue(receipts.tail().endsWith("}]}"), receipts.tail());
+    }
+
+    private Product seed() {
+        AgentType agentType = agentTypeRepository.save(new AgentType("Loại 1", Integer.MAX_VALUE));
+        District district = districtRepository.save(new District("Quận 1"));
+        Agent agent = new Agent("Đại lý 1", agentType, null, null, null, district, LocalDate.of(YEAR, 1, 1));
+        agent.setDebtMoney(0);
+        agent = agentRepository.save(agent);
+        Unit unit = unitRepository.save(new Unit("Thùng"));
+        Product product = new Product("Nước suối", unit, 3000, 3060);
+        product.setInventoryQuantity(0);
+        product = productRepository.save(product);
+
+        int receiptCount = DETAILS / DETAILS_PER_RECEIPT;
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < receiptCount; i++) {
+            batch.add(new Object[] {agent.getAgentId(), Date.valueOf(LocalDate.of(YEAR, MONTH, 1 + i % 28)), 30_600, 0, 30_600});
+            if (batch.size() == 10_000 || i == receiptCount - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO export_receipt (agent, create_date, total_amount, paid_amount, " +
+                    "remaining_amount) VALUES (?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        // Mỗi phiếu có DETAILS_PER_RECEIPT dòng chi tiết của cùng sản phẩm
+        for (int copy = 0; copy < DETAILS_PER_RECEIPT; copy++) {
+            jdbcTemplate.update("INSERT INTO export_detail (export_receipt_id, product, quantity_export, export_price, " +
+                "into_money) SELECT export_receipt_id, ?, 1, 3060, 3060 FROM export_receipt", product.getProductId());
+        }
+        return product;
+    }
+
+    /**
+     * Đếm số byte, giữ phần đầu và phần cuối của phản hồi, đồng thời ghi lại số entity lớn nhất
+     * trong persistence context mỗi lần JsonGenerator đẩy dữ liệu ra
+     */
+    private final class SamplingOutputStream extends OutputStream {
+        private static final int SAMPLE = 256;
+        private final byte[] head = new byte[SAMPLE];
+        private final byte[] tail = new byte[SAMPLE];
+        private long bytes;
+        private int maxManagedEntities;
+
+        @Override
+        public void write(int b) {
+            if (bytes < SAMPLE) {
+                head[(int) bytes] = (byte) b;
+            }
+            tail[(int) (bytes % SAMPLE)] = (byte) b;
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                maxManagedEntities = Math.max(maxManagedEntities,
+                    entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+            }
+        }
+
+        private String head() {
+            return new String(head, 0, (int) Math.min(bytes, SAMPLE), StandardCharsets.UTF_8);
+        }
+
+        private String tail() {
+            int length = (int) Math.min(bytes, SAMPLE);
+            byte[] ordered = new byte[length];
+            for (int i = 0; i < length; i++) {
+                ordered[i] = tail[(int) ((bytes - length + i) % SAMPLE)];
+            }
+            return new String(ordered, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.AgentManagementBE.Service;
+
+import org.example.AgentManagementBE.DTO.request.CreateImportReceiptRequest;
+import org.example.AgentManagementBE.DTO.request.UpdateImportReceiptRequest;
+import org.example.AgentManagementBE.Model.Product;
+import org.example.AgentManagementBE.Model.Unit;
+import org.example.AgentManagementBE.Repository.ImportDetailRepository;
+import org.example.AgentManagementBE.Repository.ImportReceiptRepository;
+import org.example.AgentManagementBE.Repository.ProductRepository;
+import org.example.AgentManagementBE.Repository.UnitRepository;
+import org.example.AgentManagementBE.exception.AppException;
+import org.example.AgentManagementBE.exception.ErrorCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:importreceipt;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ImportReceiptServiceTest {
+
+    @Autowired
+    private ImportReceiptRepository importReceiptRepository;
+
+    @Autowired
+    private ImportDetailRepository importDetailRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UnitRepository unitRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ImportReceiptService service;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        service = new ImportReceiptService(importReceiptRepository, importDetailRepository, productRepository,
+            new KeysetPagination(50, 500, 10_000));
+        Unit unit = unitRepository.save(new Unit("Thùng " + System.nanoTime()));
+        product = new Product("Bia Tiger", unit, 1000, 1020);
+        product.setInventoryQuantity(0);
+        product = productRepository.save(product);
+    }
+
+    @Test
+    void quantityUpdateAppliesDeltaOnTopOfConcurrentExports() {
+        int receiptId = createReceipt(10);
+        assertEquals(10, stock());
+        // Phiếu xuất đồng thời đã trừ 7 sau khi sản phẩm được nạp vào persistence context
+        jdbcTemplate.update("UPDATE product SET inventory_quantity = inventory_quantity - 7 WHERE product_id = ?",
+            product.getProductId());
+
+        service.updateImportReceiptQuantity(new UpdateImportReceiptRequest(receiptId, 12));
+        assertEquals(5, stock());
+
+        service.updateImportReceiptQuantity(new UpdateImportReceiptRequest(receiptId, 8));
+        assertEquals(1, stock());
+    }
+
+    @Test
+    void quantityDecreaseAndDeleteNeverDriveStockNegative() {
+        int receiptId = createReceipt(10);
+        jdbcTemplate.update("UPDATE product SET inventory_quantity = 2 WHERE product_id = ?", product.getProductId());
+
+        AppException update = assertThrows(AppException.class,
+            () -> service.updateImportReceiptQuantity(new UpdateImportReceiptRequest(receiptId, 5)));
+        AppException delete = assertThrows(AppException.class, () -> service.deleteImportReceipt(receiptId));
+
+        assertEquals(ErrorCode.INSUFFICIENT_INVENTORY, update.getErrorCode());
+        assertEquals(ErrorCode.BAD_REQUEST, delete.getErrorCode());
+        assertTrue(delete.getMessage().contains("(2)"), delete.getMessage());
+        assertEquals(2, stock());
+    }
+
+    private int createReceipt(int quantity) {
+        return service.createImportReceiptWithDetails(new CreateImportReceiptRequest(LocalDate.of(2024, 3, 1),
+            product.getProductId(), product.getUnit().getUnitId(), quantity)).getData().getImportReceiptId();
+    }
+
+    private int stock() {
+        return jdbcTemplate.queryForObject("SELECT inventory_quantity FROM product WHERE product_id = ?", Integer.class,
+            product.getProductId());
+    }
+}
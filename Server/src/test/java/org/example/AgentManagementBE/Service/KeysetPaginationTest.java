@@ -0,0 +1,137 @@
+package org.example.AgentManagementBE.Service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.AgentManagementBE.DTO.response.KeysetPage;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Model.ExportReceipt;
+import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.Repository.AgentTypeRepository;
+import org.example.AgentManagementBE.Repository.DistrictRepository;
+import org.example.AgentManagementBE.Repository.ExportReceiptRepository;
+import org.example.AgentManagementBE.exception.AppException;
+import org.example.AgentManagementBE.exception.ErrorCode;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:keysetpagination;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class KeysetPaginationTest {
+
+    @Autowired
+    private ExportReceiptRepository exportReceiptRepository;
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    @Autowired
+    private AgentTypeRepository agentTypeRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final KeysetPagination keysetPagination = new KeysetPagination(3, 5, 6);
+    private final List<Integer> receiptIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        exportReceiptRepository.deleteAll();
+        agentRepository.deleteAll();
+        receiptIds.clear();
+        // Mỗi phiếu thuộc một đại lý khác nhau để lộ N+1 nếu đại lý không được nạp cùng câu truy vấn
+        AgentType agentType = agentTypeRepository.save(new AgentType("Loại " + System.nanoTime(), 100_000));
+        District district = districtRepository.save(new District("Quận " + System.nanoTime()));
+        for (int i = 0; i < 7; i++) {
+            Agent agent = new Agent("Đại lý " + i, agentType, null, null, null, district, LocalDate.now());
+            agent.setDebtMoney(0);
+            agent = agentRepository.save(agent);
+            ExportReceipt receipt = new ExportReceipt(agent, LocalDate.now());
+            receipt.setTotalAmount(0);
+            receipt.setPaidAmount(0);
+            receipt.setRemainingAmount(0);
+            receiptIds.add(exportReceiptRepository.save(receipt).getExportReceiptId());
+        }
+    }
+
+    @Test
+    void pagesFollowCursorWithOneStatementEach() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Integer> seen = new ArrayList<>();
+        String cursor = null;
+        List<Integer> pageSizes = new ArrayList<>();
+        do {
+            KeysetPage<ExportReceipt> page = keysetPagination.page(cursor, null,
+                exportReceiptRepository::findPageAfter, ExportReceipt::getExportReceiptId);
+            page.getItems().forEach(receipt -> {
+                seen.add(receipt.getExportReceiptId());
+                assertTrue(receipt.getAgent().getAgentType().getAgentTypeName().startsWith("Loại"));
+            });
+            pageSizes.add(page.getItems().size());
+            assertEquals(page.getNextCursor() != null, page.getHasMore());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(receiptIds, seen);
+        assertEquals(List.of(3, 3, 1), pageSizes);
+        assertEquals(3, statistics.getPrepareStatementCount());
+
+        KeysetPage<ExportReceipt> lastPage = keysetPagination.page(null, 5,
+            exportReceiptRepository::findPageAfter, ExportReceipt::getExportReceiptId);
+        assertTrue(lastPage.getHasMore());
+        KeysetPage<ExportReceipt> tail = keysetPagination.page(lastPage.getNextCursor(), 5,
+            exportReceiptRepository::findPageAfter, ExportReceipt::getExportReceiptId);
+        assertEquals(2, tail.getItems().size());
+        assertFalse(tail.getHasMore());
+        assertNull(tail.getNextCursor());
+    }
+
+    @Test
+    void rejectsOversizedRequestsAndForgedCursors() {
+        AppException tooLarge = assertThrows(AppException.class,
+            () -> keysetPagination.all(exportReceiptRepository::findPageAfter));
+        assertEquals(ErrorCode.RESULT_TOO_LARGE, tooLarge.getErrorCode());
+
+        AppException badLimit = assertThrows(AppException.class, () -> keysetPagination.page(null, 6,
+            exportReceiptRepository::findPageAfter, ExportReceipt::getExportReceiptId));
+        assertEquals(ErrorCode.BAD_REQUEST, badLimit.getErrorCode());
+
+        AppException badCursor = assertThrows(AppException.class, () -> keysetPagination.page("không-hợp-lệ", null,
+            exportReceiptRepository::findPageAfter, ExportReceipt::getExportReceiptId));
+        assertEquals(ErrorCode.INVALID_CURSOR, badCursor.getErrorCode());
+
+        exportReceiptRepository.deleteAllById(receiptIds.subList(0, 2));
+        assertEquals(5, keysetPagination.all(exportReceiptRepository::findPageAfter).size());
+    }
+}
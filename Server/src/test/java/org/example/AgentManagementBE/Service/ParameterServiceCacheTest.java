@@ -0,0 +1,113 @@
+package org.example.AgentManagementBE.Service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.AgentManagementBE.Config.CacheCoherenceService;
+import org.example.AgentManagementBE.Model.Parameter;
+import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.Repository.DistrictRepository;
+import org.example.AgentManagementBE.Repository.ParameterRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:parametercache;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ParameterServiceCacheTest {
+
+    @Autowired
+    private ParameterRepository parameterRepository;
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ParameterService parameterService;
+
+    @BeforeEach
+    void setUp() {
+        parameterRepository.deleteAll();
+        parameterRepository.save(new Parameter("max_agent_per_district", "4", "Số đại lý tối đa trong một quận"));
+        parameterRepository.save(new Parameter("export_price_ratio", "1.02", "Tỷ lệ đơn giá xuất so với đơn giá nhập"));
+        parameterService = new ParameterService(parameterRepository, null,
+            agentRepository, districtRepository, mock(CacheCoherenceService.class));
+        parameterService.reload();
+    }
+
+    @Test
+    void typedReadsDoNotQueryDatabase() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(4, parameterService.getLong("max_agent_per_district", 0));
+            assertEquals(1.02, parameterService.getDouble("export_price_ratio", 1.0));
+        }
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(2, parameterService.getAllParameters().getData().size());
+    }
+
+    @Test
+    void updateBumpsVersionAndNotifiesListenersAfterCommit() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<String> changes = new ArrayList<>();
+        parameterService.addListener("max_agent_per_district",
+            (key, oldValue, newValue, version) -> changes.add(oldValue + "->" + newValue + "@" + version));
+        long version = parameterService.getVersion();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            parameterService.updateParameter(new Parameter("max_agent_per_district", "6", null));
+            assertEquals(4, parameterService.getLong("max_agent_per_district", 0));
+            assertTrue(changes.isEmpty());
+        });
+        assertEquals(6, parameterService.getLong("max_agent_per_district", 0));
+        assertEquals(version + 1, parameterService.getVersion());
+        assertEquals(List.of("4->6@" + (version + 1)), changes);
+
+        // Giao dịch rollback không làm thay snapshot
+        transactionTemplate.executeWithoutResult(status -> {
+            parameterService.updateParameter(new Parameter("max_agent_per_district", "8", null));
+            status.setRollbackOnly();
+        });
+        assertEquals(6, parameterService.getLong("max_agent_per_district", 0));
+        assertEquals(version + 1, parameterService.getVersion());
+
+        // Tham số khác thay đổi không báo cho listener của max_agent_per_district
+        parameterService.addParameter(new Parameter("report_day", "5", null));
+        assertEquals(version + 2, parameterService.getVersion());
+        assertEquals(5, parameterService.getLong("report_day", 0));
+        assertEquals(1, changes.size());
+    }
+}
@@ -0,0 +1,242 @@
+package org.example.AgentManagementBE.Service;
+
+import org.example.AgentManagementBE.DTO.response.BulkImportLineResult;
+import org.example.AgentManagementBE.DTO.response.BulkImportReport;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Repository.AgentMonthlyAggregateRepository;
+import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.Repository.AgentTypeRepository;
+import org.example.AgentManagementBE.Repository.DistrictRepository;
+import org.example.AgentManagementBE.Repository.ExportDetailRepository;
+import org.example.AgentManagementBE.Repository.ExportReceiptRepository;
+import org.example.AgentManagementBE.Repository.PaymentReceiptRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:paymentreceiptbulk;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentReceiptBulkImportServiceTest {
+
+    private static final YearMonth MARCH = YearMonth.of(2024, 3);
+    private static final YearMonth APRIL = YearMonth.of(2024, 4);
+
+    @Autowired
+    private PaymentReceiptRepository paymentReceiptRepository;
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    @Autowired
+    private AgentTypeRepository agentTypeRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private ExportDetailRepository exportDetailRepository;
+
+    @Autowired
+    private ExportReceiptRepository exportReceiptRepository;
+
+    @Autowired
+    private AgentMonthlyAggregateRepository agentMonthlyAggregateRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private AgentService agentService;
+    private DebtReportMaintenanceService debtReportMaintenanceService;
+    private PaymentReceiptBulkImportService service;
+    private Agent first;
+    private Agent second;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM payment_receipt");
+        agentMonthlyAggregateRepository.deleteAll();
+        agentRepository.deleteAll();
+
+        agentService = spy(new AgentService(agentRepository, null, exportDetailRepository, exportReceiptRepository,
+            paymentReceiptRepository, null, mock(ReferenceDataCache.class), mock(ParameterService.class)));
+        debtReportMaintenanceService = mock(DebtReportMaintenanceService.class);
+        service = new PaymentReceiptBulkImportService(paymentReceiptRepository, agentRepository, agentService,
+            new AgentMonthlyAggregateService(agentMonthlyAggregateRepository, agentRepository, transactionManager, 200, 1),
+            debtReportMaintenanceService, transactionManager, 2);
+
+        AgentType agentType = agentTypeRepository.save(new AgentType("Loại " + System.nanoTime(), 100_000));
+        District district = districtRepository.save(new District("Quận " + System.nanoTime()));
+        first = agent("Đại lý 1", "0901234567", "daily1@example.com", 10_000, agentType, district);
+        second = agent("Đại lý 2", "0907654321", null, 5000, agentType, district);
+    }
+
+    @Test
+    void matchesAgentsAndAppliesOneDebtUpdatePerAgent() throws Exception {
+        String body = String.join("\n",
+            PaymentReceiptBulkImportService.CSV_HEADER,
+            "2024-03-01,3000," + first.getAgentId() + ",",
+            "2024-03-02,2000,,CK DL 0907654321 thanh toan",
+            "2024-03-05,8000," + first.getAgentId() + ",",
+            "2024-04-01,4000,,thanh toan, nguoi gui daily1@example.com.",
+            "01/03/2024,1000," + first.getAgentId() + ",",
+            "2024-03-09,100,,khong ro nguoi gui",
+            "2024-03-10,1000,,+84901234567");
+
+        BulkImportReport report = service.ingest(stream(body), false);
+
+        assertTrue(report.getCommitted());
+        assertEquals(List.of("CREATED", "CREATED", "REJECTED", "CREATED", "REJECTED", "REJECTED", "CREATED"),
+            report.getLines().stream().map(BulkImportLineResult::getStatus).toList());
+        assertTrue(report.getLines().get(2).getMessage().contains("vượt quá số tiền nợ hiện tại 7000"),
+            report.getLines().get(2).getMessage());
+        assertNotNull(report.getLines().get(6).getRecordId());
+        assertEquals(4, report.getCreatedCount());
+        assertEquals(2, report.getChunkCount());
+
+        assertEquals(10_000 - 3000 - 4000 - 1000, debt(first));
+        assertEquals(3000, debt(second));
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payment_receipt", Integer.class));
+        assertEquals(4000, agentMonthlyAggregateRepository.findByAgentAndMonthAndYear(first.getAgentId(),
+            MARCH.getMonthValue(), MARCH.getYear()).orElseThrow().getPaymentRevenue());
+        // Một câu UPDATE nợ cho mỗi đại lý và một lần cập nhật báo cáo cho mỗi (đại lý, tháng)
+        verify(agentService).applyDebtDelta(first.getAgentId(), -8000, false);
+        verify(agentService).applyDebtDelta(second.getAgentId(), -2000, false);
+        verify(agentService, times(2)).applyDebtDelta(anyInt(), anyInt(), anyBoolean());
+        verify(debtReportMaintenanceService).recordChange(first.getAgentId(), MARCH, -4000);
+        verify(debtReportMaintenanceService).recordChange(first.getAgentId(), APRIL, -4000);
+        verify(debtReportMaintenanceService).recordChange(second.getAgentId(), MARCH, -2000);
+    }
+
+    @Test
+    void strictModeRollsBackWholeStatement() throws Exception {
+        String body = String.join("\n",
+            PaymentReceiptBulkImportService.CSV_HEADER,
+            "2024-03-01,3000," + first.getAgentId() + ",",
+            "2024-03-02,2000," + second.getAgentId() + ",",
+            "2024-03-03,1000,999999,");
+
+        BulkImportReport report = service.ingest(stream(body), true);
+
+        assertFalse(report.getCommitted());
+        assertEquals(List.of("ROLLED_BACK", "ROLLED_BACK", "REJECTED"),
+            report.getLines().stream().map(BulkImportLineResult::getStatus).toList());
+        assertEquals(10_000, debt(first));
+        assertEquals(5000, debt(second));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payment_receipt", Integer.class));
+        verify(agentService, never()).applyDebtDelta(anyInt(), anyInt(), anyBoolean());
+        verify(debtReportMaintenanceService, never()).recordChange(anyInt(), eq(MARCH), anyInt());
+    }
+
+    @Test
+    void paymentCommittedDuringImportRejectsOnlyTheLinesItNoLongerCovers() throws Exception {
+        String head = String.join("\n",
+            PaymentReceiptBulkImportService.CSV_HEADER,
+            "2024-03-01,6000," + first.getAgentId() + ",",
+            "");
+        String tail = String.join("\n",
+            "2024-03-02,3000," + first.getAgentId() + ",",
+            "2024-03-03,2000," + second.getAgentId() + ",");
+        // Phiếu thu khác trừ 5000 nợ của đại lý 1 và commit khi tệp mới đọc được một nửa
+        Enumeration<InputStream> parts = Collections.enumeration(List.of(stream(head), stream(tail)));
+        Enumeration<InputStream> withConcurrentPayment = new Enumeration<>() {
+            private int index;
+
+            @Override
+            public boolean hasMoreElements() {
+                return parts.hasMoreElements();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (index++ == 1) {
+                    ExecutorService executor = Executors.newSingleThreadExecutor();
+                    try {
+                        executor.submit(() -> jdbcTemplate.update(
+                            "UPDATE agent SET debt_money = debt_money - 5000 WHERE agent_id = ?", first.getAgentId())).get();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    } finally {
+                        executor.shutdown();
+                    }
+                }
+                return parts.nextElement();
+            }
+        };
+
+        BulkImportReport report = service.ingest(new SequenceInputStream(withConcurrentPayment), false);
+
+        assertTrue(report.getCommitted());
+        assertEquals(List.of("REJECTED", "CREATED", "CREATED"),
+            report.getLines().stream().map(BulkImportLineResult::getStatus).toList());
+        assertTrue(report.getLines().get(0).getMessage().contains("vượt quá số tiền nợ còn lại 5000"),
+            report.getLines().get(0).getMessage());
+        assertEquals(2, report.getCreatedCount());
+        assertEquals(1, report.getRejectedCount());
+        assertEquals(5000 - 3000, debt(first));
+        assertEquals(3000, debt(second));
+        assertEquals(List.of(3000, 2000), jdbcTemplate.queryForList(
+            "SELECT revenue FROM payment_receipt ORDER BY payment_date", Integer.class));
+        assertEquals(3000, agentMonthlyAggregateRepository.findByAgentAndMonthAndYear(first.getAgentId(),
+            MARCH.getMonthValue(), MARCH.getYear()).orElseThrow().getPaymentRevenue());
+        verify(agentService).applyDebtDelta(first.getAgentId(), -3000, false);
+        verify(debtReportMaintenanceService).recordChange(first.getAgentId(), MARCH, -3000);
+    }
+
+    private Agent agent(String name, String phone, String email, int debt, AgentType agentType, District district) {
+        Agent agent = new Agent(name, agentType, phone, email, null, district, LocalDate.of(2024, 1, 1));
+        agent.setDebtMoney(debt);
+        return agentRepository.save(agent);
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int debt(Agent agent) {
+        return jdbcTemplate.queryForObject("SELECT debt_money FROM agent WHERE agent_id = ?", Integer.class, agent.getAgentId());
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.AgentManagementBE.Service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.AgentManagementBE.Config.CacheCoherenceService;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Model.Role;
+import org.example.AgentManagementBE.Model.Unit;
+import org.example.AgentManagementBE.Repository.AgentTypeRepository;
+import org.example.AgentManagementBE.Repository.DistrictRepository;
+import org.example.AgentManagementBE.Repository.RoleRepository;
+import org.example.AgentManagementBE.Repository.UnitRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:referencedata;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReferenceDataCacheTest {
+
+    @Autowired
+    private AgentTypeRepository agentTypeRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private UnitRepository unitRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ReferenceDataCache referenceDataCache;
+
+    @BeforeEach
+    void setUp() {
+        agentTypeRepository.deleteAll();
+        districtRepository.deleteAll();
+        unitRepository.deleteAll();
+        roleRepository.deleteAll();
+        for (int i = 1; i <= 20; i++) {
+            districtRepository.save(new District("Quận " + i));
+            unitRepository.save(new Unit("Đơn vị " + i));
+        }
+        agentTypeRepository.save(new AgentType("Loại 1", 20_000_000));
+        agentTypeRepository.save(new AgentType("Loại 2", 50_000_000));
+        roleRepository.save(new Role("ADMIN"));
+        referenceDataCache = new ReferenceDataCache(agentTypeRepository, districtRepository, unitRepository,
+            roleRepository, meterRegistry, mock(CacheCoherenceService.class));
+        referenceDataCache.reload();
+    }
+
+    @Test
+    void lookupsAfterLoadDoNotQueryDatabase() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        for (int i = 0; i < 500; i++) {
+            District district = referenceDataCache.findDistrictByName("Quận " + (i % 20 + 1)).orElseThrow();
+            assertEquals(district, referenceDataCache.findDistrictById(district.getDistrictId()).orElseThrow());
+            Unit unit = referenceDataCache.findUnitByName("Đơn vị " + (i % 20 + 1)).orElseThrow();
+            assertEquals(unit, referenceDataCache.findUnitById(unit.getUnitId()).orElseThrow());
+            AgentType agentType = referenceDataCache.findAgentTypeByName("Loại " + (i % 2 + 1)).orElseThrow();
+            assertEquals(agentType, referenceDataCache.findAgentTypeById(agentType.getAgentTypeId()).orElseThrow());
+            assertTrue(referenceDataCache.findRoleByName("ADMIN").isPresent());
+        }
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(3500.0, meterRegistry.get("reference_data.cache.hits").counter().count());
+        assertEquals(20, referenceDataCache.getDistricts().size());
+    }
+
+    @Test
+    void snapshotIsSwappedOnlyAfterCommit() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        double reloads = meterRegistry.get("reference_data.cache.reloads").counter().count();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            districtRepository.save(new District("Quận mới"));
+            referenceDataCache.reloadAfterCommit();
+            assertFalse(referenceDataCache.getDistricts().stream()
+                .anyMatch(district -> "Quận mới".equals(district.getDistrictName())));
+        });
+        assertEquals(21, referenceDataCache.getDistricts().size());
+        assertEquals(reloads + 1, meterRegistry.get("reference_data.cache.reloads").counter().count());
+
+        // Giao dịch rollback không làm thay snapshot
+        transactionTemplate.executeWithoutResult(status -> {
+            unitRepository.save(new Unit("Đơn vị bị hủy"));
+            referenceDataCache.reloadAfterCommit();
+            status.setRollbackOnly();
+        });
+        assertEquals(20, referenceDataCache.getUnits().size());
+        assertEquals(reloads + 1, meterRegistry.get("reference_data.cache.reloads").counter().count());
+    }
+
+    @Test
+    void missesFallBackToDatabaseWithoutCaching() {
+        districtRepository.save(new District("Quận ngoài cache"));
+
+        assertTrue(referenceDataCache.findDistrictByName("Quận ngoài cache").isPresent());
+        assertTrue(referenceDataCache.findDistrictByName("Không tồn tại").isEmpty());
+        assertEquals(2.0, meterRegistry.get("reference_data.cache.misses").counter().count());
+        assertEquals(20, referenceDataCache.getDistricts().size());
+    }
+}
@@ -0,0 +1,163 @@
+package org.example.AgentManagementBE.Service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.AgentManagementBE.DTO.response.SalesReportSummaryResponse;
+import org.example.AgentManagementBE.Model.Agent;
+import org.example.AgentManagementBE.Model.AgentType;
+import org.example.AgentManagementBE.Model.District;
+import org.example.AgentManagementBE.Model.ExportReceipt;
+import org.example.AgentManagementBE.Repository.AgentMonthlyAggregateRepository;
+import org.example.AgentManagementBE.Repository.AgentRepository;
+import org.example.AgentManagementBE.Repository.AgentTypeRepository;
+import org.example.AgentManagementBE.Repository.DistrictRepository;
+import org.example.AgentManagementBE.Repository.ExportReceiptRepository;
+import org.example.AgentManagementBE.Repository.SalesReportRepository;
+import org.example.AgentManagementBE.exception.AppException;
+import org.example.AgentManagementBE.exception.ErrorCode;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Đo số câu SQL của bảng tổng hợp doanh số trên H2 khi số đại lý tăng dần.
+ * Bảng tổng hợp đọc từ AgentMonthlyAggregate nên số câu SQL không phụ thuộc số phiếu.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:salesreport;DB_CLOSE_DELAY=-1;NON_KEYWORDS=MONTH,YEAR,VALUE",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class SalesReportServiceTest {
+
+    private static final LocalDate REPORT_DATE = LocalDate.of(2025, 6, 15);
+
+    @Autowired
+    private SalesReportRepository salesReportRepository;
+
+    @Autowired
+    private ExportReceiptRepository exportReceiptRepository;
+
+    @Autowired
+    private AgentMonthlyAggregateRepository agentMonthlyAggregateRepository;
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    @Autowired
+    private AgentTypeRepository agentTypeRepository;
+
+    @Autowired
+    private DistrictRepository districtRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 100, 2000})
+    void summaryUsesOneQueryRegardlessOfAgentCount(int agentCount) {
+        seedAgents(agentCount);
+        SalesReportService service = new SalesReportService(salesReportRepository, agentMonthlyAggregateRepository);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        SalesReportSummaryResponse summary = service.getSalesReportSummary(6, 2025).getData();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(agentCount, summary.getAgentSummaries().size());
+    }
+
+    @Test
+    void summaryRanksAgentsByTotalAmountAndComputesRatio() {
+        List<Agent> agents = seedAgents(3);
+        // Đại lý thứ 3 có thêm một phiếu ngoài tháng báo cáo, không được tính
+        saveReceipt(agents.get(2), REPORT_DATE.plusMonths(1), 1_000_000);
+        entityManager.flush();
+        entityManager.clear();
+
+        SalesReportService service = new SalesReportService(salesReportRepository, agentMonthlyAggregateRepository);
+        SalesReportSummaryResponse summary = service.getSalesReportSummary(6, 2025).getData();
+
+        // Tổng trị giá từng đại lý: 1000, 2000, 3000 → tổng doanh thu 6000
+        assertEquals(6000, summary.getTotalRevenue());
+        List<SalesReportSummaryResponse.AgentSalesSummary> rows = summary.getAgentSummaries();
+        assertEquals(agents.get(2).getAgentId(), rows.get(0).getAgentId());
+        assertEquals(1, rows.get(0).getStt());
+        assertEquals(3000, rows.get(0).getTotalAmount());
+        assertEquals(50.0, rows.get(0).getRatio());
+        assertEquals(agents.get(0).getAgentId(), rows.get(2).getAgentId());
+        assertEquals(3, rows.get(2).getStt());
+        assertEquals(16.67, rows.get(2).getRatio());
+    }
+
+    @Test
+    void totalsOutsideIntRangeAreRejected() {
+        List<Agent> agents = seedAgents(2);
+        for (Agent agent : agents) {
+            agentMonthlyAggregateRepository.applyDelta(agent.getAgentId(), YearMonth.from(REPORT_DATE), 0,
+                1_500_000_000, 0, 1_500_000_000, 0);
+        }
+
+        SalesReportService service = new SalesReportService(salesReportRepository, agentMonthlyAggregateRepository);
+        AppException summary = assertThrows(AppException.class, () -> service.getSalesReportSummary(6, 2025));
+        AppException report = assertThrows(AppException.class, () -> service.createSalesReport(6, 2025));
+
+        assertEquals(ErrorCode.AMOUNT_OUT_OF_RANGE, summary.getErrorCode());
+        assertEquals(ErrorCode.AMOUNT_OUT_OF_RANGE, report.getErrorCode());
+    }
+
+    /**
+     * Tạo agentCount đại lý, đại lý thứ i có i phiếu xuất trị giá 1000 trong tháng báo cáo
+     */
+    private List<Agent> seedAgents(int agentCount) {
+        AgentType agentType = agentTypeRepository.save(new AgentType("Loại 1", Integer.MAX_VALUE));
+        District district = districtRepository.save(new District("Quận 1"));
+        List<Agent> agents = new ArrayList<>(agentCount);
+        for (int i = 1; i <= agentCount; i++) {
+            Agent agent = new Agent("Đại lý " + i, agentType, null, null, null, district, REPORT_DATE);
+            agent.setDebtMoney(0);
+            agents.add(agent);
+        }
+        agentRepository.saveAll(agents);
+        for (int i = 0; i < agentCount; i++) {
+            for (int j = 0; j <= Math.min(i, 2); j++) {
+                saveReceipt(agents.get(i), REPORT_DATE, 1000);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return agents;
+    }
+
+    private void saveReceipt(Agent agent, LocalDate createDate, int totalAmount) {
+        ExportReceipt receipt = new ExportReceipt(agent, createDate);
+        receipt.setTotalAmount(totalAmount);
+        receipt.setPaidAmount(0);
+        receipt.setRemainingAmount(totalAmount);
+        exportReceiptRepository.save(receipt);
+        // Bảng tổng hợp được cập nhật cùng lúc với phiếu như trong ExportReceiptService
+        agentMonthlyAggregateRepository.applyDelta(agent.getAgentId(), YearMonth.from(createDate), 1, totalAmount,
+            0, totalAmount, 0);
+    }
+}